@@ -1,15 +1,42 @@
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
+import ast.ASTBuilder;
+import ast.Block;
+import ast.Declaration;
+import ast.FlatTree;
+import ast.FlatTreeBuilder;
 import checker.DeclarationChecker;
+import checker.Diagnostic;
+import generator.ClassFileWriter;
+import generator.CodeEmitter;
 import generator.GeneratorException;
+import generator.JasminEmitter;
 import generator.JasminGenerator;
+import ir.CodeGenerator;
+import ir.ControlFlowGraph;
+import ir.PassManager;
+import ir.SsaBuilder;
 import lexer.*;
+import optimizer.ConstantFolder;
+import optimizer.DeadCodeEliminator;
+import optimizer.LoopInvariantHoister;
+import optimizer.RegisterAllocator;
+import optimizer.peephole.PeepholeOptimizer;
 import parser.*;
 import parser.grammar.*;
+import runner.ProgramRunner;
+import util.TeeAppendable;
 
 /**
  * Main class for running the compiler.
@@ -21,7 +48,13 @@ public class Main {
 	 * 
 	 * @param args
 	 *            Arguments which should contain the path to the text file to
-	 *            compile.
+	 *            compile, optionally preceded by -flat to use the flattened
+	 *            abstract syntax tree, -class to write a class file,
+	 *            -eager to evaluate both operands of && and ||, -ssa to
+	 *            generate the code from the intermediate representation,
+	 *            -buffered to buffer the output of the program and -stats
+	 *            to show the statistics of the optimizers, or preceded by
+	 *            -run to run the program without a target file.
 	 */
 	public static void main(String[] args) {
 		// If args is not a path to a text file, show help.
@@ -29,7 +62,41 @@ public class Main {
 
 		String inputProgram = "";
 
-		if (args.length != 2) {
+		// Options: use the flattened abstract syntax tree, write a class file
+		// instead of Jasmin code
+		boolean flat = false;
+		boolean classFile = false;
+		boolean run = false;
+		boolean eager = false;
+		boolean ssa = false;
+		boolean buffered = false;
+		boolean stats = false;
+		int firstArgument = 0;
+		while (firstArgument < args.length && args[firstArgument].startsWith("-")) {
+			if (args[firstArgument].equals("-flat")) {
+				flat = true;
+			} else if (args[firstArgument].equals("-class")) {
+				classFile = true;
+			} else if (args[firstArgument].equals("-run")) {
+				run = true;
+			} else if (args[firstArgument].equals("-eager")) {
+				eager = true;
+			} else if (args[firstArgument].equals("-ssa")) {
+				ssa = true;
+			} else if (args[firstArgument].equals("-buffered")) {
+				buffered = true;
+			} else if (args[firstArgument].equals("-stats")) {
+				stats = true;
+			} else {
+				showHelp();
+				System.exit(0);
+			}
+			firstArgument++;
+		}
+		args = Arrays.copyOfRange(args, firstArgument, args.length);
+
+		// A program which is run in memory has no target file
+		if (args.length != (run ? 1 : 2)) {
 			showHelp();
 			System.exit(0);
 		} else {
@@ -42,7 +109,7 @@ public class Main {
 			}
 		}
 
-		String outputFilename = args[1];
+		String outputFilename = run ? args[0] : args[1];
 
 		// Append symbol for EOF
 		inputProgram += "$";
@@ -62,52 +129,231 @@ public class Main {
 		// Syntactical Analysis
 		AbstractGrammar grammar = WhileGrammar.getInstance();
 		SLR1Parser parser = new SLR1Parser(grammar);
-		List<Rule> analysis = null;
+		Block program = null;
+		FlatTreeBuilder treeBuilder = new FlatTreeBuilder();
 		try {
-			analysis = parser.parse(symbols);
-			// System.out.println(analysis);
+			// The AST is built by semantic actions while parsing
+			if (flat) {
+				parser.parse(symbols, treeBuilder);
+			} else {
+				program = (Block) parser.parse(symbols, new ASTBuilder());
+			}
 		} catch (ParserException e) {
 			System.out.println("ParseErr");
 			System.out.println(e.getMessage());
-			System.out.println(e.getAnalysisBeforeFailure());
 			System.exit(2);
 		}
 
 		// Semantical Analysis
-		DeclarationChecker checker = new DeclarationChecker(symbols, analysis);
+		DeclarationChecker checker = flat ? new DeclarationChecker(treeBuilder.getTree())
+				: new DeclarationChecker(program);
 		if (!checker.checkDeclaredBeforeUsed()) {
 			System.out.println("SemanticErr");
+			for (Diagnostic diagnostic : checker.getDiagnostics()) {
+				System.out.println(diagnostic);
+			}
 			System.out.println("Not every variable was declared before use.");
 			System.exit(3);
 		}
 
+		// Constant Folding, Dead Code Elimination, Loop-Invariant Code Motion
+		// and Register Allocation, which is left to the code generator of the
+		// intermediate representation
+		ConstantFolder folder = new ConstantFolder();
+		DeadCodeEliminator eliminator = new DeadCodeEliminator();
+		LoopInvariantHoister hoister = new LoopInvariantHoister();
+		RegisterAllocator allocator = new RegisterAllocator();
+		allocator.setBufferedOutput(buffered);
+		FlatTree tree = checker.getTree();
+		Map<Declaration, Integer> registers = null;
+		if (flat) {
+			folder.fold(tree);
+			eliminator.eliminate(tree);
+			hoister.hoist(tree);
+			if (!ssa) {
+				allocator.allocate(tree);
+			}
+		} else {
+			program = folder.fold(program);
+			program = eliminator.eliminate(program);
+			program = hoister.hoist(program);
+			if (!ssa) {
+				registers = allocator.allocate(program);
+			}
+		}
+
+		// Lowering into the Intermediate Representation and its Optimization
+		ControlFlowGraph graph = null;
+		PassManager passes = new PassManager();
+		if (ssa) {
+			SsaBuilder builder = new SsaBuilder();
+			builder.setEagerGuards(eager);
+			graph = flat ? builder.build(tree) : builder.build(program);
+			passes.run(graph);
+		}
+
 		// Byte Code Generation
 		JasminGenerator jasminGenerator = new JasminGenerator();
-		String jasminCode = "";
+		jasminGenerator.setEagerGuards(eager);
+		jasminGenerator.setBufferedOutput(buffered);
+		jasminGenerator.setRegisters(registers);
+		CodeGenerator codeGenerator = new CodeGenerator();
+		codeGenerator.setBufferedOutput(buffered);
+		if (run) {
+			// The class is assembled and run in this virtual machine
+			String className = getFileName(outputFilename);
+			ClassFileWriter classWriter = new ClassFileWriter();
+			PeepholeOptimizer peephole = new PeepholeOptimizer(classWriter);
+			try {
+				translate(className, program, tree, graph, jasminGenerator, codeGenerator, peephole);
+				if (stats) {
+					showStatistics(ssa ? passes : null, peephole);
+				}
+				ProgramRunner.run(className, classWriter.getBytes(), new String[0]);
+			} catch (GeneratorException e) {
+				System.out.println("GeneratorErr");
+				System.out.println(e.getMessage());
+				System.exit(4);
+			} catch (InvocationTargetException e) {
+				e.getCause().printStackTrace();
+				System.exit(5);
+			}
+			return;
+		}
+		if (classFile) {
+			// The class file is assembled without Jasmin
+			ClassFileWriter classWriter = new ClassFileWriter();
+			PeepholeOptimizer peephole = new PeepholeOptimizer(classWriter);
+			try {
+				translate(getFileName(outputFilename), program, tree, graph, jasminGenerator, codeGenerator, peephole);
+				bytes2File(outputFilename, classWriter.getBytes());
+			} catch (GeneratorException e) {
+				System.out.println("GeneratorErr");
+				System.out.println(e.getMessage());
+				System.exit(4);
+			} catch (IOException e) {
+				e.printStackTrace();
+				System.exit(0);
+			}
+			System.out.println("Class file written to " + outputFilename);
+			if (stats) {
+				showStatistics(ssa ? passes : null, peephole);
+			}
+			return;
+		}
+
+		// The peephole optimizer keeps the instructions of main until the end
+		// of the class, their Jasmin code is streamed into the target file
+		// and echoed on the console
+		System.out.println("JASMIN code:");
+		PeepholeOptimizer peephole = null;
 		try {
-			jasminCode = jasminGenerator.translateWHILE(getFileName(outputFilename), checker.getAst());
+			Writer writer = new BufferedWriter(new FileWriter(outputFilename));
+			try {
+				Appendable sink = new TeeAppendable(writer, System.out);
+				peephole = new PeepholeOptimizer(new JasminEmitter(sink));
+				translate(getFileName(outputFilename), program, tree, graph, jasminGenerator, codeGenerator, peephole);
+			} finally {
+				writer.close();
+			}
 		} catch (GeneratorException e) {
 			System.out.println("GeneratorErr");
 			System.out.println(e.getMessage());
 			System.exit(4);
-		}
-		System.out.println("JASMIN code:");
-		System.out.println(jasminCode);
-
-		try {
-			string2File(outputFilename, jasminCode);
 		} catch (IOException e) {
 			e.printStackTrace();
 			System.exit(0);
 		}
+		System.out.println();
+
 		System.out.println("Jasmin code written to " + outputFilename);
+		if (stats) {
+			showStatistics(ssa ? passes : null, peephole);
+		}
+	}
+
+	/**
+	 * Translate the program by the code generator which matches its
+	 * representation.
+	 * 
+	 * @param name
+	 *            Name of the class.
+	 * @param program
+	 *            Abstract syntax tree, null if another representation is
+	 *            used.
+	 * @param tree
+	 *            Flattened abstract syntax tree, null if another
+	 *            representation is used.
+	 * @param graph
+	 *            Control flow graph of the intermediate representation, null
+	 *            if it is not used.
+	 * @param generator
+	 *            Generator for the abstract syntax trees.
+	 * @param codeGenerator
+	 *            Generator for the intermediate representation.
+	 * @param emitter
+	 *            Emitter of the instructions.
+	 * @throws GeneratorException
+	 *             Exception while generating or emitting the code.
+	 */
+	private static void translate(String name, Block program, FlatTree tree, ControlFlowGraph graph,
+			JasminGenerator generator, CodeGenerator codeGenerator, CodeEmitter emitter) throws GeneratorException {
+		if (graph != null) {
+			codeGenerator.translate(name, graph, emitter);
+		} else if (program != null) {
+			generator.translateWHILE(name, program, emitter);
+		} else {
+			generator.translateWHILE(name, tree, emitter);
+		}
+	}
+
+	/**
+	 * Show how often each pass over the intermediate representation has
+	 * changed the program, how often each rule of the peephole optimizer
+	 * has been applied and how many instructions it has removed or added.
+	 * 
+	 * @param passes
+	 *            Pass manager which has optimized the intermediate
+	 *            representation, null if it has not been used.
+	 * @param peephole
+	 *            Optimizer which has optimized a class.
+	 */
+	public static void showStatistics(PassManager passes, PeepholeOptimizer peephole) {
+		if (passes != null) {
+			System.out.println("IR optimization:");
+			for (int i = 0; i < passes.getPasses().size(); i++) {
+				System.out.println("  " + passes.getPasses().get(i).getName() + ": changed the program "
+						+ passes.getChangeCount(i) + " times");
+			}
+		}
+		System.out.println("Peephole optimization:");
+		for (int i = 0; i < peephole.getRules().size(); i++) {
+			int removed = peephole.getRemovedCount(i);
+			// a rule may replace an instruction by a longer sequence
+			String count = removed >= 0 ? "removed " + removed : "added " + -removed;
+			System.out.println("  " + peephole.getRules().get(i).getName() + ": applied "
+					+ peephole.getAppliedCount(i) + " times, " + count + " instructions");
+		}
 	}
 
 	/**
 	 * Show help.
 	 */
 	public static void showHelp() {
-		System.out.println("Usage: java Main PATH_TO_SOURCE_FILE PATH_TO_TARGET_FILE");
+		System.out.println("Usage: java Main [-flat] [-class] [-eager] [-ssa] [-buffered] [-stats] PATH_TO_SOURCE_FILE PATH_TO_TARGET_FILE");
+		System.out.println("       java Main [-flat] [-eager] [-ssa] [-buffered] [-stats] -run PATH_TO_SOURCE_FILE");
+		System.out.println("  -flat     use the flattened abstract syntax tree");
+		System.out.println("  -class    write a class file instead of Jasmin code, the target should end with .class");
+		System.out.println("  -run      compile the program in memory and run it in this virtual machine");
+		System.out.println("  -eager    evaluate both operands of && and || instead of short-circuit jumps");
+		System.out.println("  -ssa      optimize and generate the code from an SSA control flow graph");
+		System.out.println("  -buffered collect the output of the program in a buffer instead of printing each line");
+		System.out.println("  -stats    show how many instructions each rule of the peephole optimizer removed");
+		System.out.println();
+		System.out.println("Operators follow the usual precedence: * and / bind stronger than + and -, && binds");
+		System.out.println("stronger than ||, and operators of the same precedence group from the left. Programs");
+		System.out.println("which relied on the former grouping of all operators from the left change their");
+		System.out.println("meaning, e.g. 2 + 3 * 4 is now 14 instead of 20.");
 	}
 
 	/**
@@ -154,6 +400,25 @@ public class Main {
 		writer.close();
 	}
 
+	/**
+	 * Write bytes to file.
+	 * 
+	 * @param filename
+	 *            Name of file.
+	 * @param bytes
+	 *            Bytes to write.
+	 * @throws IOException
+	 *             FileNotFoundExeption when the file cannot be written to.
+	 */
+	public static void bytes2File(String filename, byte[] bytes) throws IOException {
+		OutputStream out = new FileOutputStream(filename);
+		try {
+			out.write(bytes);
+		} finally {
+			out.close();
+		}
+	}
+
 	/**
 	 * Return filename without extension
 	 * 
@@ -0,0 +1,124 @@
+package ast;
+
+import java.util.List;
+
+import lexer.Symbol;
+import parser.ParserException;
+import parser.Rule;
+import parser.SemanticActions;
+import symbols.Tokens.Token;
+
+/**
+ * Semantic actions which build the abstract syntax tree of a WhileGrammar
+ * program while parsing. Shifted tokens are kept as symbols on the value
+ * stack; only identifiers, numbers and operators are taken over into the
+ * tree, punctuation is dropped. The value of the start symbol is the
+ * outermost block.
+ */
+public class ASTBuilder implements SemanticActions<Object> {
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see parser.SemanticActions#shift(lexer.Symbol)
+	 */
+	public Object shift(Symbol symbol) {
+		return symbol;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see parser.SemanticActions#reduce(parser.Rule, java.util.List)
+	 */
+	public Object reduce(Rule rule, List<Object> values) throws ParserException {
+		switch (rule.getLhs()) {
+		case START:
+		case STATEMENT:
+			// start -> program EOF, statement -> ... SEM
+			return values.get(0);
+		case PROGRAM:
+			if (values.size() == 1) {
+				return new Block((Statement) values.get(0));
+			}
+			// program -> program statement: append to the existing block
+			Block block = (Block) values.get(0);
+			block.add((Statement) values.get(1));
+			return block;
+		case DECLARATION:
+			Symbol name = (Symbol) values.get(1);
+			return new Declaration(name.getAttribute(), name.getOffset());
+		case ASSIGNMENT:
+			Symbol targetName = (Symbol) values.get(0);
+			Var target = new Var(targetName.getAttribute(), targetName.getOffset());
+			if (values.size() == 3) {
+				return new Assign(target, (Expression) values.get(2));
+			}
+			return new Assign(target, new Read());
+		case OUT:
+			if (values.get(2) instanceof Symbol) {
+				return new WriteString(attribute(values.get(2)));
+			}
+			return new Write((Expression) values.get(2));
+		case BRANCH:
+			if (values.size() == 7) {
+				return new If((Expression) values.get(2), (Block) values.get(5), null);
+			}
+			return new If((Expression) values.get(2), (Block) values.get(5), (Block) values.get(9));
+		case LOOP:
+			return new While((Expression) values.get(2), (Block) values.get(5));
+		case EXPR:
+		case GUARD:
+			return reduceExpression(values);
+		default:
+			throw new ParserException("No semantic action for rule " + rule);
+		}
+	}
+
+	/**
+	 * Build an expression or a guard.
+	 * 
+	 * @param values
+	 *            Values of the right-hand side.
+	 * @return Expression.
+	 * @throws ParserException
+	 *             Exception if a number does not fit into an int.
+	 */
+	private Expression reduceExpression(List<Object> values) throws ParserException {
+		switch (values.size()) {
+		case 1:
+			// NUM | ID
+			Symbol symbol = (Symbol) values.get(0);
+			if (symbol.getToken() == Token.NUMBER) {
+				try {
+					return new Const(Integer.parseInt(symbol.getAttribute()));
+				} catch (NumberFormatException e) {
+					throw new ParserException("Number " + symbol.getAttribute() + " is out of range");
+				}
+			}
+			return new Var(symbol.getAttribute(), symbol.getOffset());
+		case 3:
+			if (values.get(0) instanceof Symbol) {
+				// LBRAC x RBRAC
+				return (Expression) values.get(1);
+			}
+			// x op x
+			int operator = BinOp.operatorOf(((Symbol) values.get(1)).getToken());
+			return new BinOp(operator, (Expression) values.get(0), (Expression) values.get(2));
+		default:
+			// NOT LBRAC guard RBRAC
+			return new Not((Expression) values.get(2));
+		}
+	}
+
+	/**
+	 * Get the attribute of a shifted token.
+	 * 
+	 * @param value
+	 *            Value of the token.
+	 * @return Attribute.
+	 */
+	private static String attribute(Object value) {
+		return ((Symbol) value).getAttribute();
+	}
+}
@@ -0,0 +1,63 @@
+package ast;
+
+/**
+ * Assignment of an expression to a variable.
+ */
+public class Assign extends Statement {
+
+	// Assigned variable
+	private final Var target;
+
+	// Assigned value
+	private final Expression value;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param target
+	 *            Assigned variable.
+	 * @param value
+	 *            Assigned value.
+	 */
+	public Assign(Var target, Expression value) {
+		super(ASSIGN);
+		this.target = target;
+		this.value = value;
+	}
+
+	/**
+	 * Get the assigned variable.
+	 * 
+	 * @return Variable.
+	 */
+	public Var getTarget() {
+		return target;
+	}
+
+	/**
+	 * Get the assigned value.
+	 * 
+	 * @return Expression.
+	 */
+	public Expression getValue() {
+		return value;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see ast.Node#getChildCount()
+	 */
+	public int getChildCount() {
+		return 2;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see ast.Node#getChild(int)
+	 */
+	public Node getChild(int index) {
+		return index == 0 ? target : value;
+	}
+}
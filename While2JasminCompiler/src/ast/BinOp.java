@@ -0,0 +1,147 @@
+package ast;
+
+import symbols.Tokens.Token;
+
+/**
+ * Binary operation: arithmetic, relation or logical connective.
+ */
+public class BinOp extends Expression {
+
+	// Arithmetic operators
+	public static final int ADD = 0;
+	public static final int SUB = 1;
+	public static final int MUL = 2;
+	public static final int DIV = 3;
+
+	// Relations
+	public static final int LT = 4;
+	public static final int LEQ = 5;
+	public static final int EQ = 6;
+	public static final int NEQ = 7;
+	public static final int GEQ = 8;
+	public static final int GT = 9;
+
+	// Logical connectives
+	public static final int AND = 10;
+	public static final int OR = 11;
+
+	// Operator, one of the constants of this class
+	private final int operator;
+
+	// Left operand
+	private final Expression left;
+
+	// Right operand
+	private final Expression right;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param operator
+	 *            Operator, one of the constants of this class.
+	 * @param left
+	 *            Left operand.
+	 * @param right
+	 *            Right operand.
+	 */
+	public BinOp(int operator, Expression left, Expression right) {
+		super(BIN_OP);
+		this.operator = operator;
+		this.left = left;
+		this.right = right;
+	}
+
+	/**
+	 * Get the operator encoded by a token.
+	 * 
+	 * @param token
+	 *            Operator token.
+	 * @return Operator, -1 if the token is no binary operator.
+	 */
+	public static int operatorOf(Token token) {
+		switch (token) {
+		case PLUS:
+			return ADD;
+		case MINUS:
+			return SUB;
+		case TIMES:
+			return MUL;
+		case DIV:
+			return DIV;
+		case LT:
+			return LT;
+		case LEQ:
+			return LEQ;
+		case EQ:
+			return EQ;
+		case NEQ:
+			return NEQ;
+		case GEQ:
+			return GEQ;
+		case GT:
+			return GT;
+		case AND:
+			return AND;
+		case OR:
+			return OR;
+		default:
+			return -1;
+		}
+	}
+
+	/**
+	 * Check if an operator is a relation.
+	 * 
+	 * @param operator
+	 *            Operator.
+	 * @return True iff the operator compares two integers.
+	 */
+	public static boolean isRelation(int operator) {
+		return operator >= LT && operator <= GT;
+	}
+
+	/**
+	 * Get the operator.
+	 * 
+	 * @return One of the operator constants of this class.
+	 */
+	public int getOperator() {
+		return operator;
+	}
+
+	/**
+	 * Get the left operand.
+	 * 
+	 * @return Left operand.
+	 */
+	public Expression getLeft() {
+		return left;
+	}
+
+	/**
+	 * Get the right operand.
+	 * 
+	 * @return Right operand.
+	 */
+	public Expression getRight() {
+		return right;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see ast.Node#getChildCount()
+	 */
+	public int getChildCount() {
+		return 2;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see ast.Node#getChild(int)
+	 */
+	public Node getChild(int index) {
+		return index == 0 ? left : right;
+	}
+}
@@ -0,0 +1,75 @@
+package ast;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sequence of statements, i.e. the whole program or the body of a branch or a
+ * loop. Every block opens a new scope.
+ */
+public class Block extends Statement {
+
+	// Statements in the order of the program
+	private final List<Statement> statements = new ArrayList<Statement>();
+
+	/**
+	 * Constructor for a block with a first statement.
+	 * 
+	 * @param statement
+	 *            First statement.
+	 */
+	public Block(Statement statement) {
+		super(BLOCK);
+		statements.add(statement);
+	}
+
+	/**
+	 * Constructor for a block with given statements, e.g. of a transformed
+	 * program.
+	 * 
+	 * @param statements
+	 *            Statements in the order of the program, possibly none if
+	 *            dead code has been removed.
+	 */
+	public Block(List<Statement> statements) {
+		super(BLOCK);
+		this.statements.addAll(statements);
+	}
+
+	/**
+	 * Append a statement while the block is being parsed.
+	 * 
+	 * @param statement
+	 *            Statement.
+	 */
+	void add(Statement statement) {
+		statements.add(statement);
+	}
+
+	/**
+	 * Get all statements.
+	 * 
+	 * @return Statements in the order of the program.
+	 */
+	public List<Statement> getStatements() {
+		return statements;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see ast.Node#getChildCount()
+	 */
+	public int getChildCount() {
+		return statements.size();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see ast.Node#getChild(int)
+	 */
+	public Node getChild(int index) {
+		return statements.get(index);
+	}
+}
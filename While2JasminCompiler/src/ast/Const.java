@@ -0,0 +1,30 @@
+package ast;
+
+/**
+ * Integer constant.
+ */
+public class Const extends Expression {
+
+	// Value of the constant
+	private final int value;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param value
+	 *            Value of the constant.
+	 */
+	public Const(int value) {
+		super(CONST);
+		this.value = value;
+	}
+
+	/**
+	 * Get the value.
+	 * 
+	 * @return Value.
+	 */
+	public int getValue() {
+		return value;
+	}
+}
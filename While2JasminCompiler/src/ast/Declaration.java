@@ -0,0 +1,73 @@
+package ast;
+
+/**
+ * Declaration of an integer variable.
+ */
+public class Declaration extends Statement {
+
+	// Name of the variable
+	private final String name;
+
+	// Position of the name in the input
+	private final int offset;
+
+	// True iff the variable is set to 0 by the declaration
+	private final boolean initialized;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param name
+	 *            Name of the variable.
+	 * @param offset
+	 *            Index of the name in the input, see {@link lexer.Symbol}.
+	 */
+	public Declaration(String name, int offset) {
+		this(name, offset, true);
+	}
+
+	/**
+	 * Constructor for a declaration which may leave the variable unset, if
+	 * its initial value is never read.
+	 * 
+	 * @param name
+	 *            Name of the variable.
+	 * @param offset
+	 *            Index of the name in the input, see {@link lexer.Symbol}.
+	 * @param initialized
+	 *            True iff the variable is set to 0.
+	 */
+	public Declaration(String name, int offset, boolean initialized) {
+		super(DECLARATION);
+		this.name = name;
+		this.offset = offset;
+		this.initialized = initialized;
+	}
+
+	/**
+	 * Get the name of the variable.
+	 * 
+	 * @return Name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Get the position of the name.
+	 * 
+	 * @return Index of the name in the input.
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Check if the variable is set to 0 by the declaration.
+	 * 
+	 * @return True unless the initial value is never read.
+	 */
+	public boolean isInitialized() {
+		return initialized;
+	}
+}
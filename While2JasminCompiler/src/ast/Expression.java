@@ -0,0 +1,18 @@
+package ast;
+
+/**
+ * Integer valued expression. Guards are expressions as well, they evaluate to
+ * 1 for true and 0 for false.
+ */
+public abstract class Expression extends Node {
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param kind
+	 *            Kind of the expression.
+	 */
+	protected Expression(int kind) {
+		super(kind);
+	}
+}
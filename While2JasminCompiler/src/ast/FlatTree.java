@@ -0,0 +1,407 @@
+package ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+import lexer.Symbol;
+
+/**
+ * Abstract syntax tree stored column-wise in parallel int arrays. A node is an
+ * index into the arrays, the tree is linked by first child and next sibling.
+ * Node kinds are the kinds of {@link Node}, the children are in the same
+ * order as the fields of the corresponding node classes:
+ * 
+ * BLOCK        statements, payload: last statement
+ * DECLARATION  payload: name
+ * ASSIGN       VAR, value
+ * IF           condition, then block, optional else block
+ * WHILE        condition, body
+ * WRITE        value
+ * WRITE_STRING payload: string literal
+ * CONST        payload: value
+ * VAR          payload: name
+ * READ
+ * BIN_OP       left, right, payload: operator of {@link BinOp}
+ * NOT          operand
+ * 
+ * Names and string literals are interned, the payload is their id, see
+ * {@link #getName(int)}. VAR and DECLARATION nodes also have the offset of
+ * their name in the input. A DECLARATION can be marked as uninitialized if
+ * the initial value 0 of the variable is never read, and a register can be
+ * allocated for it. The tree is built by {@link FlatTreeBuilder}.
+ */
+public class FlatTree {
+
+	// Index of a missing child or sibling
+	public static final int NONE = -1;
+
+	// Initial number of nodes
+	private static final int INITIAL_CAPACITY = 1024;
+
+	// Columns per node
+	private int[] kind = new int[INITIAL_CAPACITY];
+	private int[] firstChild = new int[INITIAL_CAPACITY];
+	private int[] nextSibling = new int[INITIAL_CAPACITY];
+	private int[] payload = new int[INITIAL_CAPACITY];
+	private int[] offset = new int[INITIAL_CAPACITY];
+
+	// Number of nodes
+	private int size = 0;
+
+	// Outermost block
+	private int root = NONE;
+
+	// Declarations which do not set their variable to 0
+	private BitSet uninitialized = new BitSet();
+
+	// Registers of the declarations, null if none has been allocated
+	private int[] registers;
+
+	// Interned names and string literals, the index is the id
+	private List<String> names = new ArrayList<String>();
+	private HashMap<String, Integer> nameIds = new HashMap<String, Integer>();
+
+	/**
+	 * Append a node.
+	 * 
+	 * @param nodeKind
+	 *            Kind of the node.
+	 * @param nodePayload
+	 *            Payload of the node.
+	 * @param children
+	 *            First child, the further children must already be linked as
+	 *            its siblings. NONE if the node is a leaf.
+	 * @return Index of the node.
+	 */
+	int add(int nodeKind, int nodePayload, int children) {
+		if (size == kind.length) {
+			int capacity = 2 * size;
+			kind = Arrays.copyOf(kind, capacity);
+			firstChild = Arrays.copyOf(firstChild, capacity);
+			nextSibling = Arrays.copyOf(nextSibling, capacity);
+			payload = Arrays.copyOf(payload, capacity);
+			offset = Arrays.copyOf(offset, capacity);
+		}
+		kind[size] = nodeKind;
+		payload[size] = nodePayload;
+		offset[size] = Symbol.NO_OFFSET;
+		firstChild[size] = children;
+		nextSibling[size] = NONE;
+		return size++;
+	}
+
+	/**
+	 * Link two nodes as siblings.
+	 * 
+	 * @param node
+	 *            Node.
+	 * @param sibling
+	 *            Next sibling of the node.
+	 */
+	void setNextSibling(int node, int sibling) {
+		nextSibling[node] = sibling;
+	}
+
+	/**
+	 * Change the kind of a node, e.g. of a name which turns out to be
+	 * declared.
+	 * 
+	 * @param node
+	 *            Node.
+	 * @param nodeKind
+	 *            New kind.
+	 */
+	void setKind(int node, int nodeKind) {
+		kind[node] = nodeKind;
+	}
+
+	/**
+	 * Set the position of a node in the input.
+	 * 
+	 * @param node
+	 *            Node.
+	 * @param nodeOffset
+	 *            Index of the first character of the node in the input.
+	 */
+	void setOffset(int node, int nodeOffset) {
+		offset[node] = nodeOffset;
+	}
+
+	/**
+	 * Set the payload of a node.
+	 * 
+	 * @param node
+	 *            Node.
+	 * @param nodePayload
+	 *            New payload.
+	 */
+	void setPayload(int node, int nodePayload) {
+		payload[node] = nodePayload;
+	}
+
+	/**
+	 * Replace an expression by a constant, e.g. after folding it. The former
+	 * children are no longer part of the tree.
+	 * 
+	 * @param node
+	 *            Expression.
+	 * @param value
+	 *            Value of the constant.
+	 */
+	public void replaceByConstant(int node, int value) {
+		kind[node] = Node.CONST;
+		payload[node] = value;
+		offset[node] = Symbol.NO_OFFSET;
+		firstChild[node] = NONE;
+	}
+
+	/**
+	 * Replace an expression by one of its children, e.g. x + 0 by x. The node
+	 * keeps its position among its siblings and takes the kind, payload,
+	 * offset and children of the child.
+	 * 
+	 * @param node
+	 *            Expression.
+	 * @param child
+	 *            Child of the expression.
+	 */
+	public void replaceByChild(int node, int child) {
+		kind[node] = kind[child];
+		payload[node] = payload[child];
+		offset[node] = offset[child];
+		firstChild[node] = firstChild[child];
+	}
+
+	/**
+	 * Replace the children of a node, e.g. the statements of a block after
+	 * unreachable statements have been removed.
+	 * 
+	 * @param node
+	 *            Node.
+	 * @param children
+	 *            New children in their order, their former siblings are
+	 *            ignored.
+	 * @param count
+	 *            Number of children.
+	 */
+	public void setChildren(int node, int[] children, int count) {
+		firstChild[node] = count > 0 ? children[0] : NONE;
+		for (int i = 0; i < count; i++) {
+			nextSibling[children[i]] = i + 1 < count ? children[i + 1] : NONE;
+		}
+		if (kind[node] == Node.BLOCK) {
+			payload[node] = count > 0 ? children[count - 1] : NONE;
+		}
+	}
+
+	/**
+	 * Move an expression into the assignment to a new variable, e.g. to
+	 * compute it once before a loop. The expression is replaced by the
+	 * variable. The declaration of the variable, which is marked as
+	 * uninitialized, and the assignment are not yet part of a block, see
+	 * {@link #setChildren(int, int[], int)}.
+	 * 
+	 * @param node
+	 *            Expression.
+	 * @param name
+	 *            Name of the new variable, which must not be used anywhere
+	 *            else.
+	 * @return Declaration, the assignment is its next sibling.
+	 */
+	public int extract(int node, String name) {
+		int nameId = intern(name);
+		int value = add(kind[node], payload[node], firstChild[node]);
+		offset[value] = offset[node];
+		int target = add(Node.VAR, nameId, NONE);
+		nextSibling[target] = value;
+		int assign = add(Node.ASSIGN, 0, target);
+		int declaration = add(Node.DECLARATION, nameId, NONE);
+		nextSibling[declaration] = assign;
+		uninitialized.set(declaration);
+		kind[node] = Node.VAR;
+		payload[node] = nameId;
+		firstChild[node] = NONE;
+		return declaration;
+	}
+
+	/**
+	 * Mark a declaration as uninitialized, i.e. it does not set its variable
+	 * to 0, since the initial value is never read.
+	 * 
+	 * @param node
+	 *            Declaration.
+	 */
+	public void setUninitialized(int node) {
+		uninitialized.set(node);
+	}
+
+	/**
+	 * Check if a declaration sets its variable to 0.
+	 * 
+	 * @param node
+	 *            Declaration.
+	 * @return False iff the declaration has been marked as uninitialized.
+	 */
+	public boolean isInitialized(int node) {
+		return !uninitialized.get(node);
+	}
+
+	/**
+	 * Set the register of the variable of a declaration.
+	 * 
+	 * @param node
+	 *            Declaration.
+	 * @param register
+	 *            Register.
+	 */
+	public void setRegister(int node, int register) {
+		if (registers == null || registers.length < size) {
+			int allocated = registers != null ? registers.length : 0;
+			registers = registers != null ? Arrays.copyOf(registers, size) : new int[size];
+			Arrays.fill(registers, allocated, size, NONE);
+		}
+		registers[node] = register;
+	}
+
+	/**
+	 * Get the register of the variable of a declaration.
+	 * 
+	 * @param node
+	 *            Declaration.
+	 * @return Register, NONE if the code generator chooses it.
+	 */
+	public int getRegister(int node) {
+		return registers != null && node < registers.length ? registers[node] : NONE;
+	}
+
+	/**
+	 * Set the outermost block, which completes the tree. The arrays are
+	 * shrunk to the number of nodes.
+	 * 
+	 * @param node
+	 *            Block.
+	 */
+	void setRoot(int node) {
+		root = node;
+		kind = Arrays.copyOf(kind, size);
+		firstChild = Arrays.copyOf(firstChild, size);
+		nextSibling = Arrays.copyOf(nextSibling, size);
+		payload = Arrays.copyOf(payload, size);
+		offset = Arrays.copyOf(offset, size);
+	}
+
+	/**
+	 * Get the id of a name or string literal, which is created upon the first
+	 * request.
+	 * 
+	 * @param name
+	 *            Name.
+	 * @return Id.
+	 */
+	int intern(String name) {
+		Integer id = nameIds.get(name);
+		if (id == null) {
+			id = names.size();
+			names.add(name);
+			nameIds.put(name, id);
+		}
+		return id;
+	}
+
+	/**
+	 * Get the outermost block.
+	 * 
+	 * @return Index of the root.
+	 */
+	public int getRoot() {
+		return root;
+	}
+
+	/**
+	 * Get the number of nodes.
+	 * 
+	 * @return Number of nodes.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Get the number of interned names and string literals.
+	 * 
+	 * @return Number of names, all ids are smaller.
+	 */
+	public int nrNames() {
+		return names.size();
+	}
+
+	/**
+	 * Get the kind of a node.
+	 * 
+	 * @param node
+	 *            Node.
+	 * @return One of the kind constants of {@link Node}.
+	 */
+	public int getKind(int node) {
+		return kind[node];
+	}
+
+	/**
+	 * Get the first child of a node.
+	 * 
+	 * @param node
+	 *            Node.
+	 * @return First child, NONE for a leaf.
+	 */
+	public int getFirstChild(int node) {
+		return firstChild[node];
+	}
+
+	/**
+	 * Get the next sibling of a node.
+	 * 
+	 * @param node
+	 *            Node.
+	 * @return Next sibling, NONE for the last child.
+	 */
+	public int getNextSibling(int node) {
+		return nextSibling[node];
+	}
+
+	/**
+	 * Get the payload of a node.
+	 * 
+	 * @param node
+	 *            Node.
+	 * @return Payload, its meaning depends on the kind.
+	 */
+	public int getPayload(int node) {
+		return payload[node];
+	}
+
+	/**
+	 * Get the position of a node in the input.
+	 * 
+	 * @param node
+	 *            Node.
+	 * @return Index of the first character, {@link Symbol#NO_OFFSET} if
+	 *         unknown.
+	 */
+	public int getOffset(int node) {
+		return offset[node];
+	}
+
+	/**
+	 * Get an interned name or string literal.
+	 * 
+	 * @param id
+	 *            Id from a payload.
+	 * @return Name.
+	 */
+	public String getName(int id) {
+		return names.get(id);
+	}
+}
@@ -0,0 +1,154 @@
+package ast;
+
+import lexer.Symbol;
+import parser.IntSemanticActions;
+import parser.ParserException;
+import parser.Rule;
+import symbols.Tokens.Token;
+
+/**
+ * Int valued semantic actions which build a {@link FlatTree} of a
+ * WhileGrammar program while parsing. The value of a shifted identifier is a
+ * VAR node, such that its position is kept. The value of another shifted
+ * token is its payload: the id of a string literal, the value of a number or
+ * the operator of a binary operator. The value of a non-terminal is the index
+ * of its node.
+ */
+public class FlatTreeBuilder implements IntSemanticActions {
+
+	// Tree under construction
+	private FlatTree tree = new FlatTree();
+
+	/**
+	 * Get the tree. Only complete after the parser has accepted the input.
+	 * 
+	 * @return Tree.
+	 */
+	public FlatTree getTree() {
+		return tree;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see parser.IntSemanticActions#shift(lexer.Symbol)
+	 */
+	public int shift(Symbol symbol) throws ParserException {
+		switch (symbol.getToken()) {
+		case ID:
+			int var = tree.add(Node.VAR, tree.intern(symbol.getAttribute()), FlatTree.NONE);
+			tree.setOffset(var, symbol.getOffset());
+			return var;
+		case STRING:
+			return tree.intern(symbol.getAttribute());
+		case NUMBER:
+			try {
+				return Integer.parseInt(symbol.getAttribute());
+			} catch (NumberFormatException e) {
+				throw new ParserException("Number " + symbol.getAttribute() + " is out of range");
+			}
+		default:
+			return BinOp.operatorOf(symbol.getToken());
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see parser.IntSemanticActions#reduce(parser.Rule, int[], int)
+	 */
+	public int reduce(Rule rule, int[] values, int offset) throws ParserException {
+		int length = rule.getRhs().length;
+		switch (rule.getLhs()) {
+		case START:
+			// start -> program EOF
+			tree.setRoot(values[offset]);
+			return values[offset];
+		case STATEMENT:
+			// statement -> ... SEM
+			return values[offset];
+		case PROGRAM:
+			if (length == 1) {
+				// the payload of a block is its last statement
+				return tree.add(Node.BLOCK, values[offset], values[offset]);
+			}
+			// program -> program statement: append to the existing block
+			int block = values[offset];
+			tree.setNextSibling(tree.getPayload(block), values[offset + 1]);
+			tree.setPayload(block, values[offset + 1]);
+			return block;
+		case DECLARATION:
+			// the name becomes the declaration
+			tree.setKind(values[offset + 1], Node.DECLARATION);
+			return values[offset + 1];
+		case ASSIGNMENT:
+			int target = values[offset];
+			int value = length == 3 ? values[offset + 2] : tree.add(Node.READ, 0, FlatTree.NONE);
+			return tree.add(Node.ASSIGN, 0, link(target, value));
+		case OUT:
+			if (rule.getRhs()[2] == Token.STRING) {
+				return tree.add(Node.WRITE_STRING, values[offset + 2], FlatTree.NONE);
+			}
+			return tree.add(Node.WRITE, 0, values[offset + 2]);
+		case BRANCH:
+			int children = link(values[offset + 2], values[offset + 5]);
+			if (length == 11) {
+				tree.setNextSibling(values[offset + 5], values[offset + 9]);
+			}
+			return tree.add(Node.IF, 0, children);
+		case LOOP:
+			return tree.add(Node.WHILE, 0, link(values[offset + 2], values[offset + 5]));
+		case EXPR:
+		case GUARD:
+			return reduceExpression(rule, values, offset);
+		default:
+			throw new ParserException("No semantic action for rule " + rule);
+		}
+	}
+
+	/**
+	 * Build an expression or a guard.
+	 * 
+	 * @param rule
+	 *            The applied rule.
+	 * @param values
+	 *            Value stack.
+	 * @param offset
+	 *            Index of the first right-hand side value.
+	 * @return Index of the expression.
+	 */
+	private int reduceExpression(Rule rule, int[] values, int offset) {
+		switch (rule.getRhs().length) {
+		case 1:
+			// NUM | ID
+			if (rule.getRhs()[0] == Token.NUMBER) {
+				return tree.add(Node.CONST, values[offset], FlatTree.NONE);
+			}
+			return values[offset];
+		case 3:
+			if (rule.getRhs()[0] == Token.LPAR) {
+				// LBRAC x RBRAC
+				return values[offset + 1];
+			}
+			// x op x
+			return tree.add(Node.BIN_OP, values[offset + 1], link(values[offset], values[offset + 2]));
+		default:
+			// NOT LBRAC guard RBRAC
+			return tree.add(Node.NOT, 0, values[offset + 2]);
+		}
+	}
+
+	/**
+	 * Link two nodes as siblings.
+	 * 
+	 * @param first
+	 *            First node.
+	 * @param second
+	 *            Second node.
+	 * @return The first node.
+	 */
+	private int link(int first, int second) {
+		tree.setNextSibling(first, second);
+		return first;
+	}
+}
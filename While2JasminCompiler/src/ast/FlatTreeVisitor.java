@@ -0,0 +1,39 @@
+package ast;
+
+/**
+ * Callbacks of a {@link TreeWalker} on a {@link FlatTree}, see
+ * {@link TreeVisitor}. Nodes are indices into the tree.
+ * 
+ * @param <E>
+ *            Type of the exception the visitor may throw.
+ */
+public interface FlatTreeVisitor<E extends Exception> {
+
+	/**
+	 * Enter a node, before its children are visited.
+	 * 
+	 * @param node
+	 *            Node.
+	 * @param parent
+	 *            Parent, {@link FlatTree#NONE} for the root.
+	 * @param index
+	 *            Index of the node among the children of its parent.
+	 * @throws E
+	 *             Exception of the visitor, stops the walk.
+	 */
+	void enter(int node, int parent, int index) throws E;
+
+	/**
+	 * Exit a node, after its children have been visited.
+	 * 
+	 * @param node
+	 *            Node.
+	 * @param parent
+	 *            Parent, {@link FlatTree#NONE} for the root.
+	 * @param index
+	 *            Index of the node among the children of its parent.
+	 * @throws E
+	 *             Exception of the visitor, stops the walk.
+	 */
+	void exit(int node, int parent, int index) throws E;
+}
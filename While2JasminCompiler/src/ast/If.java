@@ -0,0 +1,85 @@
+package ast;
+
+/**
+ * Branch with an optional else block.
+ */
+public class If extends Statement {
+
+	// Guard of the branch
+	private final Expression condition;
+
+	// Block executed if the guard holds
+	private final Block thenBlock;
+
+	// Block executed otherwise, null if there is no else
+	private final Block elseBlock;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param condition
+	 *            Guard of the branch.
+	 * @param thenBlock
+	 *            Block executed if the guard holds.
+	 * @param elseBlock
+	 *            Block executed otherwise, null if there is none.
+	 */
+	public If(Expression condition, Block thenBlock, Block elseBlock) {
+		super(IF);
+		this.condition = condition;
+		this.thenBlock = thenBlock;
+		this.elseBlock = elseBlock;
+	}
+
+	/**
+	 * Get the guard.
+	 * 
+	 * @return Guard.
+	 */
+	public Expression getCondition() {
+		return condition;
+	}
+
+	/**
+	 * Get the block executed if the guard holds.
+	 * 
+	 * @return Then block.
+	 */
+	public Block getThenBlock() {
+		return thenBlock;
+	}
+
+	/**
+	 * Get the block executed if the guard does not hold.
+	 * 
+	 * @return Else block, null if there is none.
+	 */
+	public Block getElseBlock() {
+		return elseBlock;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see ast.Node#getChildCount()
+	 */
+	public int getChildCount() {
+		return elseBlock != null ? 3 : 2;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see ast.Node#getChild(int)
+	 */
+	public Node getChild(int index) {
+		switch (index) {
+		case 0:
+			return condition;
+		case 1:
+			return thenBlock;
+		default:
+			return elseBlock;
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package ast;
+
+/**
+ * Node of the abstract syntax tree. In contrast to the parse tree it only
+ * contains the structure of the program: no punctuation, no chain rules and
+ * operators encoded as integers.
+ * 
+ * Every node has a kind, such that consumers can switch over the node types
+ * instead of testing them one by one.
+ */
+public abstract class Node {
+
+	// Kinds of statements
+	public static final int BLOCK = 0;
+	public static final int DECLARATION = 1;
+	public static final int ASSIGN = 2;
+	public static final int IF = 3;
+	public static final int WHILE = 4;
+	public static final int WRITE = 5;
+	public static final int WRITE_STRING = 6;
+
+	// Kinds of expressions
+	public static final int CONST = 7;
+	public static final int VAR = 8;
+	public static final int READ = 9;
+	public static final int BIN_OP = 10;
+	public static final int NOT = 11;
+
+	// Kind of this node
+	private final int kind;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param kind
+	 *            Kind of the node.
+	 */
+	protected Node(int kind) {
+		this.kind = kind;
+	}
+
+	/**
+	 * Get the kind of the node.
+	 * 
+	 * @return One of the kind constants of this class.
+	 */
+	public int getKind() {
+		return kind;
+	}
+
+	/**
+	 * Get the number of children, i.e. of nested statements and expressions.
+	 * 
+	 * @return Number of children, 0 for a leaf.
+	 */
+	public int getChildCount() {
+		return 0;
+	}
+
+	/**
+	 * Get a child. The children are ordered as in the program text.
+	 * 
+	 * @param index
+	 *            Index of the child, less than {@link #getChildCount()}.
+	 * @return Child.
+	 */
+	public Node getChild(int index) {
+		throw new IndexOutOfBoundsException("Node of kind " + kind + " has no children");
+	}
+}
@@ -0,0 +1,48 @@
+package ast;
+
+/**
+ * Negation of a guard.
+ */
+public class Not extends Expression {
+
+	// Negated guard
+	private final Expression operand;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param operand
+	 *            Negated guard.
+	 */
+	public Not(Expression operand) {
+		super(NOT);
+		this.operand = operand;
+	}
+
+	/**
+	 * Get the negated guard.
+	 * 
+	 * @return Guard.
+	 */
+	public Expression getOperand() {
+		return operand;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see ast.Node#getChildCount()
+	 */
+	public int getChildCount() {
+		return 1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see ast.Node#getChild(int)
+	 */
+	public Node getChild(int index) {
+		return operand;
+	}
+}
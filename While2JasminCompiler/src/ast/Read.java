@@ -0,0 +1,14 @@
+package ast;
+
+/**
+ * Integer read from the console.
+ */
+public class Read extends Expression {
+
+	/**
+	 * Constructor.
+	 */
+	public Read() {
+		super(READ);
+	}
+}
@@ -0,0 +1,17 @@
+package ast;
+
+/**
+ * Statement of a program.
+ */
+public abstract class Statement extends Node {
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param kind
+	 *            Kind of the statement.
+	 */
+	protected Statement(int kind) {
+		super(kind);
+	}
+}
@@ -0,0 +1,41 @@
+package ast;
+
+/**
+ * Callbacks of a {@link TreeWalker} on an abstract syntax tree. Every node is
+ * entered before and exited after all of its children. The parent and the
+ * index among its siblings tell the visitor where in its parent a node is,
+ * e.g. whether a block is the else block of a branch.
+ * 
+ * @param <E>
+ *            Type of the exception the visitor may throw.
+ */
+public interface TreeVisitor<E extends Exception> {
+
+	/**
+	 * Enter a node, before its children are visited.
+	 * 
+	 * @param node
+	 *            Node.
+	 * @param parent
+	 *            Parent, null for the root.
+	 * @param index
+	 *            Index of the node among the children of its parent.
+	 * @throws E
+	 *             Exception of the visitor, stops the walk.
+	 */
+	void enter(Node node, Node parent, int index) throws E;
+
+	/**
+	 * Exit a node, after its children have been visited.
+	 * 
+	 * @param node
+	 *            Node.
+	 * @param parent
+	 *            Parent, null for the root.
+	 * @param index
+	 *            Index of the node among the children of its parent.
+	 * @throws E
+	 *             Exception of the visitor, stops the walk.
+	 */
+	void exit(Node node, Node parent, int index) throws E;
+}
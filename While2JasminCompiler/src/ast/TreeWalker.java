@@ -0,0 +1,107 @@
+package ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Depth-first walks over abstract syntax trees. The walks keep the path from
+ * the root to the current node on an explicit stack instead of the Java call
+ * stack, such that the nesting depth of a program is only bounded by the
+ * heap.
+ */
+public class TreeWalker {
+
+	// Initial depth of the stacks
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * Walk an abstract syntax tree.
+	 * 
+	 * @param root
+	 *            Root of the tree.
+	 * @param visitor
+	 *            Callbacks.
+	 * @param <E>
+	 *            Type of the exception the visitor may throw.
+	 * @throws E
+	 *             Exception of the visitor.
+	 */
+	public static <E extends Exception> void walk(Node root, TreeVisitor<E> visitor) throws E {
+		// path from the root and number of visited children per node on it
+		List<Node> path = new ArrayList<Node>(INITIAL_CAPACITY);
+		int[] visited = new int[INITIAL_CAPACITY];
+
+		visitor.enter(root, null, 0);
+		path.add(root);
+		while (!path.isEmpty()) {
+			int top = path.size() - 1;
+			Node node = path.get(top);
+			if (visited[top] < node.getChildCount()) {
+				int index = visited[top]++;
+				Node child = node.getChild(index);
+				visitor.enter(child, node, index);
+				if (path.size() == visited.length) {
+					visited = Arrays.copyOf(visited, 2 * visited.length);
+				}
+				visited[path.size()] = 0;
+				path.add(child);
+			} else {
+				path.remove(top);
+				if (top == 0) {
+					visitor.exit(node, null, 0);
+				} else {
+					visitor.exit(node, path.get(top - 1), visited[top - 1] - 1);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Walk a flattened abstract syntax tree from its root.
+	 * 
+	 * @param tree
+	 *            Tree.
+	 * @param visitor
+	 *            Callbacks.
+	 * @param <E>
+	 *            Type of the exception the visitor may throw.
+	 * @throws E
+	 *             Exception of the visitor.
+	 */
+	public static <E extends Exception> void walk(FlatTree tree, FlatTreeVisitor<E> visitor) throws E {
+		// path from the root, next child to visit and its index per node on it
+		int[] path = new int[INITIAL_CAPACITY];
+		int[] next = new int[INITIAL_CAPACITY];
+		int[] index = new int[INITIAL_CAPACITY];
+		int top = 0;
+
+		int root = tree.getRoot();
+		visitor.enter(root, FlatTree.NONE, 0);
+		path[top] = root;
+		next[top] = tree.getFirstChild(root);
+		index[top] = 0;
+		while (top >= 0) {
+			int node = path[top];
+			int child = next[top];
+			if (child != FlatTree.NONE) {
+				next[top] = tree.getNextSibling(child);
+				visitor.enter(child, node, index[top]);
+				if (++top == path.length) {
+					path = Arrays.copyOf(path, 2 * top);
+					next = Arrays.copyOf(next, 2 * top);
+					index = Arrays.copyOf(index, 2 * top);
+				}
+				path[top] = child;
+				next[top] = tree.getFirstChild(child);
+				index[top] = 0;
+			} else if (top == 0) {
+				top--;
+				visitor.exit(node, FlatTree.NONE, 0);
+			} else {
+				top--;
+				visitor.exit(node, path[top], index[top]++);
+			}
+		}
+	}
+}
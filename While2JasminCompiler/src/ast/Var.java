@@ -0,0 +1,46 @@
+package ast;
+
+/**
+ * Use of a variable, either read in an expression or written by an
+ * assignment.
+ */
+public class Var extends Expression {
+
+	// Name of the variable
+	private final String name;
+
+	// Position of the name in the input
+	private final int offset;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param name
+	 *            Name of the variable.
+	 * @param offset
+	 *            Index of the name in the input, see {@link lexer.Symbol}.
+	 */
+	public Var(String name, int offset) {
+		super(VAR);
+		this.name = name;
+		this.offset = offset;
+	}
+
+	/**
+	 * Get the name of the variable.
+	 * 
+	 * @return Name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Get the position of the name.
+	 * 
+	 * @return Index of the name in the input.
+	 */
+	public int getOffset() {
+		return offset;
+	}
+}
@@ -0,0 +1,63 @@
+package ast;
+
+/**
+ * Loop.
+ */
+public class While extends Statement {
+
+	// Guard of the loop
+	private final Expression condition;
+
+	// Body of the loop
+	private final Block body;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param condition
+	 *            Guard of the loop.
+	 * @param body
+	 *            Body of the loop.
+	 */
+	public While(Expression condition, Block body) {
+		super(WHILE);
+		this.condition = condition;
+		this.body = body;
+	}
+
+	/**
+	 * Get the guard.
+	 * 
+	 * @return Guard.
+	 */
+	public Expression getCondition() {
+		return condition;
+	}
+
+	/**
+	 * Get the body.
+	 * 
+	 * @return Body.
+	 */
+	public Block getBody() {
+		return body;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see ast.Node#getChildCount()
+	 */
+	public int getChildCount() {
+		return 2;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see ast.Node#getChild(int)
+	 */
+	public Node getChild(int index) {
+		return index == 0 ? condition : body;
+	}
+}
@@ -0,0 +1,48 @@
+package ast;
+
+/**
+ * Output of an integer on the console.
+ */
+public class Write extends Statement {
+
+	// Printed value
+	private final Expression value;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param value
+	 *            Printed value.
+	 */
+	public Write(Expression value) {
+		super(WRITE);
+		this.value = value;
+	}
+
+	/**
+	 * Get the printed value.
+	 * 
+	 * @return Expression.
+	 */
+	public Expression getValue() {
+		return value;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see ast.Node#getChildCount()
+	 */
+	public int getChildCount() {
+		return 1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see ast.Node#getChild(int)
+	 */
+	public Node getChild(int index) {
+		return value;
+	}
+}
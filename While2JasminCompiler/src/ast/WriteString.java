@@ -0,0 +1,30 @@
+package ast;
+
+/**
+ * Output of a string literal on the console.
+ */
+public class WriteString extends Statement {
+
+	// String literal including the quotes
+	private final String text;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param text
+	 *            String literal including the quotes.
+	 */
+	public WriteString(String text) {
+		super(WRITE_STRING);
+		this.text = text;
+	}
+
+	/**
+	 * Get the string literal.
+	 * 
+	 * @return Literal including the quotes.
+	 */
+	public String getText() {
+		return text;
+	}
+}
@@ -0,0 +1,86 @@
+package benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import runner.ProgramRunner;
+
+/**
+ * Compares short-circuit and eager evaluation of && and || on a loop whose
+ * guards have cheap first and expensive second operands. Both variants are
+ * compiled in memory and run in this virtual machine.
+ */
+public class GuardBenchmark {
+
+	// Number of runs before and during the measurement
+	private static final int WARMUP_RUNS = 3;
+	private static final int MEASURED_RUNS = 5;
+
+	// Program with guard-heavy loop, %d is the number of iterations
+	private static final String PROGRAM = "int i; int s; i = 0; s = 0;\n"
+			+ "while (i != %d) {\n"
+			+ "  if ((i - (i / 7) * 7 == 0) && ((i / 3) * (i / 5) / 11 - i / 13 > 100 || (i / 17) * 3 == i / 19)) {\n"
+			+ "    s = s + 1;\n"
+			+ "  }\n"
+			+ "  if ((i - (i / 3) * 3 != 0) || ((i / 9) * (i / 11) / 13 > i / 7)) {\n"
+			+ "    s = s + 2;\n"
+			+ "  }\n"
+			+ "  i = i + 1;\n"
+			+ "}\n"
+			+ "write(s);";
+
+	/**
+	 * Starting method.
+	 * 
+	 * @param args
+	 *            Optionally the number of loop iterations.
+	 * @throws Exception
+	 *             If the program cannot be compiled or fails.
+	 */
+	public static void main(String[] args) throws Exception {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20000000;
+		String source = String.format(PROGRAM, iterations);
+		System.out.println("Guard loop with " + iterations + " iterations");
+
+		ProgramRunner runner = new ProgramRunner();
+		byte[] shortCircuit = runner.compile(source, "Guards");
+		runner.setEagerGuards(true);
+		byte[] eager = runner.compile(source, "Guards");
+
+		measure("short-circuit", shortCircuit);
+		measure("eager", eager);
+	}
+
+	/**
+	 * Measure the average time of a program run. The output of the program
+	 * is discarded.
+	 * 
+	 * @param name
+	 *            Name of the variant.
+	 * @param classFile
+	 *            Compiled program.
+	 * @throws Exception
+	 *             If the program fails.
+	 */
+	private static void measure(String name, byte[] classFile) throws Exception {
+		PrintStream console = System.out;
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(output));
+		long start;
+		try {
+			for (int i = 0; i < WARMUP_RUNS; i++) {
+				ProgramRunner.run("Guards", classFile, new String[0]);
+			}
+			start = System.nanoTime();
+			for (int i = 0; i < MEASURED_RUNS; i++) {
+				ProgramRunner.run("Guards", classFile, new String[0]);
+			}
+		} finally {
+			System.setOut(console);
+		}
+		double millis = (System.nanoTime() - start) / 1e6 / MEASURED_RUNS;
+		String result = output.toString().trim();
+		result = result.substring(result.lastIndexOf('\n') + 1);
+		System.out.println(String.format("%-16s %10.2f ms   result %s", name, millis, result));
+	}
+}
@@ -0,0 +1,144 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import lexer.Symbol;
+import parser.LL1Parser;
+import parser.ParserException;
+import parser.SLR1Parser;
+import parser.grammar.GrammarLL1;
+import parser.grammar.GrammarSLR1;
+import symbols.Tokens.Token;
+
+/**
+ * Compares the table-driven LL(1) parser with the SLR(1) parser on random
+ * arithmetic expressions. GrammarSLR1 and GrammarLL1 describe the same
+ * language, so both parsers read the same token stream.
+ */
+public class ParserBenchmark {
+
+	// Maximal nesting depth of parentheses in the generated expressions
+	private static final int MAX_DEPTH = 8;
+
+	// Number of runs before and during the measurement
+	private static final int WARMUP_RUNS = 5;
+	private static final int MEASURED_RUNS = 10;
+
+	/**
+	 * Starting method.
+	 * 
+	 * @param args
+	 *            Optionally the number of tokens of the expression.
+	 * @throws ParserException
+	 *             If a parser rejects the generated expression.
+	 */
+	public static void main(String[] args) throws ParserException {
+		int nrTokens = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		List<Symbol> symbols = generateExpression(nrTokens, new Random(42));
+		System.out.println("Expression with " + symbols.size() + " tokens");
+
+		final SLR1Parser slr1 = new SLR1Parser(GrammarSLR1.getInstance());
+		final SLR1Parser slr1OnLL1 = new SLR1Parser(GrammarLL1.getInstance());
+		final LL1Parser ll1 = new LL1Parser(GrammarLL1.getInstance());
+		if (ll1.nrConflicts() > 0) {
+			System.out.println("GrammarLL1 has " + ll1.nrConflicts() + " conflicts");
+			return;
+		}
+
+		measure("SLR(1) on GrammarSLR1", symbols, new Run() {
+			public int parse(List<Symbol> symbols) throws ParserException {
+				return slr1.parseProductions(symbols).length;
+			}
+		});
+		measure("SLR(1) on GrammarLL1", symbols, new Run() {
+			public int parse(List<Symbol> symbols) throws ParserException {
+				return slr1OnLL1.parseProductions(symbols).length;
+			}
+		});
+		measure("LL(1) on GrammarLL1", symbols, new Run() {
+			public int parse(List<Symbol> symbols) throws ParserException {
+				return ll1.parseProductions(symbols).length;
+			}
+		});
+	}
+
+	/**
+	 * Measure the average time of a parser run.
+	 * 
+	 * @param name
+	 *            Name of the parser.
+	 * @param symbols
+	 *            Input of the parser.
+	 * @param run
+	 *            The parser run.
+	 * @throws ParserException
+	 *             If the parser rejects the input.
+	 */
+	private static void measure(String name, List<Symbol> symbols, Run run) throws ParserException {
+		int productions = 0;
+		for (int i = 0; i < WARMUP_RUNS; i++) {
+			productions = run.parse(symbols);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < MEASURED_RUNS; i++) {
+			run.parse(symbols);
+		}
+		double millis = (System.nanoTime() - start) / 1e6 / MEASURED_RUNS;
+		System.out.println(String.format("%-24s %10.2f ms %12.0f tokens/s %10d productions", name, millis,
+				symbols.size() / millis * 1000, productions));
+	}
+
+	/**
+	 * Generate a random expression of sums and products with parentheses.
+	 * 
+	 * @param nrTokens
+	 *            Minimal number of tokens.
+	 * @param random
+	 *            Random number generator.
+	 * @return Symbols of the expression.
+	 */
+	private static List<Symbol> generateExpression(int nrTokens, Random random) {
+		List<Symbol> symbols = new ArrayList<Symbol>(nrTokens + 2 * MAX_DEPTH);
+		int depth = 0;
+		while (true) {
+			// Operand, possibly opening parentheses
+			while (depth < MAX_DEPTH && symbols.size() < nrTokens && random.nextInt(4) == 0) {
+				symbols.add(new Symbol(Token.LPAR, "("));
+				depth++;
+			}
+			symbols.add(new Symbol(Token.NUMBER, Integer.toString(random.nextInt(100))));
+			while (depth > 0 && (symbols.size() >= nrTokens || random.nextInt(3) == 0)) {
+				symbols.add(new Symbol(Token.RPAR, ")"));
+				depth--;
+			}
+			if (symbols.size() >= nrTokens && depth == 0) {
+				return symbols;
+			}
+			// Operator
+			if (random.nextBoolean()) {
+				symbols.add(new Symbol(Token.PLUS, "+"));
+			} else {
+				symbols.add(new Symbol(Token.TIMES, "*"));
+			}
+		}
+	}
+
+	/**
+	 * A single parser run.
+	 */
+	private interface Run {
+
+		/**
+		 * Parse the input.
+		 * 
+		 * @param symbols
+		 *            Input.
+		 * @return Number of applied productions.
+		 * @throws ParserException
+		 *             If the parser rejects the input.
+		 */
+		int parse(List<Symbol> symbols) throws ParserException;
+	}
+}
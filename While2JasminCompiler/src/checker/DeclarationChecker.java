@@ -1,138 +1,215 @@
 package checker;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
-import lexer.Symbol;
-import parser.Rule;
-import symbols.NonTerminals.NonTerminal;
-import symbols.Tokens.Token;
+import ast.Block;
+import ast.Declaration;
+import ast.FlatTree;
+import ast.FlatTreeVisitor;
+import ast.Node;
+import ast.TreeVisitor;
+import ast.TreeWalker;
+import ast.Var;
+import util.ScopedSymbolTable;
 
 /**
  * Checks if identifiers are declared before using them.
  */
 public class DeclarationChecker {
 
-	// AST
-	private AST ast;
+	// Initial size of the scope bookkeeping
+	private static final int INITIAL_CAPACITY = 16;
+
+	// Abstract syntax tree of the program
+	private Block program;
+
+	// Flattened abstract syntax tree, used instead of program if not null
+	private FlatTree tree;
+
+	// Number of visible declarations per name id of the flattened tree, the
+	// abstract syntax tree is checked with a ScopedSymbolTable
+	private int[] declarations;
+
+	// Name ids in the order of their declarations, undone at block ends
+	private int[] declarationLog;
+	private int logSize;
+
+	// Size of the declaration log upon entering each open block
+	private int[] blockMarks;
+	private int depth;
+
+	// Errors of the last check
+	private List<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
 
 	/**
-	 * Get AST
+	 * Get the abstract syntax tree.
 	 * 
-	 * @return AST
+	 * @return Outermost block of the program.
 	 */
-	public AST getAst() {
-		return ast;
+	public Block getProgram() {
+		return program;
 	}
 
 	/**
-	 * Constructor. Requires a right most analysis from the parser to initiate a
-	 * new abstract syntax tree. This tree is then used for subsequent semantic
-	 * checks.
+	 * Constructor. Requires the abstract syntax tree built by the parser. This
+	 * tree is then used for subsequent semantic checks.
 	 * 
-	 * @param symbols
-	 *            List of symbols.
-	 * @param analysis
-	 *            Right most analysis of the parser.
+	 * @param program
+	 *            Outermost block of the program.
 	 */
-	public DeclarationChecker(List<Symbol> symbols, List<Rule> analysis) {
-		ast = new AST(symbols, analysis);
+	public DeclarationChecker(Block program) {
+		this.program = program;
 	}
 
 	/**
-	 * Check if every identifier which is used has been declared before.
+	 * Constructor for a flattened abstract syntax tree.
 	 * 
-	 * @return true, if everything is correct, false if an identifier used
-	 *         before its declaration.
+	 * @param tree
+	 *            Flattened abstract syntax tree.
 	 */
-	public boolean checkDeclaredBeforeUsed() {
-		//System.out.println(ast);
-		try {
-			checkDeclaredness(ast.getRoot(), new HashSet<String>());
-		} catch (VariableNotDeclaredException e) {
-			System.out.println("Undeclared variable " + e.getMessage() + " used! Semantic check failed!");
-			return false;
-		}
-		return true;
+	public DeclarationChecker(FlatTree tree) {
+		this.tree = tree;
 	}
 
 	/**
-	 * Recursive method for checking the declaredness of identifiers.
+	 * Get the flattened abstract syntax tree.
 	 * 
-	 * @param node
-	 *            Node to start from.
-	 * @param declaredIDs
-	 *            Set of already declared ids.
-	 * @return Set of declared ids in this AST with root node node.
-	 * @throws VariableNotDeclaredException
-	 *             Thrown when a variable is used but not declared before.
+	 * @return Tree, null if the checker works on a block.
+	 */
+	public FlatTree getTree() {
+		return tree;
+	}
+
+	/**
+	 * Get the errors found by the last check.
+	 * 
+	 * @return Diagnostics in the order of the program text, empty if the
+	 *         check succeeded.
+	 */
+	public List<Diagnostic> getDiagnostics() {
+		return diagnostics;
+	}
+
+	/**
+	 * Check if every identifier which is used has been declared before. The
+	 * check does not stop at the first error, every use of an undeclared
+	 * identifier is reported in the diagnostics.
+	 * 
+	 * @return true, if everything is correct, false if an identifier used
+	 *         before its declaration.
 	 */
-	private Set<String> checkDeclaredness(ASTNode node, Set<String> declaredIDs) throws VariableNotDeclaredException {
-		// base cases:
-		if (node.getAlphabet().equals(NonTerminal.DECLARATION)) {
-			// Case 1: the subtree contains a declaration
-			declaredIDs.add(findDeclaredID(node));
-		} else if (node.getAlphabet() instanceof Token) {
-			// Case 2: the subtree is a leaf. If it is of type ID check whether
-			// it
-			// has been declared before.
-			if (node.getAlphabet().equals(Token.ID)) {
-				// check declaredness
-				if (!declaredIDs.contains(node.getAttribute())) {
-					// Variable was not declared before.
-					throw new VariableNotDeclaredException(node.getAttribute());
+	public boolean checkDeclaredBeforeUsed() {
+		diagnostics = new ArrayList<Diagnostic>();
+		declarationLog = new int[INITIAL_CAPACITY];
+		logSize = 0;
+		blockMarks = new int[INITIAL_CAPACITY];
+		depth = 0;
+		if (tree != null) {
+			declarations = new int[tree.nrNames()];
+			TreeWalker.walk(tree, new FlatTreeVisitor<RuntimeException>() {
+				public void enter(int node, int parent, int index) {
+					switch (tree.getKind(node)) {
+					case Node.BLOCK:
+						enterBlock();
+						break;
+					case Node.DECLARATION:
+						declare(tree.getPayload(node));
+						break;
+					case Node.VAR:
+						if (declarations[tree.getPayload(node)] == 0) {
+							undeclared(tree.getOffset(node), tree.getName(tree.getPayload(node)));
+						}
+						break;
+					default:
+					}
 				}
-			}
-		}
-		// other cases: we are in an inner node where information is just passed
-		// up and down, however we must be careful with scopes
-		// Case 3: the subtree is rooted in a new scope, i.e. a while or if
-		// structure
-		// Copy declared IDs into a fresh set, such that IDs that are found
-		// in the subtree are not passed on to upper levels
-		else if (node.getAlphabet().equals(NonTerminal.LOOP)) {
-			Set<String> copyDeclaredIDs = new HashSet<String>();
-			copyDeclaredIDs.addAll(declaredIDs);
-			for (ASTNode subNode : node.getChildren()) {
-				checkDeclaredness(subNode, copyDeclaredIDs);
-			}
-		} else if (node.getAlphabet().equals(NonTerminal.BRANCH)) {
-			Set<String> copyDeclaredIDs = new HashSet<String>();
-			copyDeclaredIDs.addAll(declaredIDs);
-			for (ASTNode subNode : node.getChildren()) {
-				if (subNode.getAlphabet().equals(NonTerminal.PROGRAM)) {
-					copyDeclaredIDs = new HashSet<String>();
-					copyDeclaredIDs.addAll(declaredIDs);
+
+				public void exit(int node, int parent, int index) {
+					if (tree.getKind(node) == Node.BLOCK) {
+						exitBlock();
+					}
 				}
-				checkDeclaredness(subNode, copyDeclaredIDs);
-			}
+			});
 		} else {
-			// Case 4: none of the above applies, just pass on gathered
-			// information, check subtree and pass information up
-			for (ASTNode subNode : node.getChildren()) {
-				checkDeclaredness(subNode, declaredIDs);
-			}
+			final ScopedSymbolTable<Declaration> scopes = new ScopedSymbolTable<Declaration>();
+			TreeWalker.walk(program, new TreeVisitor<RuntimeException>() {
+				public void enter(Node node, Node parent, int index) {
+					switch (node.getKind()) {
+					case Node.BLOCK:
+						if (parent != null) {
+							scopes.enterScope();
+						}
+						break;
+					case Node.DECLARATION:
+						scopes.declare(((Declaration) node).getName(), (Declaration) node);
+						break;
+					case Node.VAR:
+						Var var = (Var) node;
+						if (scopes.lookup(var.getName()) == null) {
+							undeclared(var.getOffset(), var.getName());
+						}
+						break;
+					default:
+					}
+				}
+
+				public void exit(Node node, Node parent, int index) {
+					if (node.getKind() == Node.BLOCK && parent != null) {
+						scopes.exitScope();
+					}
+				}
+			});
 		}
-		return declaredIDs;
+		return diagnostics.isEmpty();
 	}
 
 	/**
-	 * Get declared id as attribute of node.
+	 * Report the use of an undeclared variable.
 	 * 
-	 * @param node
-	 *            Node
-	 * @return Declared id.
+	 * @param offset
+	 *            Position of the use.
+	 * @param name
+	 *            Name of the variable.
 	 */
+	private void undeclared(int offset, String name) {
+		diagnostics.add(new Diagnostic(offset, name, "Undeclared variable " + name + " used!"));
+	}
+
 	/**
-	 * @param node
-	 * @return
+	 * Open a new scope. The identifiers declared inside are not visible after
+	 * the block.
 	 */
-	private String findDeclaredID(ASTNode node) {
-		assert (node.getAlphabet().equals(NonTerminal.DECLARATION));
-		assert (node.getChildren().size() == 2);
-		return node.getChildren().get(1).getAttribute();
+	private void enterBlock() {
+		if (depth == blockMarks.length) {
+			blockMarks = Arrays.copyOf(blockMarks, 2 * depth);
+		}
+		blockMarks[depth++] = logSize;
+	}
+
+	/**
+	 * Close the innermost scope and undo its declarations.
+	 */
+	private void exitBlock() {
+		int mark = blockMarks[--depth];
+		while (logSize > mark) {
+			declarations[declarationLog[--logSize]]--;
+		}
+	}
+
+	/**
+	 * Declare a name in the innermost scope.
+	 * 
+	 * @param name
+	 *            Name id.
+	 */
+	private void declare(int name) {
+		if (logSize == declarationLog.length) {
+			declarationLog = Arrays.copyOf(declarationLog, 2 * logSize);
+		}
+		declarationLog[logSize++] = name;
+		declarations[name]++;
 	}
 
 }
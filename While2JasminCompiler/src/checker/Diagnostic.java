@@ -0,0 +1,70 @@
+package checker;
+
+/**
+ * Semantic error found by a checker, located by the offset of the offending
+ * token in the input.
+ */
+public class Diagnostic {
+
+	// Index of the first character of the offending token
+	private final int offset;
+
+	// Offending identifier
+	private final String name;
+
+	// Text explaining the error
+	private final String message;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param offset
+	 *            Index of the offending token in the input.
+	 * @param name
+	 *            Offending identifier.
+	 * @param message
+	 *            Text explaining the error.
+	 */
+	public Diagnostic(int offset, String name, String message) {
+		this.offset = offset;
+		this.name = name;
+		this.message = message;
+	}
+
+	/**
+	 * Get the position of the error.
+	 * 
+	 * @return Index of the first character of the offending token,
+	 *         {@link lexer.Symbol#NO_OFFSET} if unknown.
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Get the offending identifier.
+	 * 
+	 * @return Identifier.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Get the explanation.
+	 * 
+	 * @return Text explaining the error.
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return "Offset " + offset + ": " + message;
+	}
+}
@@ -0,0 +1,37 @@
+package checker;
+
+import java.util.List;
+
+/**
+ * Exception thrown if the semantic analysis of a program fails.
+ */
+public class SemanticException extends Exception {
+
+	private static final long serialVersionUID = 1L;
+
+	// Errors found by the checker
+	private final List<Diagnostic> diagnostics;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param message
+	 *            Message of exception.
+	 * @param diagnostics
+	 *            Errors found by the checker.
+	 */
+	public SemanticException(String message, List<Diagnostic> diagnostics) {
+		super(message);
+		this.diagnostics = diagnostics;
+	}
+
+	/**
+	 * Get the errors found by the checker.
+	 * 
+	 * @return Diagnostics in the order of the program text.
+	 */
+	public List<Diagnostic> getDiagnostics() {
+		return diagnostics;
+	}
+
+}
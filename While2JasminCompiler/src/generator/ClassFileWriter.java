@@ -0,0 +1,1161 @@
+package generator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Emitter which assembles the program directly into the bytes of a class
+ * file, such that no external assembler is needed. The instructions of main
+ * are buffered until {@link #endClass()}, which resolves the labels, computes
+ * the maximal stack depth and number of registers and the StackMapTable
+ * frames by interpreting the types of the registers and the operand stack,
+ * and finally writes the class. A jump beyond the 16 bit offset of a branch
+ * is assembled with goto_w, a conditional one as the opposite jump over a
+ * goto_w.
+ */
+public class ClassFileWriter implements CodeEmitter {
+
+	// Version of the class file format, Java 7, which requires StackMapTable
+	// frames
+	private static final int MAJOR_VERSION = 51;
+
+	// Access flags
+	private static final int ACC_PUBLIC = 0x0001;
+	private static final int ACC_STATIC = 0x0008;
+	private static final int ACC_SUPER = 0x0020;
+
+	// Constant pool tags
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_INTEGER = 3;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_STRING = 8;
+	private static final int CONSTANT_FIELDREF = 9;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+	// Verification types of the StackMapTable. An object type carries the
+	// constant pool index of its class in the bits above the tag.
+	private static final int TOP = 0;
+	private static final int INTEGER = 1;
+	private static final int OBJECT = 7;
+
+	// Tag of a full frame
+	private static final int FULL_FRAME = 255;
+
+	// Pseudo opcode of a label in the instruction list
+	private static final int LABEL = -1;
+
+	// Initial number of instructions
+	private static final int INITIAL_CAPACITY = 256;
+
+	// Entries of the constant pool, their indices by kind and value
+	private ByteArrayOutputStream poolBytes;
+	private DataOutputStream pool;
+	private HashMap<String, Integer> poolIndices;
+	private int poolSize;
+
+	// Instructions of main: opcode, operand and for constants, fields and
+	// methods the type descriptor. The operand is a register, a constant pool
+	// index, the value of bipush and sipush or a label id. The operand of
+	// iinc holds the register in the upper and the increment in the lower 16
+	// bits.
+	private int[] opcodes;
+	private int[] operands;
+	private String[] descriptors;
+	private int count;
+
+	// Jumps which do not reach their label with a 16 bit offset
+	private boolean[] far;
+
+	// Types of the registers and the operand stack after each far
+	// conditional jump, for the frame after its goto_w
+	private int[][] farLocals;
+	private int[][] farStacks;
+
+	// Label ids by name and the index of each label in the instruction list
+	private HashMap<String, Integer> labelIds;
+	private int[] labelIndices;
+
+	// Types of the registers and the operand stack upon each label, null if
+	// the label has not been reached yet
+	private int[][] labelLocals;
+	private int[][] labelStacks;
+
+	// Labels whose types have changed by jumps during an interpretation
+	private List<Integer> changed = new ArrayList<Integer>();
+
+	// Results of the analysis of main
+	private boolean[] reachable;
+	private int maxStack;
+	private int maxLocals;
+
+	// Index of this class in the constant pool
+	private int thisClass;
+
+	// Assembled class file
+	private byte[] bytes;
+
+	/**
+	 * Get the class file. Only available after {@link #endClass()}.
+	 * 
+	 * @return Bytes of the class file.
+	 */
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#beginClass(java.lang.String)
+	 */
+	public void beginClass(String name) throws GeneratorException {
+		poolBytes = new ByteArrayOutputStream();
+		pool = new DataOutputStream(poolBytes);
+		poolIndices = new HashMap<String, Integer>();
+		poolSize = 1;
+		opcodes = new int[INITIAL_CAPACITY];
+		operands = new int[INITIAL_CAPACITY];
+		descriptors = new String[INITIAL_CAPACITY];
+		count = 0;
+		labelIds = new HashMap<String, Integer>();
+		labelIndices = new int[INITIAL_CAPACITY];
+		bytes = null;
+		thisClass = classRef(name);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#endClass()
+	 */
+	public void endClass() throws GeneratorException {
+		for (int id = 0; id < labelIds.size(); id++) {
+			if (labelIndices[id] < 0) {
+				throw new GeneratorException("Label " + labelName(id) + " is never placed");
+			}
+		}
+		try {
+			byte[] code = assemble();
+			bytes = writeClass(code);
+		} catch (IOException e) {
+			throw new GeneratorException("Cannot assemble class file: " + e.getMessage());
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#instruction(int)
+	 */
+	public void instruction(int opcode) throws GeneratorException {
+		add(opcode, 0, null);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#registerInstruction(int, int)
+	 */
+	public void registerInstruction(int opcode, int register) throws GeneratorException {
+		if (register > 0xFFFF) {
+			throw new GeneratorException("Register " + register + " exceeds the registers of a method");
+		}
+		add(opcode, register, null);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#increment(int, int)
+	 */
+	public void increment(int register, int value) throws GeneratorException {
+		if (register > 0xFFFF) {
+			throw new GeneratorException("Register " + register + " exceeds the registers of a method");
+		}
+		if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+			throw new GeneratorException("Increment " + value + " exceeds a short");
+		}
+		add(Opcodes.IINC, register << 16 | (value & 0xFFFF), null);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#loadConstant(int)
+	 */
+	public void loadConstant(int value) throws GeneratorException {
+		int opcode = Opcodes.constantOpcode(value);
+		if (opcode == Opcodes.LDC) {
+			add(opcode, integer(value), "I");
+		} else {
+			// iconst, bipush and sipush need no entry of the constant pool
+			add(opcode, value, "I");
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#loadConstant(java.lang.String)
+	 */
+	public void loadConstant(String value) throws GeneratorException {
+		add(Opcodes.LDC, string(unescape(value)), "Ljava/lang/String;");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#jump(int, java.lang.String, int)
+	 */
+	public void jump(int opcode, String prefix, int number) throws GeneratorException {
+		add(opcode, labelId(prefix + number), null);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#label(java.lang.String, int)
+	 */
+	public void label(String prefix, int number) throws GeneratorException {
+		int id = labelId(prefix + number);
+		if (labelIndices[id] >= 0) {
+			throw new GeneratorException("Label " + prefix + number + " is placed twice");
+		}
+		labelIndices[id] = count;
+		add(LABEL, id, null);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#fieldInstruction(int, java.lang.String,
+	 * java.lang.String, java.lang.String)
+	 */
+	public void fieldInstruction(int opcode, String owner, String name, String descriptor) throws GeneratorException {
+		add(opcode, memberRef(CONSTANT_FIELDREF, owner, name, descriptor), descriptor);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#methodInstruction(int, java.lang.String,
+	 * java.lang.String, java.lang.String)
+	 */
+	public void methodInstruction(int opcode, String owner, String name, String descriptor)
+			throws GeneratorException {
+		add(opcode, memberRef(CONSTANT_METHODREF, owner, name, descriptor), descriptor);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#typeInstruction(int, java.lang.String)
+	 */
+	public void typeInstruction(int opcode, String type) throws GeneratorException {
+		add(opcode, classRef(type), "L" + type + ";");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#comment(java.lang.String)
+	 */
+	public void comment(String text) {
+		// a class file has no place for comments
+	}
+
+	/**
+	 * Append an instruction to main.
+	 * 
+	 * @param opcode
+	 *            Opcode or LABEL.
+	 * @param operand
+	 *            Register, constant pool index or label id.
+	 * @param descriptor
+	 *            Type descriptor of a constant, field or method.
+	 */
+	private void add(int opcode, int operand, String descriptor) {
+		if (count == opcodes.length) {
+			opcodes = Arrays.copyOf(opcodes, 2 * count);
+			operands = Arrays.copyOf(operands, 2 * count);
+			descriptors = Arrays.copyOf(descriptors, 2 * count);
+		}
+		opcodes[count] = opcode;
+		operands[count] = operand;
+		descriptors[count] = descriptor;
+		count++;
+	}
+
+	/**
+	 * Get the id of a label, which is created upon the first request.
+	 * 
+	 * @param name
+	 *            Name of the label.
+	 * @return Id.
+	 */
+	private int labelId(String name) {
+		Integer id = labelIds.get(name);
+		if (id == null) {
+			id = labelIds.size();
+			labelIds.put(name, id);
+			if (id == labelIndices.length) {
+				labelIndices = Arrays.copyOf(labelIndices, 2 * id);
+			}
+			labelIndices[id] = -1;
+		}
+		return id;
+	}
+
+	/**
+	 * Get the name of a label for error messages.
+	 * 
+	 * @param id
+	 *            Id of the label.
+	 * @return Name.
+	 */
+	private String labelName(int id) {
+		for (String name : labelIds.keySet()) {
+			if (labelIds.get(name) == id) {
+				return name;
+			}
+		}
+		return "#" + id;
+	}
+
+	/**
+	 * Assemble the code of main: resolve the labels, analyse the types and
+	 * write the instructions. Unreachable instructions are replaced by nops
+	 * and an athrow, such that they need no precise frame.
+	 * 
+	 * @return Bytecode of main.
+	 * @throws GeneratorException
+	 *             Exception if the code is too large or not consistent.
+	 * @throws IOException
+	 *             Exception while writing.
+	 */
+	private byte[] assemble() throws GeneratorException, IOException {
+		maxLocals = 1;
+		for (int i = 0; i < count; i++) {
+			if (isRegisterInstruction(opcodes[i])) {
+				maxLocals = Math.max(maxLocals, operands[i] + 1);
+			} else if (opcodes[i] == Opcodes.IINC) {
+				maxLocals = Math.max(maxLocals, (operands[i] >>> 16) + 1);
+			}
+		}
+
+		// offsets of the instructions, the last one is the length of the code
+		int[] offsets = new int[count + 1];
+		far = new boolean[count];
+		int pc = layout(offsets);
+		while (widenJumps(offsets)) {
+			// the longer jumps move the labels, which may put other jumps out
+			// of reach
+			pc = layout(offsets);
+		}
+		if (pc > 0xFFFF) {
+			throw new GeneratorException("Method main is too large for a class file");
+		}
+
+		analyse();
+
+		ByteArrayOutputStream codeBytes = new ByteArrayOutputStream(pc);
+		DataOutputStream code = new DataOutputStream(codeBytes);
+		List<Integer> frameOffsets = new ArrayList<Integer>();
+		List<int[]> frameLocals = new ArrayList<int[]>();
+		List<int[]> frameStacks = new ArrayList<int[]>();
+		int i = 0;
+		while (i < count) {
+			int opcode = opcodes[i];
+			if (opcode == LABEL) {
+				int id = operands[i];
+				if (labelLocals[id] != null && offsets[i] < pc) {
+					addFrame(frameOffsets, frameLocals, frameStacks, offsets[i], labelLocals[id], labelStacks[id]);
+				}
+				i++;
+			} else if (!reachable[i]) {
+				// dead code up to the next reachable instruction
+				int next = i + 1;
+				while (next < count && (opcodes[next] == LABEL || !reachable[next])) {
+					next++;
+				}
+				while (next > i && opcodes[next - 1] == LABEL && labelLocals[operands[next - 1]] != null) {
+					next--;
+				}
+				for (int j = offsets[i]; j < offsets[next] - 1; j++) {
+					code.writeByte(Opcodes.NOP);
+				}
+				code.writeByte(Opcodes.ATHROW);
+				int[] locals = new int[] { objectType("[Ljava/lang/String;") };
+				int[] stack = new int[] { objectType("Ljava/lang/Throwable;") };
+				addFrame(frameOffsets, frameLocals, frameStacks, offsets[i], locals, stack);
+				maxStack = Math.max(maxStack, 1);
+				i = next;
+			} else {
+				writeInstruction(code, i, offsets);
+				if (far[i] && opcode != Opcodes.GOTO) {
+					// the code after the goto_w is the target of the opposite
+					// jump
+					addFrame(frameOffsets, frameLocals, frameStacks, offsets[i + 1], farLocals[i], farStacks[i]);
+				}
+				i++;
+			}
+		}
+
+		// StackMapTable entries, all as full frames
+		ByteArrayOutputStream frameBytes = new ByteArrayOutputStream();
+		DataOutputStream frames = new DataOutputStream(frameBytes);
+		frames.writeShort(frameOffsets.size());
+		int previous = -1;
+		for (int f = 0; f < frameOffsets.size(); f++) {
+			int offset = frameOffsets.get(f);
+			int[] locals = frameLocals.get(f);
+			int nrLocals = locals.length;
+			while (nrLocals > 0 && locals[nrLocals - 1] == TOP) {
+				nrLocals--;
+			}
+			frames.writeByte(FULL_FRAME);
+			frames.writeShort(offset - previous - 1);
+			frames.writeShort(nrLocals);
+			for (int l = 0; l < nrLocals; l++) {
+				writeType(frames, locals[l]);
+			}
+			int[] stack = frameStacks.get(f);
+			frames.writeShort(stack.length);
+			for (int s = 0; s < stack.length; s++) {
+				writeType(frames, stack[s]);
+			}
+			previous = offset;
+		}
+
+		// Code attribute without its name and length
+		ByteArrayOutputStream attributeBytes = new ByteArrayOutputStream();
+		DataOutputStream attribute = new DataOutputStream(attributeBytes);
+		attribute.writeShort(maxStack);
+		attribute.writeShort(maxLocals);
+		attribute.writeInt(pc);
+		codeBytes.writeTo(attribute);
+		// no exception handlers
+		attribute.writeShort(0);
+		if (frameOffsets.isEmpty()) {
+			attribute.writeShort(0);
+		} else {
+			attribute.writeShort(1);
+			attribute.writeShort(utf8("StackMapTable"));
+			attribute.writeInt(frameBytes.size());
+			frameBytes.writeTo(attribute);
+		}
+		return attributeBytes.toByteArray();
+	}
+
+	/**
+	 * Compute the offsets of the instructions with their current sizes.
+	 * 
+	 * @param offsets
+	 *            Offsets of the instructions and the length of the code,
+	 *            overwritten.
+	 * @return Length of the code.
+	 */
+	private int layout(int[] offsets) {
+		int pc = 0;
+		for (int i = 0; i < count; i++) {
+			offsets[i] = pc;
+			pc += size(i);
+		}
+		offsets[count] = pc;
+		return pc;
+	}
+
+	/**
+	 * Mark the jumps whose label is out of reach of a 16 bit offset as far.
+	 * Jumps only become longer, so repeating this with new offsets ends.
+	 * 
+	 * @param offsets
+	 *            Offsets of the instructions.
+	 * @return True iff a jump has become far.
+	 */
+	private boolean widenJumps(int[] offsets) {
+		boolean widened = false;
+		for (int i = 0; i < count; i++) {
+			if (isJump(opcodes[i]) && !far[i]) {
+				int distance = offsets[labelIndices[operands[i]]] - offsets[i];
+				if (distance < Short.MIN_VALUE || distance > Short.MAX_VALUE) {
+					far[i] = true;
+					widened = true;
+				}
+			}
+		}
+		return widened;
+	}
+
+	/**
+	 * Add a frame to the StackMapTable. A frame at the same offset as the
+	 * previous one replaces it, e.g. for consecutive labels.
+	 */
+	private void addFrame(List<Integer> offsets, List<int[]> locals, List<int[]> stacks, int offset,
+			int[] frameLocals, int[] frameStack) {
+		int last = offsets.size() - 1;
+		if (last >= 0 && offsets.get(last) == offset) {
+			locals.set(last, frameLocals);
+			stacks.set(last, frameStack);
+		} else {
+			offsets.add(offset);
+			locals.add(frameLocals);
+			stacks.add(frameStack);
+		}
+	}
+
+	/**
+	 * Get the size of an instruction in bytes.
+	 * 
+	 * @param i
+	 *            Index of the instruction.
+	 * @return Size, 0 for a label.
+	 */
+	private int size(int i) {
+		int opcode = opcodes[i];
+		if (opcode == LABEL) {
+			return 0;
+		} else if (isRegisterInstruction(opcode)) {
+			return Opcodes.shortForm(opcode, operands[i]) != opcode ? 1 : operands[i] < 256 ? 2 : 4;
+		} else if (opcode == Opcodes.IINC) {
+			// wide iinc for large registers or increments
+			int value = (short) operands[i];
+			return operands[i] >>> 16 < 256 && value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE ? 3 : 6;
+		} else if (opcode == Opcodes.BIPUSH) {
+			return 2;
+		} else if (opcode == Opcodes.SIPUSH) {
+			return 3;
+		} else if (opcode == Opcodes.LDC) {
+			return operands[i] < 256 ? 2 : 3;
+		} else if (isJump(opcode) && far[i]) {
+			// goto_w, or the opposite jump and goto_w
+			return opcode == Opcodes.GOTO ? 5 : 8;
+		} else if (isJump(opcode) || isMemberInstruction(opcode) || opcode == Opcodes.NEW) {
+			return 3;
+		}
+		return 1;
+	}
+
+	/**
+	 * Write an instruction.
+	 * 
+	 * @param code
+	 *            Destination.
+	 * @param i
+	 *            Index of the instruction.
+	 * @param offsets
+	 *            Offsets of all instructions.
+	 * @throws IOException
+	 *             Exception while writing.
+	 */
+	private void writeInstruction(DataOutputStream code, int i, int[] offsets) throws IOException {
+		int opcode = opcodes[i];
+		int operand = operands[i];
+		if (isRegisterInstruction(opcode)) {
+			int shortForm = Opcodes.shortForm(opcode, operand);
+			if (shortForm != opcode) {
+				code.writeByte(shortForm);
+			} else if (operand < 256) {
+				code.writeByte(opcode);
+				code.writeByte(operand);
+			} else {
+				code.writeByte(Opcodes.WIDE);
+				code.writeByte(opcode);
+				code.writeShort(operand);
+			}
+		} else if (opcode == Opcodes.IINC) {
+			int register = operand >>> 16;
+			int value = (short) operand;
+			if (size(i) == 3) {
+				code.writeByte(Opcodes.IINC);
+				code.writeByte(register);
+				code.writeByte(value);
+			} else {
+				code.writeByte(Opcodes.WIDE);
+				code.writeByte(Opcodes.IINC);
+				code.writeShort(register);
+				code.writeShort(value);
+			}
+		} else if (opcode == Opcodes.BIPUSH) {
+			code.writeByte(opcode);
+			code.writeByte(operand);
+		} else if (opcode == Opcodes.SIPUSH) {
+			code.writeByte(opcode);
+			code.writeShort(operand);
+		} else if (opcode == Opcodes.LDC) {
+			if (operand < 256) {
+				code.writeByte(Opcodes.LDC);
+				code.writeByte(operand);
+			} else {
+				code.writeByte(Opcodes.LDC_W);
+				code.writeShort(operand);
+			}
+		} else if (isJump(opcode)) {
+			int distance = offsets[labelIndices[operand]] - offsets[i];
+			if (!far[i]) {
+				code.writeByte(opcode);
+				code.writeShort(distance);
+			} else if (opcode == Opcodes.GOTO) {
+				code.writeByte(Opcodes.GOTO_W);
+				code.writeInt(distance);
+			} else {
+				// the opposite jump skips the goto_w, which starts 3 bytes later
+				code.writeByte(Opcodes.negation(opcode));
+				code.writeShort(8);
+				code.writeByte(Opcodes.GOTO_W);
+				code.writeInt(distance - 3);
+			}
+		} else if (isMemberInstruction(opcode) || opcode == Opcodes.NEW) {
+			code.writeByte(opcode);
+			code.writeShort(operand);
+		} else {
+			code.writeByte(opcode);
+		}
+	}
+
+	/**
+	 * Compute the types of the registers and the operand stack at every label
+	 * and the maximal stack depth by a data flow analysis over the
+	 * instructions of main. A register which holds different types on
+	 * different paths to a label is unusable there.
+	 * 
+	 * @throws GeneratorException
+	 *             Exception if the code is not consistent, e.g. the operand
+	 *             stack differs on two paths to a label.
+	 */
+	private void analyse() throws GeneratorException {
+		int nrLabels = labelIds.size();
+		labelLocals = new int[nrLabels][];
+		labelStacks = new int[nrLabels][];
+		farLocals = new int[count][];
+		farStacks = new int[count][];
+		reachable = new boolean[count];
+		maxStack = 0;
+
+		// the only argument of main
+		int[] locals = new int[maxLocals];
+		locals[0] = objectType("[Ljava/lang/String;");
+		interpret(0, false, locals, new int[0]);
+
+		// labels whose types have changed, they are analysed again
+		LinkedList<Integer> pending = new LinkedList<Integer>(changed);
+		changed.clear();
+		while (!pending.isEmpty()) {
+			int id = pending.removeFirst();
+			interpret(labelIndices[id], true, labelLocals[id].clone(), labelStacks[id]);
+			pending.addAll(changed);
+			changed.clear();
+		}
+	}
+
+	/**
+	 * Interpret the types of a straight sequence of instructions, until the
+	 * control flow leaves it or reaches a label which has already been
+	 * analysed with the same types.
+	 * 
+	 * @param start
+	 *            Index of the first instruction.
+	 * @param atLabel
+	 *            True iff the sequence starts at a label with the given
+	 *            types.
+	 * @param locals
+	 *            Types of the registers, modified.
+	 * @param initialStack
+	 *            Types of the operand stack.
+	 * @throws GeneratorException
+	 *             Exception if the code is not consistent.
+	 */
+	private void interpret(int start, boolean atLabel, int[] locals, int[] initialStack) throws GeneratorException {
+		int[] stack = Arrays.copyOf(initialStack, Math.max(16, initialStack.length));
+		int depth = initialStack.length;
+		for (int i = start; i < count; i++) {
+			int opcode = opcodes[i];
+			int operand = operands[i];
+			if (opcode == LABEL) {
+				if (i == start && atLabel) {
+					continue;
+				}
+				// fall through into the label
+				if (!merge(operand, locals, stack, depth)) {
+					return;
+				}
+				System.arraycopy(labelLocals[operand], 0, locals, 0, locals.length);
+				continue;
+			}
+			reachable[i] = true;
+
+			switch (opcode) {
+			case Opcodes.NOP:
+				break;
+			case Opcodes.ICONST_M1:
+			case Opcodes.ICONST_0:
+			case Opcodes.ICONST_1:
+			case Opcodes.ICONST_2:
+			case Opcodes.ICONST_3:
+			case Opcodes.ICONST_4:
+			case Opcodes.ICONST_5:
+			case Opcodes.BIPUSH:
+			case Opcodes.SIPUSH:
+			case Opcodes.LDC:
+			case Opcodes.GETSTATIC:
+			case Opcodes.NEW:
+				// the object is not distinguished from an initialized one
+				stack = push(stack, depth++, type(descriptors[i]));
+				break;
+			case Opcodes.IINC:
+				if (locals[operand >>> 16] != INTEGER) {
+					throw new GeneratorException("Register " + (operand >>> 16)
+							+ " is incremented before an int is stored");
+				}
+				break;
+			case Opcodes.ILOAD:
+				if (locals[operand] != INTEGER) {
+					throw new GeneratorException("Register " + operand + " is read before an int is stored");
+				}
+				stack = push(stack, depth++, INTEGER);
+				break;
+			case Opcodes.ALOAD:
+			case Opcodes.ALOAD_0:
+				int register = opcode == Opcodes.ALOAD ? operand : 0;
+				if ((locals[register] & 0xFF) != OBJECT) {
+					throw new GeneratorException("Register " + register + " is read before an object is stored");
+				}
+				stack = push(stack, depth++, locals[register]);
+				break;
+			case Opcodes.ISTORE:
+				depth = pop(depth, 1);
+				locals[operand] = INTEGER;
+				break;
+			case Opcodes.ASTORE:
+				depth = pop(depth, 1);
+				locals[operand] = stack[depth];
+				break;
+			case Opcodes.POP:
+				depth = pop(depth, 1);
+				break;
+			case Opcodes.DUP:
+				int duplicated = stack[pop(depth, 1)];
+				stack = push(stack, depth++, duplicated);
+				break;
+			case Opcodes.SWAP:
+				depth = pop(depth, 2);
+				int top = stack[depth + 1];
+				stack[depth + 1] = stack[depth];
+				stack[depth] = top;
+				depth += 2;
+				break;
+			case Opcodes.IADD:
+			case Opcodes.ISUB:
+			case Opcodes.IMUL:
+			case Opcodes.IDIV:
+			case Opcodes.ISHL:
+			case Opcodes.ISHR:
+			case Opcodes.IUSHR:
+			case Opcodes.IAND:
+			case Opcodes.IOR:
+			case Opcodes.IXOR:
+				depth = pop(depth, 2);
+				stack = push(stack, depth++, INTEGER);
+				break;
+			case Opcodes.IFEQ:
+			case Opcodes.IFNE:
+				depth = pop(depth, 1);
+				branch(i, locals, stack, depth);
+				break;
+			case Opcodes.IF_ICMPEQ:
+			case Opcodes.IF_ICMPNE:
+			case Opcodes.IF_ICMPLT:
+			case Opcodes.IF_ICMPGE:
+			case Opcodes.IF_ICMPGT:
+			case Opcodes.IF_ICMPLE:
+				depth = pop(depth, 2);
+				branch(i, locals, stack, depth);
+				break;
+			case Opcodes.GOTO:
+				jumpTo(operand, locals, stack, depth);
+				return;
+			case Opcodes.RETURN:
+			case Opcodes.ATHROW:
+				return;
+			case Opcodes.INVOKESTATIC:
+			case Opcodes.INVOKEVIRTUAL:
+			case Opcodes.INVOKESPECIAL:
+				String descriptor = descriptors[i];
+				depth = pop(depth, Opcodes.argumentCount(descriptor) + (opcode == Opcodes.INVOKESTATIC ? 0 : 1));
+				char result = descriptor.charAt(descriptor.indexOf(')') + 1);
+				if (result != 'V') {
+					stack = push(stack, depth++, type(descriptor.substring(descriptor.indexOf(')') + 1)));
+				}
+				break;
+			default:
+				throw new GeneratorException("Opcode " + opcode + " is not supported by the class file writer");
+			}
+		}
+		throw new GeneratorException("Control flow reaches the end of main without return");
+	}
+
+	/**
+	 * Pass the types at a jump to its target label.
+	 */
+	private void jumpTo(int label, int[] locals, int[] stack, int depth) throws GeneratorException {
+		if (merge(label, locals, stack, depth)) {
+			changed.add(label);
+		}
+	}
+
+	/**
+	 * Pass the types at a conditional jump to its target label and keep them
+	 * for the frame after the goto_w of a far jump.
+	 */
+	private void branch(int i, int[] locals, int[] stack, int depth) throws GeneratorException {
+		jumpTo(operands[i], locals, stack, depth);
+		if (far[i]) {
+			farLocals[i] = locals.clone();
+			farStacks[i] = Arrays.copyOf(stack, depth);
+		}
+	}
+
+	/**
+	 * Merge types into the types of a label.
+	 * 
+	 * @param label
+	 *            Id of the label.
+	 * @param locals
+	 *            Types of the registers.
+	 * @param stack
+	 *            Types of the operand stack.
+	 * @param depth
+	 *            Depth of the operand stack.
+	 * @return True iff the types of the label have changed.
+	 * @throws GeneratorException
+	 *             Exception if the operand stacks differ.
+	 */
+	private boolean merge(int label, int[] locals, int[] stack, int depth) throws GeneratorException {
+		if (labelLocals[label] == null) {
+			labelLocals[label] = locals.clone();
+			labelStacks[label] = Arrays.copyOf(stack, depth);
+			return true;
+		}
+		int[] labelStack = labelStacks[label];
+		if (labelStack.length != depth) {
+			throw new GeneratorException("Operand stack of depth " + depth + " and " + labelStack.length
+					+ " at label " + labelName(label));
+		}
+		for (int s = 0; s < depth; s++) {
+			if (labelStack[s] != stack[s]) {
+				throw new GeneratorException("Operand stack with different types at label " + labelName(label));
+			}
+		}
+		boolean widened = false;
+		int[] types = labelLocals[label];
+		for (int l = 0; l < types.length; l++) {
+			if (types[l] != locals[l] && types[l] != TOP) {
+				types[l] = TOP;
+				widened = true;
+			}
+		}
+		return widened;
+	}
+
+	/**
+	 * Push a type on the operand stack.
+	 * 
+	 * @return The stack, enlarged if necessary.
+	 */
+	private int[] push(int[] stack, int depth, int type) {
+		if (depth == stack.length) {
+			stack = Arrays.copyOf(stack, 2 * depth);
+		}
+		stack[depth] = type;
+		maxStack = Math.max(maxStack, depth + 1);
+		return stack;
+	}
+
+	/**
+	 * Pop types from the operand stack.
+	 * 
+	 * @return The new depth.
+	 * @throws GeneratorException
+	 *             Exception if the stack has fewer elements.
+	 */
+	private int pop(int depth, int n) throws GeneratorException {
+		if (depth < n) {
+			throw new GeneratorException("Operand stack underflow in main");
+		}
+		return depth - n;
+	}
+
+	/**
+	 * Get the verification type of a field descriptor.
+	 * 
+	 * @param descriptor
+	 *            Descriptor of an int or reference type.
+	 * @return Verification type.
+	 * @throws GeneratorException
+	 *             Exception if the constant pool is full.
+	 */
+	private int type(String descriptor) throws GeneratorException {
+		switch (descriptor.charAt(0)) {
+		case 'I':
+		case 'Z':
+		case 'B':
+		case 'C':
+		case 'S':
+			return INTEGER;
+		default:
+			return objectType(descriptor);
+		}
+	}
+
+	/**
+	 * Get the verification type of a reference type.
+	 * 
+	 * @param descriptor
+	 *            Descriptor of a class or array type.
+	 * @return Verification type.
+	 * @throws GeneratorException
+	 *             Exception if the constant pool is full.
+	 */
+	private int objectType(String descriptor) throws GeneratorException {
+		// arrays are named by their descriptor
+		String name = descriptor.charAt(0) == 'L' ? descriptor.substring(1, descriptor.length() - 1) : descriptor;
+		return OBJECT | classRef(name) << 8;
+	}
+
+	/**
+	 * Write a verification type.
+	 */
+	private static void writeType(DataOutputStream out, int type) throws IOException {
+		out.writeByte(type & 0xFF);
+		if ((type & 0xFF) == OBJECT) {
+			out.writeShort(type >>> 8);
+		}
+	}
+
+	/**
+	 * Write the class with the standard constructor and main.
+	 * 
+	 * @param main
+	 *            Code attribute of main without name and length.
+	 * @return Class file.
+	 * @throws GeneratorException
+	 *             Exception if the constant pool is too large.
+	 * @throws IOException
+	 *             Exception while writing.
+	 */
+	private byte[] writeClass(byte[] main) throws GeneratorException, IOException {
+		int superClass = classRef("java/lang/Object");
+		int superInit = memberRef(CONSTANT_METHODREF, "java/lang/Object", "<init>", "()V");
+		int codeName = utf8("Code");
+		int initName = utf8("<init>");
+		int initType = utf8("()V");
+		int mainName = utf8("main");
+		int mainType = utf8("([Ljava/lang/String;)V");
+		if (poolSize > 0xFFFF) {
+			throw new GeneratorException("Too many constants for a class file");
+		}
+
+		ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(classBytes);
+		out.writeInt(0xCAFEBABE);
+		out.writeShort(0);
+		out.writeShort(MAJOR_VERSION);
+		out.writeShort(poolSize);
+		poolBytes.writeTo(out);
+		out.writeShort(ACC_PUBLIC | ACC_SUPER);
+		out.writeShort(thisClass);
+		out.writeShort(superClass);
+		// no interfaces and fields
+		out.writeShort(0);
+		out.writeShort(0);
+		out.writeShort(2);
+
+		// standard initializer, which calls super()
+		out.writeShort(ACC_PUBLIC);
+		out.writeShort(initName);
+		out.writeShort(initType);
+		out.writeShort(1);
+		out.writeShort(codeName);
+		out.writeInt(17);
+		out.writeShort(1);
+		out.writeShort(1);
+		out.writeInt(5);
+		out.writeByte(Opcodes.ALOAD_0);
+		out.writeByte(Opcodes.INVOKESPECIAL);
+		out.writeShort(superInit);
+		out.writeByte(Opcodes.RETURN);
+		out.writeShort(0);
+		out.writeShort(0);
+
+		// main
+		out.writeShort(ACC_PUBLIC | ACC_STATIC);
+		out.writeShort(mainName);
+		out.writeShort(mainType);
+		out.writeShort(1);
+		out.writeShort(codeName);
+		out.writeInt(main.length);
+		out.write(main);
+
+		// no class attributes
+		out.writeShort(0);
+		return classBytes.toByteArray();
+	}
+
+	private static boolean isRegisterInstruction(int opcode) {
+		return opcode == Opcodes.ILOAD || opcode == Opcodes.ISTORE || opcode == Opcodes.ALOAD
+				|| opcode == Opcodes.ASTORE;
+	}
+
+	private static boolean isJump(int opcode) {
+		return opcode >= Opcodes.IFEQ && opcode <= Opcodes.GOTO;
+	}
+
+	private static boolean isMemberInstruction(int opcode) {
+		return opcode >= Opcodes.GETSTATIC && opcode <= Opcodes.INVOKESTATIC;
+	}
+
+	/**
+	 * Get the constant pool index of a UTF8 entry.
+	 */
+	private int utf8(String value) throws GeneratorException {
+		Integer index = poolIndices.get("U" + value);
+		if (index == null) {
+			try {
+				pool.writeByte(CONSTANT_UTF8);
+				pool.writeUTF(value);
+			} catch (IOException e) {
+				throw new GeneratorException("Constant " + value + " is too long for a class file");
+			}
+			index = poolSize++;
+			poolIndices.put("U" + value, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Get the constant pool index of an entry which refers to one UTF8 entry,
+	 * i.e. a class or string.
+	 */
+	private int reference(int tag, String value) throws GeneratorException {
+		String key = tag + value;
+		Integer index = poolIndices.get(key);
+		if (index == null) {
+			int utf8 = utf8(value);
+			try {
+				pool.writeByte(tag);
+				pool.writeShort(utf8);
+			} catch (IOException e) {
+				throw new GeneratorException(e.getMessage());
+			}
+			index = poolSize++;
+			poolIndices.put(key, index);
+		}
+		return index;
+	}
+
+	private int classRef(String name) throws GeneratorException {
+		return reference(CONSTANT_CLASS, name);
+	}
+
+	private int string(String value) throws GeneratorException {
+		return reference(CONSTANT_STRING, value);
+	}
+
+	private int integer(int value) throws GeneratorException {
+		String key = "I" + value;
+		Integer index = poolIndices.get(key);
+		if (index == null) {
+			try {
+				pool.writeByte(CONSTANT_INTEGER);
+				pool.writeInt(value);
+			} catch (IOException e) {
+				throw new GeneratorException(e.getMessage());
+			}
+			index = poolSize++;
+			poolIndices.put(key, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Get the constant pool index of a field or method reference.
+	 */
+	private int memberRef(int tag, String owner, String name, String descriptor) throws GeneratorException {
+		String key = tag + owner + "." + name + descriptor;
+		Integer index = poolIndices.get(key);
+		if (index == null) {
+			int ownerIndex = classRef(owner);
+			String nameAndTypeKey = CONSTANT_NAME_AND_TYPE + name + " " + descriptor;
+			Integer nameAndType = poolIndices.get(nameAndTypeKey);
+			try {
+				if (nameAndType == null) {
+					int nameIndex = utf8(name);
+					int typeIndex = utf8(descriptor);
+					pool.writeByte(CONSTANT_NAME_AND_TYPE);
+					pool.writeShort(nameIndex);
+					pool.writeShort(typeIndex);
+					nameAndType = poolSize++;
+					poolIndices.put(nameAndTypeKey, nameAndType);
+				}
+				pool.writeByte(tag);
+				pool.writeShort(ownerIndex);
+				pool.writeShort(nameAndType);
+			} catch (IOException e) {
+				throw new GeneratorException(e.getMessage());
+			}
+			index = poolSize++;
+			poolIndices.put(key, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Interpret the escape sequences of a string literal as Jasmin does.
+	 * 
+	 * @param literal
+	 *            Text between the quotes.
+	 * @return String value.
+	 */
+	private static String unescape(String literal) {
+		if (literal.indexOf('\\') < 0) {
+			return literal;
+		}
+		StringBuilder value = new StringBuilder(literal.length());
+		for (int i = 0; i < literal.length(); i++) {
+			char c = literal.charAt(i);
+			if (c != '\\' || i + 1 == literal.length()) {
+				value.append(c);
+				continue;
+			}
+			char escaped = literal.charAt(++i);
+			switch (escaped) {
+			case 'n':
+				value.append('\n');
+				break;
+			case 't':
+				value.append('\t');
+				break;
+			case 'r':
+				value.append('\r');
+				break;
+			case 'b':
+				value.append('\b');
+				break;
+			case 'f':
+				value.append('\f');
+				break;
+			default:
+				// \\, \' and unknown escapes stand for the character
+				value.append(escaped);
+			}
+		}
+		return value.toString();
+	}
+}
@@ -0,0 +1,169 @@
+package generator;
+
+/**
+ * Backend of the {@link JasminGenerator}. The generator translates a program
+ * into a class with a single main method and passes its instructions in
+ * program order to an emitter, which either prints them as Jasmin code or
+ * assembles the class file.
+ * 
+ * Labels are named by a prefix and a number, e.g. while0, such that the
+ * generator does not need to build a string per label.
+ */
+public interface CodeEmitter {
+
+	/**
+	 * Begin the class and its main method.
+	 * 
+	 * @param name
+	 *            Name of the class.
+	 * @throws GeneratorException
+	 *             Exception while emitting.
+	 */
+	void beginClass(String name) throws GeneratorException;
+
+	/**
+	 * End the main method and the class.
+	 * 
+	 * @throws GeneratorException
+	 *             Exception while emitting, e.g. if the method is not valid.
+	 */
+	void endClass() throws GeneratorException;
+
+	/**
+	 * Emit an instruction without operand.
+	 * 
+	 * @param opcode
+	 *            Opcode, see {@link Opcodes}.
+	 * @throws GeneratorException
+	 *             Exception while emitting.
+	 */
+	void instruction(int opcode) throws GeneratorException;
+
+	/**
+	 * Emit a load or store of a register. The emitter chooses the shortest
+	 * form of the instruction.
+	 * 
+	 * @param opcode
+	 *            Opcode, see {@link Opcodes}.
+	 * @param register
+	 *            Register.
+	 * @throws GeneratorException
+	 *             Exception while emitting.
+	 */
+	void registerInstruction(int opcode, int register) throws GeneratorException;
+
+	/**
+	 * Emit an increment of an int register by a constant, i.e. iinc.
+	 * 
+	 * @param register
+	 *            Register.
+	 * @param value
+	 *            Increment, a short.
+	 * @throws GeneratorException
+	 *             Exception while emitting.
+	 */
+	void increment(int register, int value) throws GeneratorException;
+
+	/**
+	 * Emit a push of an int constant by the shortest instruction, see
+	 * {@link Opcodes#constantOpcode(int)}.
+	 * 
+	 * @param value
+	 *            Constant.
+	 * @throws GeneratorException
+	 *             Exception while emitting.
+	 */
+	void loadConstant(int value) throws GeneratorException;
+
+	/**
+	 * Emit a push of a string constant.
+	 * 
+	 * @param value
+	 *            Text between the quotes of the literal, escape sequences are
+	 *            interpreted as by Jasmin.
+	 * @throws GeneratorException
+	 *             Exception while emitting.
+	 */
+	void loadConstant(String value) throws GeneratorException;
+
+	/**
+	 * Emit a jump.
+	 * 
+	 * @param opcode
+	 *            Opcode of a conditional jump or goto, see {@link Opcodes}.
+	 * @param prefix
+	 *            Name of the target label without its number.
+	 * @param number
+	 *            Number of the target label.
+	 * @throws GeneratorException
+	 *             Exception while emitting.
+	 */
+	void jump(int opcode, String prefix, int number) throws GeneratorException;
+
+	/**
+	 * Place a label before the next instruction.
+	 * 
+	 * @param prefix
+	 *            Name of the label without its number.
+	 * @param number
+	 *            Number of the label.
+	 * @throws GeneratorException
+	 *             Exception while emitting.
+	 */
+	void label(String prefix, int number) throws GeneratorException;
+
+	/**
+	 * Emit an access of a field.
+	 * 
+	 * @param opcode
+	 *            Opcode, see {@link Opcodes}.
+	 * @param owner
+	 *            Internal name of the class of the field.
+	 * @param name
+	 *            Name of the field.
+	 * @param descriptor
+	 *            Type descriptor of the field.
+	 * @throws GeneratorException
+	 *             Exception while emitting.
+	 */
+	void fieldInstruction(int opcode, String owner, String name, String descriptor) throws GeneratorException;
+
+	/**
+	 * Emit an invocation of a method.
+	 * 
+	 * @param opcode
+	 *            Opcode, see {@link Opcodes}.
+	 * @param owner
+	 *            Internal name of the class of the method.
+	 * @param name
+	 *            Name of the method.
+	 * @param descriptor
+	 *            Method descriptor.
+	 * @throws GeneratorException
+	 *             Exception while emitting.
+	 */
+	void methodInstruction(int opcode, String owner, String name, String descriptor) throws GeneratorException;
+
+	/**
+	 * Emit an instruction on a class, i.e. the creation of an object, which
+	 * is initialized by invoking its constructor.
+	 * 
+	 * @param opcode
+	 *            Opcode, see {@link Opcodes}.
+	 * @param type
+	 *            Internal name of the class.
+	 * @throws GeneratorException
+	 *             Exception while emitting.
+	 */
+	void typeInstruction(int opcode, String type) throws GeneratorException;
+
+	/**
+	 * Emit a comment, which is ignored by backends without textual output.
+	 * 
+	 * @param text
+	 *            Comment.
+	 * @throws GeneratorException
+	 *             Exception while emitting.
+	 */
+	void comment(String text) throws GeneratorException;
+}
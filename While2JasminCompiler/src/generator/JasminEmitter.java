@@ -0,0 +1,374 @@
+package generator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Emitter which writes the program as Jasmin code, a textual representation
+ * of Java-Bytecode. Every line is appended to the sink as soon as it is
+ * emitted. The limits of main follow its body, which Jasmin accepts anywhere
+ * in a method: the number of registers is the highest register used plus
+ * one, and the maximal depth of the operand stack is computed by an abstract
+ * interpretation of the instructions, of which only the opcodes, jump
+ * targets and stack effects are kept.
+ */
+public class JasminEmitter implements CodeEmitter {
+
+	// Line separator of the generated code
+	private static final String NEWLINE = System.lineSeparator();
+
+	// Pseudo opcode of a label in the instruction list
+	private static final int LABEL = -1;
+
+	// Initial number of instructions
+	private static final int INITIAL_CAPACITY = 256;
+
+	// Sink of the generated Jasmin code
+	private final Appendable out;
+
+	// Instructions of main: opcode, label id of jumps and labels, change of
+	// the stack depth
+	private int[] opcodes;
+	private int[] operands;
+	private int[] effects;
+	private int count;
+
+	// Label ids by name, names by id and the index of each label in the
+	// instruction list
+	private HashMap<String, Integer> labelIds;
+	private List<String> labelNames;
+	private int[] labelIndices;
+
+	// Highest register used plus one, at least the argument of main
+	private int maxLocals;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param out
+	 *            Destination of the Jasmin code, e.g. a buffered writer.
+	 */
+	public JasminEmitter(Appendable out) {
+		this.out = out;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#beginClass(java.lang.String)
+	 */
+	public void beginClass(String name) throws GeneratorException {
+		opcodes = new int[INITIAL_CAPACITY];
+		operands = new int[INITIAL_CAPACITY];
+		effects = new int[INITIAL_CAPACITY];
+		count = 0;
+		labelIds = new HashMap<String, Integer>();
+		labelNames = new ArrayList<String>();
+		labelIndices = new int[INITIAL_CAPACITY];
+		maxLocals = 1;
+
+		// Define a class with the given name which is a subclass of Object.
+		write(".class public " + name);
+		write(".super java/lang/Object");
+		write(";");
+		// Define the standard constructor which calls super().
+		write("; standard initializer");
+		write(".method public <init>()V");
+		write("  aload_0");
+		write("  invokenonvirtual java/lang/Object/<init>()V");
+		write("  return");
+		write(".end method");
+		write("");
+		// Then start building the main method.
+		write(".method public static main([Ljava/lang/String;)V");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#endClass()
+	 */
+	public void endClass() throws GeneratorException {
+		int maxStack = maxStack();
+		write("  ; set limits used by this method");
+		write("  .limit locals " + maxLocals);
+		write("  .limit stack " + maxStack);
+		write(".end method");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#instruction(int)
+	 */
+	public void instruction(int opcode) throws GeneratorException {
+		add(opcode, 0, Opcodes.stackEffect(opcode, null));
+		write(Opcodes.mnemonic(opcode));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#registerInstruction(int, int)
+	 */
+	public void registerInstruction(int opcode, int register) throws GeneratorException {
+		int shortForm = Opcodes.shortForm(opcode, register);
+		add(shortForm, register, Opcodes.stackEffect(shortForm, null));
+		maxLocals = Math.max(maxLocals, register + 1);
+		write(shortForm == opcode ? Opcodes.mnemonic(shortForm) + ' ' + register : Opcodes.mnemonic(shortForm));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#increment(int, int)
+	 */
+	public void increment(int register, int value) throws GeneratorException {
+		add(Opcodes.IINC, register, Opcodes.stackEffect(Opcodes.IINC, null));
+		maxLocals = Math.max(maxLocals, register + 1);
+		write("iinc " + register + ' ' + value);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#loadConstant(int)
+	 */
+	public void loadConstant(int value) throws GeneratorException {
+		int opcode = Opcodes.constantOpcode(value);
+		add(opcode, 0, Opcodes.stackEffect(opcode, null));
+		if (opcode == Opcodes.BIPUSH || opcode == Opcodes.SIPUSH || opcode == Opcodes.LDC) {
+			write(Opcodes.mnemonic(opcode) + ' ' + value);
+		} else {
+			write(Opcodes.mnemonic(opcode));
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#loadConstant(java.lang.String)
+	 */
+	public void loadConstant(String value) throws GeneratorException {
+		add(Opcodes.LDC, 0, Opcodes.stackEffect(Opcodes.LDC, null));
+		write("ldc \"" + value + '"');
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#jump(int, java.lang.String, int)
+	 */
+	public void jump(int opcode, String prefix, int number) throws GeneratorException {
+		add(opcode, labelId(prefix + number), Opcodes.stackEffect(opcode, null));
+		write(Opcodes.mnemonic(opcode) + ' ' + prefix + number);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#label(java.lang.String, int)
+	 */
+	public void label(String prefix, int number) throws GeneratorException {
+		int id = labelId(prefix + number);
+		if (labelIndices[id] >= 0) {
+			throw new GeneratorException("Label " + prefix + number + " is placed twice");
+		}
+		labelIndices[id] = count;
+		add(LABEL, id, 0);
+		write(prefix + number + ':');
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#fieldInstruction(int, java.lang.String,
+	 * java.lang.String, java.lang.String)
+	 */
+	public void fieldInstruction(int opcode, String owner, String name, String descriptor) throws GeneratorException {
+		add(opcode, 0, Opcodes.stackEffect(opcode, descriptor));
+		write(Opcodes.mnemonic(opcode) + ' ' + owner + '/' + name + ' ' + descriptor);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#methodInstruction(int, java.lang.String,
+	 * java.lang.String, java.lang.String)
+	 */
+	public void methodInstruction(int opcode, String owner, String name, String descriptor)
+			throws GeneratorException {
+		add(opcode, 0, Opcodes.stackEffect(opcode, descriptor));
+		write(Opcodes.mnemonic(opcode) + ' ' + owner + '/' + name + descriptor);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#typeInstruction(int, java.lang.String)
+	 */
+	public void typeInstruction(int opcode, String type) throws GeneratorException {
+		add(opcode, 0, Opcodes.stackEffect(opcode, null));
+		write(Opcodes.mnemonic(opcode) + ' ' + type);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#comment(java.lang.String)
+	 */
+	public void comment(String text) throws GeneratorException {
+		write("; " + text);
+	}
+
+	/**
+	 * Append an instruction to the instruction list of main.
+	 * 
+	 * @param opcode
+	 *            Opcode or LABEL.
+	 * @param operand
+	 *            Label id of a jump or label.
+	 * @param effect
+	 *            Change of the stack depth.
+	 */
+	private void add(int opcode, int operand, int effect) {
+		if (count == opcodes.length) {
+			opcodes = Arrays.copyOf(opcodes, 2 * count);
+			operands = Arrays.copyOf(operands, 2 * count);
+			effects = Arrays.copyOf(effects, 2 * count);
+		}
+		opcodes[count] = opcode;
+		operands[count] = operand;
+		effects[count] = effect;
+		count++;
+	}
+
+	/**
+	 * Get the id of a label, which is created upon the first request.
+	 * 
+	 * @param name
+	 *            Name of the label.
+	 * @return Id.
+	 */
+	private int labelId(String name) {
+		Integer id = labelIds.get(name);
+		if (id == null) {
+			id = labelIds.size();
+			labelIds.put(name, id);
+			labelNames.add(name);
+			if (id == labelIndices.length) {
+				labelIndices = Arrays.copyOf(labelIndices, 2 * id);
+			}
+			labelIndices[id] = -1;
+		}
+		return id;
+	}
+
+	/**
+	 * Compute the maximal depth of the operand stack of main. Every path
+	 * through the instructions is followed from the start of main and from
+	 * each label reached by a jump, until it reaches a label whose depth is
+	 * already known.
+	 * 
+	 * @return Maximal depth.
+	 * @throws GeneratorException
+	 *             Exception if a label is never placed or reached with
+	 *             different depths, or the stack underflows.
+	 */
+	private int maxStack() throws GeneratorException {
+		int[] labelDepths = new int[labelIds.size()];
+		Arrays.fill(labelDepths, -1);
+		boolean[] analysed = new boolean[labelIds.size()];
+		LinkedList<Integer> pending = new LinkedList<Integer>();
+		int maxStack = 0;
+		int start = 0;
+		int depth = 0;
+		while (true) {
+			for (int i = start; i < count; i++) {
+				int opcode = opcodes[i];
+				if (opcode == LABEL) {
+					int id = operands[i];
+					if (analysed[id] && i != start) {
+						checkDepth(id, labelDepths[id], depth);
+						break;
+					}
+					checkDepth(id, labelDepths[id], depth);
+					labelDepths[id] = depth;
+					analysed[id] = true;
+					continue;
+				}
+				depth += effects[i];
+				if (depth < 0) {
+					throw new GeneratorException("Operand stack underflow in main");
+				}
+				maxStack = Math.max(maxStack, depth);
+				if (opcode == Opcodes.RETURN || opcode == Opcodes.ATHROW) {
+					break;
+				}
+				if (opcode == Opcodes.GOTO || opcode == Opcodes.IFEQ || opcode == Opcodes.IFNE
+						|| (opcode >= Opcodes.IF_ICMPEQ && opcode <= Opcodes.IF_ICMPLE)) {
+					int target = operands[i];
+					if (labelIndices[target] < 0) {
+						throw new GeneratorException("Label " + labelNames.get(target) + " is never placed");
+					}
+					checkDepth(target, labelDepths[target], depth);
+					if (labelDepths[target] < 0) {
+						labelDepths[target] = depth;
+						pending.add(target);
+					}
+					if (opcode == Opcodes.GOTO) {
+						break;
+					}
+				}
+			}
+			// continue with a label which has been reached by a jump only
+			do {
+				if (pending.isEmpty()) {
+					return maxStack;
+				}
+				int id = pending.removeFirst();
+				start = analysed[id] ? -1 : labelIndices[id];
+				depth = labelDepths[id];
+			} while (start < 0);
+		}
+	}
+
+	/**
+	 * Check that a label is reached with the same stack depth on every path.
+	 * 
+	 * @param id
+	 *            Id of the label.
+	 * @param known
+	 *            Depth at the label, negative if not known yet.
+	 * @param depth
+	 *            Depth on the current path.
+	 * @throws GeneratorException
+	 *             Exception if the depths differ.
+	 */
+	private void checkDepth(int id, int known, int depth) throws GeneratorException {
+		if (known >= 0 && known != depth) {
+			throw new GeneratorException("Operand stack of depth " + depth + " and " + known + " at label "
+					+ labelNames.get(id));
+		}
+	}
+
+	/**
+	 * Append a line to the sink.
+	 * 
+	 * @param text
+	 *            Line without line separator.
+	 * @throws GeneratorException
+	 *             Exception if the sink cannot be written.
+	 */
+	private void write(String text) throws GeneratorException {
+		try {
+			out.append(text).append(NEWLINE);
+		} catch (IOException e) {
+			throw new GeneratorException("Cannot write Jasmin code: " + e.getMessage());
+		}
+	}
+}
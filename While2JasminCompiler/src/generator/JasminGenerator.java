@@ -1,32 +1,141 @@
 package generator;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Map;
 
-import checker.AST;
-import checker.ASTNode;
-import symbols.NonTerminals.NonTerminal;
-import symbols.Tokens.Token;
-import util.Pair;
+import ast.Assign;
+import ast.BinOp;
+import ast.Block;
+import ast.Const;
+import ast.Declaration;
+import ast.Expression;
+import ast.FlatTree;
+import ast.FlatTreeVisitor;
+import ast.If;
+import ast.Node;
+import ast.TreeVisitor;
+import ast.TreeWalker;
+import ast.Var;
+import ast.WriteString;
+import util.ScopedSymbolTable;
 
 /**
  * Generator which converts an abstract syntax tree into the Jasmin language.
- *
+ * The instructions are passed to a {@link CodeEmitter}, which either writes
+ * them as Jasmin code or assembles a class file directly.
  */
 public class JasminGenerator {
 
-	// The symbol table mapping an identifier to its id
-	//Changed definition: Each variable name holds a list of pairs of scope levels and ids
-	private HashMap<String, List<Pair<Integer, Integer>>> symbolTable = new HashMap<String, List<Pair<Integer, Integer>>>();
-	private int scopeLevel = 0; //Counts depth of scope
+	// The symbol table mapping an identifier to the register of its innermost
+	// visible declaration
+	private ScopedSymbolTable<Integer> symbolTable = new ScopedSymbolTable<Integer>();
 	private int varCount = 0; //Counts used vars, only gets decreased when leaving a scope, clearing the newest ids for reuse
 	private int ifCount = 0;
 	private int loopCount = 0;
-	private int negCount = 0;
 	private int relCount = 0;
+	private int skipCount = 0;
+
+	// Kind of the parent of the root
+	private static final int NO_PARENT = -1;
+
+	// Translation modes of a guard: its value is pushed, or it jumps to its
+	// target if it is false or true
+	private static final int VALUE = 0;
+	private static final int JUMP_IF_FALSE = 1;
+	private static final int JUMP_IF_TRUE = 2;
+
+	// Labels of the enclosing branches and loops, innermost last
+	private int[] labels = new int[16];
+	private boolean[] elseBranch = new boolean[16];
+	private int openLabels = 0;
+
+	// Label which is jumped to if the current condition is false, i.e. the
+	// else block, the end of a branch or the end of a loop
+	private String guardTarget;
+
+	// Enclosing negations, conjunctions and disjunctions of a condition,
+	// innermost last: translation mode, target label and the label after the
+	// second operand of a conjunction or disjunction if its first operand
+	// jumps there, otherwise NO_LABEL
+	private int[] guardModes = new int[16];
+	private String[] guardPrefixes = new String[16];
+	private int[] guardLabels = new int[16];
+	private int[] guardSkips = new int[16];
+	private int openGuards = 0;
+
+	// No label
+	private static final int NO_LABEL = -1;
+
+	// No allocated register, the generator chooses one
+	private static final int NO_REGISTER = -1;
+
+	// Target of the guard whose mode has been computed last
+	private String targetPrefix;
+	private int targetLabel;
+
+	// Evaluate both operands of && and || instead of short-circuit jumps
+	private boolean eagerGuards = false;
+
+	// Collect the output in a buffer, which is null while the output is
+	// printed line by line
+	private boolean bufferedOutput = false;
+	private OutputBuffer output;
+
+	// True iff the last translated node is a constant other than 0, i.e. a
+	// divisor which cannot throw
+	private boolean nonZeroConstant = false;
+
+	// True while the value of an assignment v = v + c or v = v - c is
+	// visited, which is translated into an iinc by incrementValue instead
+	private boolean incrementing = false;
+	private int incrementValue;
+
+	// Registers of the declarations of the abstract syntax tree, null if the
+	// generator chooses them
+	private Map<Declaration, Integer> registers;
+
+	// Backend of the generated instructions
+	private CodeEmitter emitter;
+
+	/**
+	 * Choose the evaluation of conjunctions and disjunctions. By default they
+	 * are compiled as short-circuit jumps, i.e. the second operand is only
+	 * evaluated if the first one does not decide the result. Eager evaluation
+	 * computes the values of both operands and combines them with iand or
+	 * ior.
+	 * 
+	 * @param eager
+	 *            True iff both operands are always evaluated.
+	 */
+	public void setEagerGuards(boolean eager) {
+		this.eagerGuards = eager;
+	}
+
+	/**
+	 * Choose how the generated program writes its output. By default every
+	 * write prints a line by System.out. Buffered output collects the lines
+	 * in an {@link OutputBuffer}, which prints them in large chunks with the
+	 * same bytes.
+	 * 
+	 * @param buffered
+	 *            True iff the output is buffered.
+	 */
+	public void setBufferedOutput(boolean buffered) {
+		this.bufferedOutput = buffered;
+	}
+
+	/**
+	 * Use the registers which have been allocated for the declarations of an
+	 * abstract syntax tree. The flattened tree holds its registers itself.
+	 * 
+	 * @param registers
+	 *            Register by declaration, see
+	 *            {@link optimizer.RegisterAllocator#allocate(Block)}, null if
+	 *            the generator chooses them.
+	 */
+	public void setRegisters(Map<Declaration, Integer> registers) {
+		this.registers = registers;
+	}
 
 	/**
 	 * Given an abstract syntax tree with respect to WhileGrammar, this method
@@ -35,452 +144,746 @@ public class JasminGenerator {
 	 * 
 	 * @param name
 	 *            Name of the program
-	 * @param ast
-	 *            The abstract syntax tree
+	 * @param program
+	 *            The abstract syntax tree, i.e. the outermost block
 	 * @return Jasmin program as a String
 	 * @throws GeneratorException
 	 *             Exception while generation the Jasmin code
 	 */
-	public String translateWHILE(String name, AST ast) throws GeneratorException {
-		StringBuilder result = new StringBuilder();
-
-		// Define a class with the given name which is a subclass of Object.
-		appendString(result, ".class public " + name);
-		appendString(result, ".super java/lang/Object");
-		appendString(result, ";");
-		// Define the standard constructor which calls super().
-		appendString(result, "; standard initializer");
-		appendString(result, ".method public <init>()V");
-		appendString(result, "  aload_0");
-		appendString(result, "  invokenonvirtual java/lang/Object/<init>()V");
-		appendString(result, "  return");
-		appendString(result, ".end method");
-		appendString(result, "");
-		// Then start building the main method.
-		appendString(result, ".method public static main([Ljava/lang/String;)V");
-		// It simply reserves 100 registers and a data stack of depth 100 - not
-		// beautiful but works for our small examples
-		appendString(result, "  ; set limits used by this method");
-		appendString(result, "  .limit locals 100");
-		appendString(result, "  .limit stack 100");
+	public String translateWHILE(String name, Block program) throws GeneratorException {
+		StringBuilder code = new StringBuilder();
+		translateWHILE(name, program, code);
+		return code.toString();
+	}
 
+	/**
+	 * Translate an abstract syntax tree to the Jasmin language, see
+	 * {@link #translateWHILE(String, Block)}. Every line is appended to the
+	 * sink as soon as it is generated, such that the program is never held in
+	 * memory as a whole.
+	 * 
+	 * @param name
+	 *            Name of the program
+	 * @param program
+	 *            The abstract syntax tree, i.e. the outermost block
+	 * @param sink
+	 *            Destination of the Jasmin code, e.g. a buffered writer
+	 * @throws GeneratorException
+	 *             Exception while generation or writing the Jasmin code
+	 */
+	public void translateWHILE(String name, Block program, Appendable sink) throws GeneratorException {
+		translateWHILE(name, program, new JasminEmitter(sink));
+	}
+
+	/**
+	 * Translate an abstract syntax tree and pass the instructions to a
+	 * backend.
+	 * 
+	 * @param name
+	 *            Name of the program
+	 * @param program
+	 *            The abstract syntax tree, i.e. the outermost block
+	 * @param backend
+	 *            Emitter of the instructions, e.g. a {@link ClassFileWriter}
+	 * @throws GeneratorException
+	 *             Exception while generation or emitting the code
+	 */
+	public void translateWHILE(String name, Block program, CodeEmitter backend) throws GeneratorException {
+		emitter = backend;
+
+		emitter.beginClass(name);
+		translateHeader();
 		// Now walk the abstract syntax tree in-order and translate it to Jasmin
 		// code
 		// At the same time the symbol table is generated
-		ASTNode root = ast.getRoot();
-		assert (root.getAlphabet().equals(NonTerminal.START));
-		assert (root.getChildren().size() == 2);
-		result.append(translateProg(root.getChildren().get(0)));
+		TreeWalker.walk(program, new TreeVisitor<GeneratorException>() {
+			public void enter(Node node, Node parent, int index) throws GeneratorException {
+				if (node.getKind() == Node.ASSIGN) {
+					checkIncrement((Assign) node);
+				}
+				boolean hasElse = node.getKind() == Node.IF && ((If) node).getElseBlock() != null;
+				int operator = node.getKind() == Node.BIN_OP ? ((BinOp) node).getOperator() : 0;
+				enterNode(node.getKind(), parent != null ? parent.getKind() : NO_PARENT, index, operator, hasElse);
+			}
+
+			public void exit(Node node, Node parent, int index) throws GeneratorException {
+				int value = 0;
+				String name = null;
+				switch (node.getKind()) {
+				case Node.DECLARATION:
+					Declaration declaration = (Declaration) node;
+					Integer register = registers != null ? registers.get(declaration) : null;
+					translateDecl(declaration.getName(), declaration.isInitialized(),
+							register != null ? register : NO_REGISTER);
+					return;
+				case Node.ASSIGN:
+					name = ((Assign) node).getTarget().getName();
+					break;
+				case Node.WRITE_STRING:
+					name = ((WriteString) node).getText();
+					break;
+				case Node.CONST:
+					value = ((Const) node).getValue();
+					break;
+				case Node.VAR:
+					name = ((Var) node).getName();
+					break;
+				case Node.BIN_OP:
+					value = ((BinOp) node).getOperator();
+					break;
+				default:
+				}
+				exitNode(node.getKind(), parent != null ? parent.getKind() : NO_PARENT, index, value, name);
+			}
+		});
+		translateFooter();
+	}
+
+	/**
+	 * Generate the start of the main method.
+	 * 
+	 * @throws GeneratorException
+	 *             Exception while emitting
+	 */
+	private void translateHeader() throws GeneratorException {
+		output = bufferedOutput ? new OutputBuffer(emitter) : null;
+		if (output != null) {
+			output.create();
+		}
+	}
 
+	/**
+	 * Generate the end of the main method.
+	 * 
+	 * @throws GeneratorException
+	 *             Exception while emitting
+	 */
+	private void translateFooter() throws GeneratorException {
 		// here the main method ends
-		appendString(result, "; done");
-		appendString(result, "return");
-		appendString(result, "");
-		appendString(result, ".end method");
+		if (output != null) {
+			output.flush();
+			output = null;
+		}
+		emitter.comment("done");
+		emitter.instruction(Opcodes.RETURN);
+		emitter.endClass();
+	}
 
-		return result.toString();
+	/**
+	 * Translate a flattened abstract syntax tree to the Jasmin language, see
+	 * {@link #translateWHILE(String, Block)}. The generated code is the same.
+	 * 
+	 * @param name
+	 *            Name of the program
+	 * @param tree
+	 *            The flattened abstract syntax tree
+	 * @return Jasmin program as a String
+	 * @throws GeneratorException
+	 *             Exception while generation the Jasmin code
+	 */
+	public String translateWHILE(String name, FlatTree tree) throws GeneratorException {
+		StringBuilder code = new StringBuilder();
+		translateWHILE(name, tree, code);
+		return code.toString();
 	}
 
-	private String translateProg(ASTNode node) throws GeneratorException {
-		assert (node.getAlphabet().equals(NonTerminal.PROGRAM));
-		StringBuilder result = new StringBuilder();
+	/**
+	 * Translate a flattened abstract syntax tree into a sink, see
+	 * {@link #translateWHILE(String, Block, Appendable)}.
+	 * 
+	 * @param name
+	 *            Name of the program
+	 * @param tree
+	 *            The flattened abstract syntax tree
+	 * @param sink
+	 *            Destination of the Jasmin code, e.g. a buffered writer
+	 * @throws GeneratorException
+	 *             Exception while generation or writing the Jasmin code
+	 */
+	public void translateWHILE(String name, FlatTree tree, Appendable sink) throws GeneratorException {
+		translateWHILE(name, tree, new JasminEmitter(sink));
+	}
 
-		assert (node.getChildren().size() == 1 || node.getChildren().size() == 2);
-		result.append(translateStat(node.getChildren().get(0)));
-		if(node.getChildren().size() == 2) {
-			result.append(translateProg(node.getChildren().get(1)));
-		}
+	/**
+	 * Translate a flattened abstract syntax tree and pass the instructions to
+	 * a backend, see {@link #translateWHILE(String, Block, CodeEmitter)}.
+	 * 
+	 * @param name
+	 *            Name of the program
+	 * @param tree
+	 *            The flattened abstract syntax tree
+	 * @param backend
+	 *            Emitter of the instructions, e.g. a {@link ClassFileWriter}
+	 * @throws GeneratorException
+	 *             Exception while generation or emitting the code
+	 */
+	public void translateWHILE(String name, final FlatTree tree, CodeEmitter backend) throws GeneratorException {
+		emitter = backend;
+
+		emitter.beginClass(name);
+		translateHeader();
+		TreeWalker.walk(tree, new FlatTreeVisitor<GeneratorException>() {
+			public void enter(int node, int parent, int index) throws GeneratorException {
+				int kind = tree.getKind(node);
+				if (kind == Node.ASSIGN) {
+					checkIncrement(tree, node);
+				}
+				// children of a branch: condition, then block, optional else block
+				boolean hasElse = kind == Node.IF
+						&& tree.getNextSibling(tree.getNextSibling(tree.getFirstChild(node))) != FlatTree.NONE;
+				enterNode(kind, parent != FlatTree.NONE ? tree.getKind(parent) : NO_PARENT, index,
+						tree.getPayload(node), hasElse);
+			}
 
-		return result.toString();
+			public void exit(int node, int parent, int index) throws GeneratorException {
+				int kind = tree.getKind(node);
+				int value = tree.getPayload(node);
+				String name = null;
+				switch (kind) {
+				case Node.DECLARATION:
+					translateDecl(tree.getName(value), tree.isInitialized(node), tree.getRegister(node));
+					return;
+				case Node.WRITE_STRING:
+				case Node.VAR:
+					name = tree.getName(tree.getPayload(node));
+					break;
+				case Node.ASSIGN:
+					// the first child is the target
+					name = tree.getName(tree.getPayload(tree.getFirstChild(node)));
+					break;
+				default:
+				}
+				exitNode(kind, parent != FlatTree.NONE ? tree.getKind(parent) : NO_PARENT, index, value, name);
+			}
+		});
+		translateFooter();
 	}
-	
-	private String translateStat(ASTNode node) throws GeneratorException {
-		assert (node.getAlphabet().equals(NonTerminal.STATEMENT));
-		StringBuilder result = new StringBuilder();
-
-		assert(node.getChildren().size() == 1 || node.getChildren().size() == 2);
-		ASTNode child = node.getChildren().get(0);
-		assert(child.getAlphabet() instanceof NonTerminal);
-		NonTerminal nt = (NonTerminal) child.getAlphabet();
-		assert(nt == NonTerminal.DECLARATION || nt == NonTerminal.ASSIGNMENT || 
-				nt == NonTerminal.BRANCH || nt == NonTerminal.LOOP || 
-				nt == NonTerminal.OUT);
-		switch(nt) {
-		case DECLARATION:
-			result.append(translateDecl(child));
+
+	/**
+	 * Generate the code which precedes the children of a node.
+	 * 
+	 * @param kind
+	 *            Kind of the node.
+	 * @param parentKind
+	 *            Kind of the parent, NO_PARENT for the root.
+	 * @param index
+	 *            Index of the node among the children of its parent.
+	 * @param operator
+	 *            Operator of a binary operation.
+	 * @param hasElse
+	 *            True iff the node is a branch with an else block.
+	 * @throws GeneratorException
+	 *             Exception while writing.
+	 */
+	private void enterNode(int kind, int parentKind, int index, int operator, boolean hasElse)
+			throws GeneratorException {
+		switch (kind) {
+		case Node.BLOCK:
+			if (parentKind != NO_PARENT) {
+				// Open a scope for nested blocks, see exitNode
+				symbolTable.enterScope();
+			}
 			break;
-		case ASSIGNMENT:
-			result.append(translateAssi(child));
+		case Node.IF:
+			pushLabel(ifCount++, hasElse);
+			guardTarget = hasElse ? "else" : "endif";
 			break;
-		case BRANCH:
-			result.append(translateBran(child));
+		case Node.WHILE:
+			pushLabel(loopCount++, false);
+			guardTarget = "done";
+			emitter.label("while", labels[openLabels - 1]);
 			break;
-		case LOOP:
-			result.append(translateLoop(child));
+		case Node.NOT:
+			pushGuard(guardMode(parentKind, index), NO_LABEL);
 			break;
-		case OUT:
-			result.append(translateWrite(child));
+		case Node.BIN_OP:
+			if (operator == BinOp.AND || operator == BinOp.OR) {
+				int mode = guardMode(parentKind, index);
+				// the first operand jumps behind the second one if it decides
+				// the result on the path which falls through
+				boolean skip = !eagerGuards && mode == (operator == BinOp.AND ? JUMP_IF_TRUE : JUMP_IF_FALSE);
+				pushGuard(mode, skip ? skipCount++ : NO_LABEL);
+			}
 			break;
 		default:
 		}
-
-		return result.toString();
 	}
-	
-	private String translateDecl(ASTNode node) throws GeneratorException {
-		assert (node.getAlphabet().equals(NonTerminal.DECLARATION));
-		StringBuilder result = new StringBuilder();
-		
-		assert(node.getChildren().size() == 2);
-		assert(node.getChildren().get(1).getAlphabet().equals(Token.ID));
-		String name = node.getChildren().get(1).getAttribute();
-		if(symbolTable.containsKey(name)) { //Add variable to table if it's not in there, add variable to list, 
-			// if its old scope level is smaller, overwrite reference if old variable has same scope (latest decl counts)
-			List<Pair<Integer, Integer>> vars = symbolTable.get(name);
-			if(vars.size() > 0){
-				if(vars.get(vars.size() - 1).getFirst() < scopeLevel) {
-					varCount++;
-					vars.add(new Pair<Integer, Integer>(scopeLevel, varCount));
-					appendString(result, "ldc 0");
-					appendString(result, "istore " + varCount);
-				} else if (vars.get(vars.size() - 1).getFirst() == scopeLevel){
-					appendString(result, "ldc 0");
-					appendString(result, "istore " + vars.get(vars.size() - 1).getSecond());
-				} else {
-					throw new GeneratorException("ScopeLevel in symbol table too high.");
-				}
+
+	/**
+	 * Generate the code which follows the children of a node. Leaves generate
+	 * all their code here. Since the code of the node is complete, also the
+	 * code between this node and its next sibling is generated.
+	 * 
+	 * @param kind
+	 *            Kind of the node.
+	 * @param parentKind
+	 *            Kind of the parent, NO_PARENT for the root.
+	 * @param index
+	 *            Index of the node among the children of its parent.
+	 * @param value
+	 *            Value of a constant or operator of a binary operation.
+	 * @param name
+	 *            Name of an assigned or used variable or string literal of an
+	 *            output.
+	 * @throws GeneratorException
+	 *             Exception while generating.
+	 */
+	private void exitNode(int kind, int parentKind, int index, int value, String name) throws GeneratorException {
+		if (incrementing && kind != Node.ASSIGN) {
+			// the operands of an increment are not loaded
+			return;
+		}
+		// the divisor is the last child of a division
+		boolean constantDivisor = nonZeroConstant;
+		nonZeroConstant = kind == Node.CONST && value != 0;
+		switch (kind) {
+		case Node.BLOCK:
+			if (parentKind != NO_PARENT) {
+				// remove scoped vars of the nested block, their registers are
+				// reused
+				varCount -= symbolTable.exitScope();
+			}
+			break;
+		case Node.ASSIGN:
+			if (incrementing) {
+				emitter.increment(variableId(name), incrementValue);
+				incrementing = false;
 			} else {
-				varCount++;
-				vars.add(new Pair<Integer, Integer>(scopeLevel, varCount));
-				appendString(result, "ldc 0");
-				appendString(result, "istore " + varCount);
+				emitter.registerInstruction(Opcodes.ISTORE, variableId(name));
 			}
-		} else {
-			symbolTable.put(name,  new ArrayList<Pair<Integer, Integer>>());
-			List<Pair<Integer, Integer>> vars = symbolTable.get(name);
-			varCount++;
-			vars.add(new Pair<Integer, Integer>(scopeLevel, varCount));
-			appendString(result, "ldc 0");
-			appendString(result, "istore " + varCount);
+			break;
+		case Node.IF:
+			emitter.label("endif", labels[--openLabels]);
+			break;
+		case Node.WHILE:
+			emitter.jump(Opcodes.GOTO, "while", labels[--openLabels]);
+			emitter.label("done", labels[openLabels]);
+			break;
+		case Node.WRITE:
+			translatePrint();
+			break;
+		case Node.WRITE_STRING:
+			translateWriteString(name);
+			break;
+		case Node.CONST:
+			emitter.loadConstant(value);
+			break;
+		case Node.VAR:
+			if (parentKind != Node.ASSIGN || index != 0) {
+				// the target of an assignment is stored by the assignment
+				emitter.registerInstruction(Opcodes.ILOAD, variableId(name));
+			}
+			break;
+		case Node.READ:
+			translateReadInt();
+			break;
+		case Node.BIN_OP:
+			if (value == BinOp.DIV && output != null && !constantDivisor) {
+				output.checkDivisor();
+			}
+			// conjunctions and disjunctions keep their mode on the stack of
+			// guards
+			translateOperator(value, BinOp.isRelation(value) ? guardMode(parentKind, index) : VALUE);
+			break;
+		case Node.NOT:
+			translateNegation(guardModes[--openGuards]);
+			break;
+		default:
+			throw new GeneratorException("Unexpected node of kind " + kind);
+		}
+
+		// the condition of a branch or loop has jumped to its target already
+		if (parentKind == Node.IF && index == 1 && elseBranch[openLabels - 1]) {
+			// after the then block
+			int label = labels[openLabels - 1];
+			emitter.jump(Opcodes.GOTO, "endif", label);
+			emitter.label("else", label);
 		}
-		
-		return result.toString();
 	}
-	
-	private String translateAssi(ASTNode node) throws GeneratorException {
-		assert (node.getAlphabet().equals(NonTerminal.ASSIGNMENT));
-		StringBuilder result = new StringBuilder();
-		
-		assert(node.getChildren().size() == 3 || node.getChildren().size() == 5);
-		if(node.getChildren().size() == 3) {
-			assert(node.getChildren().get(2).getAlphabet().equals(NonTerminal.EXPR));
-			result.append(translateExpr(node.getChildren().get(2)));
-		} else {
-			assert(node.getChildren().get(2).getAlphabet().equals(Token.READ));
-			result.append(translateReadInt());
+
+	/**
+	 * Get the translation mode of a guard and set its target. The condition
+	 * of a branch or loop jumps to its target if it is false, a negation
+	 * passes the opposite jump to its operand. The operands of a conjunction
+	 * jump if they are false, to the target of the conjunction if it jumps if
+	 * false as well, otherwise the first operand skips the second one.
+	 * Disjunctions are translated the other way round.
+	 * 
+	 * @param parentKind
+	 *            Kind of the parent.
+	 * @param index
+	 *            Index of the node among the children of its parent.
+	 * @return VALUE, JUMP_IF_FALSE or JUMP_IF_TRUE.
+	 */
+	private int guardMode(int parentKind, int index) {
+		if (parentKind == Node.IF || parentKind == Node.WHILE) {
+			targetPrefix = guardTarget;
+			targetLabel = labels[openLabels - 1];
+			return JUMP_IF_FALSE;
 		}
-		assert(node.getChildren().get(0).getAlphabet().equals(Token.ID));
-		List<Pair<Integer, Integer>> var = symbolTable.get(node.getChildren().get(0).getAttribute());
-		int id = var.get(var.size() - 1).getSecond();
-		appendString(result, "istore " + id);
-		
-		return result.toString();
+		int parent = openGuards - 1;
+		int mode = guardModes[parent];
+		if (mode == VALUE || (parentKind == Node.BIN_OP && eagerGuards)) {
+			return VALUE;
+		}
+		targetPrefix = guardPrefixes[parent];
+		targetLabel = guardLabels[parent];
+		if (parentKind == Node.NOT) {
+			return JUMP_IF_FALSE + JUMP_IF_TRUE - mode;
+		} else if (index == 0 && guardSkips[parent] != NO_LABEL) {
+			targetPrefix = "skip";
+			targetLabel = guardSkips[parent];
+			// the opposite jump of the parent
+			return JUMP_IF_FALSE + JUMP_IF_TRUE - mode;
+		}
+		return mode;
 	}
-	
-	private String translateBran(ASTNode node) throws GeneratorException {
-		assert (node.getAlphabet().equals(NonTerminal.BRANCH));
-		StringBuilder result = new StringBuilder();
-		
-		assert(node.getChildren().size() == 7 || node.getChildren().size() == 11);
-		assert(node.getChildren().get(2).getAlphabet().equals(NonTerminal.GUARD));
-		assert(node.getChildren().get(5).getAlphabet().equals(NonTerminal.PROGRAM));
-		result.append(translateGuar(node.getChildren().get(2)));
-		if(node.getChildren().size() > 7) {
-			assert(node.getChildren().get(9).getAlphabet().equals(NonTerminal.PROGRAM));
-			appendString(result, "ifeq else" + ifCount);
-			scopeLevel++;
-			result.append(translateProg(node.getChildren().get(5))); //Increase scope around this, remove scoped vars afterwards
-			clearScopeVars();
-			appendString(result, "goto endif" + ifCount);
-			appendString(result, "else" + ifCount + ":");
-			result.append(translateProg(node.getChildren().get(9))); //Increase scope around this, remove scoped vars afterwards
-			clearScopeVars();
-			scopeLevel--;
-		} else {
-			appendString(result, "ifeq endif" + ifCount);
-			scopeLevel++;
-			result.append(translateProg(node.getChildren().get(5))); //Increase scope around this, remove scoped vars afterwards
-			clearScopeVars();
-			scopeLevel--;
+
+	/**
+	 * Open a negation, conjunction or disjunction with the target set by
+	 * {@link #guardMode(int, int)}.
+	 * 
+	 * @param mode
+	 *            Translation mode.
+	 * @param skip
+	 *            Number of the label after the second operand, NO_LABEL if
+	 *            there is none.
+	 */
+	private void pushGuard(int mode, int skip) {
+		if (openGuards == guardModes.length) {
+			guardModes = Arrays.copyOf(guardModes, 2 * openGuards);
+			guardPrefixes = Arrays.copyOf(guardPrefixes, 2 * openGuards);
+			guardLabels = Arrays.copyOf(guardLabels, 2 * openGuards);
+			guardSkips = Arrays.copyOf(guardSkips, 2 * openGuards);
 		}
-		appendString(result, "endif" + ifCount + ":");
-		ifCount++;
-		
-		return result.toString();
+		guardModes[openGuards] = mode;
+		guardPrefixes[openGuards] = targetPrefix;
+		guardLabels[openGuards] = targetLabel;
+		guardSkips[openGuards] = skip;
+		openGuards++;
 	}
-	
-	private String translateLoop(ASTNode node) throws GeneratorException {
-		assert (node.getAlphabet().equals(NonTerminal.LOOP));
-		StringBuilder result = new StringBuilder();
-		
-		assert(node.getChildren().size() == 7);
-		assert(node.getChildren().get(2).getAlphabet().equals(NonTerminal.GUARD));
-		assert(node.getChildren().get(5).getAlphabet().equals(NonTerminal.PROGRAM));
-		appendString(result, "while" + loopCount + ":");
-		result.append(translateGuar(node.getChildren().get(2)));
-		appendString(result, "ifeq done" + loopCount);
-		scopeLevel++;
-		result.append(translateProg(node.getChildren().get(5))); //Increase scope around this, remove scoped vars afterwards
-		clearScopeVars();
-		scopeLevel--;
-		appendString(result, "goto while" + loopCount);
-		appendString(result, "done" + loopCount + ":");
-		loopCount++;
-		
-		return result.toString();
+
+	/**
+	 * Check if an assignment of the abstract syntax tree is an increment, see
+	 * {@link #checkIncrement(int, boolean, int)}.
+	 * 
+	 * @param assign
+	 *            Assignment.
+	 */
+	private void checkIncrement(Assign assign) {
+		incrementing = false;
+		if (assign.getValue().getKind() != Node.BIN_OP) {
+			return;
+		}
+		BinOp value = (BinOp) assign.getValue();
+		Expression left = value.getLeft();
+		Expression right = value.getRight();
+		String target = assign.getTarget().getName();
+		if (left.getKind() == Node.VAR && ((Var) left).getName().equals(target) && right.getKind() == Node.CONST) {
+			checkIncrement(value.getOperator(), true, ((Const) right).getValue());
+		} else if (left.getKind() == Node.CONST && right.getKind() == Node.VAR
+				&& ((Var) right).getName().equals(target)) {
+			checkIncrement(value.getOperator(), false, ((Const) left).getValue());
+		}
 	}
-	
-	private String translateGuar(ASTNode node) throws GeneratorException {
-		assert (node.getAlphabet().equals(NonTerminal.GUARD));
-		StringBuilder result = new StringBuilder();
-		
-		assert(node.getChildren().size() == 1 || node.getChildren().size() == 3 || node.getChildren().size() == 4);
-		if(node.getChildren().size() == 1) {
-			assert(node.getChildren().get(0).getAlphabet().equals(NonTerminal.SUBGUARD) ||
-					node.getChildren().get(0).getAlphabet().equals(NonTerminal.RELATION));
-			if(node.getChildren().get(0).getAlphabet().equals(NonTerminal.SUBGUARD)) {
-				result.append(translateSubg(node.getChildren().get(0)));
-			} else {
-				result.append(translateRela(node.getChildren().get(0)));
-			}
-		} else if(node.getChildren().size() == 3) {
-			assert(node.getChildren().get(1).getAlphabet().equals(NonTerminal.SUBGUARD));
-			result.append(translateSubg(node.getChildren().get(1)));
-		} else {
-			assert(node.getChildren().get(2).getAlphabet().equals(NonTerminal.GUARD));
-			result.append(translateGuar(node.getChildren().get(2)));
-			appendString(result, "ifeq negnull" + negCount);
-			appendString(result, "ldc 1");
-			appendString(result, "goto endneg" + negCount);
-			appendString(result, "negnull" + negCount + ":");
-			appendString(result, "ldc 0");
-			appendString(result, "endneg" + negCount + ":");
-			negCount++;
+
+	/**
+	 * Check if an assignment of the flattened abstract syntax tree is an
+	 * increment, see {@link #checkIncrement(int, boolean, int)}.
+	 * 
+	 * @param tree
+	 *            Flattened abstract syntax tree.
+	 * @param assign
+	 *            Assignment.
+	 */
+	private void checkIncrement(FlatTree tree, int assign) {
+		incrementing = false;
+		// the first child is the target
+		int target = tree.getFirstChild(assign);
+		int value = tree.getNextSibling(target);
+		if (tree.getKind(value) != Node.BIN_OP) {
+			return;
+		}
+		int left = tree.getFirstChild(value);
+		int right = tree.getNextSibling(left);
+		int name = tree.getPayload(target);
+		if (tree.getKind(left) == Node.VAR && tree.getPayload(left) == name && tree.getKind(right) == Node.CONST) {
+			checkIncrement(tree.getPayload(value), true, tree.getPayload(right));
+		} else if (tree.getKind(left) == Node.CONST && tree.getKind(right) == Node.VAR
+				&& tree.getPayload(right) == name) {
+			checkIncrement(tree.getPayload(value), false, tree.getPayload(left));
 		}
-		
-		return result.toString();
 	}
-	
-	private String translateSube(ASTNode node) throws GeneratorException {
-		assert (node.getAlphabet().equals(NonTerminal.SUBEXPR));
-		StringBuilder result = new StringBuilder();
-		
-		assert(node.getChildren().size() == 3);
-		assert(node.getChildren().get(1).getAlphabet().equals(Token.PLUS) ||
-				node.getChildren().get(1).getAlphabet().equals(Token.MINUS) ||
-				node.getChildren().get(1).getAlphabet().equals(Token.TIMES) ||
-				node.getChildren().get(1).getAlphabet().equals(Token.DIV));
-		assert(node.getChildren().get(0).getAlphabet().equals(NonTerminal.EXPR));
-		assert(node.getChildren().get(2).getAlphabet().equals(NonTerminal.EXPR));
-		result.append(translateExpr(node.getChildren().get(0)));
-		result.append(translateExpr(node.getChildren().get(2)));
-		if(node.getChildren().get(1).getAlphabet().equals(Token.PLUS)){
-			appendString(result, "iadd");
-		} else if(node.getChildren().get(1).getAlphabet().equals(Token.MINUS)) {
-			appendString(result, "isub");
-		} else if(node.getChildren().get(1).getAlphabet().equals(Token.TIMES)) {
-			appendString(result, "imul");
+
+	/**
+	 * Check if an assignment of a binary operation on the assigned variable
+	 * and a constant is an increment v = v + c, v = c + v or v = v - c whose
+	 * increment fits into an iinc, i.e. is a short.
+	 * 
+	 * @param operator
+	 *            Operator of the assigned value.
+	 * @param targetFirst
+	 *            True iff the variable is the left operand.
+	 * @param constant
+	 *            The other operand.
+	 */
+	private void checkIncrement(int operator, boolean targetFirst, int constant) {
+		if (operator == BinOp.ADD) {
+			incrementValue = constant;
+		} else if (operator == BinOp.SUB && targetFirst && constant != Integer.MIN_VALUE) {
+			incrementValue = -constant;
 		} else {
-			appendString(result, "idiv");
+			return;
 		}
-		
-		return result.toString();
+		incrementing = incrementValue >= Short.MIN_VALUE && incrementValue <= Short.MAX_VALUE;
 	}
-	
-	private String translateSubg(ASTNode node) throws GeneratorException {
-		assert (node.getAlphabet().equals(NonTerminal.SUBGUARD));
-		StringBuilder result = new StringBuilder();
-
-		assert(node.getChildren().size() == 3);
-		assert(node.getChildren().get(1).getAlphabet().equals(Token.AND) ||
-				node.getChildren().get(1).getAlphabet().equals(Token.OR));
-		assert(node.getChildren().get(0).getAlphabet().equals(NonTerminal.GUARD));
-		assert(node.getChildren().get(2).getAlphabet().equals(NonTerminal.GUARD));
-		result.append(translateGuar(node.getChildren().get(0)));
-		result.append(translateGuar(node.getChildren().get(2)));
-		if(node.getChildren().get(1).getAlphabet().equals(Token.AND)) {
-			appendString(result, "iand");
-		} else {
-			appendString(result, "ior");
+
+	/**
+	 * Open the label of a branch or loop.
+	 * 
+	 * @param label
+	 *            Number of the label.
+	 * @param hasElse
+	 *            True iff the label belongs to a branch with an else block.
+	 */
+	private void pushLabel(int label, boolean hasElse) {
+		if (openLabels == labels.length) {
+			labels = Arrays.copyOf(labels, 2 * openLabels);
+			elseBranch = Arrays.copyOf(elseBranch, 2 * openLabels);
 		}
-		
-		return result.toString();
+		labels[openLabels] = label;
+		elseBranch[openLabels] = hasElse;
+		openLabels++;
 	}
-	
-	private String translateRela(ASTNode node) throws GeneratorException {
-		assert (node.getAlphabet().equals(NonTerminal.RELATION));
-		StringBuilder result = new StringBuilder();
-		
-		assert(node.getChildren().size() == 3);
-		assert(node.getChildren().get(1).getAlphabet().equals(Token.LT) ||
-				node.getChildren().get(1).getAlphabet().equals(Token.LEQ) ||
-				node.getChildren().get(1).getAlphabet().equals(Token.EQ) ||
-				node.getChildren().get(1).getAlphabet().equals(Token.GT) ||
-				node.getChildren().get(1).getAlphabet().equals(Token.GEQ) ||
-				node.getChildren().get(1).getAlphabet().equals(Token.NEQ));
-		assert(node.getChildren().get(0).getAlphabet().equals(NonTerminal.EXPR));
-		assert(node.getChildren().get(2).getAlphabet().equals(NonTerminal.EXPR));
-		result.append(translateExpr(node.getChildren().get(0)));
-		result.append(translateExpr(node.getChildren().get(2)));
-		if(node.getChildren().get(1).getAlphabet().equals(Token.LT)){
-			appendString(result, "if_icmplt reltrue" + relCount);
-		} else if(node.getChildren().get(1).getAlphabet().equals(Token.LEQ)) {
-			appendString(result, "if_icmple reltrue" + relCount);
-		} else if(node.getChildren().get(1).getAlphabet().equals(Token.EQ)) {
-			appendString(result, "if_icmpeq reltrue" + relCount);
-		} else if(node.getChildren().get(1).getAlphabet().equals(Token.GT)) {
-			appendString(result, "if_icmpgt reltrue" + relCount);
-		} else if(node.getChildren().get(1).getAlphabet().equals(Token.GEQ)) {
-			appendString(result, "if_icmpge reltrue" + relCount);
-		} else {
-			appendString(result, "if_icmpne reltrue" + relCount);
+
+	private void translateDecl(String name, boolean initialized, int register) throws GeneratorException {
+		// A redeclaration in the same scope reuses the register, the latest
+		// declaration counts. An allocated register is used instead, see
+		// optimizer.RegisterAllocator
+		if (!symbolTable.isDeclaredInScope(name)) {
+			symbolTable.declare(name, register != NO_REGISTER ? register : firstRegister() + varCount);
+			varCount++;
+		} else if (register != NO_REGISTER) {
+			symbolTable.declare(name, register);
+		}
+		if (initialized) {
+			// otherwise the initial value is never read, see
+			// optimizer.DeadCodeEliminator
+			emitter.loadConstant(0);
+			emitter.registerInstruction(Opcodes.ISTORE, symbolTable.lookup(name));
 		}
-		appendString(result, "ldc 0");
-		appendString(result, "goto endrel" + relCount);
-		appendString(result, "reltrue" + relCount + ":");
-		appendString(result, "ldc 1");
-		appendString(result, "endrel" + relCount + ":");
-		relCount++;
-		
-		return result.toString();
 	}
 	
+	/**
+	 * Generate the code of a negation after its operand.
+	 * 
+	 * @param mode
+	 *            Translation mode of the negation.
+	 * @throws GeneratorException
+	 *             Exception while emitting
+	 */
+	private void translateNegation(int mode) throws GeneratorException {
+		if (mode == VALUE) {
+			// the operand is 0 or 1
+			emitter.loadConstant(1);
+			emitter.instruction(Opcodes.IXOR);
+		}
+		// otherwise the operand has jumped with the opposite condition
+	}
 
 	/**
-	 * Generate Jasmin code for an expression.
+	 * Generate the code of a binary operation after its operands.
 	 * 
-	 * @param node
-	 *            The node in the AST.
-	 * @return Jasmin code as string.
+	 * @param operator
+	 *            Operator, see {@link BinOp}.
+	 * @param mode
+	 *            Translation mode if the operation is a guard.
 	 * @throws GeneratorException
-	 *             Exception while generating.
+	 *             Exception while emitting
 	 */
-	private String translateExpr(ASTNode node) throws GeneratorException {
-		assert (node.getAlphabet().equals(NonTerminal.EXPR));
-		StringBuilder result = new StringBuilder();
-
-		assert(node.getChildren().size() == 1 || node.getChildren().size() == 3);
-		if(node.getChildren().size() == 3) {
-			assert(node.getChildren().get(1).getAlphabet().equals(NonTerminal.SUBEXPR));
-			result.append(translateSube(node.getChildren().get(1)));
-		} else {
-			assert(node.getChildren().get(0).getAlphabet().equals(NonTerminal.SUBEXPR) ||
-					node.getChildren().get(0).getAlphabet().equals(Token.NUMBER) ||
-					node.getChildren().get(0).getAlphabet().equals(Token.ID));
-			if(node.getChildren().get(0).getAlphabet().equals(NonTerminal.SUBEXPR)) {
-				result.append(translateSube(node.getChildren().get(0)));
-			} else if(node.getChildren().get(0).getAlphabet().equals(Token.NUMBER)) {
-				appendString(result, "ldc " + node.getChildren().get(0).getAttribute());
-			} else {
-				List<Pair<Integer, Integer>> var = symbolTable.get(node.getChildren().get(0).getAttribute());
-				appendString(result, "iload " + var.get(var.size() - 1).getSecond());
+	private void translateOperator(int operator, int mode) throws GeneratorException {
+		switch(operator) {
+		case BinOp.ADD:
+			emitter.instruction(Opcodes.IADD);
+			break;
+		case BinOp.SUB:
+			emitter.instruction(Opcodes.ISUB);
+			break;
+		case BinOp.MUL:
+			emitter.instruction(Opcodes.IMUL);
+			break;
+		case BinOp.DIV:
+			emitter.instruction(Opcodes.IDIV);
+			break;
+		case BinOp.AND:
+		case BinOp.OR:
+			translateJunction(operator);
+			break;
+		default:
+			translateRela(operator, mode);
+		}
+	}
+
+	/**
+	 * Generate the code of a conjunction or disjunction after its operands.
+	 * 
+	 * @param operator
+	 *            AND or OR.
+	 * @throws GeneratorException
+	 *             Exception while emitting
+	 */
+	private void translateJunction(int operator) throws GeneratorException {
+		int guard = --openGuards;
+		int mode = guardModes[guard];
+		if (mode != VALUE && !eagerGuards) {
+			// the operands have jumped already
+			if (guardSkips[guard] != NO_LABEL) {
+				emitter.label("skip", guardSkips[guard]);
 			}
+			return;
 		}
+		// combine the values of the operands
+		emitter.instruction(operator == BinOp.AND ? Opcodes.IAND : Opcodes.IOR);
+		if (mode != VALUE) {
+			emitter.jump(mode == JUMP_IF_TRUE ? Opcodes.IFNE : Opcodes.IFEQ, guardPrefixes[guard], guardLabels[guard]);
+		}
+	}
 
-		return result.toString();
+	/**
+	 * Generate the comparison of the two topmost values of the operand stack.
+	 * As a condition, it jumps to the target directly, otherwise it pushes 0
+	 * or 1.
+	 * 
+	 * @param operator
+	 *            Relation, see {@link BinOp}.
+	 * @param mode
+	 *            Translation mode.
+	 * @throws GeneratorException
+	 *             Exception while emitting
+	 */
+	private void translateRela(int operator, int mode) throws GeneratorException {
+		assert(BinOp.isRelation(operator));
+		if (mode != VALUE) {
+			emitter.jump(comparison(operator, mode == JUMP_IF_FALSE), targetPrefix, targetLabel);
+			return;
+		}
+		emitter.jump(comparison(operator, false), "reltrue", relCount);
+		emitter.loadConstant(0);
+		emitter.jump(Opcodes.GOTO, "endrel", relCount);
+		emitter.label("reltrue", relCount);
+		emitter.loadConstant(1);
+		emitter.label("endrel", relCount);
+		relCount++;
+	}
+
+	/**
+	 * Get the conditional jump of a relation.
+	 * 
+	 * @param operator
+	 *            Relation, see {@link BinOp}.
+	 * @param negate
+	 *            True iff the jump is taken if the relation does not hold.
+	 * @return Opcode of the jump.
+	 */
+	public static int comparison(int operator, boolean negate) {
+		switch (operator) {
+		case BinOp.LT:
+			return negate ? Opcodes.IF_ICMPGE : Opcodes.IF_ICMPLT;
+		case BinOp.LEQ:
+			return negate ? Opcodes.IF_ICMPGT : Opcodes.IF_ICMPLE;
+		case BinOp.EQ:
+			return negate ? Opcodes.IF_ICMPNE : Opcodes.IF_ICMPEQ;
+		case BinOp.GT:
+			return negate ? Opcodes.IF_ICMPLE : Opcodes.IF_ICMPGT;
+		case BinOp.GEQ:
+			return negate ? Opcodes.IF_ICMPLT : Opcodes.IF_ICMPGE;
+		default:
+			return negate ? Opcodes.IF_ICMPEQ : Opcodes.IF_ICMPNE;
+		}
 	}
+	
 
 	/**
 	 * Generate Jasmin code for reading an int from the console.
 	 * 
-	 * @return Jasmin code as string.
+	 * @throws GeneratorException
+	 *             Exception if the sink cannot be written
 	 */
-	private String translateReadInt() {
-		StringBuilder result = new StringBuilder();
-		appendString(result, "; int n = Integer.parseInt(System.console().readLine());");
-		appendString(result, "; Console c = System.console();");
-		appendString(result, "invokestatic java/lang/System/console()Ljava/io/Console;");
-		appendString(result, "; Reads one line and stores in a String");
-		appendString(result, "invokevirtual java/io/Console/readLine()Ljava/lang/String;");
-		appendString(result, "; Parse String to int, do not handle exceptions");
-		appendString(result, "invokestatic java/lang/Integer/parseInt(Ljava/lang/String;)I");
-		return result.toString();
+	private void translateReadInt() throws GeneratorException {
+		if (output != null) {
+			// the prompt of the program is printed before it waits for input
+			output.flush();
+		}
+		emitter.comment("int n = Integer.parseInt(System.console().readLine());");
+		emitter.comment("Console c = System.console();");
+		emitter.methodInstruction(Opcodes.INVOKESTATIC, "java/lang/System", "console", "()Ljava/io/Console;");
+		emitter.comment("Reads one line and stores in a String");
+		emitter.methodInstruction(Opcodes.INVOKEVIRTUAL, "java/io/Console", "readLine", "()Ljava/lang/String;");
+		emitter.comment("Parse String to int, do not handle exceptions");
+		emitter.methodInstruction(Opcodes.INVOKESTATIC, "java/lang/Integer", "parseInt", "(Ljava/lang/String;)I");
 	}
 
 	/**
 	 * Generate Jasmin code for writing a string on the console.
 	 * 
-	 * @param node
-	 *            The node in the AST
-	 * @return Jasmin code as string.
+	 * @param text
+	 *            The string literal including the quotes
 	 * @throws GeneratorException
-	 *             Exception while generating.
+	 *             Exception if the sink cannot be written
 	 */
-	private String translateWrite(ASTNode node) throws GeneratorException {
-		assert (node.getAlphabet().equals(NonTerminal.OUT));
-		StringBuilder result = new StringBuilder();
-
-		assert (node.getChildren().size() == 4);
-		ASTNode child = node.getChildren().get(2);
-		if (child.getAlphabet() instanceof Token) {
-			// out -> WRITE LBRAC STRING RBRAC
-			assert (child.getAlphabet().equals(Token.STRING));
-			// push PrintStream object
-			appendString(result, "getstatic java/lang/System/out Ljava/io/PrintStream;");
-			// push String
-			// the extra quotes are already part of the string
-			appendString(result, "ldc " + child.getAttribute());
-			// print to command line
-			appendString(result, "invokevirtual java/io/PrintStream/println(Ljava/lang/String;)V");
-		} else {
-			// out -> WRITE LBRAC expr RBRAC
-			assert (child.getAlphabet().equals(NonTerminal.EXPR));
-			// evaluate expression
-
-			result.append(translateExpr(child));
-
-			// the result is now on the top of the operand stack
-			// cast it to string and write to console
-			appendString(result, "invokestatic java/lang/String/valueOf(I)Ljava/lang/String;");
-			appendString(result, "; begin syso");
-			appendString(result, "astore 0 	; store string object in register 0");
-			appendString(result, "getstatic java/lang/System/out Ljava/io/PrintStream;");
-			appendString(result, "aload 0   ; load the string");
-			appendString(result, "invokevirtual java/io/PrintStream/println(Ljava/lang/String;)V");
-			appendString(result, "; end syso");
+	private void translateWriteString(String text) throws GeneratorException {
+		if (output != null) {
+			output.writeString(text);
+			return;
 		}
+		// push PrintStream object
+		emitter.fieldInstruction(Opcodes.GETSTATIC, "java/lang/System", "out", "Ljava/io/PrintStream;");
+		// push String
+		// the extra quotes are part of the literal
+		emitter.loadConstant(text.substring(1, text.length() - 1));
+		// print to command line
+		emitter.methodInstruction(Opcodes.INVOKEVIRTUAL, "java/io/PrintStream", "println", "(Ljava/lang/String;)V");
+	}
 
-		return result.toString();
+	/**
+	 * Generate Jasmin code for writing the integer on top of the operand stack
+	 * on the console.
+	 * 
+	 * @throws GeneratorException
+	 *             Exception if the sink cannot be written
+	 */
+	private void translatePrint() throws GeneratorException {
+		if (output != null) {
+			output.writeInt();
+			return;
+		}
+		// the result is now on the top of the operand stack, the stream is
+		// swapped below it and the int is printed directly
+		emitter.fieldInstruction(Opcodes.GETSTATIC, "java/lang/System", "out", "Ljava/io/PrintStream;");
+		emitter.comment("begin syso");
+		emitter.instruction(Opcodes.SWAP);
+		emitter.methodInstruction(Opcodes.INVOKEVIRTUAL, "java/io/PrintStream", "println", "(I)V");
+		emitter.comment("end syso");
 	}
 
 	/**
-	 * Append string with newline at the end.
+	 * Get the first register of a variable, register 0 is left to the
+	 * {@link OutputBuffer} if the output is buffered.
 	 * 
-	 * @param builder
-	 *            Stringbuilder
-	 * @param s
-	 *            String to append
+	 * @return Register.
 	 */
-	private void appendString(StringBuilder builder, String s) {
-		builder.append(s + System.lineSeparator());
+	private int firstRegister() {
+		return bufferedOutput ? OutputBuffer.REGISTER + 1 : 0;
 	}
-	
+
 	/**
-	 * Removes all variables of the current scope level from the symbol table.
-	 * Also removes all empty variable lists.
+	 * Get the register of the innermost visible declaration of a variable.
+	 * 
+	 * @param name
+	 *            Name of the variable.
+	 * @return Register.
 	 */
-	private void clearScopeVars() {
-		for(List<Pair<Integer, Integer>> values : symbolTable.values()) {
-			if(values.size() > 0 && values.get(values.size() - 1).getFirst() == scopeLevel) {
-				values.remove(values.size() - 1);
-				varCount--;
-			}
-		}
-		for(Iterator<Map.Entry<String, List<Pair<Integer, Integer>>>> it = symbolTable.entrySet().iterator(); it.hasNext(); ) {
-			Map.Entry<String, List<Pair<Integer, Integer>>> entry = it.next();
-		    if(entry.getValue().size() == 0) {
-		    	it.remove();
-		    }
-		}
+	private int variableId(String name) {
+		return symbolTable.lookup(name);
 	}
 }
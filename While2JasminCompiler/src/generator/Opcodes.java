@@ -0,0 +1,313 @@
+package generator;
+
+/**
+ * Opcodes of the JVM instructions used by the generator, see chapter 6 of the
+ * Java Virtual Machine Specification, and their Jasmin mnemonics.
+ */
+public class Opcodes {
+
+	// Constants
+	public static final int NOP = 0;
+	public static final int ICONST_M1 = 2;
+	public static final int ICONST_0 = 3;
+	public static final int ICONST_1 = 4;
+	public static final int ICONST_2 = 5;
+	public static final int ICONST_3 = 6;
+	public static final int ICONST_4 = 7;
+	public static final int ICONST_5 = 8;
+	public static final int BIPUSH = 16;
+	public static final int SIPUSH = 17;
+	public static final int LDC = 18;
+	public static final int LDC_W = 19;
+
+	// Loads and stores
+	public static final int ILOAD = 21;
+	public static final int ALOAD = 25;
+	public static final int ISTORE = 54;
+	public static final int ASTORE = 58;
+
+	// Loads and stores of the registers 0 to 3 without operand
+	public static final int ILOAD_0 = 26;
+	public static final int ALOAD_0 = 42;
+	public static final int ISTORE_0 = 59;
+	public static final int ASTORE_0 = 75;
+	private static final int SHORT_REGISTERS = 4;
+
+	// Operand stack
+	public static final int POP = 87;
+	public static final int DUP = 89;
+	public static final int SWAP = 95;
+
+	// Arithmetic and logic
+	public static final int IADD = 96;
+	public static final int ISUB = 100;
+	public static final int IMUL = 104;
+	public static final int IDIV = 108;
+	public static final int ISHL = 120;
+	public static final int ISHR = 122;
+	public static final int IUSHR = 124;
+	public static final int IAND = 126;
+	public static final int IOR = 128;
+	public static final int IXOR = 130;
+	public static final int IINC = 132;
+
+	// Jumps
+	public static final int IFEQ = 153;
+	public static final int IFNE = 154;
+	public static final int IF_ICMPEQ = 159;
+	public static final int IF_ICMPNE = 160;
+	public static final int IF_ICMPLT = 161;
+	public static final int IF_ICMPGE = 162;
+	public static final int IF_ICMPGT = 163;
+	public static final int IF_ICMPLE = 164;
+	public static final int GOTO = 167;
+	public static final int GOTO_W = 200;
+
+	// Method exit
+	public static final int RETURN = 177;
+	public static final int ATHROW = 191;
+
+	// Fields and methods
+	public static final int GETSTATIC = 178;
+	public static final int INVOKEVIRTUAL = 182;
+	public static final int INVOKESPECIAL = 183;
+	public static final int INVOKESTATIC = 184;
+
+	// Objects
+	public static final int NEW = 187;
+
+	// Prefix for loads and stores of registers above 255
+	public static final int WIDE = 196;
+
+	// Jasmin mnemonics indexed by opcode
+	private static final String[] MNEMONICS = new String[256];
+
+	static {
+		MNEMONICS[NOP] = "nop";
+		MNEMONICS[ICONST_M1] = "iconst_m1";
+		for (int value = 0; value <= ICONST_5 - ICONST_0; value++) {
+			MNEMONICS[ICONST_0 + value] = "iconst_" + value;
+		}
+		MNEMONICS[BIPUSH] = "bipush";
+		MNEMONICS[SIPUSH] = "sipush";
+		MNEMONICS[LDC] = "ldc";
+		MNEMONICS[LDC_W] = "ldc_w";
+		MNEMONICS[ILOAD] = "iload";
+		MNEMONICS[ALOAD] = "aload";
+		MNEMONICS[ISTORE] = "istore";
+		MNEMONICS[ASTORE] = "astore";
+		for (int register = 0; register < SHORT_REGISTERS; register++) {
+			MNEMONICS[ILOAD_0 + register] = "iload_" + register;
+			MNEMONICS[ALOAD_0 + register] = "aload_" + register;
+			MNEMONICS[ISTORE_0 + register] = "istore_" + register;
+			MNEMONICS[ASTORE_0 + register] = "astore_" + register;
+		}
+		MNEMONICS[POP] = "pop";
+		MNEMONICS[DUP] = "dup";
+		MNEMONICS[SWAP] = "swap";
+		MNEMONICS[IADD] = "iadd";
+		MNEMONICS[ISUB] = "isub";
+		MNEMONICS[IMUL] = "imul";
+		MNEMONICS[IDIV] = "idiv";
+		MNEMONICS[ISHL] = "ishl";
+		MNEMONICS[ISHR] = "ishr";
+		MNEMONICS[IUSHR] = "iushr";
+		MNEMONICS[IAND] = "iand";
+		MNEMONICS[IOR] = "ior";
+		MNEMONICS[IXOR] = "ixor";
+		MNEMONICS[IINC] = "iinc";
+		MNEMONICS[IFEQ] = "ifeq";
+		MNEMONICS[IFNE] = "ifne";
+		MNEMONICS[IF_ICMPEQ] = "if_icmpeq";
+		MNEMONICS[IF_ICMPNE] = "if_icmpne";
+		MNEMONICS[IF_ICMPLT] = "if_icmplt";
+		MNEMONICS[IF_ICMPGE] = "if_icmpge";
+		MNEMONICS[IF_ICMPGT] = "if_icmpgt";
+		MNEMONICS[IF_ICMPLE] = "if_icmple";
+		MNEMONICS[GOTO] = "goto";
+		MNEMONICS[GOTO_W] = "goto_w";
+		MNEMONICS[RETURN] = "return";
+		MNEMONICS[ATHROW] = "athrow";
+		MNEMONICS[GETSTATIC] = "getstatic";
+		MNEMONICS[INVOKEVIRTUAL] = "invokevirtual";
+		MNEMONICS[INVOKESPECIAL] = "invokespecial";
+		MNEMONICS[INVOKESTATIC] = "invokestatic";
+		MNEMONICS[NEW] = "new";
+		MNEMONICS[WIDE] = "wide";
+	}
+
+	/**
+	 * Get the Jasmin mnemonic of an opcode.
+	 * 
+	 * @param opcode
+	 *            Opcode.
+	 * @return Mnemonic, null if the opcode is not used by the generator.
+	 */
+	public static String mnemonic(int opcode) {
+		return MNEMONICS[opcode];
+	}
+
+	/**
+	 * Get the shortest instruction which pushes an int constant: iconst_m1 to
+	 * iconst_5, bipush for a byte, sipush for a short and otherwise ldc with
+	 * an entry of the constant pool.
+	 * 
+	 * @param value
+	 *            Constant.
+	 * @return Opcode.
+	 */
+	public static int constantOpcode(int value) {
+		if (value >= -1 && value <= ICONST_5 - ICONST_0) {
+			return ICONST_0 + value;
+		} else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+			return BIPUSH;
+		} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+			return SIPUSH;
+		}
+		return LDC;
+	}
+
+	/**
+	 * Get the form without operand of a load or store of one of the first
+	 * registers, e.g. iload_1 for iload 1.
+	 * 
+	 * @param opcode
+	 *            ILOAD, ALOAD, ISTORE or ASTORE.
+	 * @param register
+	 *            Register.
+	 * @return Opcode of the short form, the given opcode if there is none.
+	 */
+	public static int shortForm(int opcode, int register) {
+		if (register >= SHORT_REGISTERS) {
+			return opcode;
+		}
+		switch (opcode) {
+		case ILOAD:
+			return ILOAD_0 + register;
+		case ALOAD:
+			return ALOAD_0 + register;
+		case ISTORE:
+			return ISTORE_0 + register;
+		case ASTORE:
+			return ASTORE_0 + register;
+		default:
+			return opcode;
+		}
+	}
+
+	/**
+	 * Get the conditional jump which is taken iff the given one is not, e.g.
+	 * if_icmpge for if_icmplt.
+	 * 
+	 * @param opcode
+	 *            Conditional jump.
+	 * @return Opcode of the opposite jump.
+	 */
+	public static int negation(int opcode) {
+		// the conditional jumps come in pairs of a condition and its opposite
+		return ((opcode - IFEQ) ^ 1) + IFEQ;
+	}
+
+	/**
+	 * Get the change of the operand stack depth by an instruction.
+	 * 
+	 * @param opcode
+	 *            Opcode.
+	 * @param descriptor
+	 *            Descriptor of an invoked method, otherwise ignored.
+	 * @return Number of values pushed minus the number of values popped.
+	 * @throws GeneratorException
+	 *             Exception if the opcode is not used by the generator.
+	 */
+	public static int stackEffect(int opcode, String descriptor) throws GeneratorException {
+		switch (opcode) {
+		case NOP:
+		case SWAP:
+		case IINC:
+		case GOTO:
+		case GOTO_W:
+		case RETURN:
+			return 0;
+		case ICONST_M1:
+		case ICONST_0:
+		case ICONST_1:
+		case ICONST_2:
+		case ICONST_3:
+		case ICONST_4:
+		case ICONST_5:
+		case BIPUSH:
+		case SIPUSH:
+		case DUP:
+		case LDC:
+		case LDC_W:
+		case GETSTATIC:
+		case NEW:
+		case ILOAD:
+		case ALOAD:
+			return 1;
+		case ISTORE:
+		case ASTORE:
+		case POP:
+		case IADD:
+		case ISUB:
+		case IMUL:
+		case IDIV:
+		case ISHL:
+		case ISHR:
+		case IUSHR:
+		case IAND:
+		case IOR:
+		case IXOR:
+		case IFEQ:
+		case IFNE:
+		case ATHROW:
+			return -1;
+		case IF_ICMPEQ:
+		case IF_ICMPNE:
+		case IF_ICMPLT:
+		case IF_ICMPGE:
+		case IF_ICMPGT:
+		case IF_ICMPLE:
+			return -2;
+		case INVOKEVIRTUAL:
+		case INVOKESPECIAL:
+		case INVOKESTATIC:
+			int popped = argumentCount(descriptor) + (opcode == INVOKESTATIC ? 0 : 1);
+			return (descriptor.endsWith(")V") ? 0 : 1) - popped;
+		default:
+			// short forms of loads and stores
+			if ((opcode >= ILOAD_0 && opcode < ILOAD_0 + SHORT_REGISTERS)
+					|| (opcode >= ALOAD_0 && opcode < ALOAD_0 + SHORT_REGISTERS)) {
+				return 1;
+			} else if ((opcode >= ISTORE_0 && opcode < ISTORE_0 + SHORT_REGISTERS)
+					|| (opcode >= ASTORE_0 && opcode < ASTORE_0 + SHORT_REGISTERS)) {
+				return -1;
+			}
+			throw new GeneratorException("Opcode " + opcode + " is not supported");
+		}
+	}
+
+	/**
+	 * Count the arguments of a method descriptor. Only int and reference
+	 * types, which take one slot each, are used by the generator.
+	 * 
+	 * @param descriptor
+	 *            Method descriptor.
+	 * @return Number of arguments.
+	 */
+	public static int argumentCount(String descriptor) {
+		int n = 0;
+		int i = 1;
+		while (descriptor.charAt(i) != ')') {
+			while (descriptor.charAt(i) == '[') {
+				i++;
+			}
+			if (descriptor.charAt(i) == 'L') {
+				i = descriptor.indexOf(';', i);
+			}
+			i++;
+			n++;
+		}
+		return n;
+	}
+}
@@ -0,0 +1,138 @@
+package generator;
+
+/**
+ * Code sequences of a generated program which buffers its output. Without
+ * the buffer every write invokes System.out.println, which locks the stream
+ * and flushes it after each line, so a program which writes in a loop spends
+ * most of its time in system calls. With the buffer the lines are appended to
+ * a StringBuilder in register 0, which main does not need for its arguments
+ * and the registers of the variables then leave free, and the builder is
+ * printed by System.out when it is full, before every read, before a
+ * division by zero throws and at the end of main. Each line ends with the
+ * line separator of println, so the output is the same byte for byte,
+ * including the order of the output and the prompts of the console.
+ */
+public class OutputBuffer {
+
+	// Register of the StringBuilder
+	public static final int REGISTER = 0;
+
+	// Number of characters from which the builder is printed
+	private static final int CAPACITY = 8192;
+
+	// Prefix of the labels after the code which prints a full builder
+	private static final String PREFIX = "flushed";
+
+	// Emitter of the instructions
+	private final CodeEmitter emitter;
+
+	// Number of labels of this class
+	private int labelCount = 0;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param emitter
+	 *            Emitter of the instructions of main.
+	 */
+	public OutputBuffer(CodeEmitter emitter) {
+		this.emitter = emitter;
+	}
+
+	/**
+	 * Generate the creation of the builder at the start of main.
+	 * 
+	 * @throws GeneratorException
+	 *             Exception while emitting
+	 */
+	public void create() throws GeneratorException {
+		emitter.comment("StringBuilder out = new StringBuilder(" + CAPACITY + ");");
+		emitter.typeInstruction(Opcodes.NEW, "java/lang/StringBuilder");
+		emitter.instruction(Opcodes.DUP);
+		emitter.loadConstant(CAPACITY);
+		emitter.methodInstruction(Opcodes.INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "(I)V");
+		emitter.registerInstruction(Opcodes.ASTORE, REGISTER);
+	}
+
+	/**
+	 * Generate the output of the int on top of the operand stack.
+	 * 
+	 * @throws GeneratorException
+	 *             Exception while emitting
+	 */
+	public void writeInt() throws GeneratorException {
+		emitter.registerInstruction(Opcodes.ALOAD, REGISTER);
+		emitter.instruction(Opcodes.SWAP);
+		emitter.methodInstruction(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder", "append",
+				"(I)Ljava/lang/StringBuilder;");
+		endLine();
+	}
+
+	/**
+	 * Generate the output of a string literal.
+	 * 
+	 * @param text
+	 *            The string literal including the quotes
+	 * @throws GeneratorException
+	 *             Exception while emitting
+	 */
+	public void writeString(String text) throws GeneratorException {
+		emitter.registerInstruction(Opcodes.ALOAD, REGISTER);
+		// the extra quotes are part of the literal
+		emitter.loadConstant(text.substring(1, text.length() - 1));
+		emitter.methodInstruction(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder", "append",
+				"(Ljava/lang/String;)Ljava/lang/StringBuilder;");
+		endLine();
+	}
+
+	/**
+	 * Generate the end of a line after the builder, and the output of the
+	 * builder if it is full.
+	 * 
+	 * @throws GeneratorException
+	 *             Exception while emitting
+	 */
+	private void endLine() throws GeneratorException {
+		emitter.methodInstruction(Opcodes.INVOKESTATIC, "java/lang/System", "lineSeparator", "()Ljava/lang/String;");
+		emitter.methodInstruction(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder", "append",
+				"(Ljava/lang/String;)Ljava/lang/StringBuilder;");
+		emitter.methodInstruction(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder", "length", "()I");
+		emitter.loadConstant(CAPACITY);
+		int label = labelCount++;
+		emitter.jump(Opcodes.IF_ICMPLT, PREFIX, label);
+		flush();
+		emitter.label(PREFIX, label);
+	}
+
+	/**
+	 * Generate the check of the divisor on top of the operand stack before a
+	 * division, which prints the builder if the division throws.
+	 * 
+	 * @throws GeneratorException
+	 *             Exception while emitting
+	 */
+	public void checkDivisor() throws GeneratorException {
+		emitter.instruction(Opcodes.DUP);
+		int label = labelCount++;
+		emitter.jump(Opcodes.IFNE, PREFIX, label);
+		flush();
+		emitter.label(PREFIX, label);
+	}
+
+	/**
+	 * Generate the output of the builder by System.out and its reset.
+	 * 
+	 * @throws GeneratorException
+	 *             Exception while emitting
+	 */
+	public void flush() throws GeneratorException {
+		emitter.fieldInstruction(Opcodes.GETSTATIC, "java/lang/System", "out", "Ljava/io/PrintStream;");
+		emitter.registerInstruction(Opcodes.ALOAD, REGISTER);
+		emitter.methodInstruction(Opcodes.INVOKEVIRTUAL, "java/io/PrintStream", "print", "(Ljava/lang/Object;)V");
+		emitter.registerInstruction(Opcodes.ALOAD, REGISTER);
+		emitter.loadConstant(0);
+		emitter.methodInstruction(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder", "setLength", "(I)V");
+		emitter.fieldInstruction(Opcodes.GETSTATIC, "java/lang/System", "out", "Ljava/io/PrintStream;");
+		emitter.methodInstruction(Opcodes.INVOKEVIRTUAL, "java/io/PrintStream", "flush", "()V");
+	}
+}
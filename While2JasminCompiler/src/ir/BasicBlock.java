@@ -0,0 +1,242 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Basic block of a {@link ControlFlowGraph}, i.e. a sequence of instructions
+ * which is only entered at its start and only left at its end. The block
+ * starts with its phis and ends with a terminator, which decides the
+ * successor. The phis have an operand per predecessor in the order of
+ * {@link #getPredecessors()}, so the predecessors are only changed by the
+ * methods of this class, which keep the phis consistent.
+ */
+public class BasicBlock {
+
+	// Number of the block for printing and labels
+	private int id;
+
+	// Instructions, phis first and the terminator last
+	private final List<Instruction> instructions = new ArrayList<Instruction>();
+
+	// Edges of the control flow graph
+	private final List<BasicBlock> predecessors = new ArrayList<BasicBlock>();
+	private final List<BasicBlock> successors = new ArrayList<BasicBlock>();
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param id
+	 *            Number of the block.
+	 */
+	BasicBlock(int id) {
+		this.id = id;
+	}
+
+	/**
+	 * Get the number of the block.
+	 * 
+	 * @return Number.
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Set the number of the block.
+	 * 
+	 * @param id
+	 *            Number.
+	 */
+	void setId(int id) {
+		this.id = id;
+	}
+
+	/**
+	 * Get the instructions, phis first and the terminator last.
+	 * 
+	 * @return Instructions, which may be changed.
+	 */
+	public List<Instruction> getInstructions() {
+		return instructions;
+	}
+
+	/**
+	 * Append an instruction.
+	 * 
+	 * @param instruction
+	 *            Instruction.
+	 * @return The instruction.
+	 */
+	public Instruction add(Instruction instruction) {
+		instruction.setBlock(this);
+		instructions.add(instruction);
+		return instruction;
+	}
+
+	/**
+	 * Insert an instruction.
+	 * 
+	 * @param index
+	 *            Index of the instruction.
+	 * @param instruction
+	 *            Instruction.
+	 */
+	public void insert(int index, Instruction instruction) {
+		instruction.setBlock(this);
+		instructions.add(index, instruction);
+	}
+
+	/**
+	 * Get the number of phis at the start of the block.
+	 * 
+	 * @return Number of phis.
+	 */
+	public int getPhiCount() {
+		int count = 0;
+		while (count < instructions.size() && instructions.get(count).getKind() == Instruction.PHI) {
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Get the last instruction.
+	 * 
+	 * @return Terminator, null if the block is not complete.
+	 */
+	public Instruction getTerminator() {
+		if (instructions.isEmpty()) {
+			return null;
+		}
+		Instruction last = instructions.get(instructions.size() - 1);
+		return last.isTerminator() ? last : null;
+	}
+
+	/**
+	 * Get the predecessors.
+	 * 
+	 * @return Predecessors in the order of the operands of the phis.
+	 */
+	public List<BasicBlock> getPredecessors() {
+		return predecessors;
+	}
+
+	/**
+	 * Get the successors.
+	 * 
+	 * @return Successors, for a branch the one if the relation holds first.
+	 */
+	public List<BasicBlock> getSuccessors() {
+		return successors;
+	}
+
+	/**
+	 * Add an edge to a successor. The phis of the successor have to get an
+	 * operand for the new predecessor.
+	 * 
+	 * @param successor
+	 *            Successor.
+	 */
+	public void addSuccessor(BasicBlock successor) {
+		successors.add(successor);
+		successor.predecessors.add(this);
+	}
+
+	/**
+	 * Remove the edge to a successor, the phis of the successor lose the
+	 * corresponding operand.
+	 * 
+	 * @param index
+	 *            Index of the successor.
+	 */
+	public void removeSuccessor(int index) {
+		BasicBlock successor = successors.remove(index);
+		int predecessor = successor.predecessors.indexOf(this);
+		successor.predecessors.remove(predecessor);
+		for (int i = 0; i < successor.getPhiCount(); i++) {
+			successor.instructions.get(i).removeOperand(predecessor);
+		}
+	}
+
+	/**
+	 * Insert a new block on the edge to a successor, e.g. to split a critical
+	 * edge. The new block takes the place of this block among the
+	 * predecessors of the successor.
+	 * 
+	 * @param index
+	 *            Index of the successor.
+	 * @param middle
+	 *            New block without edges.
+	 */
+	public void insertOnEdge(int index, BasicBlock middle) {
+		BasicBlock successor = successors.get(index);
+		successor.predecessors.set(successor.predecessors.indexOf(this), middle);
+		successors.set(index, middle);
+		middle.predecessors.add(this);
+		middle.successors.add(successor);
+	}
+
+	/**
+	 * Let the edge to a successor which only jumps to its own successor skip
+	 * it. The final target must not have phis and must not already be a
+	 * successor of this block.
+	 * 
+	 * @param index
+	 *            Index of the successor.
+	 */
+	public void skipSuccessor(int index) {
+		BasicBlock skipped = successors.get(index);
+		BasicBlock target = skipped.successors.get(0);
+		skipped.predecessors.remove(this);
+		successors.set(index, target);
+		target.predecessors.add(this);
+	}
+
+	/**
+	 * Append the only successor to this block, whose only predecessor is this
+	 * block, e.g. after a branch has become a jump. The jump at the end of
+	 * this block is removed, the successor is left without instructions and
+	 * edges.
+	 * 
+	 * @param successor
+	 *            Only successor, without phis.
+	 */
+	public void merge(BasicBlock successor) {
+		instructions.remove(instructions.size() - 1);
+		for (Instruction instruction : successor.instructions) {
+			add(instruction);
+		}
+		successor.instructions.clear();
+		successors.clear();
+		successor.predecessors.clear();
+		for (BasicBlock next : successor.successors) {
+			next.predecessors.set(next.predecessors.indexOf(successor), this);
+			successors.add(next);
+		}
+		successor.successors.clear();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		StringBuilder builder = new StringBuilder("b").append(id).append(':');
+		for (BasicBlock predecessor : predecessors) {
+			builder.append(" b").append(predecessor.id);
+		}
+		builder.append('\n');
+		for (Instruction instruction : instructions) {
+			builder.append("  ").append(instruction);
+			if (instruction.isTerminator()) {
+				for (BasicBlock successor : successors) {
+					builder.append(" b").append(successor.id);
+				}
+			}
+			builder.append('\n');
+		}
+		return builder.toString();
+	}
+}
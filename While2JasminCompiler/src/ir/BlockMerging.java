@@ -0,0 +1,108 @@
+package ir;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pass which simplifies the control flow. A block which ends with a jump is
+ * merged with its successor if it is the only predecessor of the successor,
+ * e.g. after a branch on a constant has become a jump, and an edge to a block
+ * which only jumps on is redirected to the final target, e.g. from the end of
+ * a then block to the end of an enclosing loop. Blocks which are left without
+ * predecessors are removed.
+ */
+public class BlockMerging implements IrPass {
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see ir.IrPass#getName()
+	 */
+	public String getName() {
+		return "block-merging";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see ir.IrPass#run(ir.ControlFlowGraph)
+	 */
+	public boolean run(ControlFlowGraph graph) {
+		boolean changed = false;
+		List<BasicBlock> blocks = graph.getBlocks();
+		Map<Instruction, Instruction> replacements = new HashMap<Instruction, Instruction>();
+		for (BasicBlock block : blocks) {
+			BasicBlock successor = mergeableSuccessor(graph, block);
+			while (successor != null) {
+				// the phis of the successor have a single operand
+				List<Instruction> instructions = successor.getInstructions();
+				while (successor.getPhiCount() > 0) {
+					replacements.put(instructions.get(0), instructions.remove(0).getOperand(0));
+				}
+				block.merge(successor);
+				changed = true;
+				successor = mergeableSuccessor(graph, block);
+			}
+		}
+		graph.replaceUses(replacements);
+		for (BasicBlock block : blocks) {
+			List<BasicBlock> successors = block.getSuccessors();
+			for (int i = 0; i < successors.size(); i++) {
+				BasicBlock skipped = successors.get(i);
+				if (skipped != block && isJumpOnly(skipped)) {
+					BasicBlock target = skipped.getSuccessors().get(0);
+					if (target != skipped && target.getPhiCount() == 0 && !successors.contains(target)) {
+						block.skipSuccessor(i);
+						changed = true;
+					}
+				}
+			}
+		}
+		// merged successors are left without edges
+		for (Iterator<BasicBlock> i = blocks.iterator(); i.hasNext();) {
+			BasicBlock block = i.next();
+			if (block.getInstructions().isEmpty()) {
+				i.remove();
+			}
+		}
+		changed |= graph.removeUnreachableBlocks();
+		graph.renumber();
+		return changed;
+	}
+
+	/**
+	 * Get the successor with which a block can be merged.
+	 * 
+	 * @param graph
+	 *            Control flow graph.
+	 * @param block
+	 *            Block.
+	 * @return Only successor, whose only predecessor is the block, null if
+	 *         there is none.
+	 */
+	private static BasicBlock mergeableSuccessor(ControlFlowGraph graph, BasicBlock block) {
+		Instruction terminator = block.getTerminator();
+		if (terminator == null || terminator.getKind() != Instruction.JUMP) {
+			return null;
+		}
+		BasicBlock successor = block.getSuccessors().get(0);
+		if (successor == block || successor == graph.getEntry() || successor.getPredecessors().size() != 1) {
+			return null;
+		}
+		return successor;
+	}
+
+	/**
+	 * Check if a block only jumps to its successor.
+	 * 
+	 * @param block
+	 *            Block.
+	 * @return True iff the only instruction of the block is a jump.
+	 */
+	private static boolean isJumpOnly(BasicBlock block) {
+		List<Instruction> instructions = block.getInstructions();
+		return instructions.size() == 1 && instructions.get(0).getKind() == Instruction.JUMP;
+	}
+}
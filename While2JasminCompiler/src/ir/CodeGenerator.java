@@ -0,0 +1,720 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import ast.BinOp;
+import generator.CodeEmitter;
+import generator.GeneratorException;
+import generator.JasminGenerator;
+import generator.Opcodes;
+import generator.OutputBuffer;
+import optimizer.RegisterAllocator;
+
+/**
+ * Backend of the intermediate representation, which translates a control
+ * flow graph into the instructions of main for a {@link CodeEmitter}.
+ * 
+ * First the graph leaves static single assignment form: every edge from a
+ * block with several successors to a block with phis is split, and each
+ * predecessor of a block with phis ends with a parallel copy of the values
+ * from this predecessor into the phis. The blocks are laid out in reverse
+ * postorder, such that a branch falls through into one of its successors.
+ * 
+ * A value with a single use later in its block stays on the operand stack if
+ * the values in between leave the stack as they found it, so an expression
+ * tree needs no registers. Constants are loaded at each use. All other values
+ * and the phis get registers, which are assigned by the linear scan of the
+ * {@link RegisterAllocator} to live ranges over the laid out instructions,
+ * where each instruction reads its operands at one point and stores its value
+ * at the next point.
+ */
+public class CodeGenerator {
+
+	// Prefix of the labels of blocks
+	private static final String PREFIX = "block";
+
+	// No register
+	private static final int NONE = RegisterAllocator.NONE;
+
+	// Initial number of accesses of the live range analysis
+	private static final int INITIAL_CAPACITY = 256;
+
+	// Collect the output in a buffer, which is null while the output is
+	// printed line by line
+	private boolean bufferedOutput = false;
+	private OutputBuffer output;
+
+	// Emitter of the instructions
+	private CodeEmitter emitter;
+
+	// Blocks in the order of the code
+	private List<BasicBlock> layout;
+
+	// Per instruction id: number of uses other than by phis, the user of a
+	// value with a single use, and the register
+	private int[] uses;
+	private Instruction[] users;
+	private int[] registers;
+
+	// Instruction ids of the values which are kept on the operand stack
+	private BitSet onStack;
+
+	// Number of registers of values used by the last translation
+	private int registerCount;
+
+	/**
+	 * Get the number of registers which have been allocated by the last
+	 * translation, not counting the register of the {@link OutputBuffer}.
+	 * 
+	 * @return Number of registers.
+	 */
+	public int getRegisterCount() {
+		return registerCount;
+	}
+
+	/**
+	 * Choose how the generated program writes its output, see
+	 * {@link JasminGenerator#setBufferedOutput(boolean)}.
+	 * 
+	 * @param buffered
+	 *            True iff the output is buffered.
+	 */
+	public void setBufferedOutput(boolean buffered) {
+		this.bufferedOutput = buffered;
+	}
+
+	/**
+	 * Translate a control flow graph into a class with a main method. The
+	 * graph leaves static single assignment form, i.e. it is changed.
+	 * 
+	 * @param name
+	 *            Name of the program.
+	 * @param graph
+	 *            Control flow graph in static single assignment form.
+	 * @param backend
+	 *            Emitter of the instructions, e.g. a
+	 *            {@link generator.ClassFileWriter}.
+	 * @throws GeneratorException
+	 *             Exception while emitting the code.
+	 */
+	public void translate(String name, ControlFlowGraph graph, CodeEmitter backend) throws GeneratorException {
+		leaveSsa(graph);
+		int count = graph.renumber();
+		layout = layout(graph);
+		countUses(count);
+		chooseStackValues(count);
+		allocateRegisters(graph.getBlocks().size(), count);
+		emitter = backend;
+		emitter.beginClass(name);
+		output = bufferedOutput ? new OutputBuffer(emitter) : null;
+		if (output != null) {
+			output.create();
+		}
+		BitSet targets = jumpTargets();
+		for (int b = 0; b < layout.size(); b++) {
+			BasicBlock block = layout.get(b);
+			BasicBlock next = b + 1 < layout.size() ? layout.get(b + 1) : null;
+			if (targets.get(block.getId())) {
+				emitter.label(PREFIX, block.getId());
+			}
+			for (Instruction instruction : block.getInstructions()) {
+				translate(instruction, next);
+			}
+		}
+		emitter.endClass();
+		emitter = null;
+		output = null;
+		layout = null;
+		users = null;
+	}
+
+	/**
+	 * Replace the phis by copies at the end of the predecessors. The phis
+	 * are kept as the targets of the copies, their operands are no uses any
+	 * more.
+	 * 
+	 * @param graph
+	 *            Control flow graph.
+	 */
+	private static void leaveSsa(ControlFlowGraph graph) {
+		for (BasicBlock block : new ArrayList<BasicBlock>(graph.getBlocks())) {
+			List<BasicBlock> successors = block.getSuccessors();
+			for (int i = 0; successors.size() > 1 && i < successors.size(); i++) {
+				if (successors.get(i).getPhiCount() > 0) {
+					// a copy on this edge must not be executed on the others
+					BasicBlock middle = graph.newBlock();
+					block.insertOnEdge(i, middle);
+					middle.add(Instruction.jump());
+				}
+			}
+		}
+		for (BasicBlock block : graph.getBlocks()) {
+			int phis = block.getPhiCount();
+			for (int p = 0; phis > 0 && p < block.getPredecessors().size(); p++) {
+				List<Instruction> targets = new ArrayList<Instruction>(phis);
+				List<Instruction> sources = new ArrayList<Instruction>(phis);
+				for (int i = 0; i < phis; i++) {
+					Instruction phi = block.getInstructions().get(i);
+					if (phi.getOperand(p) != phi) {
+						targets.add(phi);
+						sources.add(phi.getOperand(p));
+					}
+				}
+				if (!targets.isEmpty()) {
+					BasicBlock predecessor = block.getPredecessors().get(p);
+					predecessor.insert(predecessor.getInstructions().size() - 1, Instruction.copy(
+							targets.toArray(new Instruction[targets.size()]),
+							sources.toArray(new Instruction[sources.size()])));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Order the blocks in reverse postorder from the entry. The first
+	 * successor of a branch is visited last, so it follows the branch.
+	 * 
+	 * @param graph
+	 *            Control flow graph.
+	 * @return Blocks in the order of the code.
+	 */
+	private static List<BasicBlock> layout(ControlFlowGraph graph) {
+		List<BasicBlock> order = new ArrayList<BasicBlock>(graph.getBlocks().size());
+		int[] next = new int[graph.getBlocks().size()];
+		BitSet visited = new BitSet();
+		List<BasicBlock> stack = new ArrayList<BasicBlock>();
+		stack.add(graph.getEntry());
+		visited.set(0);
+		next[0] = graph.getEntry().getSuccessors().size() - 1;
+		while (!stack.isEmpty()) {
+			BasicBlock block = stack.get(stack.size() - 1);
+			if (next[block.getId()] < 0) {
+				order.add(stack.remove(stack.size() - 1));
+				continue;
+			}
+			BasicBlock successor = block.getSuccessors().get(next[block.getId()]--);
+			if (!visited.get(successor.getId())) {
+				visited.set(successor.getId());
+				next[successor.getId()] = successor.getSuccessors().size() - 1;
+				stack.add(successor);
+			}
+		}
+		Collections.reverse(order);
+		return order;
+	}
+
+	/**
+	 * Count the uses of the values.
+	 * 
+	 * @param count
+	 *            Number of instructions.
+	 */
+	private void countUses(int count) {
+		uses = new int[count];
+		users = new Instruction[count];
+		for (BasicBlock block : layout) {
+			for (Instruction instruction : block.getInstructions()) {
+				if (instruction.getKind() == Instruction.PHI) {
+					continue;
+				}
+				for (int i = 0; i < instruction.getOperandCount(); i++) {
+					int operand = instruction.getOperand(i).getId();
+					uses[operand]++;
+					users[operand] = instruction;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Choose the values which stay on the operand stack. A candidate is
+	 * dropped if its user does not find it on top of the stack with its
+	 * other candidates, or if it is still on the stack at the end of the
+	 * block, until all blocks can be translated.
+	 * 
+	 * @param count
+	 *            Number of instructions.
+	 */
+	private void chooseStackValues(int count) {
+		onStack = new BitSet(count);
+		for (BasicBlock block : layout) {
+			for (Instruction instruction : block.getInstructions()) {
+				int id = instruction.getId();
+				if (uses[id] == 1 && users[id].getBlock() == block && (instruction.getKind() == Instruction.READ
+						|| instruction.getKind() == Instruction.BIN_OP)) {
+					onStack.set(id);
+				}
+			}
+		}
+		boolean stable = false;
+		while (!stable) {
+			stable = true;
+			for (BasicBlock block : layout) {
+				stable &= simulate(block);
+			}
+		}
+	}
+
+	/**
+	 * Simulate the operand stack of a block with the chosen values.
+	 * 
+	 * @param block
+	 *            Block.
+	 * @return True iff every instruction finds its operands which are kept
+	 *         on the stack, in order, on top of it, and the stack is empty at
+	 *         the end of the block. Otherwise some values have been dropped.
+	 */
+	private boolean simulate(BasicBlock block) {
+		List<Instruction> stack = new ArrayList<Instruction>();
+		for (Instruction instruction : block.getInstructions()) {
+			if (instruction.getKind() == Instruction.PHI) {
+				continue;
+			}
+			int operands = instruction.getOperandCount();
+			int kept = 0;
+			while (kept < operands && onStack.get(instruction.getOperand(kept).getId())) {
+				kept++;
+			}
+			boolean found = kept <= stack.size();
+			for (int i = 0; found && i < operands; i++) {
+				Instruction operand = instruction.getOperand(i);
+				found = i < kept ? stack.get(stack.size() - kept + i) == operand : !onStack.get(operand.getId());
+			}
+			if (!found) {
+				for (int i = 0; i < operands; i++) {
+					onStack.clear(instruction.getOperand(i).getId());
+				}
+				return false;
+			}
+			stack.subList(stack.size() - kept, stack.size()).clear();
+			if (onStack.get(instruction.getId())) {
+				stack.add(instruction);
+			}
+		}
+		for (Instruction left : stack) {
+			onStack.clear(left.getId());
+		}
+		return stack.isEmpty();
+	}
+
+	/**
+	 * Check if a value is stored in a register.
+	 * 
+	 * @param instruction
+	 *            Instruction.
+	 * @return True iff the instruction is a phi or a value with uses which is
+	 *         neither a constant nor kept on the stack.
+	 */
+	private boolean needsRegister(Instruction instruction) {
+		int id = instruction.getId();
+		return instruction.getKind() == Instruction.PHI
+				|| instruction.hasValue() && instruction.getKind() != Instruction.CONST && uses[id] > 0
+						&& !onStack.get(id);
+	}
+
+	/**
+	 * Compute the live ranges of the values in registers and assign the
+	 * registers. A value is live into a block if the block reads it before
+	 * it sets it, or if it is live out of the block and not set by it. The
+	 * blocks where a value is live are found for one value at a time by
+	 * walking backwards from its reads to the blocks which set it, so the
+	 * memory grows with the number of blocks and accesses rather than their
+	 * product.
+	 * 
+	 * @param blockCount
+	 *            Number of blocks.
+	 * @param count
+	 *            Number of instructions.
+	 */
+	private void allocateRegisters(int blockCount, int count) {
+		// laid out blocks by id, and the first and last point of each
+		BasicBlock[] blocks = new BasicBlock[blockCount];
+		int[] first = new int[blockCount];
+		int[] last = new int[blockCount];
+
+		int[] start = new int[count];
+		int[] end = new int[count];
+		Arrays.fill(end, NONE);
+
+		// blocks which read a value before they set it, and which set it, as
+		// value id in the high and block id in the low bits
+		long[] reads = new long[INITIAL_CAPACITY];
+		long[] writes = new long[INITIAL_CAPACITY];
+		int readCount = 0;
+		int writeCount = 0;
+
+		// block in which a value has been set last during the scan, plus one
+		int[] setIn = new int[count];
+		int position = 0;
+		for (BasicBlock block : layout) {
+			int b = block.getId();
+			blocks[b] = block;
+			first[b] = 2 * position;
+			last[b] = 2 * (position + block.getInstructions().size()) - 1;
+			for (Instruction instruction : block.getInstructions()) {
+				if (instruction.getKind() != Instruction.PHI) {
+					for (int o = 0; o < instruction.getOperandCount(); o++) {
+						Instruction operand = instruction.getOperand(o);
+						if (needsRegister(operand)) {
+							extend(start, end, operand.getId(), 2 * position);
+							if (setIn[operand.getId()] != b + 1) {
+								reads = add(reads, readCount++, operand.getId(), b);
+							}
+						}
+					}
+					for (Instruction target : definitions(instruction)) {
+						extend(start, end, target.getId(), 2 * position + 1);
+						if (setIn[target.getId()] != b + 1) {
+							setIn[target.getId()] = b + 1;
+							writes = add(writes, writeCount++, target.getId(), b);
+						}
+					}
+				}
+				position++;
+			}
+		}
+		Arrays.sort(reads, 0, readCount);
+		Arrays.sort(writes, 0, writeCount);
+
+		// per block: the value plus one which it sets, is live into and is
+		// live out of, for the value whose blocks are searched
+		int[] setsValue = new int[blockCount];
+		int[] liveIn = new int[blockCount];
+		int[] liveOut = new int[blockCount];
+		int[] pending = new int[blockCount];
+		int w = 0;
+		for (int r = 0; r < readCount;) {
+			int id = (int) (reads[r] >>> 32);
+			while (w < writeCount && (int) (writes[w] >>> 32) < id) {
+				w++;
+			}
+			for (; w < writeCount && (int) (writes[w] >>> 32) == id; w++) {
+				setsValue[(int) writes[w]] = id + 1;
+			}
+			int top = 0;
+			for (; r < readCount && (int) (reads[r] >>> 32) == id; r++) {
+				int b = (int) reads[r];
+				if (liveIn[b] != id + 1) {
+					liveIn[b] = id + 1;
+					pending[top++] = b;
+				}
+			}
+			while (top > 0) {
+				int b = pending[--top];
+				extend(start, end, id, first[b]);
+				for (BasicBlock predecessor : blocks[b].getPredecessors()) {
+					int p = predecessor.getId();
+					if (blocks[p] == null || liveOut[p] == id + 1) {
+						continue;
+					}
+					liveOut[p] = id + 1;
+					extend(start, end, id, last[p]);
+					if (setsValue[p] != id + 1 && liveIn[p] != id + 1) {
+						liveIn[p] = id + 1;
+						pending[top++] = p;
+					}
+				}
+			}
+		}
+
+		RegisterAllocator allocator = new RegisterAllocator();
+		registers = allocator.scan(start, end);
+		// register 0 holds the buffer of buffered output
+		int firstRegister = bufferedOutput ? OutputBuffer.REGISTER + 1 : 0;
+		for (int id = 0; id < count; id++) {
+			if (registers[id] != NONE) {
+				registers[id] += firstRegister;
+			}
+		}
+		registerCount = allocator.getRegisterCount();
+	}
+
+	/**
+	 * Append an access of a value in a block to a list.
+	 * 
+	 * @param accesses
+	 *            List of accesses, value id in the high and block id in the
+	 *            low bits.
+	 * @param size
+	 *            Number of accesses in the list.
+	 * @param id
+	 *            Instruction id of the value.
+	 * @param block
+	 *            Block id.
+	 * @return The list, enlarged if necessary.
+	 */
+	private static long[] add(long[] accesses, int size, int id, int block) {
+		if (size == accesses.length) {
+			accesses = Arrays.copyOf(accesses, 2 * size);
+		}
+		accesses[size] = ((long) id << 32) | block;
+		return accesses;
+	}
+
+	/**
+	 * Get the values in registers which are set by an instruction.
+	 * 
+	 * @param instruction
+	 *            Instruction other than a phi.
+	 * @return The instruction if its value needs a register, the phis of a
+	 *         copy, otherwise no values.
+	 */
+	private Instruction[] definitions(Instruction instruction) {
+		if (instruction.getKind() == Instruction.COPY) {
+			return instruction.getTargets();
+		}
+		return needsRegister(instruction) ? new Instruction[] { instruction } : new Instruction[0];
+	}
+
+	/**
+	 * Add a point to the live range of a value.
+	 * 
+	 * @param start
+	 *            First point per instruction id.
+	 * @param end
+	 *            Last point per instruction id, NONE if there is no range.
+	 * @param id
+	 *            Instruction id.
+	 * @param point
+	 *            Point.
+	 */
+	private static void extend(int[] start, int[] end, int id, int point) {
+		if (end[id] == NONE) {
+			start[id] = point;
+			end[id] = point;
+		} else {
+			start[id] = Math.min(start[id], point);
+			end[id] = Math.max(end[id], point);
+		}
+	}
+
+	/**
+	 * Find the blocks which are reached by a jump rather than by falling
+	 * through, i.e. which need a label.
+	 * 
+	 * @return Block ids.
+	 */
+	private BitSet jumpTargets() {
+		BitSet targets = new BitSet();
+		for (int b = 0; b < layout.size(); b++) {
+			BasicBlock next = b + 1 < layout.size() ? layout.get(b + 1) : null;
+			for (BasicBlock successor : layout.get(b).getSuccessors()) {
+				if (successor != next) {
+					targets.set(successor.getId());
+				}
+			}
+		}
+		return targets;
+	}
+
+	/**
+	 * Translate an instruction.
+	 * 
+	 * @param instruction
+	 *            Instruction.
+	 * @param next
+	 *            Block which follows the block of the instruction in the
+	 *            code, null for the last block.
+	 * @throws GeneratorException
+	 *             Exception while emitting the code.
+	 */
+	private void translate(Instruction instruction, BasicBlock next) throws GeneratorException {
+		List<BasicBlock> successors = instruction.getBlock().getSuccessors();
+		switch (instruction.getKind()) {
+		case Instruction.CONST:
+		case Instruction.PHI:
+			// constants are loaded by their users, phis are set by copies
+			return;
+		case Instruction.READ:
+			if (output != null) {
+				// the prompt of the program is printed before it waits for
+				// input
+				output.flush();
+			}
+			emitter.methodInstruction(Opcodes.INVOKESTATIC, "java/lang/System", "console", "()Ljava/io/Console;");
+			emitter.methodInstruction(Opcodes.INVOKEVIRTUAL, "java/io/Console", "readLine", "()Ljava/lang/String;");
+			emitter.methodInstruction(Opcodes.INVOKESTATIC, "java/lang/Integer", "parseInt", "(Ljava/lang/String;)I");
+			store(instruction);
+			return;
+		case Instruction.BIN_OP:
+			loadOperands(instruction);
+			Instruction divisor = instruction.getOperand(1);
+			if (instruction.getValue() == BinOp.DIV && output != null
+					&& (divisor.getKind() != Instruction.CONST || divisor.getValue() == 0)) {
+				output.checkDivisor();
+			}
+			emitter.instruction(arithmetic(instruction.getValue()));
+			store(instruction);
+			return;
+		case Instruction.WRITE:
+			if (output != null) {
+				if (!onStack.get(instruction.getOperand(0).getId())) {
+					load(instruction.getOperand(0));
+				}
+				output.writeInt();
+				return;
+			}
+			emitter.fieldInstruction(Opcodes.GETSTATIC, "java/lang/System", "out", "Ljava/io/PrintStream;");
+			if (onStack.get(instruction.getOperand(0).getId())) {
+				emitter.instruction(Opcodes.SWAP);
+			} else {
+				load(instruction.getOperand(0));
+			}
+			emitter.methodInstruction(Opcodes.INVOKEVIRTUAL, "java/io/PrintStream", "println", "(I)V");
+			return;
+		case Instruction.WRITE_STRING:
+			String text = instruction.getText();
+			if (output != null) {
+				output.writeString(text);
+				return;
+			}
+			emitter.fieldInstruction(Opcodes.GETSTATIC, "java/lang/System", "out", "Ljava/io/PrintStream;");
+			// the extra quotes are part of the literal
+			emitter.loadConstant(text.substring(1, text.length() - 1));
+			emitter.methodInstruction(Opcodes.INVOKEVIRTUAL, "java/io/PrintStream", "println",
+					"(Ljava/lang/String;)V");
+			return;
+		case Instruction.COPY:
+			// all sources are read before the first phi is set
+			loadOperands(instruction);
+			Instruction[] targets = instruction.getTargets();
+			for (int i = targets.length - 1; i >= 0; i--) {
+				emitter.registerInstruction(Opcodes.ISTORE, registers[targets[i].getId()]);
+			}
+			return;
+		case Instruction.JUMP:
+			if (successors.get(0) != next) {
+				emitter.jump(Opcodes.GOTO, PREFIX, successors.get(0).getId());
+			}
+			return;
+		case Instruction.BRANCH:
+			translateBranch(instruction, successors.get(0), successors.get(1), next);
+			return;
+		default:
+			if (output != null) {
+				output.flush();
+			}
+			emitter.comment("done");
+			emitter.instruction(Opcodes.RETURN);
+		}
+	}
+
+	/**
+	 * Translate a branch. A comparison with 0 for equality uses a jump on
+	 * the value itself.
+	 * 
+	 * @param branch
+	 *            Branch.
+	 * @param onTrue
+	 *            Successor if the relation holds.
+	 * @param onFalse
+	 *            Successor otherwise.
+	 * @param next
+	 *            Block which follows in the code, null for the last block.
+	 * @throws GeneratorException
+	 *             Exception while emitting the code.
+	 */
+	private void translateBranch(Instruction branch, BasicBlock onTrue, BasicBlock onFalse, BasicBlock next)
+			throws GeneratorException {
+		int relation = branch.getValue();
+		Instruction right = branch.getOperand(1);
+		boolean zero = (relation == BinOp.EQ || relation == BinOp.NEQ) && right.getKind() == Instruction.CONST
+				&& right.getValue() == 0;
+		if (zero) {
+			if (!onStack.get(branch.getOperand(0).getId())) {
+				load(branch.getOperand(0));
+			}
+		} else {
+			loadOperands(branch);
+		}
+		boolean negate = onTrue == next;
+		BasicBlock target = negate ? onFalse : onTrue;
+		int opcode;
+		if (zero) {
+			opcode = (relation == BinOp.EQ) != negate ? Opcodes.IFEQ : Opcodes.IFNE;
+		} else {
+			opcode = JasminGenerator.comparison(relation, negate);
+		}
+		emitter.jump(opcode, PREFIX, target.getId());
+		if (!negate && onFalse != next) {
+			emitter.jump(Opcodes.GOTO, PREFIX, onFalse.getId());
+		}
+	}
+
+	/**
+	 * Load the operands of an instruction which are not kept on the stack.
+	 * 
+	 * @param instruction
+	 *            Instruction.
+	 * @throws GeneratorException
+	 *             Exception while emitting the code.
+	 */
+	private void loadOperands(Instruction instruction) throws GeneratorException {
+		for (int i = 0; i < instruction.getOperandCount(); i++) {
+			if (!onStack.get(instruction.getOperand(i).getId())) {
+				load(instruction.getOperand(i));
+			}
+		}
+	}
+
+	/**
+	 * Load a value which is not kept on the stack.
+	 * 
+	 * @param value
+	 *            Constant or value in a register.
+	 * @throws GeneratorException
+	 *             Exception while emitting the code.
+	 */
+	private void load(Instruction value) throws GeneratorException {
+		if (value.getKind() == Instruction.CONST) {
+			emitter.loadConstant(value.getValue());
+		} else {
+			emitter.registerInstruction(Opcodes.ILOAD, registers[value.getId()]);
+		}
+	}
+
+	/**
+	 * Handle the value of an instruction on top of the stack: it is kept
+	 * there for its user, stored in its register or dropped if it is not
+	 * used.
+	 * 
+	 * @param value
+	 *            Read or arithmetic operation.
+	 * @throws GeneratorException
+	 *             Exception while emitting the code.
+	 */
+	private void store(Instruction value) throws GeneratorException {
+		if (onStack.get(value.getId())) {
+			return;
+		}
+		if (registers[value.getId()] != NONE) {
+			emitter.registerInstruction(Opcodes.ISTORE, registers[value.getId()]);
+		} else {
+			emitter.instruction(Opcodes.POP);
+		}
+	}
+
+	/**
+	 * Get the opcode of an arithmetic operator.
+	 * 
+	 * @param operator
+	 *            Operator, see {@link BinOp}.
+	 * @return Opcode.
+	 */
+	private static int arithmetic(int operator) {
+		switch (operator) {
+		case BinOp.ADD:
+			return Opcodes.IADD;
+		case BinOp.SUB:
+			return Opcodes.ISUB;
+		case BinOp.MUL:
+			return Opcodes.IMUL;
+		default:
+			return Opcodes.IDIV;
+		}
+	}
+}
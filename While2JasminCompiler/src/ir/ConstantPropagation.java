@@ -0,0 +1,245 @@
+package ir;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import ast.BinOp;
+
+/**
+ * Pass which propagates constants and copies through the control flow graph.
+ * Operations on constants are folded with the overflow semantics of Java
+ * ints, except divisions by zero, which still throw at runtime, and the
+ * identities of the {@link optimizer.ConstantFolder} are applied to values.
+ * A phi whose operands are all the same value, apart from the phi itself, is
+ * replaced by that value, and a phi of equal constants by the constant. A
+ * branch on constants or on the same value twice becomes a jump, the edge
+ * which is never taken is removed together with the blocks which become
+ * unreachable.
+ * 
+ * Since the values are propagated along the uses, a constant reaches every
+ * use in the program even if it is assigned in a branch, which the
+ * {@link optimizer.ConstantFolder} on the abstract syntax tree cannot see.
+ */
+public class ConstantPropagation implements IrPass {
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see ir.IrPass#getName()
+	 */
+	public String getName() {
+		return "constant-propagation";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see ir.IrPass#run(ir.ControlFlowGraph)
+	 */
+	public boolean run(ControlFlowGraph graph) {
+		boolean changed = false;
+		Map<Instruction, Instruction> replacements = new HashMap<Instruction, Instruction>();
+		for (BasicBlock block : graph.getBlocks()) {
+			for (Iterator<Instruction> i = block.getInstructions().iterator(); i.hasNext();) {
+				Instruction instruction = i.next();
+				resolve(instruction, replacements);
+				if (instruction.getKind() == Instruction.BIN_OP) {
+					Instruction replacement = simplify(instruction);
+					if (replacement != null) {
+						replacements.put(instruction, replacement);
+						i.remove();
+						changed = true;
+					} else if (instruction.getKind() == Instruction.CONST) {
+						changed = true;
+					}
+				} else if (instruction.getKind() == Instruction.BRANCH) {
+					changed |= foldBranch(block, instruction);
+				}
+			}
+		}
+		for (BasicBlock block : graph.getBlocks()) {
+			changed |= simplifyPhis(block, replacements);
+		}
+		graph.replaceUses(replacements);
+		changed |= graph.removeUnreachableBlocks();
+		graph.renumber();
+		return changed;
+	}
+
+	/**
+	 * Replace the operands of an instruction which have been replaced
+	 * earlier in this run, such that it sees constants.
+	 * 
+	 * @param instruction
+	 *            Instruction.
+	 * @param replacements
+	 *            New value by replaced value.
+	 */
+	private static void resolve(Instruction instruction, Map<Instruction, Instruction> replacements) {
+		for (int i = 0; i < instruction.getOperandCount(); i++) {
+			Instruction operand = instruction.getOperand(i);
+			while (replacements.containsKey(operand)) {
+				operand = replacements.get(operand);
+			}
+			instruction.setOperand(i, operand);
+		}
+	}
+
+	/**
+	 * Fold or simplify an arithmetic operation.
+	 * 
+	 * @param operation
+	 *            Operation, which is turned into a constant if its operands
+	 *            are constants.
+	 * @return Operand which is the value of the operation, null if the
+	 *         operation has been kept or folded in place.
+	 */
+	private static Instruction simplify(Instruction operation) {
+		Instruction left = operation.getOperand(0);
+		Instruction right = operation.getOperand(1);
+		boolean leftConst = left.getKind() == Instruction.CONST;
+		boolean rightConst = right.getKind() == Instruction.CONST;
+		int leftValue = left.getValue();
+		int rightValue = right.getValue();
+		switch (operation.getValue()) {
+		case BinOp.ADD:
+			if (leftConst && rightConst) {
+				operation.replaceByConstant(leftValue + rightValue);
+			} else if (leftConst && leftValue == 0) {
+				return right;
+			} else if (rightConst && rightValue == 0) {
+				return left;
+			}
+			break;
+		case BinOp.SUB:
+			if (leftConst && rightConst) {
+				operation.replaceByConstant(leftValue - rightValue);
+			} else if (rightConst && rightValue == 0) {
+				return left;
+			} else if (left == right) {
+				operation.replaceByConstant(0);
+			}
+			break;
+		case BinOp.MUL:
+			if (leftConst && rightConst || leftConst && leftValue == 0 || rightConst && rightValue == 0) {
+				// the operand which is dropped is still computed
+				operation.replaceByConstant(leftValue * rightValue);
+			} else if (leftConst && leftValue == 1) {
+				return right;
+			} else if (rightConst && rightValue == 1) {
+				return left;
+			}
+			break;
+		case BinOp.DIV:
+			if (leftConst && rightConst && rightValue != 0) {
+				operation.replaceByConstant(leftValue / rightValue);
+			} else if (rightConst && rightValue == 1) {
+				return left;
+			}
+			break;
+		default:
+		}
+		return null;
+	}
+
+	/**
+	 * Turn a branch whose outcome is known into a jump.
+	 * 
+	 * @param block
+	 *            Block which ends with the branch.
+	 * @param branch
+	 *            Branch.
+	 * @return True iff the branch has been replaced.
+	 */
+	private static boolean foldBranch(BasicBlock block, Instruction branch) {
+		Instruction left = branch.getOperand(0);
+		Instruction right = branch.getOperand(1);
+		boolean holds;
+		if (left == right) {
+			int relation = branch.getValue();
+			holds = relation == BinOp.EQ || relation == BinOp.LEQ || relation == BinOp.GEQ;
+		} else if (left.getKind() == Instruction.CONST && right.getKind() == Instruction.CONST) {
+			holds = evaluate(branch.getValue(), left.getValue(), right.getValue());
+		} else {
+			return false;
+		}
+		block.removeSuccessor(holds ? 1 : 0);
+		branch.replaceByJump();
+		return true;
+	}
+
+	/**
+	 * Evaluate a relation.
+	 * 
+	 * @param relation
+	 *            Relation, see {@link BinOp#isRelation(int)}.
+	 * @param left
+	 *            Left operand.
+	 * @param right
+	 *            Right operand.
+	 * @return True iff the relation holds.
+	 */
+	private static boolean evaluate(int relation, int left, int right) {
+		switch (relation) {
+		case BinOp.LT:
+			return left < right;
+		case BinOp.LEQ:
+			return left <= right;
+		case BinOp.EQ:
+			return left == right;
+		case BinOp.GEQ:
+			return left >= right;
+		case BinOp.GT:
+			return left > right;
+		default:
+			return left != right;
+		}
+	}
+
+	/**
+	 * Remove the phis of a block which always have the same value.
+	 * 
+	 * @param block
+	 *            Block.
+	 * @param replacements
+	 *            New value by replaced value, which is extended.
+	 * @return True iff a phi has been removed or replaced by a constant.
+	 */
+	private static boolean simplifyPhis(BasicBlock block, Map<Instruction, Instruction> replacements) {
+		boolean changed = false;
+		List<Instruction> instructions = block.getInstructions();
+		int i = 0;
+		while (i < block.getPhiCount()) {
+			Instruction phi = instructions.get(i);
+			resolve(phi, replacements);
+			Instruction same = null;
+			boolean distinct = false;
+			boolean constant = phi.getOperandCount() > 0;
+			for (int o = 0; o < phi.getOperandCount(); o++) {
+				Instruction operand = phi.getOperand(o);
+				constant &= operand.getKind() == Instruction.CONST
+						&& operand.getValue() == phi.getOperand(0).getValue();
+				if (operand != phi && operand != same) {
+					distinct |= same != null;
+					same = operand;
+				}
+			}
+			if (same != null && !distinct) {
+				replacements.put(phi, same);
+				instructions.remove(i);
+				changed = true;
+			} else if (constant) {
+				// the phi becomes the first instruction after the phis
+				instructions.remove(i);
+				phi.replaceByConstant(phi.getOperand(0).getValue());
+				block.insert(block.getPhiCount(), phi);
+				changed = true;
+			} else {
+				i++;
+			}
+		}
+		return changed;
+	}
+}
@@ -0,0 +1,152 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Control flow graph of main in the intermediate representation, which is
+ * built from the abstract syntax tree by the {@link SsaBuilder}, optimized
+ * by the passes of a {@link PassManager} and translated into byte code by the
+ * {@link CodeGenerator}. The first block is the entry, the program ends at the
+ * return of the exit block.
+ */
+public class ControlFlowGraph {
+
+	// Blocks, the entry first
+	private final List<BasicBlock> blocks = new ArrayList<BasicBlock>();
+
+	// Number of instructions, see renumber
+	private int instructionCount;
+
+	/**
+	 * Create a block without instructions and edges.
+	 * 
+	 * @return Block.
+	 */
+	public BasicBlock newBlock() {
+		BasicBlock block = new BasicBlock(blocks.size());
+		blocks.add(block);
+		return block;
+	}
+
+	/**
+	 * Get the entry.
+	 * 
+	 * @return First block.
+	 */
+	public BasicBlock getEntry() {
+		return blocks.get(0);
+	}
+
+	/**
+	 * Get the blocks.
+	 * 
+	 * @return Blocks, the entry first.
+	 */
+	public List<BasicBlock> getBlocks() {
+		return blocks;
+	}
+
+	/**
+	 * Number the blocks by their index and the instructions in the order of
+	 * the blocks from 0.
+	 * 
+	 * @return Number of instructions.
+	 */
+	public int renumber() {
+		instructionCount = 0;
+		for (int i = 0; i < blocks.size(); i++) {
+			blocks.get(i).setId(i);
+			for (Instruction instruction : blocks.get(i).getInstructions()) {
+				instruction.setId(instructionCount++);
+			}
+		}
+		return instructionCount;
+	}
+
+	/**
+	 * Get the number of instructions after the last renumbering.
+	 * 
+	 * @return Number of instructions.
+	 */
+	public int getInstructionCount() {
+		return instructionCount;
+	}
+
+	/**
+	 * Remove the blocks which cannot be reached from the entry, and their
+	 * edges. The blocks are renumbered.
+	 * 
+	 * @return True iff a block has been removed.
+	 */
+	public boolean removeUnreachableBlocks() {
+		BitSet reachable = new BitSet();
+		List<BasicBlock> work = new ArrayList<BasicBlock>();
+		work.add(getEntry());
+		reachable.set(0);
+		while (!work.isEmpty()) {
+			for (BasicBlock successor : work.remove(work.size() - 1).getSuccessors()) {
+				if (!reachable.get(successor.getId())) {
+					reachable.set(successor.getId());
+					work.add(successor);
+				}
+			}
+		}
+		if (reachable.cardinality() == blocks.size()) {
+			return false;
+		}
+		for (Iterator<BasicBlock> i = blocks.iterator(); i.hasNext();) {
+			BasicBlock block = i.next();
+			if (!reachable.get(block.getId())) {
+				while (!block.getSuccessors().isEmpty()) {
+					block.removeSuccessor(0);
+				}
+				i.remove();
+			}
+		}
+		renumber();
+		return true;
+	}
+
+	/**
+	 * Replace the uses of values, e.g. of phis which always have the same
+	 * value. A replacement may itself be replaced.
+	 * 
+	 * @param replacements
+	 *            New value by replaced value.
+	 */
+	public void replaceUses(Map<Instruction, Instruction> replacements) {
+		if (replacements.isEmpty()) {
+			return;
+		}
+		for (BasicBlock block : blocks) {
+			for (Instruction instruction : block.getInstructions()) {
+				for (int i = 0; i < instruction.getOperandCount(); i++) {
+					Instruction operand = instruction.getOperand(i);
+					Instruction replacement = replacements.get(operand);
+					while (replacement != null) {
+						operand = replacement;
+						replacement = replacements.get(operand);
+					}
+					instruction.setOperand(i, operand);
+				}
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		for (BasicBlock block : blocks) {
+			builder.append(block);
+		}
+		return builder.toString();
+	}
+}
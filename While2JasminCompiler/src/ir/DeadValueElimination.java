@@ -0,0 +1,64 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Pass which removes the blocks that cannot be reached from the entry and the
+ * values which do not contribute to the behaviour of the program. An
+ * instruction is live if it is not pure, see {@link Instruction#isPure()},
+ * or if a live instruction uses its value, so cycles of phis of a variable
+ * which is only assigned in a loop are removed as a whole.
+ */
+public class DeadValueElimination implements IrPass {
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see ir.IrPass#getName()
+	 */
+	public String getName() {
+		return "dead-value-elimination";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see ir.IrPass#run(ir.ControlFlowGraph)
+	 */
+	public boolean run(ControlFlowGraph graph) {
+		boolean changed = graph.removeUnreachableBlocks();
+		BitSet live = new BitSet(graph.getInstructionCount());
+		List<Instruction> work = new ArrayList<Instruction>();
+		for (BasicBlock block : graph.getBlocks()) {
+			for (Instruction instruction : block.getInstructions()) {
+				if (!instruction.isPure()) {
+					live.set(instruction.getId());
+					work.add(instruction);
+				}
+			}
+		}
+		while (!work.isEmpty()) {
+			Instruction instruction = work.remove(work.size() - 1);
+			for (int i = 0; i < instruction.getOperandCount(); i++) {
+				Instruction operand = instruction.getOperand(i);
+				if (!live.get(operand.getId())) {
+					live.set(operand.getId());
+					work.add(operand);
+				}
+			}
+		}
+		for (BasicBlock block : graph.getBlocks()) {
+			for (Iterator<Instruction> i = block.getInstructions().iterator(); i.hasNext();) {
+				if (!live.get(i.next().getId())) {
+					i.remove();
+					changed = true;
+				}
+			}
+		}
+		graph.renumber();
+		return changed;
+	}
+}
@@ -0,0 +1,460 @@
+package ir;
+
+import java.util.Arrays;
+
+import ast.BinOp;
+
+/**
+ * Instruction of a {@link BasicBlock} of the intermediate representation. An
+ * instruction which computes a value is the value itself, i.e. the operands
+ * of an instruction are the instructions which compute them. In static single
+ * assignment form every value is computed by exactly one instruction, and a
+ * phi at the start of a block chooses the value which arrives from the
+ * predecessor of the block, its operands are in the order of the
+ * predecessors.
+ * 
+ * The last instruction of a block is a terminator, i.e. a jump to the only
+ * successor, a branch to the first successor if a relation holds and to the
+ * second one otherwise, or the return from main. Copies only occur after the
+ * code generator has left static single assignment form, see
+ * {@link CodeGenerator}.
+ */
+public class Instruction {
+
+	// Kinds of instructions with a value
+	public static final int CONST = 0;
+	public static final int READ = 1;
+	public static final int BIN_OP = 2;
+	public static final int PHI = 3;
+
+	// Kinds of instructions without a value
+	public static final int WRITE = 4;
+	public static final int WRITE_STRING = 5;
+	public static final int COPY = 6;
+
+	// Kinds of terminators
+	public static final int JUMP = 7;
+	public static final int BRANCH = 8;
+	public static final int RETURN = 9;
+
+	// No operands
+	private static final Instruction[] NO_OPERANDS = new Instruction[0];
+
+	// Kind of the instruction
+	private int kind;
+
+	// Value of a constant, operator of a binary operation or relation of a
+	// branch, see BinOp
+	private int value;
+
+	// String literal including the quotes
+	private final String text;
+
+	// Operands, and the phis which are set by a copy
+	private Instruction[] operands;
+	private Instruction[] targets;
+
+	// Block which contains the instruction
+	private BasicBlock block;
+
+	// Number of the instruction for analyses and printing
+	private int id;
+
+	/**
+	 * Constructor, see the factory methods.
+	 */
+	private Instruction(int kind, int value, String text, Instruction[] operands) {
+		this.kind = kind;
+		this.value = value;
+		this.text = text;
+		this.operands = operands;
+	}
+
+	/**
+	 * Create a constant.
+	 * 
+	 * @param value
+	 *            Value.
+	 * @return Instruction.
+	 */
+	public static Instruction constant(int value) {
+		return new Instruction(CONST, value, null, NO_OPERANDS);
+	}
+
+	/**
+	 * Create a read of an int from the console.
+	 * 
+	 * @return Instruction.
+	 */
+	public static Instruction read() {
+		return new Instruction(READ, 0, null, NO_OPERANDS);
+	}
+
+	/**
+	 * Create an arithmetic operation.
+	 * 
+	 * @param operator
+	 *            Operator, see {@link BinOp}.
+	 * @param left
+	 *            Left operand.
+	 * @param right
+	 *            Right operand.
+	 * @return Instruction.
+	 */
+	public static Instruction binOp(int operator, Instruction left, Instruction right) {
+		return new Instruction(BIN_OP, operator, null, new Instruction[] { left, right });
+	}
+
+	/**
+	 * Create a phi without operands, see {@link #addOperand(Instruction)}.
+	 * 
+	 * @return Instruction.
+	 */
+	public static Instruction phi() {
+		return new Instruction(PHI, 0, null, NO_OPERANDS);
+	}
+
+	/**
+	 * Create an output of an int.
+	 * 
+	 * @param operand
+	 *            Value.
+	 * @return Instruction.
+	 */
+	public static Instruction write(Instruction operand) {
+		return new Instruction(WRITE, 0, null, new Instruction[] { operand });
+	}
+
+	/**
+	 * Create an output of a string literal.
+	 * 
+	 * @param text
+	 *            Literal including the quotes.
+	 * @return Instruction.
+	 */
+	public static Instruction writeString(String text) {
+		return new Instruction(WRITE_STRING, 0, text, NO_OPERANDS);
+	}
+
+	/**
+	 * Create a parallel copy into the phis of a successor, i.e. all sources
+	 * are read before any phi is set.
+	 * 
+	 * @param targets
+	 *            Phis.
+	 * @param sources
+	 *            Values of the phis in the same order.
+	 * @return Instruction.
+	 */
+	public static Instruction copy(Instruction[] targets, Instruction[] sources) {
+		Instruction copy = new Instruction(COPY, 0, null, sources);
+		copy.targets = targets;
+		return copy;
+	}
+
+	/**
+	 * Create a jump to the only successor.
+	 * 
+	 * @return Instruction.
+	 */
+	public static Instruction jump() {
+		return new Instruction(JUMP, 0, null, NO_OPERANDS);
+	}
+
+	/**
+	 * Create a branch to the first successor if a relation holds and to the
+	 * second successor otherwise.
+	 * 
+	 * @param relation
+	 *            Relation, see {@link BinOp#isRelation(int)}.
+	 * @param left
+	 *            Left operand.
+	 * @param right
+	 *            Right operand.
+	 * @return Instruction.
+	 */
+	public static Instruction branch(int relation, Instruction left, Instruction right) {
+		return new Instruction(BRANCH, relation, null, new Instruction[] { left, right });
+	}
+
+	/**
+	 * Create the return from main.
+	 * 
+	 * @return Instruction.
+	 */
+	public static Instruction ret() {
+		return new Instruction(RETURN, 0, null, NO_OPERANDS);
+	}
+
+	/**
+	 * Get the kind.
+	 * 
+	 * @return Kind, one of the constants of this class.
+	 */
+	public int getKind() {
+		return kind;
+	}
+
+	/**
+	 * Get the value of a constant, the operator of a binary operation or the
+	 * relation of a branch.
+	 * 
+	 * @return Value or operator, see {@link BinOp}.
+	 */
+	public int getValue() {
+		return value;
+	}
+
+	/**
+	 * Get the literal of an output of a string.
+	 * 
+	 * @return Literal including the quotes.
+	 */
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * Get the number of operands.
+	 * 
+	 * @return Number of operands.
+	 */
+	public int getOperandCount() {
+		return operands.length;
+	}
+
+	/**
+	 * Get an operand.
+	 * 
+	 * @param index
+	 *            Index of the operand.
+	 * @return Instruction which computes the operand.
+	 */
+	public Instruction getOperand(int index) {
+		return operands[index];
+	}
+
+	/**
+	 * Replace an operand.
+	 * 
+	 * @param index
+	 *            Index of the operand.
+	 * @param operand
+	 *            Instruction which computes the new operand.
+	 */
+	public void setOperand(int index, Instruction operand) {
+		operands[index] = operand;
+	}
+
+	/**
+	 * Append an operand to a phi.
+	 * 
+	 * @param operand
+	 *            Value from the next predecessor.
+	 */
+	public void addOperand(Instruction operand) {
+		operands = Arrays.copyOf(operands, operands.length + 1);
+		operands[operands.length - 1] = operand;
+	}
+
+	/**
+	 * Remove an operand of a phi, e.g. after the edge from the corresponding
+	 * predecessor has been removed.
+	 * 
+	 * @param index
+	 *            Index of the operand.
+	 */
+	public void removeOperand(int index) {
+		Instruction[] remaining = new Instruction[operands.length - 1];
+		System.arraycopy(operands, 0, remaining, 0, index);
+		System.arraycopy(operands, index + 1, remaining, index, remaining.length - index);
+		operands = remaining;
+	}
+
+	/**
+	 * Get the phis which are set by a copy.
+	 * 
+	 * @return Phis in the order of the operands.
+	 */
+	public Instruction[] getTargets() {
+		return targets;
+	}
+
+	/**
+	 * Replace an operation or a phi by a constant. The instruction keeps its
+	 * place, so a former phi has to be moved behind the phis of its block.
+	 * 
+	 * @param constant
+	 *            Value of the constant.
+	 */
+	public void replaceByConstant(int constant) {
+		kind = CONST;
+		value = constant;
+		operands = NO_OPERANDS;
+	}
+
+	/**
+	 * Turn a branch into a jump, whose successor is the first one of the
+	 * block.
+	 */
+	public void replaceByJump() {
+		kind = JUMP;
+		value = 0;
+		operands = NO_OPERANDS;
+	}
+
+	/**
+	 * Get the block which contains the instruction.
+	 * 
+	 * @return Block.
+	 */
+	public BasicBlock getBlock() {
+		return block;
+	}
+
+	/**
+	 * Set the block which contains the instruction.
+	 * 
+	 * @param block
+	 *            Block.
+	 */
+	void setBlock(BasicBlock block) {
+		this.block = block;
+	}
+
+	/**
+	 * Get the number of the instruction, see
+	 * {@link ControlFlowGraph#renumber()}.
+	 * 
+	 * @return Number.
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Set the number of the instruction.
+	 * 
+	 * @param id
+	 *            Number.
+	 */
+	void setId(int id) {
+		this.id = id;
+	}
+
+	/**
+	 * Check if the instruction computes a value.
+	 * 
+	 * @return True iff the instruction is a constant, read, operation or phi.
+	 */
+	public boolean hasValue() {
+		return kind <= PHI;
+	}
+
+	/**
+	 * Check if the instruction ends a block.
+	 * 
+	 * @return True iff the instruction is a jump, branch or return.
+	 */
+	public boolean isTerminator() {
+		return kind >= JUMP;
+	}
+
+	/**
+	 * Check if the instruction can be removed without a change of the
+	 * behaviour of the program if its value is not used, i.e. it does not
+	 * read input, write output or divide by a divisor which may be zero.
+	 * 
+	 * @return True iff the instruction is pure.
+	 */
+	public boolean isPure() {
+		switch (kind) {
+		case CONST:
+		case PHI:
+			return true;
+		case BIN_OP:
+			return value != BinOp.DIV || (operands[1].kind == CONST && operands[1].value != 0);
+		default:
+			return false;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		if (hasValue()) {
+			builder.append('v').append(id).append(" = ");
+		}
+		switch (kind) {
+		case CONST:
+			return builder.append(value).toString();
+		case READ:
+			return builder.append("read").toString();
+		case BIN_OP:
+			builder.append(operatorName(value));
+			break;
+		case PHI:
+			builder.append("phi");
+			break;
+		case WRITE:
+			builder.append("write");
+			break;
+		case WRITE_STRING:
+			return builder.append("write ").append(text).toString();
+		case COPY:
+			for (int i = 0; i < targets.length; i++) {
+				builder.append(i > 0 ? ", v" : "v").append(targets[i].id);
+			}
+			builder.append(" = copy");
+			break;
+		case JUMP:
+			builder.append("jump");
+			break;
+		case BRANCH:
+			builder.append("branch ").append(operatorName(value));
+			break;
+		default:
+			builder.append("return");
+		}
+		for (int i = 0; i < operands.length; i++) {
+			builder.append(i > 0 ? ", v" : " v").append(operands[i].id);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Get the name of an operator for printing.
+	 * 
+	 * @param operator
+	 *            Operator, see {@link BinOp}.
+	 * @return Name.
+	 */
+	private static String operatorName(int operator) {
+		switch (operator) {
+		case BinOp.ADD:
+			return "add";
+		case BinOp.SUB:
+			return "sub";
+		case BinOp.MUL:
+			return "mul";
+		case BinOp.DIV:
+			return "div";
+		case BinOp.LT:
+			return "lt";
+		case BinOp.LEQ:
+			return "le";
+		case BinOp.EQ:
+			return "eq";
+		case BinOp.NEQ:
+			return "ne";
+		case BinOp.GEQ:
+			return "ge";
+		default:
+			return "gt";
+		}
+	}
+}
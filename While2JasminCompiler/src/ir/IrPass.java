@@ -0,0 +1,27 @@
+package ir;
+
+/**
+ * Optimization pass of the {@link PassManager} over a control flow graph in
+ * static single assignment form. A pass must leave the graph consistent, i.e.
+ * every block ends with a terminator, the phis have an operand per
+ * predecessor, every operand is computed before its use and the blocks and
+ * instructions are numbered, see {@link ControlFlowGraph#renumber()}.
+ */
+public interface IrPass {
+
+	/**
+	 * Get the name of the pass for the statistics.
+	 * 
+	 * @return Name.
+	 */
+	String getName();
+
+	/**
+	 * Optimize a graph in place.
+	 * 
+	 * @param graph
+	 *            Control flow graph.
+	 * @return True iff the graph has been changed.
+	 */
+	boolean run(ControlFlowGraph graph);
+}
@@ -0,0 +1,92 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a sequence of {@link IrPass}es over a control flow graph until none of
+ * them changes it any more, since a pass often enables another one, e.g. a
+ * branch on a constant becomes a jump, after which the blocks can be merged
+ * and the phis of the join simplified. The manager counts for each pass how
+ * often it has changed the graph.
+ */
+public class PassManager {
+
+	// Passes in the order in which they are run
+	private final List<IrPass> passes;
+
+	// Statistics per pass
+	private int[] changes;
+
+	/**
+	 * Constructor with the default passes, see {@link #defaultPasses()}.
+	 */
+	public PassManager() {
+		this(defaultPasses());
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param passes
+	 *            Passes in the order in which they are run.
+	 */
+	public PassManager(List<IrPass> passes) {
+		this.passes = new ArrayList<IrPass>(passes);
+		changes = new int[passes.size()];
+	}
+
+	/**
+	 * Get the default passes: constant propagation, dead value elimination
+	 * and block merging.
+	 * 
+	 * @return New list of passes.
+	 */
+	public static List<IrPass> defaultPasses() {
+		List<IrPass> passes = new ArrayList<IrPass>();
+		passes.add(new ConstantPropagation());
+		passes.add(new DeadValueElimination());
+		passes.add(new BlockMerging());
+		return passes;
+	}
+
+	/**
+	 * Get the passes.
+	 * 
+	 * @return Passes in the order in which they are run.
+	 */
+	public List<IrPass> getPasses() {
+		return passes;
+	}
+
+	/**
+	 * Get the number of runs of a pass which have changed the last graph.
+	 * 
+	 * @param pass
+	 *            Index of the pass, see {@link #getPasses()}.
+	 * @return Number of changes.
+	 */
+	public int getChangeCount(int pass) {
+		return changes[pass];
+	}
+
+	/**
+	 * Run the passes until the graph does not change any more.
+	 * 
+	 * @param graph
+	 *            Control flow graph.
+	 */
+	public void run(ControlFlowGraph graph) {
+		changes = new int[passes.size()];
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int p = 0; p < passes.size(); p++) {
+				if (passes.get(p).run(graph)) {
+					changes[p]++;
+					changed = true;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,625 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ast.BinOp;
+import ast.Block;
+import ast.FlatTree;
+import ast.FlatTreeVisitor;
+import ast.Node;
+import ast.TreeVisitor;
+import ast.TreeWalker;
+import ast.WriteString;
+import optimizer.FlowAnalysis;
+
+/**
+ * Lowering of a checked abstract syntax tree into a {@link ControlFlowGraph}
+ * in static single assignment form. Guards become branches between blocks,
+ * conjunctions and disjunctions are short-circuit jumps. A variable is
+ * identified by its declaration, which is resolved by a {@link FlowAnalysis},
+ * and a declaration sets the variable to 0.
+ * 
+ * The phis are placed while the blocks are built, as described by Braun et
+ * al., Simple and Efficient Construction of Static Single Assignment Form: a
+ * variable which is read in a block without an assignment is looked up in the
+ * predecessors, and a block is sealed as soon as all its predecessors are
+ * known. Until then, a read creates an incomplete phi, whose operands are
+ * added when the block is sealed. Phis with a single distinct operand are left
+ * for the {@link ConstantPropagation}.
+ * 
+ * The program is lowered while the {@link TreeWalker} enters and exits its
+ * nodes, and the predecessors are searched for a variable with an explicit
+ * stack, such that like the passes over the abstract syntax tree the nesting
+ * depth of a program is only bounded by the heap.
+ */
+public class SsaBuilder {
+
+	// Evaluate both operands of && and ||, see
+	// generator.JasminGenerator#setEagerGuards
+	private boolean eagerGuards = false;
+
+	// Analysis of the program which is lowered, and its flattened tree, null
+	// for the abstract syntax tree
+	private FlowAnalysis analysis;
+	private FlatTree tree;
+
+	// Graph which is built and the block to which instructions are appended
+	private ControlFlowGraph graph;
+	private BasicBlock current;
+
+	// Per block: value of each variable by declaration id at the end of the
+	// block, and the incomplete phis of unsealed blocks
+	private List<Map<Integer, Instruction>> definitions;
+	private List<Map<Integer, Instruction>> incompletePhis;
+	private BitSet sealed;
+
+	// Initial depth of the path
+	private static final int INITIAL_CAPACITY = 64;
+
+	// Ids of the nodes from the root to the node of the walk
+	private int[] path;
+	private int depth;
+
+	// Number of nodes entered by the walk, which is the id of the next node
+	private int entered;
+
+	// Per node: value of an expression, targets of a condition if it holds
+	// and otherwise, and the block after a branch or loop or before the
+	// second operand of && and ||
+	private Instruction[] values;
+	private BasicBlock[] onTrue;
+	private BasicBlock[] onFalse;
+	private BasicBlock[] successors;
+
+	// Per node: true iff the node is a guard or part of a guard, whose
+	// branches are generated instead of its value
+	private BitSet conditions;
+
+	// Per node: true iff the node is part of an arithmetic guard or part of
+	// a guard, which is compared with 0
+	private BitSet leafParts;
+
+	// Events of an eager guard, which are replayed after the operands of all
+	// its relations have been computed: entries (ENTER_CONDITION) and exits
+	// (EXIT_CONDITION) of its conditions and the arithmetic expressions
+	// compared with 0 (LOWER_EXPRESSION), each in an entry id * EVENTS + event
+	private static final int ENTER_CONDITION = 0;
+	private static final int EXIT_CONDITION = 1;
+	private static final int LOWER_EXPRESSION = 2;
+	private static final int EVENTS = 3;
+	private List<Integer> deferred = new ArrayList<Integer>();
+	private boolean deferring = false;
+
+	/**
+	 * Choose the evaluation of conjunctions and disjunctions. By default the
+	 * second operand is only evaluated if the first one does not decide the
+	 * result. Eager evaluation computes all operands of the relations of a
+	 * guard before it jumps, which matters if an operand divides by zero.
+	 * 
+	 * @param eager
+	 *            True iff both operands are always evaluated.
+	 */
+	public void setEagerGuards(boolean eager) {
+		this.eagerGuards = eager;
+	}
+
+	/**
+	 * Lower an abstract syntax tree.
+	 * 
+	 * @param program
+	 *            Outermost block of the program.
+	 * @return Control flow graph.
+	 */
+	public ControlFlowGraph build(Block program) {
+		return build(new FlowAnalysis(program), program, null);
+	}
+
+	/**
+	 * Lower a flattened abstract syntax tree.
+	 * 
+	 * @param flatTree
+	 *            Flattened abstract syntax tree.
+	 * @return Control flow graph.
+	 */
+	public ControlFlowGraph build(FlatTree flatTree) {
+		return build(new FlowAnalysis(flatTree), null, flatTree);
+	}
+
+	/**
+	 * Lower the analysed program.
+	 * 
+	 * @param programAnalysis
+	 *            Analysis of the program.
+	 * @param program
+	 *            Abstract syntax tree, null for the flattened tree.
+	 * @param flatTree
+	 *            Flattened abstract syntax tree, null for the abstract syntax
+	 *            tree.
+	 * @return Control flow graph.
+	 */
+	private ControlFlowGraph build(FlowAnalysis programAnalysis, Block program, FlatTree flatTree) {
+		analysis = programAnalysis;
+		tree = flatTree;
+		graph = new ControlFlowGraph();
+		definitions = new ArrayList<Map<Integer, Instruction>>();
+		incompletePhis = new ArrayList<Map<Integer, Instruction>>();
+		sealed = new BitSet();
+		path = new int[INITIAL_CAPACITY];
+		depth = 0;
+		entered = 0;
+		values = new Instruction[analysis.size()];
+		onTrue = new BasicBlock[analysis.size()];
+		onFalse = new BasicBlock[analysis.size()];
+		successors = new BasicBlock[analysis.size()];
+		conditions = new BitSet();
+		leafParts = new BitSet();
+		current = newBlock();
+		seal(current);
+		// the ids of the analysis number the nodes in the order of the walk
+		if (flatTree != null) {
+			TreeWalker.walk(flatTree, new FlatTreeVisitor<RuntimeException>() {
+				public void enter(int node, int parent, int index) {
+					enterNode(index);
+				}
+
+				public void exit(int node, int parent, int index) {
+					exitNode(index);
+				}
+			});
+		} else {
+			TreeWalker.walk(program, new TreeVisitor<RuntimeException>() {
+				public void enter(Node node, Node parent, int index) {
+					enterNode(index);
+				}
+
+				public void exit(Node node, Node parent, int index) {
+					exitNode(index);
+				}
+			});
+		}
+		current.add(Instruction.ret());
+		graph.renumber();
+		ControlFlowGraph result = graph;
+		analysis = null;
+		tree = null;
+		graph = null;
+		current = null;
+		definitions = incompletePhis = null;
+		path = null;
+		values = null;
+		onTrue = onFalse = successors = null;
+		conditions = leafParts = null;
+		return result;
+	}
+
+	/**
+	 * Lower the part of a node before its children, i.e. open the blocks of
+	 * branches, loops and conditions.
+	 * 
+	 * @param index
+	 *            Index of the node among its siblings.
+	 */
+	private void enterNode(int index) {
+		int id = entered++;
+		int parent = depth > 0 ? path[depth - 1] : FlowAnalysis.NONE;
+		if (depth == path.length) {
+			path = Arrays.copyOf(path, 2 * depth);
+		}
+		path[depth++] = id;
+		if (parent == FlowAnalysis.NONE) {
+			return;
+		}
+		int parentKind = analysis.getKind(parent);
+		if (parentKind == Node.IF || parentKind == Node.WHILE) {
+			if (index == 0) {
+				enterGuard(id);
+			} else {
+				enterBody(parent, index);
+			}
+		} else if (conditions.get(parent) && isJunction(parent, false)) {
+			// operand of a negation, conjunction or disjunction
+			conditions.set(id);
+			enterCondition(id);
+		} else if (leafParts.get(parent) || conditions.get(parent) && !BinOp.isRelation(analysis.getValue(parent))) {
+			// part of an arithmetic guard, which is compared with 0
+			leafParts.set(id);
+		}
+		switch (analysis.getKind(id)) {
+		case Node.IF:
+			int thenBlock = analysis.getNextSibling(analysis.getFirstChild(id));
+			BasicBlock thenStart = newBlock();
+			BasicBlock elseStart = analysis.getNextSibling(thenBlock) != FlowAnalysis.NONE ? newBlock() : null;
+			successors[id] = newBlock();
+			onTrue[analysis.getFirstChild(id)] = thenStart;
+			onFalse[analysis.getFirstChild(id)] = elseStart != null ? elseStart : successors[id];
+			break;
+		case Node.WHILE:
+			// the guard is evaluated in a header block, which is sealed after
+			// the body has jumped back to it
+			BasicBlock header = newBlock();
+			onTrue[analysis.getFirstChild(id)] = newBlock();
+			onFalse[analysis.getFirstChild(id)] = newBlock();
+			successors[id] = header;
+			jump(header);
+			current = header;
+			break;
+		default:
+		}
+	}
+
+	/**
+	 * Lower the part of a node after its children, i.e. the statements,
+	 * expressions and relations and the ends of branches and loops.
+	 * 
+	 * @param index
+	 *            Index of the node among its siblings.
+	 */
+	private void exitNode(int index) {
+		int id = path[--depth];
+		int parent = depth > 0 ? path[depth - 1] : FlowAnalysis.NONE;
+		int parentKind = parent != FlowAnalysis.NONE ? analysis.getKind(parent) : Node.BLOCK;
+		if (conditions.get(id)) {
+			exitCondition(id);
+			if (parentKind == Node.IF || parentKind == Node.WHILE) {
+				exitGuard(id);
+			}
+			return;
+		}
+		int first = analysis.getFirstChild(id);
+		switch (analysis.getKind(id)) {
+		case Node.BLOCK:
+			if (parentKind == Node.IF) {
+				jump(successors[parent]);
+			} else if (parentKind == Node.WHILE) {
+				jump(successors[parent]);
+				seal(successors[parent]);
+				current = onFalse[analysis.getFirstChild(parent)];
+			}
+			break;
+		case Node.IF:
+			seal(successors[id]);
+			current = successors[id];
+			break;
+		case Node.DECLARATION:
+			write(analysis.getDeclaration(id), current.add(Instruction.constant(0)));
+			break;
+		case Node.ASSIGN:
+			write(analysis.getDeclaration(first), values[analysis.getNextSibling(first)]);
+			break;
+		case Node.WRITE:
+			current.add(Instruction.write(values[first]));
+			break;
+		case Node.WRITE_STRING:
+			String text = tree != null ? tree.getName(tree.getPayload(analysis.getFlatNode(id)))
+					: ((WriteString) analysis.getNode(id)).getText();
+			current.add(Instruction.writeString(text));
+			break;
+		case Node.WHILE:
+			break;
+		default:
+			if (parentKind == Node.ASSIGN && index == 0) {
+				// the target of an assignment is written by the assignment
+			} else if (deferring && leafParts.get(id)) {
+				deferred.add(id * EVENTS + LOWER_EXPRESSION);
+			} else {
+				values[id] = lowerExpression(id);
+			}
+		}
+	}
+
+	/**
+	 * Start the guard of a branch or loop, whose targets are set. In eager
+	 * mode the branches of a conjunction or disjunction are generated after
+	 * the operands of all its relations have been computed.
+	 * 
+	 * @param guard
+	 *            Guard.
+	 */
+	private void enterGuard(int guard) {
+		conditions.set(guard);
+		deferring = eagerGuards && isJunction(guard, true);
+		enterCondition(guard);
+	}
+
+	/**
+	 * End the guard of a branch or loop, and generate the deferred branches
+	 * of an eager guard.
+	 * 
+	 * @param guard
+	 *            Guard.
+	 */
+	private void exitGuard(int guard) {
+		if (!deferring) {
+			return;
+		}
+		deferring = false;
+		for (int event : deferred) {
+			int id = event / EVENTS;
+			switch (event % EVENTS) {
+			case ENTER_CONDITION:
+				enterCondition(id);
+				break;
+			case EXIT_CONDITION:
+				exitCondition(id);
+				break;
+			default:
+				values[id] = lowerExpression(id);
+			}
+		}
+		deferred.clear();
+	}
+
+	/**
+	 * Continue with a block of a branch or loop after its guard.
+	 * 
+	 * @param statement
+	 *            Branch or loop.
+	 * @param index
+	 *            Index of the block, 1 for the then block or body and 2 for
+	 *            the else block.
+	 */
+	private void enterBody(int statement, int index) {
+		int guard = analysis.getFirstChild(statement);
+		if (analysis.getKind(statement) == Node.WHILE) {
+			seal(onTrue[guard]);
+			seal(onFalse[guard]);
+		} else {
+			seal(index == 1 ? onTrue[guard] : onFalse[guard]);
+		}
+		current = index == 1 ? onTrue[guard] : onFalse[guard];
+	}
+
+	/**
+	 * Check if a guard is a conjunction or disjunction.
+	 * 
+	 * @param guard
+	 *            Guard or part of a guard.
+	 * @param skipNegations
+	 *            True iff a negated conjunction or disjunction counts, false
+	 *            iff a negation itself counts.
+	 * @return True iff the guard is && or ||, possibly negated.
+	 */
+	private boolean isJunction(int guard, boolean skipNegations) {
+		while (analysis.getKind(guard) == Node.NOT) {
+			if (!skipNegations) {
+				return true;
+			}
+			guard = analysis.getFirstChild(guard);
+		}
+		if (analysis.getKind(guard) != Node.BIN_OP) {
+			return false;
+		}
+		int operator = analysis.getValue(guard);
+		return operator == BinOp.AND || operator == BinOp.OR;
+	}
+
+	/**
+	 * Pass the targets of a negation, conjunction or disjunction to its
+	 * operands. The second operand of && and || is evaluated in a block of
+	 * its own, which is entered before it.
+	 * 
+	 * @param condition
+	 *            Guard or part of a guard, whose targets are set.
+	 */
+	private void enterCondition(int condition) {
+		if (deferring) {
+			deferred.add(condition * EVENTS + ENTER_CONDITION);
+			return;
+		}
+		int parent = analysis.getParent(condition);
+		if (conditions.get(parent) && condition != analysis.getFirstChild(parent)) {
+			// second operand of && or ||
+			seal(successors[parent]);
+			current = successors[parent];
+		}
+		int left = analysis.getFirstChild(condition);
+		int operator = analysis.getKind(condition) == Node.BIN_OP ? analysis.getValue(condition) : -1;
+		if (analysis.getKind(condition) == Node.NOT) {
+			onTrue[left] = onFalse[condition];
+			onFalse[left] = onTrue[condition];
+		} else if (operator == BinOp.AND || operator == BinOp.OR) {
+			int right = analysis.getNextSibling(left);
+			successors[condition] = newBlock();
+			onTrue[left] = operator == BinOp.AND ? successors[condition] : onTrue[condition];
+			onFalse[left] = operator == BinOp.AND ? onFalse[condition] : successors[condition];
+			onTrue[right] = onTrue[condition];
+			onFalse[right] = onFalse[condition];
+		}
+	}
+
+	/**
+	 * Generate the branch of a relation, or of a value other than 0, to the
+	 * targets of the condition.
+	 * 
+	 * @param condition
+	 *            Guard or part of a guard, whose operands have been lowered.
+	 */
+	private void exitCondition(int condition) {
+		int kind = analysis.getKind(condition);
+		int operator = kind == Node.BIN_OP ? analysis.getValue(condition) : -1;
+		if (deferring) {
+			// the operands of relations are computed now, the branches when
+			// the guard is complete
+			deferred.add(condition * EVENTS + EXIT_CONDITION);
+			return;
+		}
+		if (kind == Node.NOT || operator == BinOp.AND || operator == BinOp.OR) {
+			return;
+		}
+		Instruction branch;
+		if (BinOp.isRelation(operator)) {
+			int left = analysis.getFirstChild(condition);
+			branch = Instruction.branch(operator, values[left], values[analysis.getNextSibling(left)]);
+		} else {
+			// a value other than 0 holds
+			if (values[condition] == null) {
+				values[condition] = lowerExpression(condition);
+			}
+			branch = Instruction.branch(BinOp.NEQ, values[condition], current.add(Instruction.constant(0)));
+		}
+		current.add(branch);
+		current.addSuccessor(onTrue[condition]);
+		current.addSuccessor(onFalse[condition]);
+		current = null;
+	}
+
+	/**
+	 * Lower an arithmetic expression whose operands have been lowered.
+	 * 
+	 * @param expression
+	 *            Expression.
+	 * @return Instruction which computes its value.
+	 */
+	private Instruction lowerExpression(int expression) {
+		switch (analysis.getKind(expression)) {
+		case Node.CONST:
+			return current.add(Instruction.constant(analysis.getValue(expression)));
+		case Node.VAR:
+			return read(analysis.getDeclaration(expression), current);
+		case Node.READ:
+			return current.add(Instruction.read());
+		case Node.BIN_OP:
+			int left = analysis.getFirstChild(expression);
+			return current.add(Instruction.binOp(analysis.getValue(expression), values[left],
+					values[analysis.getNextSibling(left)]));
+		default:
+			throw new IllegalStateException("Unexpected expression of kind " + analysis.getKind(expression));
+		}
+	}
+
+	/**
+	 * End the current block with a jump.
+	 * 
+	 * @param target
+	 *            Successor.
+	 */
+	private void jump(BasicBlock target) {
+		current.add(Instruction.jump());
+		current.addSuccessor(target);
+		current = null;
+	}
+
+	/**
+	 * Create a block.
+	 * 
+	 * @return Block.
+	 */
+	private BasicBlock newBlock() {
+		definitions.add(new HashMap<Integer, Instruction>());
+		incompletePhis.add(new HashMap<Integer, Instruction>());
+		return graph.newBlock();
+	}
+
+	/**
+	 * Set a variable in a block.
+	 * 
+	 * @param variable
+	 *            Declaration id.
+	 * @param value
+	 *            New value.
+	 */
+	private void write(int variable, Instruction value) {
+		definitions.get(current.getId()).put(variable, value);
+	}
+
+	/**
+	 * Get the value of a variable at the end of the instructions of a block
+	 * which have been built.
+	 * 
+	 * @param variable
+	 *            Declaration id.
+	 * @param block
+	 *            Block.
+	 * @return Value.
+	 */
+	private Instruction read(int variable, BasicBlock block) {
+		List<Instruction> pending = new ArrayList<Instruction>();
+		Instruction value = lookup(variable, block, pending);
+		completePhis(variable, pending);
+		return value;
+	}
+
+	/**
+	 * Look up the value of a variable at the end of a block. A chain of
+	 * sealed blocks with a single predecessor is followed, otherwise a phi is
+	 * created whose operands are added later.
+	 * 
+	 * @param variable
+	 *            Declaration id.
+	 * @param block
+	 *            Block.
+	 * @param pending
+	 *            Stack of the phis of sealed blocks which still need their
+	 *            operands, the new phi is pushed onto it.
+	 * @return Value.
+	 */
+	private Instruction lookup(int variable, BasicBlock block, List<Instruction> pending) {
+		List<BasicBlock> chain = new ArrayList<BasicBlock>();
+		Instruction value = definitions.get(block.getId()).get(variable);
+		while (value == null && sealed.get(block.getId()) && block.getPredecessors().size() == 1) {
+			chain.add(block);
+			block = block.getPredecessors().get(0);
+			value = definitions.get(block.getId()).get(variable);
+		}
+		if (value == null) {
+			Instruction phi = Instruction.phi();
+			block.insert(block.getPhiCount(), phi);
+			definitions.get(block.getId()).put(variable, phi);
+			if (sealed.get(block.getId())) {
+				pending.add(phi);
+			} else {
+				incompletePhis.get(block.getId()).put(variable, phi);
+			}
+			value = phi;
+		}
+		for (BasicBlock visited : chain) {
+			definitions.get(visited.getId()).put(variable, value);
+		}
+		return value;
+	}
+
+	/**
+	 * Give phis the values of their variable from all predecessors. The
+	 * predecessors are searched depth first with an explicit stack, which
+	 * grows by the phis created on the way.
+	 * 
+	 * @param variable
+	 *            Declaration id.
+	 * @param pending
+	 *            Stack of phis without operands.
+	 */
+	private void completePhis(int variable, List<Instruction> pending) {
+		while (!pending.isEmpty()) {
+			Instruction phi = pending.get(pending.size() - 1);
+			List<BasicBlock> predecessors = phi.getBlock().getPredecessors();
+			if (phi.getOperandCount() < predecessors.size()) {
+				phi.addOperand(lookup(variable, predecessors.get(phi.getOperandCount()), pending));
+			} else {
+				pending.remove(pending.size() - 1);
+			}
+		}
+	}
+
+	/**
+	 * Seal a block after all its predecessors have been added, which
+	 * completes its phis.
+	 * 
+	 * @param block
+	 *            Block.
+	 */
+	private void seal(BasicBlock block) {
+		sealed.set(block.getId());
+		Map<Integer, Instruction> phis = incompletePhis.get(block.getId());
+		List<Instruction> pending = new ArrayList<Instruction>();
+		for (Map.Entry<Integer, Instruction> entry : phis.entrySet()) {
+			pending.add(entry.getValue());
+			completePhis(entry.getKey(), pending);
+		}
+		phis.clear();
+	}
+}
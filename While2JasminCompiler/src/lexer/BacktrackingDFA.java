@@ -18,6 +18,7 @@ public class BacktrackingDFA {
 	private List<AbstractDFA> automata;
 	private HashMap<Pair<String, Character>, int[]> transitions;
 	private Map<String, Token> recognisedToken;
+	private Set<String> productiveStates;
 	private int[] initialState;
 	private int[] backtrackState;
 	private int[] currentState;
@@ -90,6 +91,7 @@ public class BacktrackingDFA {
 	private void generateTransitions() {
 		transitions = new HashMap<Pair<String, Character>, int[]>();
 		recognisedToken = new HashMap<String, Token>();
+		productiveStates = new HashSet<String>();
 
 		// Create array of relevant alphabet
 		char[] relevantAlphabet = new char[LexerGenerator.alpha.length + LexerGenerator.underScoreNumerical.length
@@ -130,6 +132,7 @@ public class BacktrackingDFA {
 			}
 			// Check final states
 			setToken(state);
+			setProductive(state);
 		}
 	}
 
@@ -168,6 +171,22 @@ public class BacktrackingDFA {
 		}
 	}
 
+	/**
+	 * Remember the given state if a final state is reachable from it.
+	 * 
+	 * @param state
+	 *            State of the backtracking DFA.
+	 */
+	private void setProductive(int[] state) {
+		for (int i = 0; i < state.length; i++) {
+			automata.get(i).resetToState(state[i]);
+			if (automata.get(i).isProductive()) {
+				productiveStates.add(hashState(state));
+				break;
+			}
+		}
+	}
+
 	/**
 	 * Do a step in the backtracking DFA.
 	 * 
@@ -178,10 +197,13 @@ public class BacktrackingDFA {
 	 *             Exeception if step could not be performed.
 	 */
 	public Token doStep(char letter) throws LexerException {
-		currentState = transitions.get(new Pair<String, Character>(hashState(currentState), letter));
-		if (currentState == null) {
+		int[] nextState = transitions.get(new Pair<String, Character>(hashState(currentState), letter));
+		if (nextState == null) {
 			throw new LexerException("Symbol: " + letter + " not part of the alphabet.");
 		}
+		// Copy the state, the arrays of the transition table must not be
+		// changed by resetToState()
+		System.arraycopy(nextState, 0, currentState, 0, currentState.length);
 		// for (int i = 0; i < automata.size(); i++) {
 		// automata.get(i).doStep(letter);
 		// currentState[i] = automata.get(i).getCurrentState();
@@ -220,6 +242,7 @@ public class BacktrackingDFA {
 
 		// Run backtracking DFA
 		while (backtrackPointer < wordAsChar.length) {
+			int start = currentPointer;
 			String value = Character.toString(wordAsChar[currentPointer]);
 			while (currentPointer < wordAsChar.length && isProductive()) {
 				currentToken = doStep(wordAsChar[currentPointer]);
@@ -233,7 +256,7 @@ public class BacktrackingDFA {
 				currentPointer++;
 			}
 			if (backtrackToken != null) {
-				result.add(new Symbol(backtrackToken, value));
+				result.add(new Symbol(backtrackToken, value, start));
 				currentPointer = backtrackPointer + 1;
 				resetToState(initialState);
 				backtrackToken = null;
@@ -250,14 +273,10 @@ public class BacktrackingDFA {
 	/**
 	 * Check if the current state is productive.
 	 * 
-	 * @return True iff the current state of every component is productive.
+	 * @return True iff the current state of some component is productive.
 	 */
 	private boolean isProductive() {
-		for (AbstractDFA automaton : automata) {
-			if (automaton.isProductive())
-				return true;
-		}
-		return false;
+		return productiveStates.contains(hashState(currentState));
 	}
 
 	/**
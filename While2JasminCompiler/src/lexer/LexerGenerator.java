@@ -54,7 +54,26 @@ public class LexerGenerator {
 	 *             Exception from the lexer.
 	 */
 	public static List<Symbol> analyse(String input, boolean suppressBlankAndComments) throws LexerException {
-		BacktrackingDFA bdfa = new BacktrackingDFA();
+		return analyse(new BacktrackingDFA(), input, suppressBlankAndComments);
+	}
+
+	/**
+	 * Perform the lexer analysis with an automaton which has already been
+	 * built, such that its transitions are explored only once for many
+	 * inputs.
+	 * 
+	 * @param bdfa
+	 *            The backtracking DFA for the tokens of the while language.
+	 * @param input
+	 *            The input program.
+	 * @param suppressBlankAndComments
+	 *            If true, blanks and comments are ignored.
+	 * @return Recognized symbols.
+	 * @throws LexerException
+	 *             Exception from the lexer.
+	 */
+	public static List<Symbol> analyse(BacktrackingDFA bdfa, String input, boolean suppressBlankAndComments)
+			throws LexerException {
 		List<Symbol> analysis = null;
 		analysis = bdfa.run(input);
 
@@ -7,11 +7,17 @@ import symbols.Tokens.Token;
  */
 public class Symbol {
 
+	// Offset of a symbol which does not stem from an input
+	public static final int NO_OFFSET = -1;
+
 	private final Token token;
 	private final String attribute;
 
+	// Index of the first character in the input
+	private final int offset;
+
 	/**
-	 * Constructor.
+	 * Constructor for a symbol without position.
 	 * 
 	 * @param token
 	 *            The token.
@@ -19,8 +25,23 @@ public class Symbol {
 	 *            The attribute.
 	 */
 	public Symbol(Token token, String attribute) {
+		this(token, attribute, NO_OFFSET);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param token
+	 *            The token.
+	 * @param attribute
+	 *            The attribute.
+	 * @param offset
+	 *            Index of the first character of the symbol in the input.
+	 */
+	public Symbol(Token token, String attribute, int offset) {
 		this.token = token;
 		this.attribute = attribute;
+		this.offset = offset;
 	}
 
 	/**
@@ -41,6 +62,15 @@ public class Symbol {
 		return attribute;
 	}
 
+	/**
+	 * Get the position in the input.
+	 * 
+	 * @return Index of the first character, NO_OFFSET if unknown.
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -0,0 +1,381 @@
+package optimizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ast.Assign;
+import ast.BinOp;
+import ast.Block;
+import ast.Const;
+import ast.Expression;
+import ast.FlatTree;
+import ast.FlatTreeVisitor;
+import ast.If;
+import ast.Node;
+import ast.Not;
+import ast.Statement;
+import ast.TreeVisitor;
+import ast.TreeWalker;
+import ast.Var;
+import ast.While;
+import ast.Write;
+
+/**
+ * Optimization pass between the semantic analysis and the code generation,
+ * which folds arithmetic operations on constants and applies the identities
+ * x + 0 = 0 + x = x, x - 0 = x, x * 1 = 1 * x = x, x / 1 = x, x * 0 = 0 * x =
+ * 0 and x - x = 0 for a variable x.
+ * 
+ * Constants are folded with the overflow semantics of Java ints. Divisions by
+ * zero are never folded, such that they still throw at runtime, and an
+ * operand is only dropped by x * 0 if it can neither read input nor divide by
+ * zero.
+ */
+public class ConstantFolder {
+
+	// Initial size of the stacks of the walk
+	private static final int INITIAL_CAPACITY = 64;
+
+	// Results of the simplification of a binary operation
+	private static final int KEEP = 0;
+	private static final int CONSTANT = 1;
+	private static final int LEFT = 2;
+	private static final int RIGHT = 3;
+
+	// Value of the last simplification with the result CONSTANT
+	private int constant;
+
+	// Number of simplified operations of the last run
+	private int simplified;
+
+	// Transformed nodes of the abstract syntax tree whose parents have not
+	// been exited yet
+	private Node[] nodes;
+
+	// Per node on the stack: true iff the node can be removed without a
+	// change of the behaviour of the program
+	private boolean[] pure;
+	private int top;
+
+	/**
+	 * Get the number of operations which have been folded or simplified by
+	 * the last run.
+	 * 
+	 * @return Number of operations.
+	 */
+	public int getSimplifiedCount() {
+		return simplified;
+	}
+
+	/**
+	 * Fold the constants of an abstract syntax tree. The tree is not
+	 * changed, nodes with changed descendants are copied.
+	 * 
+	 * @param program
+	 *            Outermost block of the program.
+	 * @return Outermost block of the optimized program, the given block if
+	 *         nothing could be simplified.
+	 */
+	public Block fold(Block program) {
+		simplified = 0;
+		nodes = new Node[INITIAL_CAPACITY];
+		pure = new boolean[INITIAL_CAPACITY];
+		top = 0;
+		TreeWalker.walk(program, new TreeVisitor<RuntimeException>() {
+			public void enter(Node node, Node parent, int index) {
+			}
+
+			public void exit(Node node, Node parent, int index) {
+				int base = top - node.getChildCount();
+				if (node.getKind() == Node.BIN_OP) {
+					foldOperation((BinOp) node, base);
+				} else {
+					boolean isPure = node.getKind() != Node.READ;
+					Node result = copy(node, base);
+					top = base;
+					push(result, isPure);
+				}
+			}
+		});
+		Block result = (Block) nodes[0];
+		nodes = null;
+		pure = null;
+		return result;
+	}
+
+	/**
+	 * Fold the constants of a flattened abstract syntax tree in place.
+	 * 
+	 * @param tree
+	 *            Flattened abstract syntax tree.
+	 */
+	public void fold(final FlatTree tree) {
+		simplified = 0;
+		nodes = null;
+		pure = new boolean[INITIAL_CAPACITY];
+		top = 0;
+		TreeWalker.walk(tree, new FlatTreeVisitor<RuntimeException>() {
+			public void enter(int node, int parent, int index) {
+			}
+
+			public void exit(int node, int parent, int index) {
+				int kind = tree.getKind(node);
+				if (kind == Node.BIN_OP) {
+					int left = tree.getFirstChild(node);
+					int right = tree.getNextSibling(left);
+					boolean leftPure = pure[top - 2];
+					boolean rightPure = pure[top - 1];
+					top -= 2;
+					boolean leftConst = tree.getKind(left) == Node.CONST;
+					boolean rightConst = tree.getKind(right) == Node.CONST;
+					boolean sameVariable = tree.getKind(left) == Node.VAR && tree.getKind(right) == Node.VAR
+							&& tree.getPayload(left) == tree.getPayload(right);
+					int operator = tree.getPayload(node);
+					int leftValue = tree.getPayload(left);
+					int rightValue = tree.getPayload(right);
+					switch (simplify(operator, leftConst, leftValue, rightConst, rightValue, sameVariable, leftPure,
+							rightPure)) {
+					case CONSTANT:
+						tree.replaceByConstant(node, constant);
+						push(null, true);
+						break;
+					case LEFT:
+						tree.replaceByChild(node, left);
+						push(null, leftPure);
+						break;
+					case RIGHT:
+						tree.replaceByChild(node, right);
+						push(null, rightPure);
+						break;
+					default:
+						push(null, leftPure && rightPure && isSafe(operator, rightConst, rightValue));
+					}
+				} else {
+					for (int child = tree.getFirstChild(node); child != FlatTree.NONE; child = tree
+							.getNextSibling(child)) {
+						top--;
+					}
+					push(null, kind != Node.READ);
+				}
+			}
+		});
+		pure = null;
+	}
+
+	/**
+	 * Fold a binary operation of the abstract syntax tree whose operands are
+	 * the two topmost nodes on the stack.
+	 * 
+	 * @param node
+	 *            Operation.
+	 * @param base
+	 *            Index of the left operand on the stack.
+	 */
+	private void foldOperation(BinOp node, int base) {
+		Expression left = (Expression) nodes[base];
+		Expression right = (Expression) nodes[base + 1];
+		boolean leftPure = pure[base];
+		boolean rightPure = pure[base + 1];
+		top = base;
+		boolean leftConst = left.getKind() == Node.CONST;
+		boolean rightConst = right.getKind() == Node.CONST;
+		int leftValue = leftConst ? ((Const) left).getValue() : 0;
+		int rightValue = rightConst ? ((Const) right).getValue() : 0;
+		boolean sameVariable = left.getKind() == Node.VAR && right.getKind() == Node.VAR
+				&& ((Var) left).getName().equals(((Var) right).getName());
+		int operator = node.getOperator();
+		switch (simplify(operator, leftConst, leftValue, rightConst, rightValue, sameVariable, leftPure, rightPure)) {
+		case CONSTANT:
+			push(new Const(constant), true);
+			break;
+		case LEFT:
+			push(left, leftPure);
+			break;
+		case RIGHT:
+			push(right, rightPure);
+			break;
+		default:
+			boolean isPure = leftPure && rightPure && isSafe(operator, rightConst, rightValue);
+			if (left == node.getLeft() && right == node.getRight()) {
+				push(node, isPure);
+			} else {
+				push(new BinOp(operator, left, right), isPure);
+			}
+		}
+	}
+
+	/**
+	 * Copy a node of the abstract syntax tree if one of its children has
+	 * been transformed.
+	 * 
+	 * @param node
+	 *            Node which is no binary operation.
+	 * @param base
+	 *            Index of its first child on the stack.
+	 * @return The node or its copy.
+	 */
+	private Node copy(Node node, int base) {
+		int count = node.getChildCount();
+		boolean changed = false;
+		for (int i = 0; i < count; i++) {
+			changed |= nodes[base + i] != node.getChild(i);
+		}
+		if (!changed) {
+			return node;
+		}
+		switch (node.getKind()) {
+		case Node.BLOCK:
+			List<Statement> statements = new ArrayList<Statement>(count);
+			for (int i = 0; i < count; i++) {
+				statements.add((Statement) nodes[base + i]);
+			}
+			return new Block(statements);
+		case Node.ASSIGN:
+			return new Assign((Var) nodes[base], (Expression) nodes[base + 1]);
+		case Node.IF:
+			return new If((Expression) nodes[base], (Block) nodes[base + 1],
+					count == 3 ? (Block) nodes[base + 2] : null);
+		case Node.WHILE:
+			return new While((Expression) nodes[base], (Block) nodes[base + 1]);
+		case Node.WRITE:
+			return new Write((Expression) nodes[base]);
+		case Node.NOT:
+			return new Not((Expression) nodes[base]);
+		default:
+			throw new IllegalStateException("Unexpected node of kind " + node.getKind() + " with children");
+		}
+	}
+
+	/**
+	 * Simplify a binary operation.
+	 * 
+	 * @param operator
+	 *            Operator, see {@link BinOp}.
+	 * @param leftConst
+	 *            True iff the left operand is a constant.
+	 * @param leftValue
+	 *            Value of a constant left operand.
+	 * @param rightConst
+	 *            True iff the right operand is a constant.
+	 * @param rightValue
+	 *            Value of a constant right operand.
+	 * @param sameVariable
+	 *            True iff both operands are the same variable.
+	 * @param leftPure
+	 *            True iff the left operand can be removed.
+	 * @param rightPure
+	 *            True iff the right operand can be removed.
+	 * @return KEEP, CONSTANT with the value in {@link #constant}, or LEFT or
+	 *         RIGHT if the operation equals one of its operands.
+	 */
+	private int simplify(int operator, boolean leftConst, int leftValue, boolean rightConst, int rightValue,
+			boolean sameVariable, boolean leftPure, boolean rightPure) {
+		int result = KEEP;
+		if (leftConst && rightConst && isSafe(operator, true, rightValue) && !BinOp.isRelation(operator)
+				&& operator != BinOp.AND && operator != BinOp.OR) {
+			constant = evaluate(operator, leftValue, rightValue);
+			result = CONSTANT;
+		} else {
+			switch (operator) {
+			case BinOp.ADD:
+				if (rightConst && rightValue == 0) {
+					result = LEFT;
+				} else if (leftConst && leftValue == 0) {
+					result = RIGHT;
+				}
+				break;
+			case BinOp.SUB:
+				if (rightConst && rightValue == 0) {
+					result = LEFT;
+				} else if (sameVariable) {
+					constant = 0;
+					result = CONSTANT;
+				}
+				break;
+			case BinOp.MUL:
+				if (rightConst && rightValue == 1) {
+					result = LEFT;
+				} else if (leftConst && leftValue == 1) {
+					result = RIGHT;
+				} else if ((rightConst && rightValue == 0 && leftPure) || (leftConst && leftValue == 0 && rightPure)) {
+					constant = 0;
+					result = CONSTANT;
+				}
+				break;
+			case BinOp.DIV:
+				if (rightConst && rightValue == 1) {
+					result = LEFT;
+				}
+				break;
+			default:
+			}
+		}
+		if (result != KEEP) {
+			simplified++;
+		}
+		return result;
+	}
+
+	/**
+	 * Check if an operation cannot throw, i.e. it is no division by a
+	 * divisor which is zero or not known.
+	 * 
+	 * @param operator
+	 *            Operator.
+	 * @param rightConst
+	 *            True iff the right operand is a constant.
+	 * @param rightValue
+	 *            Value of a constant right operand.
+	 * @return True iff the operation cannot throw.
+	 */
+	private static boolean isSafe(int operator, boolean rightConst, int rightValue) {
+		return operator != BinOp.DIV || (rightConst && rightValue != 0);
+	}
+
+	/**
+	 * Evaluate an arithmetic operation like the JVM, i.e. with overflows
+	 * modulo 2^32.
+	 * 
+	 * @param operator
+	 *            ADD, SUB, MUL or DIV.
+	 * @param left
+	 *            Left operand.
+	 * @param right
+	 *            Right operand, not zero for a division.
+	 * @return Result.
+	 */
+	private static int evaluate(int operator, int left, int right) {
+		switch (operator) {
+		case BinOp.ADD:
+			return left + right;
+		case BinOp.SUB:
+			return left - right;
+		case BinOp.MUL:
+			return left * right;
+		default:
+			return left / right;
+		}
+	}
+
+	/**
+	 * Push a transformed node on the stack.
+	 * 
+	 * @param node
+	 *            Node, null for the flattened tree.
+	 * @param isPure
+	 *            True iff the node can be removed.
+	 */
+	private void push(Node node, boolean isPure) {
+		if (top == pure.length) {
+			pure = Arrays.copyOf(pure, 2 * top);
+			if (nodes != null) {
+				nodes = Arrays.copyOf(nodes, 2 * top);
+			}
+		}
+		if (nodes != null) {
+			nodes[top] = node;
+		}
+		pure[top++] = isPure;
+	}
+}
@@ -0,0 +1,359 @@
+package optimizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ast.Block;
+import ast.Declaration;
+import ast.Expression;
+import ast.FlatTree;
+import ast.If;
+import ast.Node;
+import ast.Statement;
+import ast.While;
+
+/**
+ * Optimization pass after the {@link ConstantFolder}, which removes code
+ * without an effect on the behaviour of the program:
+ * <ul>
+ * <li>branches and loops whose guard is known, e.g. if (1 &lt; 0) or while
+ * (0 == 1), are replaced by the block which is executed or removed,</li>
+ * <li>assignments of values which are never read are removed, unless the
+ * value reads input or may divide by zero,</li>
+ * <li>declarations whose initial value 0 is never read do not set their
+ * variable, and declarations of variables which are never used are removed,
+ * </li>
+ * <li>branches with empty blocks and empty nested blocks are removed.</li>
+ * </ul>
+ * 
+ * The values which are read are found by a {@link FlowAnalysis}. Removing
+ * code may make more code dead, so the pass is repeated until nothing
+ * changes. As by the {@link ConstantFolder}, the abstract syntax tree is not
+ * changed, the nodes with changed descendants are copied.
+ */
+public class DeadCodeEliminator {
+
+	// Initial number of statements of a block
+	private static final int INITIAL_CAPACITY = 64;
+
+	// Transformations of statements
+	private static final int KEEP = 0;
+	private static final int REMOVE = 1;
+	private static final int UNINITIALIZED = 2;
+	private static final int THEN = 3;
+	private static final int ELSE = 4;
+
+	// Number of statements removed by the last run, including the guards of
+	// replaced branches
+	private int removed;
+
+	// Number of declarations which no longer set their variable in the last
+	// run
+	private int uninitialized;
+
+	// Copies of the nodes of the abstract syntax tree with changed
+	// descendants by id of the analysis, null for unchanged nodes
+	private Node[] copies;
+
+	/**
+	 * Get the number of statements which have been removed by the last run.
+	 * A branch which is replaced by one of its blocks counts as removed.
+	 * 
+	 * @return Number of statements.
+	 */
+	public int getRemovedCount() {
+		return removed;
+	}
+
+	/**
+	 * Get the number of declarations which no longer set their variable to 0
+	 * after the last run.
+	 * 
+	 * @return Number of declarations.
+	 */
+	public int getUninitializedCount() {
+		return uninitialized;
+	}
+
+	/**
+	 * Remove the dead code of an abstract syntax tree. The tree is not
+	 * changed, nodes with changed descendants are copied.
+	 * 
+	 * @param program
+	 *            Outermost block of the program.
+	 * @return Outermost block of the optimized program, the given block if
+	 *         nothing could be removed.
+	 */
+	public Block eliminate(Block program) {
+		removed = 0;
+		uninitialized = 0;
+		Block result = program;
+		while (transform(new FlowAnalysis(result), null)) {
+			// repeat with the changed program
+			result = (Block) copies[0];
+		}
+		copies = null;
+		return result;
+	}
+
+	/**
+	 * Remove the dead code of a flattened abstract syntax tree in place.
+	 * 
+	 * @param tree
+	 *            Flattened abstract syntax tree.
+	 */
+	public void eliminate(FlatTree tree) {
+		removed = 0;
+		uninitialized = 0;
+		while (transform(new FlowAnalysis(tree), tree)) {
+			// repeat with the changed program
+		}
+	}
+
+	/**
+	 * Choose the transformation of each statement.
+	 * 
+	 * @param analysis
+	 *            Analysis of the program.
+	 * @return Transformation per node.
+	 */
+	private int[] decide(FlowAnalysis analysis) {
+		analysis.computeLiveness(true);
+		int[] action = new int[analysis.size()];
+		for (int id = 0; id < analysis.size(); id++) {
+			int condition = analysis.getFirstChild(id);
+			switch (analysis.getKind(id)) {
+			case Node.DECLARATION:
+				int declaration = analysis.getDeclaration(id);
+				if (analysis.getReferenceCount(declaration) == 0) {
+					action[id] = REMOVE;
+				} else if (analysis.isInitialized(id) && !analysis.getLiveOut(id).get(declaration)) {
+					action[id] = UNINITIALIZED;
+				}
+				break;
+			case Node.ASSIGN:
+				if (!analysis.getLiveOut(id).get(analysis.getDeclaration(condition))
+						&& analysis.isPure(analysis.getNextSibling(condition))) {
+					action[id] = REMOVE;
+				}
+				break;
+			case Node.IF:
+				int thenBlock = analysis.getNextSibling(condition);
+				int elseBlock = analysis.getNextSibling(thenBlock);
+				int truth = analysis.getTruth(condition);
+				if (truth == FlowAnalysis.TRUE) {
+					action[id] = isEmpty(analysis, thenBlock) ? REMOVE : THEN;
+				} else if (truth == FlowAnalysis.FALSE) {
+					action[id] = isEmpty(analysis, elseBlock) ? REMOVE : ELSE;
+				} else if (analysis.isPure(condition) && isEmpty(analysis, thenBlock)
+						&& isEmpty(analysis, elseBlock)) {
+					action[id] = REMOVE;
+				}
+				break;
+			case Node.WHILE:
+				if (analysis.getTruth(condition) == FlowAnalysis.FALSE) {
+					action[id] = REMOVE;
+				}
+				break;
+			case Node.BLOCK:
+				for (int child = condition; child != FlowAnalysis.NONE; child = analysis.getNextSibling(child)) {
+					if (analysis.getKind(child) == Node.BLOCK && isEmpty(analysis, child)) {
+						// an empty block which has replaced a branch
+						action[child] = REMOVE;
+					}
+				}
+				break;
+			default:
+			}
+		}
+		return action;
+	}
+
+	/**
+	 * Check if a block has no statements.
+	 * 
+	 * @param analysis
+	 *            Analysis of the program.
+	 * @param block
+	 *            Block, NONE for a missing else block.
+	 * @return True iff the block is missing or empty.
+	 */
+	private static boolean isEmpty(FlowAnalysis analysis, int block) {
+		return block == FlowAnalysis.NONE || analysis.getFirstChild(block) == FlowAnalysis.NONE;
+	}
+
+	/**
+	 * Transform the statements of every block.
+	 * 
+	 * @param analysis
+	 *            Analysis of the program.
+	 * @param tree
+	 *            Flattened abstract syntax tree, null for the abstract syntax
+	 *            tree.
+	 * @return True iff a statement has been changed.
+	 */
+	private boolean transform(FlowAnalysis analysis, FlatTree tree) {
+		int[] action = decide(analysis);
+		boolean changed = false;
+		int[] children = new int[INITIAL_CAPACITY];
+		copies = tree == null ? new Node[analysis.size()] : null;
+		// the ids of children are larger than the one of their parent, so
+		// they are copied first
+		for (int block = analysis.size() - 1; block >= 0; block--) {
+			if (analysis.getKind(block) != Node.BLOCK) {
+				if (tree == null) {
+					copyStatement(analysis, block);
+				}
+				continue;
+			}
+			int size = 0;
+			boolean blockChanged = false;
+			for (int child = analysis.getFirstChild(block); child != FlowAnalysis.NONE; child = analysis
+					.getNextSibling(child)) {
+				int kept = child;
+				switch (action[child]) {
+				case REMOVE:
+					removed++;
+					kept = FlowAnalysis.NONE;
+					break;
+				case UNINITIALIZED:
+					uninitialized++;
+					break;
+				case THEN:
+					removed++;
+					kept = analysis.getNextSibling(analysis.getFirstChild(child));
+					break;
+				case ELSE:
+					removed++;
+					kept = analysis.getNextSibling(analysis.getNextSibling(analysis.getFirstChild(child)));
+					break;
+				default:
+				}
+				blockChanged |= action[child] != KEEP;
+				if (kept != FlowAnalysis.NONE) {
+					if (size == children.length) {
+						children = Arrays.copyOf(children, 2 * size);
+					}
+					children[size++] = kept;
+				}
+			}
+			changed |= blockChanged;
+			if (tree == null) {
+				copyBlock(analysis, block, children, size, action, blockChanged);
+			} else if (blockChanged) {
+				replaceStatements(analysis, tree, block, children, size, action);
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Replace the statements of a block of the flattened tree in place.
+	 * 
+	 * @param analysis
+	 *            Analysis of the program.
+	 * @param tree
+	 *            Flattened abstract syntax tree.
+	 * @param block
+	 *            Block.
+	 * @param children
+	 *            Kept statements.
+	 * @param size
+	 *            Number of kept statements.
+	 * @param action
+	 *            Transformation per node.
+	 */
+	private static void replaceStatements(FlowAnalysis analysis, FlatTree tree, int block, int[] children, int size,
+			int[] action) {
+		int[] flatChildren = new int[size];
+		for (int i = 0; i < size; i++) {
+			flatChildren[i] = analysis.getFlatNode(children[i]);
+			if (action[children[i]] == UNINITIALIZED) {
+				tree.setUninitialized(flatChildren[i]);
+			}
+		}
+		tree.setChildren(analysis.getFlatNode(block), flatChildren, size);
+	}
+
+	/**
+	 * Copy a block of the abstract syntax tree if its statements or one of
+	 * their descendants have been changed.
+	 * 
+	 * @param analysis
+	 *            Analysis of the program.
+	 * @param block
+	 *            Block.
+	 * @param children
+	 *            Kept statements.
+	 * @param size
+	 *            Number of kept statements.
+	 * @param action
+	 *            Transformation per node.
+	 * @param blockChanged
+	 *            True iff a statement of the block has been transformed.
+	 */
+	private void copyBlock(FlowAnalysis analysis, int block, int[] children, int size, int[] action,
+			boolean blockChanged) {
+		boolean changed = blockChanged;
+		for (int i = 0; i < size && !changed; i++) {
+			changed = copies[children[i]] != null;
+		}
+		if (!changed) {
+			return;
+		}
+		List<Statement> statements = new ArrayList<Statement>(size);
+		for (int i = 0; i < size; i++) {
+			Statement statement = (Statement) getCopy(analysis, children[i]);
+			if (action[children[i]] == UNINITIALIZED) {
+				Declaration declaration = (Declaration) statement;
+				statement = new Declaration(declaration.getName(), declaration.getOffset(), false);
+			}
+			statements.add(statement);
+		}
+		copies[block] = new Block(statements);
+	}
+
+	/**
+	 * Copy a branch or loop of the abstract syntax tree if one of its blocks
+	 * has been copied. The guards are never changed.
+	 * 
+	 * @param analysis
+	 *            Analysis of the program.
+	 * @param id
+	 *            Node other than a block.
+	 */
+	private void copyStatement(FlowAnalysis analysis, int id) {
+		int kind = analysis.getKind(id);
+		if (kind != Node.IF && kind != Node.WHILE) {
+			return;
+		}
+		int condition = analysis.getFirstChild(id);
+		int body = analysis.getNextSibling(condition);
+		int elseBlock = analysis.getNextSibling(body);
+		if (copies[body] == null && (elseBlock == FlowAnalysis.NONE || copies[elseBlock] == null)) {
+			return;
+		}
+		Expression guard = (Expression) analysis.getNode(condition);
+		if (kind == Node.WHILE) {
+			copies[id] = new While(guard, (Block) getCopy(analysis, body));
+		} else {
+			copies[id] = new If(guard, (Block) getCopy(analysis, body),
+					elseBlock == FlowAnalysis.NONE ? null : (Block) getCopy(analysis, elseBlock));
+		}
+	}
+
+	/**
+	 * Get the current node of the abstract syntax tree.
+	 * 
+	 * @param analysis
+	 *            Analysis of the program.
+	 * @param id
+	 *            Node.
+	 * @return Copy of the node, the analysed node if it has not been
+	 *         copied.
+	 */
+	private Node getCopy(FlowAnalysis analysis, int id) {
+		return copies[id] != null ? copies[id] : analysis.getNode(id);
+	}
+}
@@ -0,0 +1,798 @@
+package optimizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import ast.BinOp;
+import ast.Block;
+import ast.Const;
+import ast.Declaration;
+import ast.FlatTree;
+import ast.FlatTreeVisitor;
+import ast.Node;
+import ast.TreeVisitor;
+import ast.TreeWalker;
+import ast.Var;
+import util.ScopedSymbolTable;
+
+/**
+ * Control flow and liveness of a program for the optimizations after the
+ * {@link ConstantFolder}. The nodes of the abstract syntax tree or of the
+ * flattened tree are numbered in pre-order, such that the nodes of a subtree
+ * have the ids from the root of the subtree to {@link #getEnd(int)}.
+ * 
+ * Variables are identified by their declarations instead of their names,
+ * such that shadowing and redeclarations need no further attention. The
+ * control flow graph has the statements other than blocks as nodes, the
+ * outermost block is its entry. Branches and loops whose guard is known skip
+ * the block which is never executed, but the exit of a loop whose guard is
+ * always true is kept, since the generated code still contains it and the
+ * verifier of the JVM checks every register on that path.
+ */
+public class FlowAnalysis {
+
+	// Initial number of nodes and edges
+	private static final int INITIAL_CAPACITY = 256;
+
+	// No node or declaration
+	public static final int NONE = -1;
+
+	// Values of guards
+	public static final int UNKNOWN = 0;
+	public static final int FALSE = 1;
+	public static final int TRUE = 2;
+
+	// Nodes by their id, either of the abstract syntax tree or of the
+	// flattened one
+	private Node[] nodes;
+	private int[] flatNodes;
+	private int count = 0;
+
+	// Per node: kind, parent, children and end of its subtree
+	private int[] kind = new int[INITIAL_CAPACITY];
+	private int[] parent = new int[INITIAL_CAPACITY];
+	private int[] firstChild = new int[INITIAL_CAPACITY];
+	private int[] nextSibling = new int[INITIAL_CAPACITY];
+	private int[] lastChild = new int[INITIAL_CAPACITY];
+	private int[] end = new int[INITIAL_CAPACITY];
+
+	// Per node: declaration of a variable or id of a declaration, value of a
+	// constant or operator of a binary operation, number of enclosing loops
+	private int[] declaration = new int[INITIAL_CAPACITY];
+	private int[] value = new int[INITIAL_CAPACITY];
+	private int[] loopDepth = new int[INITIAL_CAPACITY];
+
+	// Per expression: true iff it can be removed without a change of the
+	// behaviour, and the value of a guard if it is known
+	private boolean[] pure = new boolean[INITIAL_CAPACITY];
+	private int[] truth = new int[INITIAL_CAPACITY];
+
+	// Per declaration: true iff it sets its variable to 0
+	private boolean[] initialized = new boolean[INITIAL_CAPACITY];
+
+	// Number of uses and assignments per declaration id
+	private int[] references = new int[INITIAL_CAPACITY];
+	private int declarationCount = 0;
+
+	// Declaration ids of the visible variables by name, during the walk
+	private ScopedSymbolTable<Integer> symbols = new ScopedSymbolTable<Integer>();
+
+	// Nodes from the root to the current node of the walk
+	private int[] path = new int[INITIAL_CAPACITY];
+	private int depth = 0;
+	private int loops = 0;
+
+	// Statements after which the walk continues, and the frontiers after
+	// the then blocks of the enclosing branches with an else block
+	private int[] frontier = new int[INITIAL_CAPACITY];
+	private int frontierSize = 0;
+	private List<int[]> thenFrontiers = new ArrayList<int[]>();
+
+	// Edges of the control flow graph
+	private int[] edgeFrom = new int[INITIAL_CAPACITY];
+	private int[] edgeTo = new int[INITIAL_CAPACITY];
+	private int edgeCount = 0;
+
+	// Live declaration ids at the start and the end of each statement
+	private BitSet[] liveIn;
+	private BitSet[] liveOut;
+
+	/**
+	 * Analyse an abstract syntax tree.
+	 * 
+	 * @param program
+	 *            Outermost block of the program.
+	 */
+	public FlowAnalysis(Block program) {
+		nodes = new Node[INITIAL_CAPACITY];
+		TreeWalker.walk(program, new TreeVisitor<RuntimeException>() {
+			public void enter(Node node, Node parent, int index) {
+				int id = count;
+				String name = null;
+				int nodeValue = 0;
+				switch (node.getKind()) {
+				case Node.DECLARATION:
+					name = ((Declaration) node).getName();
+					nodeValue = ((Declaration) node).isInitialized() ? 1 : 0;
+					break;
+				case Node.VAR:
+					name = ((Var) node).getName();
+					break;
+				case Node.CONST:
+					nodeValue = ((Const) node).getValue();
+					break;
+				case Node.BIN_OP:
+					nodeValue = ((BinOp) node).getOperator();
+					break;
+				default:
+				}
+				enterNode(node.getKind(), name, nodeValue);
+				nodes[id] = node;
+			}
+
+			public void exit(Node node, Node parent, int index) {
+				exitNode();
+			}
+		});
+		complete();
+	}
+
+	/**
+	 * Analyse a flattened abstract syntax tree.
+	 * 
+	 * @param tree
+	 *            Flattened abstract syntax tree.
+	 */
+	public FlowAnalysis(final FlatTree tree) {
+		flatNodes = new int[INITIAL_CAPACITY];
+		TreeWalker.walk(tree, new FlatTreeVisitor<RuntimeException>() {
+			public void enter(int node, int parent, int index) {
+				int id = count;
+				int nodeKind = tree.getKind(node);
+				String name = null;
+				int nodeValue = tree.getPayload(node);
+				if (nodeKind == Node.DECLARATION) {
+					name = tree.getName(nodeValue);
+					nodeValue = tree.isInitialized(node) ? 1 : 0;
+				} else if (nodeKind == Node.VAR) {
+					name = tree.getName(nodeValue);
+				}
+				enterNode(nodeKind, name, nodeValue);
+				flatNodes[id] = node;
+			}
+
+			public void exit(int node, int parent, int index) {
+				exitNode();
+			}
+		});
+		complete();
+	}
+
+	/**
+	 * Get the number of nodes.
+	 * 
+	 * @return Number of nodes, their ids are 0 to this number - 1.
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Get a node of the abstract syntax tree.
+	 * 
+	 * @param id
+	 *            Node.
+	 * @return Node of the analysed tree.
+	 */
+	public Node getNode(int id) {
+		return nodes[id];
+	}
+
+	/**
+	 * Get a node of the flattened tree.
+	 * 
+	 * @param id
+	 *            Node.
+	 * @return Index of the node in the analysed tree.
+	 */
+	public int getFlatNode(int id) {
+		return flatNodes[id];
+	}
+
+	/**
+	 * Get the kind of a node.
+	 * 
+	 * @param id
+	 *            Node.
+	 * @return Kind, see {@link Node}.
+	 */
+	public int getKind(int id) {
+		return kind[id];
+	}
+
+	/**
+	 * Get the parent of a node.
+	 * 
+	 * @param id
+	 *            Node.
+	 * @return Parent, NONE for the outermost block.
+	 */
+	public int getParent(int id) {
+		return parent[id];
+	}
+
+	/**
+	 * Get the first child of a node.
+	 * 
+	 * @param id
+	 *            Node.
+	 * @return First child, NONE for a leaf or an empty block.
+	 */
+	public int getFirstChild(int id) {
+		return firstChild[id];
+	}
+
+	/**
+	 * Get the next sibling of a node.
+	 * 
+	 * @param id
+	 *            Node.
+	 * @return Next sibling, NONE for the last child.
+	 */
+	public int getNextSibling(int id) {
+		return nextSibling[id];
+	}
+
+	/**
+	 * Get the end of the subtree of a node.
+	 * 
+	 * @param id
+	 *            Node.
+	 * @return Id after the last node of the subtree.
+	 */
+	public int getEnd(int id) {
+		return end[id];
+	}
+
+	/**
+	 * Get the declaration of a variable or the id of a declaration.
+	 * 
+	 * @param id
+	 *            Variable or declaration.
+	 * @return Declaration id, NONE for other nodes.
+	 */
+	public int getDeclaration(int id) {
+		return declaration[id];
+	}
+
+	/**
+	 * Get the value of a constant or the operator of a binary operation.
+	 * 
+	 * @param id
+	 *            Constant or binary operation.
+	 * @return Value or operator, see {@link BinOp}.
+	 */
+	public int getValue(int id) {
+		return value[id];
+	}
+
+	/**
+	 * Get the number of declarations.
+	 * 
+	 * @return Number of declarations, their ids are 0 to this number - 1.
+	 */
+	public int getDeclarationCount() {
+		return declarationCount;
+	}
+
+	/**
+	 * Get the number of variables which refer to a declaration, including
+	 * the targets of assignments.
+	 * 
+	 * @param declarationId
+	 *            Declaration id.
+	 * @return Number of references.
+	 */
+	public int getReferenceCount(int declarationId) {
+		return references[declarationId];
+	}
+
+	/**
+	 * Get the number of loops around a node.
+	 * 
+	 * @param id
+	 *            Node.
+	 * @return Number of loops, a loop counts for itself and its guard.
+	 */
+	public int getLoopDepth(int id) {
+		return loopDepth[id];
+	}
+
+	/**
+	 * Check if an expression can be removed without a change of the
+	 * behaviour of the program, i.e. it does not read input and does not
+	 * divide by a divisor which may be zero.
+	 * 
+	 * @param id
+	 *            Expression.
+	 * @return True iff the expression is pure.
+	 */
+	public boolean isPure(int id) {
+		return pure[id];
+	}
+
+	/**
+	 * Get the value of a guard if it is known without running the program.
+	 * A conjunction or disjunction is only known if its other operand is
+	 * pure, so a known guard is always pure.
+	 * 
+	 * @param id
+	 *            Guard.
+	 * @return UNKNOWN, FALSE or TRUE.
+	 */
+	public int getTruth(int id) {
+		return truth[id];
+	}
+
+	/**
+	 * Check if a declaration sets its variable to 0.
+	 * 
+	 * @param id
+	 *            Declaration.
+	 * @return True unless the declaration is marked as uninitialized.
+	 */
+	public boolean isInitialized(int id) {
+		return initialized[id];
+	}
+
+	/**
+	 * Check if a node is a statement of the control flow graph, blocks are
+	 * not.
+	 * 
+	 * @param id
+	 *            Node.
+	 * @return True iff the node is a statement other than a block.
+	 */
+	public boolean isStatement(int id) {
+		switch (kind[id]) {
+		case Node.DECLARATION:
+		case Node.ASSIGN:
+		case Node.IF:
+		case Node.WHILE:
+		case Node.WRITE:
+		case Node.WRITE_STRING:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Get the declaration of the variable which a statement sets. A
+	 * declaration starts a new variable even if it does not set it to 0.
+	 * 
+	 * @param id
+	 *            Statement.
+	 * @return Declaration id, NONE if the statement sets no variable.
+	 */
+	public int getDefinedDeclaration(int id) {
+		switch (kind[id]) {
+		case Node.DECLARATION:
+			return declaration[id];
+		case Node.ASSIGN:
+			return declaration[firstChild[id]];
+		default:
+			return NONE;
+		}
+	}
+
+	/**
+	 * Get the variables which are read after the start of a statement, see
+	 * {@link #computeLiveness(boolean)}.
+	 * 
+	 * @param id
+	 *            Statement.
+	 * @return Live declaration ids.
+	 */
+	public BitSet getLiveIn(int id) {
+		return liveIn[id];
+	}
+
+	/**
+	 * Get the variables which are read after the end of a statement, see
+	 * {@link #computeLiveness(boolean)}.
+	 * 
+	 * @param id
+	 *            Statement.
+	 * @return Live declaration ids.
+	 */
+	public BitSet getLiveOut(int id) {
+		return liveOut[id];
+	}
+
+	/**
+	 * Compute the variables which are live at the start and the end of each
+	 * statement by a backward analysis on the control flow graph.
+	 * 
+	 * @param strong
+	 *            True iff only reads which influence the behaviour of the
+	 *            program count, i.e. an assignment of a pure value to a dead
+	 *            variable reads nothing. A chain of dead assignments is then
+	 *            found at once, but the assignments must be removed before
+	 *            registers are shared.
+	 */
+	public void computeLiveness(boolean strong) {
+		// successors and predecessors in compressed rows
+		int[] successorStart = new int[count + 1];
+		int[] predecessorStart = new int[count + 1];
+		for (int i = 0; i < edgeCount; i++) {
+			successorStart[edgeFrom[i] + 1]++;
+			predecessorStart[edgeTo[i] + 1]++;
+		}
+		for (int id = 0; id < count; id++) {
+			successorStart[id + 1] += successorStart[id];
+			predecessorStart[id + 1] += predecessorStart[id];
+		}
+		int[] successors = new int[edgeCount];
+		int[] predecessors = new int[edgeCount];
+		int[] successorFill = Arrays.copyOf(successorStart, count);
+		int[] predecessorFill = Arrays.copyOf(predecessorStart, count);
+		for (int i = 0; i < edgeCount; i++) {
+			successors[successorFill[edgeFrom[i]]++] = edgeTo[i];
+			predecessors[predecessorFill[edgeTo[i]]++] = edgeFrom[i];
+		}
+
+		// variables read by each statement before it assigns
+		BitSet[] uses = new BitSet[count];
+		liveIn = new BitSet[count];
+		liveOut = new BitSet[count];
+		int[] worklist = new int[count];
+		boolean[] queued = new boolean[count];
+		int size = 0;
+		for (int id = 0; id < count; id++) {
+			if (isStatement(id)) {
+				uses[id] = new BitSet();
+				int first = kind[id] == Node.ASSIGN ? nextSibling[firstChild[id]] : firstChild[id];
+				int last = kind[id] == Node.IF || kind[id] == Node.WHILE ? end[first] : end[id];
+				for (int node = first; node != NONE && node < last; node++) {
+					if (kind[node] == Node.VAR) {
+						uses[id].set(declaration[node]);
+					}
+				}
+				liveIn[id] = new BitSet();
+				liveOut[id] = new BitSet();
+				// the statements are processed backwards
+				worklist[size++] = id;
+				queued[id] = true;
+			}
+		}
+
+		while (size > 0) {
+			int id = worklist[--size];
+			queued[id] = false;
+			BitSet out = new BitSet();
+			for (int i = successorStart[id]; i < successorStart[id + 1]; i++) {
+				out.or(liveIn[successors[i]]);
+			}
+			liveOut[id] = out;
+			BitSet in = (BitSet) out.clone();
+			int defined = getDefinedDeclaration(id);
+			if (defined != NONE) {
+				in.clear(defined);
+			}
+			if (!strong || kind[id] != Node.ASSIGN || out.get(defined) || !pure[nextSibling[firstChild[id]]]) {
+				in.or(uses[id]);
+			}
+			if (!in.equals(liveIn[id])) {
+				liveIn[id] = in;
+				for (int i = predecessorStart[id]; i < predecessorStart[id + 1]; i++) {
+					int predecessor = predecessors[i];
+					if (isStatement(predecessor) && !queued[predecessor]) {
+						worklist[size++] = predecessor;
+						queued[predecessor] = true;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Release the state of the walk.
+	 */
+	private void complete() {
+		symbols = null;
+		path = frontier = lastChild = null;
+		thenFrontiers = null;
+	}
+
+	/**
+	 * Record a node when the walk enters it. Declarations are resolved and
+	 * statements are added to the control flow graph.
+	 * 
+	 * @param nodeKind
+	 *            Kind of the node.
+	 * @param name
+	 *            Name of a declared or used variable.
+	 * @param nodeValue
+	 *            Value of a constant, operator of a binary operation or 1 for
+	 *            a declaration which sets its variable to 0.
+	 */
+	private void enterNode(int nodeKind, String name, int nodeValue) {
+		int id = count++;
+		if (id == kind.length) {
+			grow();
+		}
+		kind[id] = nodeKind;
+		parent[id] = NONE;
+		firstChild[id] = NONE;
+		nextSibling[id] = NONE;
+		lastChild[id] = NONE;
+		declaration[id] = NONE;
+		value[id] = nodeValue;
+		truth[id] = UNKNOWN;
+		if (depth > 0) {
+			parent[id] = path[depth - 1];
+			if (lastChild[parent[id]] == NONE) {
+				firstChild[parent[id]] = id;
+			} else {
+				nextSibling[lastChild[parent[id]]] = id;
+			}
+			lastChild[parent[id]] = id;
+		}
+		switch (nodeKind) {
+		case Node.BLOCK:
+			if (depth > 0) {
+				symbols.enterScope();
+				enterBlock(path[depth - 1], id);
+			} else {
+				// the outermost block is the entry of the control flow graph
+				addToFrontier(id);
+			}
+			break;
+		case Node.DECLARATION:
+			initialized[id] = nodeValue != 0;
+			declare(id, name);
+			enterStatement(id);
+			break;
+		case Node.ASSIGN:
+		case Node.IF:
+		case Node.WHILE:
+		case Node.WRITE:
+		case Node.WRITE_STRING:
+			enterStatement(id);
+			break;
+		case Node.VAR:
+			declaration[id] = symbols.lookup(name);
+			references[declaration[id]]++;
+			break;
+		default:
+		}
+		if (nodeKind == Node.WHILE) {
+			// the guard is evaluated in every iteration
+			loops++;
+		}
+		loopDepth[id] = loops;
+		if (depth == path.length) {
+			path = Arrays.copyOf(path, 2 * depth);
+		}
+		path[depth++] = id;
+	}
+
+	/**
+	 * Continue the control flow graph with a statement, which is the only
+	 * node of the frontier after it.
+	 * 
+	 * @param id
+	 *            Statement or declaration.
+	 */
+	private void enterStatement(int id) {
+		connect(id);
+		frontierSize = 0;
+		addToFrontier(id);
+	}
+
+	/**
+	 * Give a declaration a new id, the variable is visible after it.
+	 * 
+	 * @param id
+	 *            Declaration.
+	 * @param name
+	 *            Name of the variable.
+	 */
+	private void declare(int id, String name) {
+		if (declarationCount == references.length) {
+			references = Arrays.copyOf(references, 2 * declarationCount);
+		}
+		references[declarationCount] = 0;
+		declaration[id] = declarationCount;
+		symbols.declare(name, declarationCount++);
+	}
+
+	/**
+	 * Continue the control flow graph at the start of a nested block, after
+	 * the guard of its branch or loop has been evaluated.
+	 * 
+	 * @param parent
+	 *            Branch or loop.
+	 * @param block
+	 *            Then block, else block or body.
+	 */
+	private void enterBlock(int parent, int block) {
+		int guard = truth[firstChild[parent]];
+		if (kind[parent] == Node.IF && block != nextSibling[firstChild[parent]]) {
+			// else block, which follows the then block
+			thenFrontiers.add(Arrays.copyOf(frontier, frontierSize));
+			frontierSize = 0;
+			if (guard != TRUE) {
+				addToFrontier(parent);
+			}
+		} else if (guard == FALSE) {
+			frontierSize = 0;
+		}
+	}
+
+	/**
+	 * Complete a node when the walk leaves it, all its descendants are
+	 * complete.
+	 */
+	private void exitNode() {
+		int id = path[--depth];
+		end[id] = count;
+		int left = firstChild[id];
+		switch (kind[id]) {
+		case Node.BLOCK:
+			if (depth > 0) {
+				symbols.exitScope();
+			}
+			break;
+		case Node.IF:
+			int thenBlock = nextSibling[left];
+			if (nextSibling[thenBlock] != NONE) {
+				int[] thenFrontier = thenFrontiers.remove(thenFrontiers.size() - 1);
+				for (int statement : thenFrontier) {
+					addToFrontier(statement);
+				}
+			} else if (truth[left] != TRUE) {
+				// the branch is skipped
+				addToFrontier(id);
+			}
+			break;
+		case Node.WHILE:
+			// back to the guard, the loop is left from there
+			loops--;
+			connect(id);
+			frontierSize = 0;
+			addToFrontier(id);
+			break;
+		case Node.CONST:
+		case Node.VAR:
+			pure[id] = true;
+			break;
+		case Node.NOT:
+			pure[id] = pure[left];
+			truth[id] = truth[left] == UNKNOWN ? UNKNOWN : TRUE + FALSE - truth[left];
+			break;
+		case Node.BIN_OP:
+			exitOperation(id, left, nextSibling[left]);
+			break;
+		default:
+			pure[id] = false;
+		}
+	}
+
+	/**
+	 * Determine if a binary operation is pure and the value of a guard.
+	 * 
+	 * @param id
+	 *            Operation.
+	 * @param left
+	 *            Left operand.
+	 * @param right
+	 *            Right operand.
+	 */
+	private void exitOperation(int id, int left, int right) {
+		int operator = value[id];
+		boolean rightConst = kind[right] == Node.CONST;
+		pure[id] = pure[left] && pure[right] && (operator != BinOp.DIV || (rightConst && value[right] != 0));
+		if (BinOp.isRelation(operator)) {
+			if (kind[left] == Node.CONST && rightConst) {
+				truth[id] = compare(operator, value[left], value[right]) ? TRUE : FALSE;
+			}
+		} else if (operator == BinOp.AND || operator == BinOp.OR) {
+			// the value which decides the operation, i.e. false for a
+			// conjunction
+			int decisive = operator == BinOp.AND ? FALSE : TRUE;
+			if ((truth[left] == decisive && pure[right]) || (truth[right] == decisive && pure[left])) {
+				truth[id] = decisive;
+			} else if (truth[left] != UNKNOWN && truth[right] != UNKNOWN) {
+				// both operands have the other value
+				truth[id] = TRUE + FALSE - decisive;
+			}
+		}
+	}
+
+	/**
+	 * Compare two integers.
+	 * 
+	 * @param operator
+	 *            Relation, see {@link BinOp#isRelation(int)}.
+	 * @param left
+	 *            Left operand.
+	 * @param right
+	 *            Right operand.
+	 * @return True iff the relation holds.
+	 */
+	private static boolean compare(int operator, int left, int right) {
+		switch (operator) {
+		case BinOp.LT:
+			return left < right;
+		case BinOp.LEQ:
+			return left <= right;
+		case BinOp.EQ:
+			return left == right;
+		case BinOp.NEQ:
+			return left != right;
+		case BinOp.GEQ:
+			return left >= right;
+		default:
+			return left > right;
+		}
+	}
+
+	/**
+	 * Add edges from all statements of the frontier to a statement.
+	 * 
+	 * @param statement
+	 *            Statement.
+	 */
+	private void connect(int statement) {
+		if (edgeCount + frontierSize > edgeFrom.length) {
+			int capacity = Math.max(2 * edgeFrom.length, edgeCount + frontierSize);
+			edgeFrom = Arrays.copyOf(edgeFrom, capacity);
+			edgeTo = Arrays.copyOf(edgeTo, capacity);
+		}
+		for (int i = 0; i < frontierSize; i++) {
+			edgeFrom[edgeCount] = frontier[i];
+			edgeTo[edgeCount++] = statement;
+		}
+	}
+
+	/**
+	 * Add a statement to the frontier.
+	 * 
+	 * @param statement
+	 *            Statement after which the walk continues.
+	 */
+	private void addToFrontier(int statement) {
+		if (frontierSize == frontier.length) {
+			frontier = Arrays.copyOf(frontier, 2 * frontierSize);
+		}
+		frontier[frontierSize++] = statement;
+	}
+
+	/**
+	 * Grow the arrays per node.
+	 */
+	private void grow() {
+		int capacity = 2 * kind.length;
+		if (nodes != null) {
+			nodes = Arrays.copyOf(nodes, capacity);
+		} else {
+			flatNodes = Arrays.copyOf(flatNodes, capacity);
+		}
+		kind = Arrays.copyOf(kind, capacity);
+		parent = Arrays.copyOf(parent, capacity);
+		firstChild = Arrays.copyOf(firstChild, capacity);
+		nextSibling = Arrays.copyOf(nextSibling, capacity);
+		lastChild = Arrays.copyOf(lastChild, capacity);
+		end = Arrays.copyOf(end, capacity);
+		declaration = Arrays.copyOf(declaration, capacity);
+		value = Arrays.copyOf(value, capacity);
+		loopDepth = Arrays.copyOf(loopDepth, capacity);
+		pure = Arrays.copyOf(pure, capacity);
+		truth = Arrays.copyOf(truth, capacity);
+		initialized = Arrays.copyOf(initialized, capacity);
+	}
+}
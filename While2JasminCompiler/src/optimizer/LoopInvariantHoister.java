@@ -0,0 +1,341 @@
+package optimizer;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ast.Assign;
+import ast.BinOp;
+import ast.Block;
+import ast.Declaration;
+import ast.Expression;
+import ast.FlatTree;
+import ast.If;
+import ast.Node;
+import ast.Not;
+import ast.Statement;
+import ast.Var;
+import ast.While;
+import ast.Write;
+import lexer.Symbol;
+
+/**
+ * Optimization pass after the {@link DeadCodeEliminator}, which moves
+ * arithmetic out of loops if its value is the same in every iteration, e.g.
+ * 
+ * <pre>
+ * while (i &lt; n * m) { s = s + (a + b) * i; i = i + 1; }
+ * </pre>
+ * 
+ * becomes
+ * 
+ * <pre>
+ * int $0; $0 = n * m; int $1; $1 = a + b;
+ * while (i &lt; $0) { s = s + $1 * i; i = i + 1; }
+ * </pre>
+ * 
+ * An arithmetic operation is invariant if no variable which it reads is
+ * declared or assigned in the loop. Only pure operations are moved, since
+ * the loop may not execute the operation at all, so a division needs a
+ * constant divisor other than 0. The new variables have names with a $,
+ * which cannot clash with the names of the program.
+ * 
+ * The loops are processed from the outermost one, and an operation is moved
+ * as a whole, such that it leaves all loops around it in which it is
+ * invariant in a few rounds. Each round is based on a {@link FlowAnalysis}
+ * and changes a statement at most once, rounds are repeated until nothing
+ * changes. As by the {@link ConstantFolder}, the abstract syntax tree is not
+ * changed, the nodes with changed descendants are copied.
+ */
+public class LoopInvariantHoister {
+
+	// Prefix of the names of the new variables
+	private static final String PREFIX = "$";
+
+	// Number of operations moved out of a loop by the last run, which also
+	// numbers the new variables
+	private int hoisted;
+
+	// Copies of the nodes of the abstract syntax tree with changed
+	// descendants and the new variables of moved operations by id of the
+	// analysis, null for unchanged nodes
+	private Node[] copies;
+
+	// New statements of the abstract syntax tree by the id of the loop
+	// before which they are inserted
+	private Map<Integer, List<Statement>> inserted;
+
+	/**
+	 * Get the number of operations which have been moved out of a loop by
+	 * the last run.
+	 * 
+	 * @return Number of operations.
+	 */
+	public int getHoistedCount() {
+		return hoisted;
+	}
+
+	/**
+	 * Move the invariant operations out of the loops of an abstract syntax
+	 * tree. The tree is not changed, nodes with changed descendants are
+	 * copied.
+	 * 
+	 * @param program
+	 *            Outermost block of the program.
+	 * @return Outermost block of the optimized program, the given block if
+	 *         no operation could be moved.
+	 */
+	public Block hoist(Block program) {
+		hoisted = 0;
+		Block result = program;
+		while (transform(new FlowAnalysis(result), null)) {
+			// repeat with the changed program
+			result = (Block) copies[0];
+		}
+		copies = null;
+		inserted = null;
+		return result;
+	}
+
+	/**
+	 * Move the invariant operations out of the loops of a flattened abstract
+	 * syntax tree in place.
+	 * 
+	 * @param tree
+	 *            Flattened abstract syntax tree.
+	 */
+	public void hoist(FlatTree tree) {
+		hoisted = 0;
+		while (transform(new FlowAnalysis(tree), tree)) {
+			// repeat with the changed program
+		}
+	}
+
+	/**
+	 * Move invariant operations out of the loops. The loops in a changed
+	 * loop are left for the next round, since the analysis does not know the
+	 * moved operations.
+	 * 
+	 * @param analysis
+	 *            Analysis of the program.
+	 * @param tree
+	 *            Flattened abstract syntax tree, null for the abstract syntax
+	 *            tree.
+	 * @return True iff an operation has been moved.
+	 */
+	private boolean transform(FlowAnalysis analysis, FlatTree tree) {
+		boolean changed = false;
+		if (tree == null) {
+			copies = new Node[analysis.size()];
+			inserted = new HashMap<Integer, List<Statement>>();
+		}
+		BitSet variant = new BitSet();
+		BitSet changedStatements = new BitSet();
+		int next = 0;
+		for (int loop = 0; loop < analysis.size(); loop++) {
+			if (analysis.getKind(loop) != Node.WHILE || loop < next
+					|| analysis.getTruth(analysis.getFirstChild(loop)) == FlowAnalysis.FALSE) {
+				continue;
+			}
+			int end = analysis.getEnd(loop);
+			variant.clear();
+			for (int id = loop; id < end; id++) {
+				int defined = analysis.getDefinedDeclaration(id);
+				if (defined != FlowAnalysis.NONE) {
+					variant.set(defined);
+				}
+			}
+			boolean loopChanged = false;
+			for (int id = loop + 1; id < end; id++) {
+				if (!isInvariant(analysis, id, variant)) {
+					continue;
+				}
+				int statement = analysis.getParent(id);
+				while (!analysis.isStatement(statement)) {
+					statement = analysis.getParent(statement);
+				}
+				if (!changedStatements.get(statement)) {
+					changedStatements.set(statement);
+					String name = PREFIX + hoisted++;
+					if (tree != null) {
+						int declaration = tree.extract(analysis.getFlatNode(id), name);
+						insertFlat(analysis, tree, loop, declaration);
+					} else {
+						copies[id] = new Var(name, Symbol.NO_OFFSET);
+						insert(loop, new Declaration(name, Symbol.NO_OFFSET, false),
+								new Assign(new Var(name, Symbol.NO_OFFSET), (Expression) analysis.getNode(id)));
+					}
+					loopChanged = true;
+				}
+				// the operands are part of the operation
+				id = analysis.getEnd(id) - 1;
+			}
+			if (loopChanged) {
+				changed = true;
+				next = end;
+			}
+		}
+		if (changed && tree == null) {
+			copyChanged(analysis);
+		}
+		return changed;
+	}
+
+	/**
+	 * Check if an expression is an arithmetic operation which can be moved
+	 * out of a loop.
+	 * 
+	 * @param analysis
+	 *            Analysis of the program.
+	 * @param id
+	 *            Node in the loop.
+	 * @param variant
+	 *            Declaration ids of the variables which are set in the loop.
+	 * @return True iff the node is a pure arithmetic operation which reads
+	 *         no variable of the loop.
+	 */
+	private static boolean isInvariant(FlowAnalysis analysis, int id, BitSet variant) {
+		if (analysis.getKind(id) != Node.BIN_OP || !analysis.isPure(id)) {
+			return false;
+		}
+		switch (analysis.getValue(id)) {
+		case BinOp.ADD:
+		case BinOp.SUB:
+		case BinOp.MUL:
+		case BinOp.DIV:
+			break;
+		default:
+			// relations and junctions of guards are translated into jumps
+			return false;
+		}
+		for (int operand = id + 1; operand < analysis.getEnd(id); operand++) {
+			if (analysis.getKind(operand) == Node.VAR && variant.get(analysis.getDeclaration(operand))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Insert the declaration and the assignment of a new variable of the
+	 * flattened tree before a loop.
+	 * 
+	 * @param analysis
+	 *            Analysis of the program.
+	 * @param tree
+	 *            Flattened abstract syntax tree.
+	 * @param loop
+	 *            Loop.
+	 * @param declaration
+	 *            Declaration, the assignment is its next sibling.
+	 */
+	private static void insertFlat(FlowAnalysis analysis, FlatTree tree, int loop, int declaration) {
+		int block = analysis.getFlatNode(analysis.getParent(loop));
+		int flatLoop = analysis.getFlatNode(loop);
+		int count = 2;
+		for (int child = tree.getFirstChild(block); child != FlatTree.NONE; child = tree.getNextSibling(child)) {
+			count++;
+		}
+		int[] children = new int[count];
+		int size = 0;
+		for (int child = tree.getFirstChild(block); child != FlatTree.NONE; child = tree.getNextSibling(child)) {
+			if (child == flatLoop) {
+				children[size++] = declaration;
+				children[size++] = tree.getNextSibling(declaration);
+			}
+			children[size++] = child;
+		}
+		tree.setChildren(block, children, size);
+	}
+
+	/**
+	 * Insert the declaration and the assignment of a new variable of the
+	 * abstract syntax tree before a loop.
+	 * 
+	 * @param loop
+	 *            Loop.
+	 * @param declaration
+	 *            Declaration.
+	 * @param assign
+	 *            Assignment.
+	 */
+	private void insert(int loop, Declaration declaration, Assign assign) {
+		List<Statement> statements = inserted.get(loop);
+		if (statements == null) {
+			statements = new ArrayList<Statement>();
+			inserted.put(loop, statements);
+		}
+		statements.add(declaration);
+		statements.add(assign);
+	}
+
+	/**
+	 * Copy the nodes of the abstract syntax tree whose descendants have been
+	 * replaced or which get new statements. The copy of the outermost block
+	 * is the changed program.
+	 * 
+	 * @param analysis
+	 *            Analysis of the program.
+	 */
+	private void copyChanged(FlowAnalysis analysis) {
+		// the ids of children are larger than the one of their parent, so
+		// they are copied first
+		for (int id = analysis.size() - 1; id >= 0; id--) {
+			boolean changed = false;
+			for (int child = analysis.getFirstChild(id); child != FlowAnalysis.NONE && !changed; child = analysis
+					.getNextSibling(child)) {
+				changed = copies[child] != null || inserted.containsKey(child);
+			}
+			if (!changed || copies[id] != null) {
+				continue;
+			}
+			List<Node> children = new ArrayList<Node>();
+			for (int child = analysis.getFirstChild(id); child != FlowAnalysis.NONE; child = analysis
+					.getNextSibling(child)) {
+				if (inserted.containsKey(child)) {
+					children.addAll(inserted.get(child));
+				}
+				children.add(copies[child] != null ? copies[child] : analysis.getNode(child));
+			}
+			copies[id] = copy(analysis.getNode(id), children);
+		}
+	}
+
+	/**
+	 * Copy a node of the abstract syntax tree with other children.
+	 * 
+	 * @param node
+	 *            Node with children.
+	 * @param children
+	 *            New children.
+	 * @return Copy of the node.
+	 */
+	private static Node copy(Node node, List<Node> children) {
+		switch (node.getKind()) {
+		case Node.BLOCK:
+			List<Statement> statements = new ArrayList<Statement>(children.size());
+			for (Node child : children) {
+				statements.add((Statement) child);
+			}
+			return new Block(statements);
+		case Node.ASSIGN:
+			return new Assign((Var) children.get(0), (Expression) children.get(1));
+		case Node.IF:
+			return new If((Expression) children.get(0), (Block) children.get(1),
+					children.size() == 3 ? (Block) children.get(2) : null);
+		case Node.WHILE:
+			return new While((Expression) children.get(0), (Block) children.get(1));
+		case Node.WRITE:
+			return new Write((Expression) children.get(0));
+		case Node.NOT:
+			return new Not((Expression) children.get(0));
+		case Node.BIN_OP:
+			return new BinOp(((BinOp) node).getOperator(), (Expression) children.get(0),
+					(Expression) children.get(1));
+		default:
+			throw new IllegalStateException("Unexpected node of kind " + node.getKind() + " with children");
+		}
+	}
+}
@@ -0,0 +1,248 @@
+package optimizer;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import ast.Block;
+import ast.Declaration;
+import ast.FlatTree;
+import ast.Node;
+import generator.OutputBuffer;
+
+/**
+ * Optimization pass after the {@link DeadCodeEliminator}, which chooses the
+ * registers of the variables. Without it, the code generator gives every
+ * declaration a new register and only reuses registers after the end of a
+ * block, so a long program uses a large frame.
+ * 
+ * The allocator computes the live range of each declaration by a
+ * {@link FlowAnalysis}: the statements are numbered in pre-order, each with a
+ * point where its operands are read and a later point where its result is
+ * stored, and a range spans all points where the variable is live or
+ * assigned. Variables whose ranges do not overlap share a register, which is
+ * chosen by a linear scan over the ranges ordered by their starts. Finally
+ * the registers are renumbered by the number of accesses, where an access in
+ * a loop counts more, such that the hottest variables get the registers 0 to
+ * 3 with one byte loads and stores. Register 0 is left to the
+ * {@link OutputBuffer} if the output is buffered.
+ */
+public class RegisterAllocator {
+
+	// First register of a variable, after the register of the output buffer
+	// if the output is buffered
+	private int firstRegister = 0;
+
+	// Factor of the weight of an access per enclosing loop, and the number
+	// of loops from which on the weight does not grow any more
+	private static final long LOOP_WEIGHT = 8;
+	private static final int MAX_LOOP_DEPTH = 8;
+
+	// No live range
+	public static final int NONE = -1;
+
+	// Number of registers of variables used by the last run
+	private int registerCount;
+
+	/**
+	 * Get the number of registers which have been allocated by the last run,
+	 * not counting the register of the {@link OutputBuffer}.
+	 * 
+	 * @return Number of registers.
+	 */
+	public int getRegisterCount() {
+		return registerCount;
+	}
+
+	/**
+	 * Choose how the generated program writes its output, see
+	 * {@link generator.JasminGenerator#setBufferedOutput(boolean)}. Buffered
+	 * output keeps its buffer in register 0, otherwise it is allocated to a
+	 * variable.
+	 * 
+	 * @param buffered
+	 *            True iff the output is buffered.
+	 */
+	public void setBufferedOutput(boolean buffered) {
+		firstRegister = buffered ? OutputBuffer.REGISTER + 1 : 0;
+	}
+
+	/**
+	 * Allocate the registers of the variables of an abstract syntax tree. The
+	 * tree is not changed, the registers are returned for the code generator.
+	 * 
+	 * @param program
+	 *            Outermost block of the program.
+	 * @return Register by declaration node, compared by identity since
+	 *         declarations with the same name may get different registers.
+	 */
+	public Map<Declaration, Integer> allocate(Block program) {
+		FlowAnalysis analysis = new FlowAnalysis(program);
+		int[] registers = allocate(analysis);
+		Map<Declaration, Integer> result = new IdentityHashMap<Declaration, Integer>();
+		for (int id = 0; id < analysis.size(); id++) {
+			if (analysis.getKind(id) == Node.DECLARATION) {
+				result.put((Declaration) analysis.getNode(id), registers[analysis.getDeclaration(id)]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Allocate the registers of the variables of a flattened abstract syntax
+	 * tree. Every declaration is given its register.
+	 * 
+	 * @param tree
+	 *            Flattened abstract syntax tree.
+	 */
+	public void allocate(FlatTree tree) {
+		FlowAnalysis analysis = new FlowAnalysis(tree);
+		int[] registers = allocate(analysis);
+		for (int id = 0; id < analysis.size(); id++) {
+			if (analysis.getKind(id) == Node.DECLARATION) {
+				tree.setRegister(analysis.getFlatNode(id), registers[analysis.getDeclaration(id)]);
+			}
+		}
+	}
+
+	/**
+	 * Allocate the registers of all declarations.
+	 * 
+	 * @param analysis
+	 *            Analysis of the program.
+	 * @return Register per declaration id.
+	 */
+	private int[] allocate(FlowAnalysis analysis) {
+		// registers are shared, so every read has to count
+		analysis.computeLiveness(false);
+		int declarations = analysis.getDeclarationCount();
+		int[] start = new int[declarations];
+		int[] end = new int[declarations];
+		long[] weight = new long[declarations];
+		Arrays.fill(start, Integer.MAX_VALUE);
+		Arrays.fill(end, NONE);
+
+		for (int id = 0; id < analysis.size(); id++) {
+			int kind = analysis.getKind(id);
+			if (kind == Node.VAR || (kind == Node.DECLARATION && analysis.isInitialized(id))) {
+				weight[analysis.getDeclaration(id)] += weight(analysis.getLoopDepth(id));
+			}
+			if (!analysis.isStatement(id)) {
+				continue;
+			}
+			// the operands are read at 2 * id, the result is stored at
+			// 2 * id + 1
+			BitSet in = analysis.getLiveIn(id);
+			for (int d = in.nextSetBit(0); d >= 0; d = in.nextSetBit(d + 1)) {
+				start[d] = Math.min(start[d], 2 * id);
+				end[d] = Math.max(end[d], 2 * id);
+			}
+			BitSet out = analysis.getLiveOut(id);
+			for (int d = out.nextSetBit(0); d >= 0; d = out.nextSetBit(d + 1)) {
+				start[d] = Math.min(start[d], 2 * id + 1);
+				end[d] = Math.max(end[d], 2 * id + 1);
+			}
+			int defined = analysis.getDefinedDeclaration(id);
+			if (defined != FlowAnalysis.NONE && (kind != Node.DECLARATION || analysis.isInitialized(id))) {
+				// a dead store still overwrites its register
+				start[defined] = Math.min(start[defined], 2 * id + 1);
+				end[defined] = Math.max(end[defined], 2 * id + 1);
+			}
+		}
+
+		int[] registers = scan(start, end);
+
+		// renumber the registers by the weights of their variables
+		final long[] registerWeight = new long[registerCount];
+		for (int d = 0; d < declarations; d++) {
+			if (registers[d] != NONE) {
+				registerWeight[registers[d]] += weight[d];
+			}
+		}
+		Integer[] order = new Integer[registerCount];
+		for (int r = 0; r < registerCount; r++) {
+			order[r] = r;
+		}
+		// heaviest first, the sort is stable for equal weights
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer r1, Integer r2) {
+				long difference = registerWeight[r2] - registerWeight[r1];
+				return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+			}
+		});
+		int[] renumbered = new int[registerCount];
+		for (int rank = 0; rank < registerCount; rank++) {
+			renumbered[order[rank]] = firstRegister + rank;
+		}
+		for (int d = 0; d < declarations; d++) {
+			// a variable without live range is neither read nor stored
+			registers[d] = registers[d] != NONE ? renumbered[registers[d]] : firstRegister;
+		}
+		return registers;
+	}
+
+	/**
+	 * Assign registers to live ranges by a linear scan, such that
+	 * overlapping ranges get different registers and as few registers as
+	 * possible are used, see {@link #getRegisterCount()}. Two ranges overlap
+	 * if one starts at or before the end of the other one. The scan is also
+	 * used for the values of the {@link ir.CodeGenerator}.
+	 * 
+	 * @param start
+	 *            First point of the range per declaration id.
+	 * @param end
+	 *            Last point of the range per declaration id, NONE if the
+	 *            declaration has no range.
+	 * @return Register from 0 per declaration id, NONE if the declaration
+	 *         has no range.
+	 */
+	public int[] scan(int[] start, int[] end) {
+		int declarations = start.length;
+		// ranges by their starts, the declaration id in the low bits
+		long[] ranges = new long[declarations];
+		int count = 0;
+		for (int d = 0; d < declarations; d++) {
+			if (end[d] != NONE) {
+				ranges[count++] = ((long) start[d] << 32) | d;
+			}
+		}
+		Arrays.sort(ranges, 0, count);
+
+		int[] registers = new int[declarations];
+		Arrays.fill(registers, NONE);
+		// active ranges by their ends, the register in the low bits
+		PriorityQueue<Long> active = new PriorityQueue<Long>();
+		BitSet used = new BitSet();
+		registerCount = 0;
+		for (int i = 0; i < count; i++) {
+			int d = (int) ranges[i];
+			while (!active.isEmpty() && (int) (active.peek() >> 32) < start[d]) {
+				used.clear(active.poll().intValue());
+			}
+			int register = used.nextClearBit(0);
+			used.set(register);
+			active.add(((long) end[d] << 32) | register);
+			registers[d] = register;
+			registerCount = Math.max(registerCount, register + 1);
+		}
+		return registers;
+	}
+
+	/**
+	 * Get the weight of an access to a variable.
+	 * 
+	 * @param loopDepth
+	 *            Number of loops around the access.
+	 * @return Weight.
+	 */
+	private static long weight(int loopDepth) {
+		long weight = 1;
+		for (int i = 0; i < Math.min(loopDepth, MAX_LOOP_DEPTH); i++) {
+			weight *= LOOP_WEIGHT;
+		}
+		return weight;
+	}
+}
@@ -0,0 +1,364 @@
+package optimizer.peephole;
+
+import generator.CodeEmitter;
+import generator.GeneratorException;
+import generator.Opcodes;
+
+/**
+ * Instruction of main as it is passed to a {@link CodeEmitter}, recorded by
+ * the {@link PeepholeOptimizer}. Labels and comments are kept as
+ * instructions, such that the optimized list can be replayed to the emitter
+ * in program order. The encoding, e.g. iload_1 instead of iload 1, is still
+ * chosen by the emitter.
+ */
+public class Instruction {
+
+	// Kinds of instructions by the method of the emitter which emits them
+	public static final int PLAIN = 0;
+	public static final int REGISTER = 1;
+	public static final int INCREMENT = 2;
+	public static final int INT_CONSTANT = 3;
+	public static final int STRING_CONSTANT = 4;
+	public static final int JUMP = 5;
+	public static final int LABEL = 6;
+	public static final int FIELD = 7;
+	public static final int METHOD = 8;
+	public static final int COMMENT = 9;
+	public static final int TYPE = 10;
+
+	private final int kind;
+	private final int opcode;
+
+	// Register, int constant or number of a label
+	private final int operand;
+
+	// Increment of an iinc
+	private final int value;
+
+	// Prefix of a label, owner of a field or method, class of a type
+	// instruction, string constant or comment
+	private final String text;
+
+	// Name and descriptor of a field or method
+	private final String name;
+	private final String descriptor;
+
+	/**
+	 * Constructor, see the factory methods.
+	 */
+	private Instruction(int kind, int opcode, int operand, int value, String text, String name, String descriptor) {
+		this.kind = kind;
+		this.opcode = opcode;
+		this.operand = operand;
+		this.value = value;
+		this.text = text;
+		this.name = name;
+		this.descriptor = descriptor;
+	}
+
+	/**
+	 * Create an instruction without operand.
+	 * 
+	 * @param opcode
+	 *            Opcode, see {@link Opcodes}.
+	 * @return Instruction.
+	 */
+	public static Instruction plain(int opcode) {
+		return new Instruction(PLAIN, opcode, 0, 0, null, null, null);
+	}
+
+	/**
+	 * Create a load or store of a register.
+	 * 
+	 * @param opcode
+	 *            ILOAD, ISTORE, ALOAD or ASTORE.
+	 * @param register
+	 *            Register.
+	 * @return Instruction.
+	 */
+	public static Instruction register(int opcode, int register) {
+		return new Instruction(REGISTER, opcode, register, 0, null, null, null);
+	}
+
+	/**
+	 * Create an increment of a register.
+	 * 
+	 * @param register
+	 *            Register.
+	 * @param value
+	 *            Increment, a short.
+	 * @return Instruction.
+	 */
+	public static Instruction increment(int register, int value) {
+		return new Instruction(INCREMENT, Opcodes.IINC, register, value, null, null, null);
+	}
+
+	/**
+	 * Create a push of an int constant.
+	 * 
+	 * @param value
+	 *            Constant.
+	 * @return Instruction.
+	 */
+	public static Instruction constant(int value) {
+		return new Instruction(INT_CONSTANT, Opcodes.constantOpcode(value), value, 0, null, null, null);
+	}
+
+	/**
+	 * Create a push of a string constant.
+	 * 
+	 * @param value
+	 *            Text between the quotes of the literal.
+	 * @return Instruction.
+	 */
+	public static Instruction constant(String value) {
+		return new Instruction(STRING_CONSTANT, Opcodes.LDC, 0, 0, value, null, null);
+	}
+
+	/**
+	 * Create a jump.
+	 * 
+	 * @param opcode
+	 *            Opcode of a conditional jump or goto.
+	 * @param prefix
+	 *            Name of the target label without its number.
+	 * @param number
+	 *            Number of the target label.
+	 * @return Instruction.
+	 */
+	public static Instruction jump(int opcode, String prefix, int number) {
+		return new Instruction(JUMP, opcode, number, 0, prefix, null, null);
+	}
+
+	/**
+	 * Create a label.
+	 * 
+	 * @param prefix
+	 *            Name of the label without its number.
+	 * @param number
+	 *            Number of the label.
+	 * @return Instruction.
+	 */
+	public static Instruction label(String prefix, int number) {
+		return new Instruction(LABEL, -1, number, 0, prefix, null, null);
+	}
+
+	/**
+	 * Create an access of a field.
+	 * 
+	 * @param opcode
+	 *            Opcode.
+	 * @param owner
+	 *            Internal name of the class of the field.
+	 * @param name
+	 *            Name of the field.
+	 * @param descriptor
+	 *            Type descriptor of the field.
+	 * @return Instruction.
+	 */
+	public static Instruction field(int opcode, String owner, String name, String descriptor) {
+		return new Instruction(FIELD, opcode, 0, 0, owner, name, descriptor);
+	}
+
+	/**
+	 * Create an invocation of a method.
+	 * 
+	 * @param opcode
+	 *            Opcode.
+	 * @param owner
+	 *            Internal name of the class of the method.
+	 * @param name
+	 *            Name of the method.
+	 * @param descriptor
+	 *            Method descriptor.
+	 * @return Instruction.
+	 */
+	public static Instruction method(int opcode, String owner, String name, String descriptor) {
+		return new Instruction(METHOD, opcode, 0, 0, owner, name, descriptor);
+	}
+
+	/**
+	 * Create an instruction on a class.
+	 * 
+	 * @param opcode
+	 *            Opcode.
+	 * @param type
+	 *            Internal name of the class.
+	 * @return Instruction.
+	 */
+	public static Instruction type(int opcode, String type) {
+		return new Instruction(TYPE, opcode, 0, 0, type, null, null);
+	}
+
+	/**
+	 * Create a comment.
+	 * 
+	 * @param text
+	 *            Comment.
+	 * @return Instruction.
+	 */
+	public static Instruction comment(String text) {
+		return new Instruction(COMMENT, -1, 0, 0, text, null, null);
+	}
+
+	/**
+	 * Get the kind of the instruction.
+	 * 
+	 * @return One of the kind constants of this class.
+	 */
+	public int getKind() {
+		return kind;
+	}
+
+	/**
+	 * Get the opcode, see {@link Opcodes}.
+	 * 
+	 * @return Opcode, -1 for a label or comment.
+	 */
+	public int getOpcode() {
+		return opcode;
+	}
+
+	/**
+	 * Get the register of a load, store or increment, the value of an int
+	 * constant or the number of a label.
+	 * 
+	 * @return Operand.
+	 */
+	public int getOperand() {
+		return operand;
+	}
+
+	/**
+	 * Get the increment of an iinc.
+	 * 
+	 * @return Increment.
+	 */
+	public int getValue() {
+		return value;
+	}
+
+	/**
+	 * Get the prefix of a label, the owner of a field or method, the value of
+	 * a string constant or the text of a comment.
+	 * 
+	 * @return Text.
+	 */
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * Get the name of a field or method.
+	 * 
+	 * @return Name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Get the descriptor of a field or method.
+	 * 
+	 * @return Descriptor.
+	 */
+	public String getDescriptor() {
+		return descriptor;
+	}
+
+	/**
+	 * Get the name of the label of a jump or label instruction.
+	 * 
+	 * @return Prefix and number of the label.
+	 */
+	public String getLabel() {
+		return text + operand;
+	}
+
+	/**
+	 * Check if this is an instruction of the given kind and opcode.
+	 * 
+	 * @param kind
+	 *            Kind.
+	 * @param opcode
+	 *            Opcode.
+	 * @return True iff both match.
+	 */
+	public boolean is(int kind, int opcode) {
+		return this.kind == kind && this.opcode == opcode;
+	}
+
+	/**
+	 * Check if this is an invocation of the given method.
+	 * 
+	 * @param opcode
+	 *            Opcode of the invocation.
+	 * @param owner
+	 *            Internal name of the class of the method.
+	 * @param name
+	 *            Name of the method.
+	 * @param descriptor
+	 *            Method descriptor.
+	 * @return True iff the method is invoked.
+	 */
+	public boolean isMethod(int opcode, String owner, String name, String descriptor) {
+		return is(METHOD, opcode) && text.equals(owner) && this.name.equals(name)
+				&& this.descriptor.equals(descriptor);
+	}
+
+	/**
+	 * Check if the control flow never continues with the next instruction,
+	 * i.e. this is a goto, return or athrow.
+	 * 
+	 * @return True iff the next instruction is only reached by jumps.
+	 */
+	public boolean isUnconditional() {
+		return (kind == JUMP && opcode == Opcodes.GOTO)
+				|| (kind == PLAIN && (opcode == Opcodes.RETURN || opcode == Opcodes.ATHROW));
+	}
+
+	/**
+	 * Pass this instruction to an emitter.
+	 * 
+	 * @param emitter
+	 *            Emitter.
+	 * @throws GeneratorException
+	 *             Exception while emitting.
+	 */
+	public void emit(CodeEmitter emitter) throws GeneratorException {
+		switch (kind) {
+		case PLAIN:
+			emitter.instruction(opcode);
+			break;
+		case REGISTER:
+			emitter.registerInstruction(opcode, operand);
+			break;
+		case INCREMENT:
+			emitter.increment(operand, value);
+			break;
+		case INT_CONSTANT:
+			emitter.loadConstant(operand);
+			break;
+		case STRING_CONSTANT:
+			emitter.loadConstant(text);
+			break;
+		case JUMP:
+			emitter.jump(opcode, text, operand);
+			break;
+		case LABEL:
+			emitter.label(text, operand);
+			break;
+		case FIELD:
+			emitter.fieldInstruction(opcode, text, name, descriptor);
+			break;
+		case METHOD:
+			emitter.methodInstruction(opcode, text, name, descriptor);
+			break;
+		case TYPE:
+			emitter.typeInstruction(opcode, text);
+			break;
+		default:
+			emitter.comment(text);
+		}
+	}
+}
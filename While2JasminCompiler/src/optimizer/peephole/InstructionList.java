@@ -0,0 +1,257 @@
+package optimizer.peephole;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import generator.CodeEmitter;
+import generator.GeneratorException;
+
+/**
+ * Instructions of main for the {@link PeepholeOptimizer}. Removed
+ * instructions leave a gap until the list is compacted, such that the
+ * indices seen by a pass over the list stay valid. The list knows where each
+ * label is placed and how many jumps target it.
+ */
+public class InstructionList {
+
+	// Initial number of instructions
+	private static final int INITIAL_CAPACITY = 256;
+
+	// Instructions in program order, null for removed ones
+	private Instruction[] instructions = new Instruction[INITIAL_CAPACITY];
+	private int size = 0;
+
+	// Number of instructions which are neither labels nor comments
+	private int instructionCount = 0;
+
+	// Index of each placed label and number of jumps to each label by name
+	private HashMap<String, Integer> labelIndices = new HashMap<String, Integer>();
+	private HashMap<String, Integer> references = new HashMap<String, Integer>();
+
+	/**
+	 * Append an instruction.
+	 * 
+	 * @param instruction
+	 *            Instruction.
+	 */
+	public void add(Instruction instruction) {
+		if (size == instructions.length) {
+			instructions = Arrays.copyOf(instructions, 2 * size);
+		}
+		instructions[size] = instruction;
+		register(instruction, size);
+		size++;
+	}
+
+	/**
+	 * Get the size of the list including the gaps of removed instructions.
+	 * 
+	 * @return Size.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Get the number of instructions which are neither labels nor comments.
+	 * 
+	 * @return Number of instructions.
+	 */
+	public int getInstructionCount() {
+		return instructionCount;
+	}
+
+	/**
+	 * Get an instruction.
+	 * 
+	 * @param index
+	 *            Index.
+	 * @return Instruction, null if it has been removed.
+	 */
+	public Instruction get(int index) {
+		return instructions[index];
+	}
+
+	/**
+	 * Replace an instruction.
+	 * 
+	 * @param index
+	 *            Index of an instruction which has not been removed.
+	 * @param instruction
+	 *            New instruction.
+	 */
+	public void set(int index, Instruction instruction) {
+		unregister(instructions[index]);
+		instructions[index] = instruction;
+		register(instruction, index);
+	}
+
+	/**
+	 * Remove an instruction.
+	 * 
+	 * @param index
+	 *            Index of an instruction which has not been removed.
+	 */
+	public void remove(int index) {
+		unregister(instructions[index]);
+		instructions[index] = null;
+	}
+
+	/**
+	 * Insert instructions after an instruction. The instructions behind them
+	 * move, so an insertion takes linear time and is meant for rare rewrites
+	 * which make the code longer.
+	 * 
+	 * @param index
+	 *            Index of an instruction which has not been removed.
+	 * @param inserted
+	 *            New instructions in program order.
+	 */
+	public void insert(int index, Instruction... inserted) {
+		int count = inserted.length;
+		if (size + count > instructions.length) {
+			instructions = Arrays.copyOf(instructions, Math.max(2 * size, size + count));
+		}
+		System.arraycopy(instructions, index + 1, instructions, index + 1 + count, size - index - 1);
+		size += count;
+		for (int i = index + 1 + count; i < size; i++) {
+			if (instructions[i] != null && instructions[i].getKind() == Instruction.LABEL) {
+				labelIndices.put(instructions[i].getLabel(), i);
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			instructions[index + 1 + i] = inserted[i];
+			register(inserted[i], index + 1 + i);
+		}
+	}
+
+	/**
+	 * Find the next instruction in program order, which may be a label.
+	 * Comments are skipped.
+	 * 
+	 * @param index
+	 *            Index of the current instruction.
+	 * @return Index of the next instruction, {@link #size()} if there is
+	 *         none.
+	 */
+	public int next(int index) {
+		index++;
+		while (index < size && (instructions[index] == null
+				|| instructions[index].getKind() == Instruction.COMMENT)) {
+			index++;
+		}
+		return index;
+	}
+
+	/**
+	 * Find the next instruction which is executed after the current one if
+	 * the control flow falls through, i.e. labels and comments are skipped.
+	 * 
+	 * @param index
+	 *            Index of the current instruction.
+	 * @return Index of the next instruction, {@link #size()} if there is
+	 *         none.
+	 */
+	public int nextExecuted(int index) {
+		index = next(index);
+		while (index < size && instructions[index].getKind() == Instruction.LABEL) {
+			index = next(index);
+		}
+		return index;
+	}
+
+	/**
+	 * Get the place of a label.
+	 * 
+	 * @param label
+	 *            Name of the label.
+	 * @return Index of the label, -1 if it is not placed.
+	 */
+	public int getLabelIndex(String label) {
+		Integer index = labelIndices.get(label);
+		return index != null ? index : -1;
+	}
+
+	/**
+	 * Get the number of jumps to a label.
+	 * 
+	 * @param label
+	 *            Name of the label.
+	 * @return Number of jumps.
+	 */
+	public int getReferenceCount(String label) {
+		Integer count = references.get(label);
+		return count != null ? count : 0;
+	}
+
+	/**
+	 * Close the gaps of removed instructions.
+	 */
+	public void compact() {
+		int kept = 0;
+		for (int i = 0; i < size; i++) {
+			Instruction instruction = instructions[i];
+			if (instruction != null) {
+				instructions[kept] = instruction;
+				if (instruction.getKind() == Instruction.LABEL) {
+					labelIndices.put(instruction.getLabel(), kept);
+				}
+				kept++;
+			}
+		}
+		Arrays.fill(instructions, kept, size, null);
+		size = kept;
+	}
+
+	/**
+	 * Pass all instructions in program order to an emitter.
+	 * 
+	 * @param emitter
+	 *            Emitter.
+	 * @throws GeneratorException
+	 *             Exception while emitting.
+	 */
+	public void emit(CodeEmitter emitter) throws GeneratorException {
+		for (int i = 0; i < size; i++) {
+			if (instructions[i] != null) {
+				instructions[i].emit(emitter);
+			}
+		}
+	}
+
+	/**
+	 * Account for an instruction which is added to the list.
+	 */
+	private void register(Instruction instruction, int index) {
+		switch (instruction.getKind()) {
+		case Instruction.COMMENT:
+			return;
+		case Instruction.LABEL:
+			labelIndices.put(instruction.getLabel(), index);
+			return;
+		case Instruction.JUMP:
+			references.put(instruction.getLabel(), getReferenceCount(instruction.getLabel()) + 1);
+			break;
+		default:
+		}
+		instructionCount++;
+	}
+
+	/**
+	 * Account for an instruction which is removed from the list.
+	 */
+	private void unregister(Instruction instruction) {
+		switch (instruction.getKind()) {
+		case Instruction.COMMENT:
+			return;
+		case Instruction.LABEL:
+			labelIndices.remove(instruction.getLabel());
+			return;
+		case Instruction.JUMP:
+			references.put(instruction.getLabel(), getReferenceCount(instruction.getLabel()) - 1);
+			break;
+		default:
+		}
+		instructionCount--;
+	}
+}
@@ -0,0 +1,73 @@
+package optimizer.peephole;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import generator.Opcodes;
+
+/**
+ * Redirects a jump to a label which is followed by a goto to the final
+ * target of the chain of gotos, e.g. from the end of a then block to the
+ * start of an enclosing loop. A goto to a return is replaced by the return.
+ */
+public class JumpChainRule implements PeepholeRule {
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see optimizer.peephole.PeepholeRule#getName()
+	 */
+	public String getName() {
+		return "jump-chain";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see optimizer.peephole.PeepholeRule#apply(optimizer.peephole.
+	 * InstructionList, int)
+	 */
+	public boolean apply(InstructionList code, int index) {
+		Instruction jump = code.get(index);
+		if (jump.getKind() != Instruction.JUMP) {
+			return false;
+		}
+		// follow the gotos, a cycle of gotos is left alone
+		Set<String> visited = new HashSet<String>();
+		Instruction last = jump;
+		Instruction next = first(code, jump.getLabel());
+		while (next != null && next.is(Instruction.JUMP, Opcodes.GOTO)) {
+			if (!visited.add(next.getLabel())) {
+				return false;
+			}
+			last = next;
+			next = first(code, next.getLabel());
+		}
+		if (last != jump) {
+			code.set(index, Instruction.jump(jump.getOpcode(), last.getText(), last.getOperand()));
+			return true;
+		} else if (jump.getOpcode() == Opcodes.GOTO && next != null && next.is(Instruction.PLAIN, Opcodes.RETURN)) {
+			code.set(index, next);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Get the first instruction which is executed after a label.
+	 * 
+	 * @param code
+	 *            Instructions.
+	 * @param label
+	 *            Name of the label.
+	 * @return Instruction, null if there is none.
+	 */
+	private static Instruction first(InstructionList code, String label) {
+		int index = code.getLabelIndex(label);
+		if (index < 0) {
+			return null;
+		}
+		index = code.nextExecuted(index);
+		return index < code.size() ? code.get(index) : null;
+	}
+}
@@ -0,0 +1,41 @@
+package optimizer.peephole;
+
+import generator.Opcodes;
+
+/**
+ * Removes a goto to a label which directly follows it, e.g. after jumps
+ * have been redirected by the {@link JumpChainRule}.
+ */
+public class JumpToNextRule implements PeepholeRule {
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see optimizer.peephole.PeepholeRule#getName()
+	 */
+	public String getName() {
+		return "jump-to-next";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see optimizer.peephole.PeepholeRule#apply(optimizer.peephole.
+	 * InstructionList, int)
+	 */
+	public boolean apply(InstructionList code, int index) {
+		Instruction jump = code.get(index);
+		if (!jump.is(Instruction.JUMP, Opcodes.GOTO)) {
+			return false;
+		}
+		String target = jump.getLabel();
+		for (int i = code.next(index); i < code.size() && code.get(i).getKind() == Instruction.LABEL; i = code
+				.next(i)) {
+			if (code.get(i).getLabel().equals(target)) {
+				code.remove(index);
+				return true;
+			}
+		}
+		return false;
+	}
+}
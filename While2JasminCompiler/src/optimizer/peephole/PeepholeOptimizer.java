@@ -0,0 +1,262 @@
+package optimizer.peephole;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import generator.CodeEmitter;
+import generator.GeneratorException;
+
+/**
+ * Emitter which records the instructions of main in memory, improves them by
+ * a set of {@link PeepholeRule}s and passes the result to another emitter,
+ * which writes Jasmin code or a class file. Every rule is applied at every
+ * instruction until no rule changes the code any more. The optimizer counts
+ * for each rule how often it has been applied and how many instructions it
+ * has removed, labels and comments are not counted.
+ */
+public class PeepholeOptimizer implements CodeEmitter {
+
+	// Emitter of the optimized code
+	private final CodeEmitter target;
+
+	// Rules in the order in which they are tried at an instruction
+	private final List<PeepholeRule> rules;
+
+	// Instructions of main of the current class
+	private InstructionList code;
+
+	// Statistics per rule
+	private int[] applied;
+	private int[] removed;
+
+	/**
+	 * Constructor with the default rules, see {@link #defaultRules()}.
+	 * 
+	 * @param target
+	 *            Emitter of the optimized code.
+	 */
+	public PeepholeOptimizer(CodeEmitter target) {
+		this(target, defaultRules());
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param target
+	 *            Emitter of the optimized code.
+	 * @param rules
+	 *            Rules in the order in which they are tried at an
+	 *            instruction.
+	 */
+	public PeepholeOptimizer(CodeEmitter target, List<PeepholeRule> rules) {
+		this.target = target;
+		this.rules = new ArrayList<PeepholeRule>(rules);
+		applied = new int[rules.size()];
+		removed = new int[rules.size()];
+	}
+
+	/**
+	 * Get the default rules: self-assignments, store-load pairs,
+	 * multiplications by powers of two, chains of jumps, jumps to the next
+	 * instruction, unreachable code and unused labels.
+	 * 
+	 * @return New list of rules.
+	 */
+	public static List<PeepholeRule> defaultRules() {
+		List<PeepholeRule> rules = new ArrayList<PeepholeRule>();
+		rules.add(new SelfAssignmentRule());
+		rules.add(new StoreLoadRule());
+		rules.add(new StrengthReductionRule());
+		rules.add(new JumpChainRule());
+		rules.add(new JumpToNextRule());
+		rules.add(new UnreachableCodeRule());
+		rules.add(new UnusedLabelRule());
+		return rules;
+	}
+
+	/**
+	 * Get the rules.
+	 * 
+	 * @return Rules in the order in which they are tried.
+	 */
+	public List<PeepholeRule> getRules() {
+		return rules;
+	}
+
+	/**
+	 * Get the number of applications of a rule to the last class.
+	 * 
+	 * @param rule
+	 *            Index of the rule, see {@link #getRules()}.
+	 * @return Number of applications.
+	 */
+	public int getAppliedCount(int rule) {
+		return applied[rule];
+	}
+
+	/**
+	 * Get the number of instructions removed by a rule from the last class,
+	 * negative if the rule has added instructions.
+	 * 
+	 * @param rule
+	 *            Index of the rule, see {@link #getRules()}.
+	 * @return Number of instructions.
+	 */
+	public int getRemovedCount(int rule) {
+		return removed[rule];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#beginClass(java.lang.String)
+	 */
+	public void beginClass(String name) throws GeneratorException {
+		code = new InstructionList();
+		applied = new int[rules.size()];
+		removed = new int[rules.size()];
+		target.beginClass(name);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#endClass()
+	 */
+	public void endClass() throws GeneratorException {
+		optimize();
+		code.emit(target);
+		code = null;
+		target.endClass();
+	}
+
+	/**
+	 * Apply the rules until the code does not change any more.
+	 */
+	private void optimize() {
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int i = 0; i < code.size(); i++) {
+				for (int r = 0; r < rules.size(); r++) {
+					Instruction instruction = code.get(i);
+					if (instruction == null || instruction.getKind() == Instruction.COMMENT) {
+						break;
+					}
+					int count = code.getInstructionCount();
+					if (rules.get(r).apply(code, i)) {
+						applied[r]++;
+						removed[r] += count - code.getInstructionCount();
+						changed = true;
+					}
+				}
+			}
+			code.compact();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#instruction(int)
+	 */
+	public void instruction(int opcode) throws GeneratorException {
+		code.add(Instruction.plain(opcode));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#registerInstruction(int, int)
+	 */
+	public void registerInstruction(int opcode, int register) throws GeneratorException {
+		code.add(Instruction.register(opcode, register));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#increment(int, int)
+	 */
+	public void increment(int register, int value) throws GeneratorException {
+		code.add(Instruction.increment(register, value));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#loadConstant(int)
+	 */
+	public void loadConstant(int value) throws GeneratorException {
+		code.add(Instruction.constant(value));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#loadConstant(java.lang.String)
+	 */
+	public void loadConstant(String value) throws GeneratorException {
+		code.add(Instruction.constant(value));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#jump(int, java.lang.String, int)
+	 */
+	public void jump(int opcode, String prefix, int number) throws GeneratorException {
+		code.add(Instruction.jump(opcode, prefix, number));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#label(java.lang.String, int)
+	 */
+	public void label(String prefix, int number) throws GeneratorException {
+		if (code.getLabelIndex(prefix + number) >= 0) {
+			throw new GeneratorException("Label " + prefix + number + " is placed twice");
+		}
+		code.add(Instruction.label(prefix, number));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#fieldInstruction(int, java.lang.String,
+	 * java.lang.String, java.lang.String)
+	 */
+	public void fieldInstruction(int opcode, String owner, String name, String descriptor) throws GeneratorException {
+		code.add(Instruction.field(opcode, owner, name, descriptor));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#methodInstruction(int, java.lang.String,
+	 * java.lang.String, java.lang.String)
+	 */
+	public void methodInstruction(int opcode, String owner, String name, String descriptor)
+			throws GeneratorException {
+		code.add(Instruction.method(opcode, owner, name, descriptor));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#typeInstruction(int, java.lang.String)
+	 */
+	public void typeInstruction(int opcode, String type) throws GeneratorException {
+		code.add(Instruction.type(opcode, type));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see generator.CodeEmitter#comment(java.lang.String)
+	 */
+	public void comment(String text) throws GeneratorException {
+		code.add(Instruction.comment(text));
+	}
+}
@@ -0,0 +1,30 @@
+package optimizer.peephole;
+
+/**
+ * Rewrite rule of the {@link PeepholeOptimizer}, which replaces a short
+ * sequence of instructions by a cheaper one. The optimizer applies every rule
+ * at every instruction until no rule changes the code any more, so a rule
+ * must not undo the rewrite of another one.
+ */
+public interface PeepholeRule {
+
+	/**
+	 * Get the name of the rule for the statistics.
+	 * 
+	 * @return Name.
+	 */
+	String getName();
+
+	/**
+	 * Rewrite the instructions which start at an index if they match the
+	 * rule.
+	 * 
+	 * @param code
+	 *            Instructions of main.
+	 * @param index
+	 *            Index of an instruction which is no comment and has not been
+	 *            removed, it may be a label.
+	 * @return True iff the code has been changed.
+	 */
+	boolean apply(InstructionList code, int index);
+}
@@ -0,0 +1,40 @@
+package optimizer.peephole;
+
+import generator.Opcodes;
+
+/**
+ * Removes a load of an int register followed by a store into the same
+ * register, e.g. of x = x;.
+ */
+public class SelfAssignmentRule implements PeepholeRule {
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see optimizer.peephole.PeepholeRule#getName()
+	 */
+	public String getName() {
+		return "self-assignment";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see optimizer.peephole.PeepholeRule#apply(optimizer.peephole.
+	 * InstructionList, int)
+	 */
+	public boolean apply(InstructionList code, int index) {
+		Instruction load = code.get(index);
+		if (!load.is(Instruction.REGISTER, Opcodes.ILOAD)) {
+			return false;
+		}
+		int store = code.next(index);
+		if (store == code.size() || !code.get(store).is(Instruction.REGISTER, Opcodes.ISTORE)
+				|| code.get(store).getOperand() != load.getOperand()) {
+			return false;
+		}
+		code.remove(index);
+		code.remove(store);
+		return true;
+	}
+}
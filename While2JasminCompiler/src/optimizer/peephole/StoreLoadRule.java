@@ -0,0 +1,41 @@
+package optimizer.peephole;
+
+import generator.Opcodes;
+
+/**
+ * Replaces a store of an int register followed by a load of the same
+ * register, e.g. of x = ...; write(x);, by a dup before the store.
+ */
+public class StoreLoadRule implements PeepholeRule {
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see optimizer.peephole.PeepholeRule#getName()
+	 */
+	public String getName() {
+		return "store-load";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see optimizer.peephole.PeepholeRule#apply(optimizer.peephole.
+	 * InstructionList, int)
+	 */
+	public boolean apply(InstructionList code, int index) {
+		Instruction store = code.get(index);
+		if (!store.is(Instruction.REGISTER, Opcodes.ISTORE)) {
+			return false;
+		}
+		// a label in between could be reached with another value
+		int load = code.next(index);
+		if (load == code.size() || !code.get(load).is(Instruction.REGISTER, Opcodes.ILOAD)
+				|| code.get(load).getOperand() != store.getOperand()) {
+			return false;
+		}
+		code.set(index, Instruction.plain(Opcodes.DUP));
+		code.set(load, store);
+		return true;
+	}
+}
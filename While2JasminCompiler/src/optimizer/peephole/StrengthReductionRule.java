@@ -0,0 +1,128 @@
+package optimizer.peephole;
+
+import generator.Opcodes;
+
+/**
+ * Replaces a multiplication or division by a power of two 2^k, e.g. of
+ * x * 8 or x / 4, by shifts. A multiplication becomes a left shift by k. A
+ * division has to round towards zero, whereas an arithmetic right shift
+ * rounds down, so 2^k - 1 is added to a negative dividend before the shift:
+ * 
+ * <pre>
+ * dup
+ * bipush 31
+ * ishr          ; -1 if the dividend is negative, 0 otherwise
+ * bipush 32 - k
+ * iushr         ; 2^k - 1 or 0
+ * iadd
+ * bipush k
+ * ishr
+ * </pre>
+ * 
+ * For k = 1 the sign bit is the correction, i.e. dup, bipush 31, iushr,
+ * iadd, iconst_1 and ishr.
+ * 
+ * The JIT compiler of HotSpot already divides by a constant power of two
+ * this way, and the interpreter executes the single idiv faster than the
+ * sequence, so divisions are only replaced on request.
+ */
+public class StrengthReductionRule implements PeepholeRule {
+
+	// Number of bits of an int
+	private static final int BITS = 32;
+
+	// True iff divisions are replaced
+	private final boolean divisions;
+
+	/**
+	 * Constructor for a rule which only replaces multiplications.
+	 */
+	public StrengthReductionRule() {
+		this(false);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param divisions
+	 *            True iff divisions are replaced as well.
+	 */
+	public StrengthReductionRule(boolean divisions) {
+		this.divisions = divisions;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see optimizer.peephole.PeepholeRule#getName()
+	 */
+	public String getName() {
+		return "strength-reduction";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see optimizer.peephole.PeepholeRule#apply(optimizer.peephole.
+	 * InstructionList, int)
+	 */
+	public boolean apply(InstructionList code, int index) {
+		Instruction constant = code.get(index);
+		if (constant.getKind() != Instruction.INT_CONSTANT) {
+			return false;
+		}
+		int shift = log2(constant.getOperand());
+		if (shift <= 0) {
+			return false;
+		}
+		// a label in between could be reached with other operands
+		int next = code.next(index);
+		if (next == code.size()) {
+			return false;
+		}
+		Instruction operation = code.get(next);
+		if (operation.is(Instruction.PLAIN, Opcodes.IMUL)) {
+			code.set(index, Instruction.constant(shift));
+			code.set(next, Instruction.plain(Opcodes.ISHL));
+			return true;
+		}
+		if (divisions && operation.is(Instruction.PLAIN, Opcodes.IDIV)) {
+			code.set(index, Instruction.plain(Opcodes.DUP));
+			code.set(next, Instruction.plain(Opcodes.ISHR));
+			if (shift == 1) {
+				code.insert(index, Instruction.constant(BITS - 1), Instruction.plain(Opcodes.IUSHR),
+						Instruction.plain(Opcodes.IADD), Instruction.constant(shift));
+			} else {
+				code.insert(index, Instruction.constant(BITS - 1), Instruction.plain(Opcodes.ISHR),
+						Instruction.constant(BITS - shift), Instruction.plain(Opcodes.IUSHR),
+						Instruction.plain(Opcodes.IADD), Instruction.constant(shift));
+			}
+			return true;
+		}
+		// the constant is the left operand of a multiplication with a variable
+		if (operation.is(Instruction.REGISTER, Opcodes.ILOAD)) {
+			int multiply = code.next(next);
+			if (multiply < code.size() && code.get(multiply).is(Instruction.PLAIN, Opcodes.IMUL)) {
+				code.set(index, operation);
+				code.set(next, Instruction.constant(shift));
+				code.set(multiply, Instruction.plain(Opcodes.ISHL));
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get the exponent of a power of two.
+	 * 
+	 * @param value
+	 *            Value.
+	 * @return k if the value is 2^k with k &lt; 31, -1 otherwise.
+	 */
+	private static int log2(int value) {
+		if (value <= 0 || (value & (value - 1)) != 0) {
+			return -1;
+		}
+		return Integer.numberOfTrailingZeros(value);
+	}
+}
@@ -0,0 +1,40 @@
+package optimizer.peephole;
+
+/**
+ * Removes the instructions after a goto, return or athrow up to the next
+ * label which is the target of a jump, since they cannot be reached. Labels
+ * without jumps on the way are removed as well.
+ */
+public class UnreachableCodeRule implements PeepholeRule {
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see optimizer.peephole.PeepholeRule#getName()
+	 */
+	public String getName() {
+		return "unreachable-code";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see optimizer.peephole.PeepholeRule#apply(optimizer.peephole.
+	 * InstructionList, int)
+	 */
+	public boolean apply(InstructionList code, int index) {
+		if (!code.get(index).isUnconditional()) {
+			return false;
+		}
+		boolean changed = false;
+		for (int i = code.next(index); i < code.size(); i = code.next(i)) {
+			Instruction instruction = code.get(i);
+			if (instruction.getKind() == Instruction.LABEL && code.getReferenceCount(instruction.getLabel()) > 0) {
+				break;
+			}
+			code.remove(i);
+			changed = true;
+		}
+		return changed;
+	}
+}
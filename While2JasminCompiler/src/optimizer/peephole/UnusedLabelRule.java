@@ -0,0 +1,32 @@
+package optimizer.peephole;
+
+/**
+ * Removes labels which are not the target of any jump, such that the
+ * instructions around them can be matched by other rules.
+ */
+public class UnusedLabelRule implements PeepholeRule {
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see optimizer.peephole.PeepholeRule#getName()
+	 */
+	public String getName() {
+		return "unused-label";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see optimizer.peephole.PeepholeRule#apply(optimizer.peephole.
+	 * InstructionList, int)
+	 */
+	public boolean apply(InstructionList code, int index) {
+		Instruction label = code.get(index);
+		if (label.getKind() != Instruction.LABEL || code.getReferenceCount(label.getLabel()) > 0) {
+			return false;
+		}
+		code.remove(index);
+		return true;
+	}
+}
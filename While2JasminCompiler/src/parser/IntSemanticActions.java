@@ -0,0 +1,38 @@
+package parser;
+
+import lexer.Symbol;
+
+/**
+ * Semantic actions with int values, e.g. indices into an arena of nodes. The
+ * values are kept on an int stack next to the parser states, such that the
+ * parser does not allocate an object per shift or reduction.
+ */
+public interface IntSemanticActions {
+
+	/**
+	 * Compute the value of a shifted token.
+	 * 
+	 * @param symbol
+	 *            Token and attribute from the lexer.
+	 * @return Semantic value of the token.
+	 * @throws ParserException
+	 *             Exception if the token is not valid in this position.
+	 */
+	int shift(Symbol symbol) throws ParserException;
+
+	/**
+	 * Compute the value of a non-terminal upon reduction.
+	 * 
+	 * @param rule
+	 *            The applied rule.
+	 * @param values
+	 *            Value stack. It is only valid during this call.
+	 * @param offset
+	 *            Index of the value of the first right-hand side symbol, the
+	 *            others follow from left to right.
+	 * @return Semantic value of the left-hand side.
+	 * @throws ParserException
+	 *             Exception if the rule cannot be applied to the values.
+	 */
+	int reduce(Rule rule, int[] values, int offset) throws ParserException;
+}
@@ -0,0 +1,234 @@
+package parser;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import lexer.Symbol;
+import parser.grammar.AbstractGrammar;
+import symbols.Alphabet;
+import symbols.NonTerminals.NonTerminal;
+import symbols.Tokens.Epsilon;
+import symbols.Tokens.Token;
+
+/**
+ * Table-driven LL(1) parser.
+ * 
+ * The predict table is generated from the first and follow sets of the
+ * grammar. Parsing is non-recursive: the symbols still to be derived are kept
+ * on an int stack, where tokens are represented by their ordinal and
+ * non-terminals by their ordinal shifted by the number of tokens.
+ */
+public class LL1Parser {
+
+	// Number of tokens, i.e. offset of the non-terminals on the stack
+	private static final int NR_TOKENS = Token.values().length;
+
+	// Lookahead column used when the input is completely read
+	private static final int END_OF_INPUT = NR_TOKENS;
+
+	// Initial size of the symbol stack and the output
+	private static final int INITIAL_CAPACITY = 64;
+
+	// Start symbol of grammar
+	private NonTerminal start;
+
+	// All productions, the index is the production id
+	private Rule[] productions;
+
+	// Right-hand sides as stack symbols in reversed order
+	private int[][] reversedRhs;
+
+	// Production per non-terminal and lookahead, -1 if there is none
+	private int[][] predict;
+
+	// Number of table entries with more than one production
+	private int conflicts;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param grammar
+	 *            Grammar.
+	 */
+	public LL1Parser(AbstractGrammar grammar) {
+		this.start = grammar.getStart();
+		buildTable(grammar, new LookAheadGenerator(grammar));
+	}
+
+	/**
+	 * Build the predict table. Production A -> alpha is entered for every
+	 * token in first(alpha) and, if alpha is nullable, for every token in
+	 * follow(A). If an entry is already occupied the first production is kept
+	 * and a conflict is counted.
+	 * 
+	 * @param grammar
+	 *            Grammar.
+	 * @param generatorLookAhead
+	 *            First and follow sets of the grammar.
+	 */
+	private void buildTable(AbstractGrammar grammar, LookAheadGenerator generatorLookAhead) {
+		List<Rule> rules = grammar.getRules();
+		productions = rules.toArray(new Rule[rules.size()]);
+		reversedRhs = new int[productions.length][];
+		predict = new int[NonTerminal.values().length][END_OF_INPUT + 1];
+		for (int[] row : predict) {
+			Arrays.fill(row, -1);
+		}
+
+		long epsilon = LookAheadGenerator.mask(Epsilon.EPS);
+		for (int p = 0; p < productions.length; p++) {
+			Alphabet[] rhs = productions[p].getRhs();
+			reversedRhs[p] = new int[rhs.length];
+			for (int i = 0; i < rhs.length; i++) {
+				reversedRhs[p][rhs.length - 1 - i] = code(rhs[i]);
+			}
+
+			long lookaheads = generatorLookAhead.getFirstMask(rhs, 0);
+			if ((lookaheads & epsilon) != 0) {
+				lookaheads = (lookaheads & ~epsilon) | generatorLookAhead.getFollowMask(productions[p].getLhs());
+			}
+			int[] row = predict[productions[p].getLhs().ordinal()];
+			for (int lookahead = 0; lookahead <= END_OF_INPUT; lookahead++) {
+				// Epsilon in a follow set stands for the end of the input
+				long bit = lookahead == END_OF_INPUT ? epsilon : LookAheadGenerator.mask(Token.values()[lookahead]);
+				if ((lookaheads & bit) == 0) {
+					continue;
+				}
+				if (row[lookahead] < 0) {
+					row[lookahead] = p;
+				} else {
+					conflicts++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the stack representation of a symbol.
+	 * 
+	 * @param symbol
+	 *            Token or non-terminal.
+	 * @return Code of the symbol.
+	 */
+	private static int code(Alphabet symbol) {
+		if (symbol instanceof Token) {
+			return ((Token) symbol).ordinal();
+		}
+		return NR_TOKENS + ((NonTerminal) symbol).ordinal();
+	}
+
+	/**
+	 * Get number of conflicts. The parser is only correct if the grammar is in
+	 * LL(1), i.e. there are no conflicts.
+	 * 
+	 * @return Number of conflicts.
+	 */
+	public int nrConflicts() {
+		return conflicts;
+	}
+
+	/**
+	 * Get the production with the given id.
+	 * 
+	 * @param id
+	 *            Production id.
+	 * @return Production.
+	 */
+	public Rule getProduction(int id) {
+		return productions[id];
+	}
+
+	/**
+	 * Parse the input via LL(1) parsing.
+	 * 
+	 * @param lexOutput
+	 *            List of symbols
+	 * @return A list of rules which corresponds to the left-most analysis
+	 * @throws ParserException
+	 *             Parser exception
+	 */
+	public List<Rule> parse(List<Symbol> lexOutput) throws ParserException {
+		int[] analysis = parseProductions(lexOutput);
+		return toRules(analysis, analysis.length);
+	}
+
+	/**
+	 * Parse the input via LL(1) parsing. Apart from growing the symbol stack
+	 * and the output array no objects are allocated.
+	 * 
+	 * @param lexOutput
+	 *            List of symbols
+	 * @return Ids of the applied productions in the order of the left-most
+	 *         analysis, see {@link #getProduction(int)}.
+	 * @throws ParserException
+	 *             Parser exception
+	 */
+	public int[] parseProductions(List<Symbol> lexOutput) throws ParserException {
+		int[] stack = new int[INITIAL_CAPACITY];
+		int top = 0;
+		int[] analysis = new int[INITIAL_CAPACITY];
+		int analysisSize = 0;
+
+		Iterator<Symbol> it = lexOutput.iterator();
+		int lookahead = it.hasNext() ? it.next().getToken().ordinal() : END_OF_INPUT;
+		stack[top] = code(start);
+
+		while (top >= 0) {
+			int symbol = stack[top--];
+			if (symbol < NR_TOKENS) {
+				// Match token
+				if (symbol != lookahead) {
+					throw new ParserException("Expected " + Token.values()[symbol] + " but found "
+							+ (lookahead == END_OF_INPUT ? "end of input" : Token.values()[lookahead]),
+							toRules(analysis, analysisSize));
+				}
+				lookahead = it.hasNext() ? it.next().getToken().ordinal() : END_OF_INPUT;
+			} else {
+				// Expand non-terminal
+				int production = predict[symbol - NR_TOKENS][lookahead];
+				if (production < 0) {
+					throw new ParserException("No rule for " + NonTerminal.values()[symbol - NR_TOKENS]
+							+ " with lookahead "
+							+ (lookahead == END_OF_INPUT ? "end of input" : Token.values()[lookahead]),
+							toRules(analysis, analysisSize));
+				}
+				if (analysisSize == analysis.length) {
+					analysis = Arrays.copyOf(analysis, 2 * analysis.length);
+				}
+				analysis[analysisSize++] = production;
+
+				int[] rhs = reversedRhs[production];
+				if (top + rhs.length >= stack.length) {
+					stack = Arrays.copyOf(stack, Math.max(2 * stack.length, top + rhs.length + 1));
+				}
+				System.arraycopy(rhs, 0, stack, top + 1, rhs.length);
+				top += rhs.length;
+			}
+		}
+
+		if (lookahead != END_OF_INPUT) {
+			throw new ParserException("Parser finished but there is more unprocessed input!",
+					toRules(analysis, analysisSize));
+		}
+		return Arrays.copyOf(analysis, analysisSize);
+	}
+
+	/**
+	 * Convert production ids into rules.
+	 * 
+	 * @param analysis
+	 *            Production ids
+	 * @param size
+	 *            Number of valid ids
+	 * @return List of rules
+	 */
+	private List<Rule> toRules(int[] analysis, int size) {
+		List<Rule> result = new LinkedList<Rule>();
+		for (int i = 0; i < size; i++) {
+			result.add(productions[analysis[i]]);
+		}
+		return result;
+	}
+}
@@ -8,6 +8,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Queue;
+import java.util.Set;
 
 import parser.grammar.AbstractGrammar;
 import symbols.Alphabet;
@@ -224,6 +225,15 @@ public class LR0SetGenerator {
 		return initialState;
 	}
 
+	/**
+	 * Get all LR(0) sets.
+	 * 
+	 * @return Complete state space.
+	 */
+	public Set<LR0Set> getStates() {
+		return states;
+	}
+
 	/**
 	 * Print all LR(0) sets.
 	 */
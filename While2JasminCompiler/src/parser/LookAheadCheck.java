@@ -0,0 +1,53 @@
+package parser;
+
+import parser.grammar.GrammarNullablePrefix;
+import symbols.NonTerminals.NonTerminal;
+import symbols.Tokens.Epsilon;
+import symbols.Tokens.Token;
+
+/**
+ * Regression check of the first sets: a non-terminal which starts with a
+ * nullable one but cannot derive epsilon itself must not contain epsilon in
+ * its first set, see {@link GrammarNullablePrefix}.
+ */
+public class LookAheadCheck {
+
+	/**
+	 * Starting method.
+	 * 
+	 * @param args
+	 *            Ignored.
+	 */
+	public static void main(String[] args) {
+		LookAheadGenerator generator = new LookAheadGenerator(GrammarNullablePrefix.getInstance());
+		generator.printFirstSets();
+		generator.printFollowSets();
+
+		long expected = LookAheadGenerator.mask(Token.NUMBER) | LookAheadGenerator.mask(Token.PLUS);
+		check("fi(START)", generator.getFirstMask(NonTerminal.START), expected);
+		check("fi(A)", generator.getFirstMask(NonTerminal.A), expected);
+		check("fi(B)", generator.getFirstMask(NonTerminal.B),
+				LookAheadGenerator.mask(Token.NUMBER) | LookAheadGenerator.mask(Epsilon.EPS));
+		check("fo(B)", generator.getFollowMask(NonTerminal.B), LookAheadGenerator.mask(Token.PLUS));
+		System.out.println("First and follow sets are correct");
+	}
+
+	/**
+	 * Compare a computed set with the expected one.
+	 * 
+	 * @param name
+	 *            Name of the set.
+	 * @param actual
+	 *            Computed mask.
+	 * @param expected
+	 *            Expected mask.
+	 * @throws IllegalStateException
+	 *             If the masks differ.
+	 */
+	private static void check(String name, long actual, long expected) {
+		if (actual != expected) {
+			throw new IllegalStateException(name + " is " + Long.toBinaryString(actual) + " instead of "
+					+ Long.toBinaryString(expected));
+		}
+	}
+}
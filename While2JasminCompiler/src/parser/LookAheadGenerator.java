@@ -1,6 +1,5 @@
 package parser;
 
-import java.util.Iterator;
 import java.util.List;
 
 import parser.grammar.AbstractGrammar;
@@ -8,21 +7,50 @@ import symbols.Alphabet;
 import symbols.NonTerminals.NonTerminal;
 import symbols.Tokens.Epsilon;
 import symbols.Tokens.Token;
-import util.MapSet;
 
 /**
  * Generator for first and follow sets for a given grammar.
+ * 
+ * Every set is stored as a bit mask of type long: bit i is set iff the token
+ * with ordinal i is contained, the bit after the last token stands for epsilon.
+ * The sets are computed by propagating along the dependency graph of the
+ * non-terminals in the order of its strongly connected components, such that
+ * every set is computed exactly once.
  */
 public class LookAheadGenerator {
 
+	// Number of non-terminals, i.e. size of the mask arrays
+	private static final int NR_NON_TERMINALS = NonTerminal.values().length;
+
+	// Bit representing epsilon
+	private static final int EPSILON_BIT = Token.values().length;
+
+	static {
+		assert (EPSILON_BIT < Long.SIZE);
+	}
+
 	// Grammar.
 	private AbstractGrammar grammar;
 
-	// First sets for each non-terminal
-	private MapSet<NonTerminal, Alphabet> first;
+	// All rules of the grammar
+	private List<Rule> rules;
+
+	// Nullable non-terminals
+	private boolean[] nullable;
+
+	// First sets for each non-terminal, indexed by ordinal
+	private long[] first;
 
-	// Follow sets for each non-terminal
-	private MapSet<NonTerminal, Alphabet> follow;
+	// Follow sets for each non-terminal, indexed by ordinal
+	private long[] follow;
+
+	// Helper fields for Tarjan's algorithm
+	private int[] index;
+	private int[] lowLink;
+	private int[] sccStack;
+	private boolean[] onStack;
+	private int sccStackSize;
+	private int nextIndex;
 
 	/**
 	 * Constructor.
@@ -32,72 +60,111 @@ public class LookAheadGenerator {
 	 */
 	public LookAheadGenerator(AbstractGrammar grammar) {
 		this.grammar = grammar;
+		this.rules = grammar.getRules();
 		computeFirst();
 		computeFollow();
 	}
 
 	/**
-	 * Compute the first set for each non-terminal.
+	 * Get the mask for a single symbol.
+	 * 
+	 * @param symbol
+	 *            Token or epsilon
+	 * @return Mask with the bit for the symbol set, 0 for non-terminals.
 	 */
-	public void computeFirst() {
-		first = new MapSet<NonTerminal, Alphabet>();
-		// TODO implement
-
-		List<Rule> rules = grammar.getRules();
-		Iterator<Rule> iter = rules.iterator();
-		while (iter.hasNext()) {
-			Rule rule = iter.next();
-			if (rule.getRhs().length > 0) {
-				// Add terminal symbol to first set
-				if (rule.getRhs()[0] instanceof Token) {
-					first.add(rule.getLhs(), rule.getRhs()[0]);
-					// Rule is not important anymore
-					iter.remove();
+	public static long mask(Alphabet symbol) {
+		if (symbol instanceof Token) {
+			return 1L << ((Token) symbol).ordinal();
+		} else if (symbol == Epsilon.EPS) {
+			return 1L << EPSILON_BIT;
+		}
+		return 0L;
+	}
+
+	/**
+	 * Compute the nullable non-terminals. Every rule counts its symbols which
+	 * are not known to be nullable, a non-terminal becomes nullable as soon as
+	 * one of its rules reaches zero.
+	 */
+	private void computeNullable() {
+		nullable = new boolean[NR_NON_TERMINALS];
+		int[] remaining = new int[rules.size()];
+		int[] worklist = new int[NR_NON_TERMINALS];
+		int worklistSize = 0;
+
+		for (int r = 0; r < rules.size(); r++) {
+			Rule rule = rules.get(r);
+			for (Alphabet symbol : rule.getRhs()) {
+				if (symbol instanceof Token) {
+					// Rule can never derive epsilon
+					remaining[r] = -1;
+					break;
 				}
-			} else {
-				// Add epsilon to first set
-				first.add(rule.getLhs(), Epsilon.EPS);
-				// Rule is not important anymore
-				iter.remove();
+				remaining[r]++;
+			}
+			if (remaining[r] == 0 && !nullable[rule.getLhs().ordinal()]) {
+				nullable[rule.getLhs().ordinal()] = true;
+				worklist[worklistSize++] = rule.getLhs().ordinal();
 			}
 		}
 
-		// Repeat until fix point is reached
-		boolean changed = true;
-		while (changed) {
-			changed = false;
-
-			for (Rule rule : rules) {
-				NonTerminal nonTerminal = rule.getLhs();
-				// Iterate over all symbols
-				for (int i = 0; i < rule.getRhs().length; i++) {
-					if (rule.getRhs()[i] instanceof Token) {
-						if (!first.contains(nonTerminal, rule.getRhs()[i])) {
-							// The symbol is a terminal and we take it
-							first.add(nonTerminal, rule.getRhs()[i]);
-							changed = true;
-						}
-						break;
-					} else {
-						boolean foundEpsilon = false;
-						assert (rule.getRhs()[i] instanceof NonTerminal);
-						NonTerminal newNonTerminal = (NonTerminal) rule.getRhs()[i];
-						for (Alphabet symbol : first.get(newNonTerminal)) {
-							if (!first.contains(nonTerminal, symbol)) {
-								first.add(nonTerminal, symbol);
-								changed = true;
-							}
-							if (symbol.equals(Epsilon.EPS)) {
-								foundEpsilon = true;
-							}
-						}
-						if (!foundEpsilon) {
-							break;
-						}
+		while (worklistSize > 0) {
+			NonTerminal nonTerminal = NonTerminal.values()[worklist[--worklistSize]];
+			for (int r = 0; r < rules.size(); r++) {
+				if (remaining[r] <= 0) {
+					continue;
+				}
+				Rule rule = rules.get(r);
+				for (Alphabet symbol : rule.getRhs()) {
+					if (symbol == nonTerminal) {
+						remaining[r]--;
 					}
 				}
+				if (remaining[r] == 0 && !nullable[rule.getLhs().ordinal()]) {
+					nullable[rule.getLhs().ordinal()] = true;
+					worklist[worklistSize++] = rule.getLhs().ordinal();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compute the first set for each non-terminal.
+	 */
+	public void computeFirst() {
+		computeNullable();
+
+		// first(A) contains first(B) if A -> alpha B beta and alpha is nullable
+		long[] direct = new long[NR_NON_TERMINALS];
+		boolean[][] dependsOn = new boolean[NR_NON_TERMINALS][NR_NON_TERMINALS];
+		for (Rule rule : rules) {
+			int lhs = rule.getLhs().ordinal();
+			for (Alphabet symbol : rule.getRhs()) {
+				if (symbol instanceof Token) {
+					direct[lhs] |= mask(symbol);
+					break;
+				}
+				int nonTerminal = ((NonTerminal) symbol).ordinal();
+				dependsOn[lhs][nonTerminal] = true;
+				if (!nullable[nonTerminal]) {
+					break;
+				}
+			}
+		}
+		for (int i = 0; i < NR_NON_TERMINALS; i++) {
+			if (nullable[i]) {
+				direct[i] |= mask(Epsilon.EPS);
 			}
 		}
+
+		first = propagate(direct, dependsOn);
+
+		// epsilon reaches a set through its nullable dependencies and is
+		// shared by all members of a component, but only belongs to the
+		// nullable non-terminals
+		for (int i = 0; i < NR_NON_TERMINALS; i++) {
+			first[i] = nullable[i] ? first[i] | mask(Epsilon.EPS) : first[i] & ~mask(Epsilon.EPS);
+		}
 	}
 
 	/**
@@ -107,76 +174,140 @@ public class LookAheadGenerator {
 	public void computeFollow() {
 		assert (first != null);
 
-		follow = new MapSet<NonTerminal, Alphabet>();
-		// TODO implement
+		// follow(B) contains first(beta) if A -> alpha B beta, and follow(A)
+		// if beta is nullable
+		long[] direct = new long[NR_NON_TERMINALS];
+		boolean[][] dependsOn = new boolean[NR_NON_TERMINALS][NR_NON_TERMINALS];
 
 		// Add epsilon to start symbol
-		follow.add(grammar.getStart(), Epsilon.EPS);
-
-		List<Rule> rules = grammar.getRules();
-		Iterator<Rule> iter = rules.iterator();
-		while (iter.hasNext()) {
-			Rule rule = iter.next();
-			for (int i = 0; i < rule.getRhs().length; i++) {
-				if (rule.getRhs()[i] instanceof NonTerminal) {
-					NonTerminal nonTerminal = (NonTerminal) rule.getRhs()[i];
-					if (i < rule.getRhs().length - 1 && rule.getRhs()[i + 1] instanceof Token) {
-						// Add token after non-terminal to follow set
-						follow.add(nonTerminal, rule.getRhs()[i + 1]);
-					}
+		direct[grammar.getStart().ordinal()] |= mask(Epsilon.EPS);
+
+		for (Rule rule : rules) {
+			Alphabet[] rhs = rule.getRhs();
+			for (int i = 0; i < rhs.length; i++) {
+				if (!(rhs[i] instanceof NonTerminal)) {
+					continue;
 				}
+				int nonTerminal = ((NonTerminal) rhs[i]).ordinal();
+				long firstOfRest = getFirstMask(rhs, i + 1);
+				direct[nonTerminal] |= firstOfRest & ~mask(Epsilon.EPS);
+				if ((firstOfRest & mask(Epsilon.EPS)) != 0) {
+					dependsOn[nonTerminal][rule.getLhs().ordinal()] = true;
+				}
+			}
+		}
+
+		follow = propagate(direct, dependsOn);
+	}
+
+	/**
+	 * Compute the first set of a suffix of a right-hand side.
+	 * 
+	 * @param rhs
+	 *            Right-hand side
+	 * @param from
+	 *            Index of the first symbol of the suffix
+	 * @return Mask of the first set of the suffix, containing epsilon iff the
+	 *         suffix is nullable.
+	 */
+	public long getFirstMask(Alphabet[] rhs, int from) {
+		long result = 0L;
+		for (int i = from; i < rhs.length; i++) {
+			if (rhs[i] instanceof Token) {
+				return result | mask(rhs[i]);
+			}
+			long firstSet = first[((NonTerminal) rhs[i]).ordinal()];
+			result |= firstSet & ~mask(Epsilon.EPS);
+			if ((firstSet & mask(Epsilon.EPS)) == 0) {
+				return result;
+			}
+		}
+		return result | mask(Epsilon.EPS);
+	}
+
+	/**
+	 * Solve the system set(A) = direct(A) | set(B) for all B that A depends
+	 * on. Tarjan's algorithm emits the strongly connected components in
+	 * reverse topological order, so all components a component depends on are
+	 * solved when it is emitted. All members of a component share one set.
+	 * 
+	 * @param direct
+	 *            Symbols directly contained in the sets
+	 * @param dependsOn
+	 *            Dependency relation between non-terminals
+	 * @return Solution for each non-terminal
+	 */
+	private long[] propagate(long[] direct, boolean[][] dependsOn) {
+		long[] result = new long[NR_NON_TERMINALS];
+		index = new int[NR_NON_TERMINALS];
+		lowLink = new int[NR_NON_TERMINALS];
+		sccStack = new int[NR_NON_TERMINALS];
+		onStack = new boolean[NR_NON_TERMINALS];
+		sccStackSize = 0;
+		nextIndex = 1;
+
+		for (int v = 0; v < NR_NON_TERMINALS; v++) {
+			if (index[v] == 0) {
+				strongConnect(v, direct, dependsOn, result);
 			}
 		}
+		return result;
+	}
 
-		// Repeat until fix point is reached
-		boolean changed = true;
-		while (changed) {
-			changed = false;
-
-			for (Rule rule : rules) {
-				// Iterate over all symbols
-				for (int i = 0; i < rule.getRhs().length; i++) {
-					if (rule.getRhs()[i] instanceof NonTerminal) {
-						NonTerminal nonTerminal = (NonTerminal) rule.getRhs()[i];
-						if (i < rule.getRhs().length - 1 && rule.getRhs()[i + 1] instanceof NonTerminal) {
-							NonTerminal newNonTerminal = (NonTerminal) rule.getRhs()[i + 1];
-							for (Alphabet symbol : first.get(newNonTerminal)) {
-								if (!follow.contains(nonTerminal, symbol)) {
-									follow.add(nonTerminal, symbol);
-									changed = true;
-								}
-							}
-						}
-
-						// Check if epsilons occur until end of rule
-						boolean allEpsilon = true;
-						for (int j = i + 1; j < rule.getRhs().length; j++) {
-							if (rule.getRhs()[j] instanceof Token) {
-								// Terminal found
-								allEpsilon = false;
-								break;
-							}
-							assert (rule.getRhs()[j] instanceof NonTerminal);
-							NonTerminal newNonTerminal = (NonTerminal) rule.getRhs()[j];
-							if (!first.contains(newNonTerminal, Epsilon.EPS)) {
-								// No epsilon in first set found
-								allEpsilon = false;
-								break;
-							}
-						}
-						if (allEpsilon) {
-							// Add follow set of lhs
-							for (Alphabet symbol : follow.get(rule.getLhs())) {
-								if (!follow.contains(nonTerminal, symbol)) {
-									follow.add(nonTerminal, symbol);
-									changed = true;
-								}
-							}
-						}
+	/**
+	 * Recursive step of Tarjan's algorithm.
+	 * 
+	 * @param v
+	 *            Current non-terminal
+	 * @param direct
+	 *            Symbols directly contained in the sets
+	 * @param dependsOn
+	 *            Dependency relation between non-terminals
+	 * @param result
+	 *            Solution which is filled for each completed component
+	 */
+	private void strongConnect(int v, long[] direct, boolean[][] dependsOn, long[] result) {
+		index[v] = nextIndex;
+		lowLink[v] = nextIndex;
+		nextIndex++;
+		sccStack[sccStackSize++] = v;
+		onStack[v] = true;
+
+		for (int w = 0; w < NR_NON_TERMINALS; w++) {
+			if (!dependsOn[v][w]) {
+				continue;
+			}
+			if (index[w] == 0) {
+				strongConnect(w, direct, dependsOn, result);
+				lowLink[v] = Math.min(lowLink[v], lowLink[w]);
+			} else if (onStack[w]) {
+				lowLink[v] = Math.min(lowLink[v], index[w]);
+			}
+		}
+
+		if (lowLink[v] == index[v]) {
+			// v is the root of a component, collect its members
+			int bottom = sccStackSize;
+			do {
+				bottom--;
+			} while (sccStack[bottom] != v);
+
+			long set = 0L;
+			for (int i = bottom; i < sccStackSize; i++) {
+				int member = sccStack[i];
+				set |= direct[member];
+				for (int w = 0; w < NR_NON_TERMINALS; w++) {
+					// Components outside are already solved
+					if (dependsOn[member][w] && !onStack[w]) {
+						set |= result[w];
 					}
 				}
 			}
-
+			for (int i = bottom; i < sccStackSize; i++) {
+				result[sccStack[i]] = set;
+				onStack[sccStack[i]] = false;
+			}
+			sccStackSize = bottom;
 		}
 	}
 
@@ -191,7 +322,7 @@ public class LookAheadGenerator {
 	 * @return True iff the follow set contains the symbol
 	 */
 	public boolean containsFirst(NonTerminal nonTerminal, Alphabet symbol) {
-		return first.contains(nonTerminal, symbol);
+		return (first[nonTerminal.ordinal()] & mask(symbol)) != 0;
 	}
 
 	/**
@@ -205,40 +336,75 @@ public class LookAheadGenerator {
 	 * @return True iff the follow set contains the symbol
 	 */
 	public boolean containsFollow(NonTerminal nonTerminal, Alphabet symbol) {
-		return follow.contains(nonTerminal, symbol);
+		return (follow[nonTerminal.ordinal()] & mask(symbol)) != 0;
+	}
+
+	/**
+	 * Get the first set for the given non-terminal as mask.
+	 * 
+	 * @param nonTerminal
+	 *            Non-terminal
+	 * @return Mask of the first set, see {@link #mask(Alphabet)}.
+	 */
+	public long getFirstMask(NonTerminal nonTerminal) {
+		return first[nonTerminal.ordinal()];
+	}
+
+	/**
+	 * Get the follow set for the given non-terminal as mask.
+	 * 
+	 * @param nonTerminal
+	 *            Non-terminal
+	 * @return Mask of the follow set, see {@link #mask(Alphabet)}.
+	 */
+	public long getFollowMask(NonTerminal nonTerminal) {
+		return follow[nonTerminal.ordinal()];
 	}
 
 	/**
 	 * Print first sets.
 	 */
 	public void printFirstSets() {
-		for (NonTerminal nonTerminal : first.keySet()) {
-			System.out.print("fi(" + nonTerminal + "): {");
-			Iterator<Alphabet> iter = first.get(nonTerminal).iterator();
-			while (iter.hasNext()) {
-				System.out.print(iter.next());
-				if (iter.hasNext()) {
-					System.out.print(", ");
-				}
-			}
-			System.out.println("}");
-		}
+		printSets("fi", first);
 	}
 
 	/**
 	 * Print follow sets.
 	 */
 	public void printFollowSets() {
-		for (NonTerminal nonTerminal : follow.keySet()) {
-			System.out.print("fo(" + nonTerminal + "): {");
-			Iterator<Alphabet> iter = follow.get(nonTerminal).iterator();
-			while (iter.hasNext()) {
-				System.out.print(iter.next());
-				if (iter.hasNext()) {
-					System.out.print(", ");
+		printSets("fo", follow);
+	}
+
+	/**
+	 * Print the sets of all non-terminals used in the grammar.
+	 * 
+	 * @param name
+	 *            Name of the sets
+	 * @param sets
+	 *            Sets to print
+	 */
+	private void printSets(String name, long[] sets) {
+		for (NonTerminal nonTerminal : NonTerminal.values()) {
+			if (grammar.getRules(nonTerminal).isEmpty()) {
+				continue;
+			}
+			StringBuilder line = new StringBuilder();
+			line.append(name + "(" + nonTerminal + "): {");
+			long set = sets[nonTerminal.ordinal()];
+			boolean separator = false;
+			for (Token token : Token.values()) {
+				if ((set & mask(token)) != 0) {
+					line.append(separator ? ", " : "");
+					line.append(token);
+					separator = true;
 				}
 			}
-			System.out.println("}");
+			if ((set & mask(Epsilon.EPS)) != 0) {
+				line.append(separator ? ", " : "");
+				line.append(Epsilon.EPS);
+			}
+			line.append("}");
+			System.out.println(line);
 		}
 	}
 }
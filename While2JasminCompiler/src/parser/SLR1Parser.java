@@ -1,21 +1,40 @@
 package parser;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Stack;
+import java.util.Map;
 
 import lexer.Symbol;
 import parser.grammar.AbstractGrammar;
-import symbols.Alphabet;
 import symbols.NonTerminals.NonTerminal;
 import symbols.Tokens.Epsilon;
+import symbols.Tokens.Token;
 
 /**
  * SLR(1) parser.
+ * 
+ * The LR(0) sets and the follow sets are compiled into an action and a goto
+ * table upon construction. States, lookaheads and productions are plain
+ * integers, such that the parse loop only works on a growable int stack.
  */
 public class SLR1Parser {
 
+	// Kinds of actions, stored in the lowest two bits of an action entry
+	private static final int ERROR = 0;
+	private static final int SHIFT = 1;
+	private static final int REDUCE = 2;
+	private static final int ACCEPT = 3;
+
+	// Lookahead column used when the input is completely read
+	private static final int END_OF_INPUT = Token.values().length;
+
+	// Initial size of the state stack and the output
+	private static final int INITIAL_CAPACITY = 64;
+
 	// Generator for LR(0) sets
 	private LR0SetGenerator generatorLR0;
 
@@ -25,6 +44,25 @@ public class SLR1Parser {
 	// Start symbol of grammar
 	private NonTerminal start;
 
+	// All productions, the index is the production id
+	private Rule[] productions;
+
+	// Left-hand side (ordinal) and length of right-hand side per production
+	private int[] productionLhs;
+	private int[] productionLength;
+
+	// All LR(0) sets, the index is the state number
+	private LR0Set[] states;
+
+	// Initial state number
+	private int initialState;
+
+	// Action per state and lookahead: kind | (argument << 2)
+	private int[][] action;
+
+	// Successor state per state and non-terminal, -1 if there is none
+	private int[][] gotoTable;
+
 	/**
 	 * Constructor.
 	 * 
@@ -35,6 +73,149 @@ public class SLR1Parser {
 		this.generatorLR0 = new LR0SetGenerator(grammar);
 		this.generatorLookAhead = new LookAheadGenerator(grammar);
 		this.start = grammar.getStart();
+		buildTables(grammar);
+	}
+
+	/**
+	 * Build the action and goto tables. The entries reflect the decisions of
+	 * SLR(1) parsing: accept on the final item at the end of the input, reduce
+	 * with the complete item if the lookahead is in its follow set, shift
+	 * otherwise. Shift/reduce conflicts are resolved by the operator
+	 * precedences of the grammar, see
+	 * {@link #resolveConflict(AbstractGrammar, Rule, Token, int, int)}.
+	 * 
+	 * @param grammar
+	 *            Grammar.
+	 */
+	private void buildTables(AbstractGrammar grammar) {
+		List<Rule> rules = grammar.getRules();
+		productions = rules.toArray(new Rule[rules.size()]);
+		productionLhs = new int[productions.length];
+		productionLength = new int[productions.length];
+		for (int p = 0; p < productions.length; p++) {
+			productionLhs[p] = productions[p].getLhs().ordinal();
+			productionLength[p] = productions[p].getRhs().length;
+		}
+
+		states = generatorLR0.getStates().toArray(new LR0Set[0]);
+		Map<LR0Set, Integer> stateNumbers = new HashMap<LR0Set, Integer>();
+		for (int s = 0; s < states.length; s++) {
+			stateNumbers.put(states[s], s);
+		}
+		initialState = stateNumbers.get(generatorLR0.getInitialState());
+
+		Token[] tokens = Token.values();
+		NonTerminal[] nonTerminals = NonTerminal.values();
+		action = new int[states.length][END_OF_INPUT + 1];
+		gotoTable = new int[states.length][nonTerminals.length];
+		for (int s = 0; s < states.length; s++) {
+			LR0Set state = states[s];
+			LR0Item completeItem = state.getCompleteItem();
+			int completeProduction = completeItem != null ? productionId(completeItem) : -1;
+
+			for (int lookahead = 0; lookahead <= END_OF_INPUT; lookahead++) {
+				if (lookahead == END_OF_INPUT) {
+					if (state.containsFinalItem(start)) {
+						action[s][lookahead] = ACCEPT | (completeProduction << 2);
+					} else if (completeItem != null
+							&& generatorLookAhead.containsFollow(completeItem.getLhs(), Epsilon.EPS)) {
+						action[s][lookahead] = REDUCE | (completeProduction << 2);
+					}
+				} else {
+					LR0Set successor = generatorLR0.getSuccessor(state, tokens[lookahead]);
+					boolean reduce = completeItem != null
+							&& generatorLookAhead.containsFollow(completeItem.getLhs(), tokens[lookahead]);
+					if (reduce && successor != null) {
+						action[s][lookahead] = resolveConflict(grammar, productions[completeProduction],
+								tokens[lookahead], completeProduction, stateNumbers.get(successor));
+					} else if (reduce) {
+						action[s][lookahead] = REDUCE | (completeProduction << 2);
+					} else if (successor != null) {
+						action[s][lookahead] = SHIFT | (stateNumbers.get(successor) << 2);
+					}
+				}
+			}
+
+			for (NonTerminal nonTerminal : nonTerminals) {
+				LR0Set successor = generatorLR0.getSuccessor(state, nonTerminal);
+				gotoTable[s][nonTerminal.ordinal()] = successor != null ? stateNumbers.get(successor) : -1;
+			}
+		}
+	}
+
+	/**
+	 * Resolve a shift/reduce conflict by the precedence declarations of the
+	 * grammar. If the lookahead binds stronger than the rule it is shifted, if
+	 * it binds weaker the rule is reduced. On equal precedence the
+	 * associativity of the lookahead decides. Without declarations the rule is
+	 * reduced.
+	 * 
+	 * @param grammar
+	 *            Grammar.
+	 * @param rule
+	 *            Rule of the complete item.
+	 * @param lookahead
+	 *            Lookahead token.
+	 * @param production
+	 *            Production id of the rule.
+	 * @param successor
+	 *            State number after shifting the lookahead.
+	 * @return Action table entry.
+	 */
+	private static int resolveConflict(AbstractGrammar grammar, Rule rule, Token lookahead, int production,
+			int successor) {
+		int rulePrecedence = grammar.getPrecedence(rule);
+		int tokenPrecedence = grammar.getPrecedence(lookahead);
+		if (rulePrecedence == 0 || tokenPrecedence == 0 || rulePrecedence > tokenPrecedence) {
+			return REDUCE | (production << 2);
+		}
+		if (rulePrecedence < tokenPrecedence) {
+			return SHIFT | (successor << 2);
+		}
+		switch (grammar.getAssociativity(lookahead)) {
+		case RIGHT:
+			return SHIFT | (successor << 2);
+		case NONASSOC:
+			return ERROR;
+		default:
+			return REDUCE | (production << 2);
+		}
+	}
+
+	/**
+	 * Find the production of a complete item.
+	 * 
+	 * @param item
+	 *            Complete item.
+	 * @return Production id.
+	 */
+	private int productionId(LR0Item item) {
+		for (int p = 0; p < productions.length; p++) {
+			if (productions[p].getLhs() == item.getLhs() && Arrays.equals(productions[p].getRhs(), item.getRhs())) {
+				return p;
+			}
+		}
+		throw new IllegalStateException("No production for item " + item);
+	}
+
+	/**
+	 * Get the production with the given id.
+	 * 
+	 * @param id
+	 *            Production id.
+	 * @return Production.
+	 */
+	public Rule getProduction(int id) {
+		return productions[id];
+	}
+
+	/**
+	 * Get the number of productions.
+	 * 
+	 * @return Number of productions.
+	 */
+	public int nrProductions() {
+		return productions.length;
 	}
 
 	/**
@@ -47,80 +228,207 @@ public class SLR1Parser {
 	 *             Parser exception
 	 */
 	public List<Rule> parse(List<Symbol> lexOutput) throws ParserException {
-		List<Rule> analysis = new LinkedList<Rule>();
+		Analysis analysis = new Analysis();
+		run(lexOutput, null, analysis);
+		return toRules(analysis);
+	}
 
-		// TODO implement SLR(1) parser
+	/**
+	 * Parse the input via SLR(1) parsing. Apart from growing the state stack
+	 * and the output array no objects are allocated.
+	 * 
+	 * @param lexOutput
+	 *            List of symbols
+	 * @return Ids of the applied productions in the order of the right-most
+	 *         analysis, see {@link #getProduction(int)}.
+	 * @throws ParserException
+	 *             Parser exception
+	 */
+	public int[] parseProductions(List<Symbol> lexOutput) throws ParserException {
+		Analysis analysis = new Analysis();
+		run(lexOutput, null, analysis);
+		return Arrays.copyOf(analysis.productions, analysis.size);
+	}
 
-		Iterator<Symbol> it = lexOutput.iterator();
-		Stack<LR0Set> stack = new Stack<LR0Set>();
-
-		stack.push(generatorLR0.getInitialState());
-		Alphabet lookahead = Epsilon.EPS;
-
-		while (!stack.isEmpty()) {
-			LR0Set currentSet = stack.peek();
-			// check if lookahead has been consumed by a previous iteration and
-			// if so read one more token
-			if (lookahead == Epsilon.EPS) {
-				// read one more symbol if there are any
-				lookahead = it.hasNext() ? it.next().getToken() : Epsilon.EPS;
+	/**
+	 * Parse the input via SLR(1) parsing and execute the given semantic actions
+	 * for every shift and every reduction, in the same pass. No right-most
+	 * analysis is recorded.
+	 * 
+	 * @param lexOutput
+	 *            List of symbols
+	 * @param actions
+	 *            Semantic actions.
+	 * @param <V>
+	 *            Type of the semantic values.
+	 * @return Semantic value of the start symbol.
+	 * @throws ParserException
+	 *             Parser exception
+	 */
+	public <V> V parse(List<Symbol> lexOutput, final SemanticActions<V> actions) throws ParserException {
+		// The objects are kept on a list parallel to the int value stack
+		final List<V> values = new ArrayList<V>(INITIAL_CAPACITY);
+		int result = run(lexOutput, new IntSemanticActions() {
+			public int shift(Symbol symbol) throws ParserException {
+				values.add(actions.shift(symbol));
+				return values.size() - 1;
 			}
 
-			// Finish parsing if the stack top contains [start -> alpha *]
-			if (currentSet.containsFinalItem(start) && lookahead == Epsilon.EPS) {
-				// input completely read
-				analysis.add(currentSet.getCompleteItem());
-				return analysis;
+			public int reduce(Rule rule, int[] stack, int offset) throws ParserException {
+				List<V> rhsValues = values.subList(values.size() - rule.getRhs().length, values.size());
+				V value = actions.reduce(rule, rhsValues);
+				rhsValues.clear();
+				values.add(value);
+				return values.size() - 1;
 			}
-			// otherwise continue parsing:
-			else {
-				// if stack top has a complete item and it matches the
-				// lookahead,
-				// reduce
-				if (currentSet.containsCompleteItem()
-						&& generatorLookAhead.containsFollow(currentSet.getCompleteItem().getLhs(), lookahead)) {
-					// Item of the form [A -> alpha *]
-					LR0Item completeItem = currentSet.getCompleteItem();
-					// remove |alpha| elements from the stack
-					for (int i = 0; i < completeItem.getRhs().length; i++) {
-						stack.pop();
-					}
-					// I' := Top(stack)
-					currentSet = stack.peek();
-					// J := delta(I', A)
-					LR0Set succState = generatorLR0.getSuccessor(currentSet, completeItem.getLhs());
-					if (succState == null) {
-						throw new ParserException(
-								"Tried reducing with rule " + completeItem + " but could not find a successor delta("
-										+ currentSet + ", " + completeItem.getLhs() + ")",
-								analysis);
-					}
-					stack.push(succState);
+		}, null);
+		return values.get(result);
+	}
+
+	/**
+	 * Parse the input via SLR(1) parsing and execute the given int valued
+	 * semantic actions for every shift and every reduction, in the same pass.
+	 * Apart from growing the stacks the parser itself allocates no objects.
+	 * 
+	 * @param lexOutput
+	 *            List of symbols
+	 * @param actions
+	 *            Semantic actions.
+	 * @return Semantic value of the start symbol.
+	 * @throws ParserException
+	 *             Parser exception
+	 */
+	public int parse(List<Symbol> lexOutput, IntSemanticActions actions) throws ParserException {
+		return run(lexOutput, actions, null);
+	}
+
+	/**
+	 * The parse loop. Either records the production ids into analysis or
+	 * executes the semantic actions on a value stack, which runs parallel to
+	 * the state stack.
+	 * 
+	 * @param lexOutput
+	 *            List of symbols
+	 * @param actions
+	 *            Semantic actions, or null.
+	 * @param analysis
+	 *            Output for the production ids, or null.
+	 * @return Semantic value of the start symbol, 0 without actions.
+	 * @throws ParserException
+	 *             Parser exception
+	 */
+	private int run(List<Symbol> lexOutput, IntSemanticActions actions, Analysis analysis) throws ParserException {
+		int[] stack = new int[INITIAL_CAPACITY];
+		int[] values = actions != null ? new int[INITIAL_CAPACITY] : null;
+		int top = 0;
+
+		Iterator<Symbol> it = lexOutput.iterator();
+		Symbol symbol = it.hasNext() ? it.next() : null;
+		int lookahead = symbol != null ? symbol.getToken().ordinal() : END_OF_INPUT;
+		stack[top] = initialState;
+
+		while (true) {
+			int state = stack[top];
+			int entry = action[state][lookahead];
+			int argument = entry >>> 2;
+			switch (entry & 3) {
+			case SHIFT:
+				if (++top == stack.length) {
+					stack = Arrays.copyOf(stack, 2 * stack.length);
+					values = values != null ? Arrays.copyOf(values, stack.length) : null;
+				}
+				stack[top] = argument;
+				if (actions != null) {
+					values[top] = actions.shift(symbol);
+				}
+				symbol = it.hasNext() ? it.next() : null;
+				lookahead = symbol != null ? symbol.getToken().ordinal() : END_OF_INPUT;
+				break;
+			case REDUCE:
+				// remove |alpha| elements from the stack, then J := delta(I', A)
+				top -= productionLength[argument];
+				int successor = gotoTable[stack[top]][productionLhs[argument]];
+				if (successor < 0) {
+					throw new ParserException("Tried reducing with rule " + states[state].getCompleteItem()
+							+ " but could not find a successor delta(" + states[stack[top]] + ", "
+							+ productions[argument].getLhs() + ")", toRules(analysis));
+				}
+				// epsilon rules make the stack grow on reduction
+				if (++top == stack.length) {
+					stack = Arrays.copyOf(stack, 2 * stack.length);
+					values = values != null ? Arrays.copyOf(values, stack.length) : null;
+				}
+				stack[top] = successor;
+				if (actions != null) {
+					// the values of the right-hand side start at the new top
+					values[top] = actions.reduce(productions[argument], values, top);
+				} else {
 					// append the applied rule (ensures correct order)
-					analysis.add(completeItem);
+					analysis.add(argument);
 				}
-				// otherwise, shift
-				else {
-					if (lookahead == Epsilon.EPS) {
-						// nothing more to read, nothing to reduce and no final
-						// item
-						throw new ParserException("Only shift operation possible but the input terminated", analysis);
-					} else {
-						LR0Set succState = generatorLR0.getSuccessor(currentSet, lookahead);
-						if (succState == null) {
-							throw new ParserException("Tried shifting " + lookahead
-									+ " onto the stack but could not find a successor delta(" + currentSet + ", "
-									+ lookahead + ")", analysis);
-						} else {
-							stack.push(succState);
-							// mark lookahead as consumed
-							lookahead = Epsilon.EPS;
-						}
-					}
+				break;
+			case ACCEPT:
+				// input completely read
+				if (actions != null) {
+					return actions.reduce(productions[argument], values, top + 1 - productionLength[argument]);
+				}
+				analysis.add(argument);
+				return 0;
+			default:
+				assert ((entry & 3) == ERROR);
+				if (lookahead == END_OF_INPUT) {
+					// nothing more to read, nothing to reduce and no final item
+					throw new ParserException("Only shift operation possible but the input terminated",
+							toRules(analysis));
 				}
+				Token token = symbol.getToken();
+				throw new ParserException("Tried shifting " + token
+						+ " onto the stack but could not find a successor delta(" + states[state] + ", " + token + ")",
+						toRules(analysis));
 			}
 		}
+	}
 
-		return analysis;
+	/**
+	 * Convert production ids into rules.
+	 * 
+	 * @param analysis
+	 *            Production ids, may be null.
+	 * @return List of rules, null if analysis is null.
+	 */
+	private List<Rule> toRules(Analysis analysis) {
+		if (analysis == null) {
+			return null;
+		}
+		List<Rule> result = new LinkedList<Rule>();
+		for (int i = 0; i < analysis.size; i++) {
+			result.add(productions[analysis.productions[i]]);
+		}
+		return result;
+	}
+
+	/**
+	 * Growable array of production ids.
+	 */
+	private static class Analysis {
+
+		// Production ids
+		private int[] productions = new int[INITIAL_CAPACITY];
+
+		// Number of valid ids
+		private int size = 0;
+
+		/**
+		 * Append a production id.
+		 * 
+		 * @param production
+		 *            Production id.
+		 */
+		private void add(int production) {
+			if (size == productions.length) {
+				productions = Arrays.copyOf(productions, 2 * productions.length);
+			}
+			productions[size++] = production;
+		}
 	}
 }
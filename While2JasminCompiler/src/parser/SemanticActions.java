@@ -0,0 +1,42 @@
+package parser;
+
+import java.util.List;
+
+import lexer.Symbol;
+
+/**
+ * Semantic actions executed by the parser. Every shifted token and every
+ * reduced non-terminal is assigned a semantic value, which is kept on a value
+ * stack next to the parser states.
+ * 
+ * @param <V>
+ *            Type of the semantic values.
+ */
+public interface SemanticActions<V> {
+
+	/**
+	 * Compute the value of a shifted token.
+	 * 
+	 * @param symbol
+	 *            Token and attribute from the lexer.
+	 * @return Semantic value of the token.
+	 * @throws ParserException
+	 *             Exception if the token is not valid in this position.
+	 */
+	V shift(Symbol symbol) throws ParserException;
+
+	/**
+	 * Compute the value of a non-terminal upon reduction.
+	 * 
+	 * @param rule
+	 *            The applied rule.
+	 * @param values
+	 *            Values of the right-hand side symbols from left to right. The
+	 *            list is a view on the value stack and only valid during this
+	 *            call.
+	 * @return Semantic value of the left-hand side.
+	 * @throws ParserException
+	 *             Exception if the rule cannot be applied to the values.
+	 */
+	V reduce(Rule rule, List<V> values) throws ParserException;
+}
@@ -8,6 +8,7 @@ import java.util.HashMap;
 import java.util.List;
 
 import parser.Rule;
+import symbols.Tokens.Token;
 
 /**
  * Abstract class representing a context free grammar.
@@ -20,6 +21,74 @@ public abstract class AbstractGrammar {
 	// Start symbol.
 	protected NonTerminal start;
 
+	// Precedence level per operator token, higher levels bind stronger.
+	private HashMap<Token, Integer> precedence = new HashMap<Token, Integer>();
+
+	// Associativity per operator token.
+	private HashMap<Token, Associativity> associativity = new HashMap<Token, Associativity>();
+
+	// Highest precedence level declared so far.
+	private int precedenceLevels = 0;
+
+	/**
+	 * Declare operator tokens of equal precedence. Every call opens a new
+	 * level which binds stronger than all levels declared before, i.e. the
+	 * declarations are given from the weakest to the strongest operators.
+	 * 
+	 * @param assoc
+	 *            Associativity of the tokens.
+	 * @param tokens
+	 *            Operator tokens.
+	 */
+	protected void declarePrecedence(Associativity assoc, Token... tokens) {
+		precedenceLevels++;
+		for (Token token : tokens) {
+			precedence.put(token, precedenceLevels);
+			associativity.put(token, assoc);
+		}
+	}
+
+	/**
+	 * Get the precedence of a token.
+	 * 
+	 * @param token
+	 *            Token.
+	 * @return Precedence level, 0 if none has been declared.
+	 */
+	public int getPrecedence(Token token) {
+		Integer level = precedence.get(token);
+		return level != null ? level : 0;
+	}
+
+	/**
+	 * Get the precedence of a rule, which is the precedence of the last token
+	 * on its right-hand side.
+	 * 
+	 * @param rule
+	 *            Rule.
+	 * @return Precedence level, 0 if none has been declared.
+	 */
+	public int getPrecedence(Rule rule) {
+		Alphabet[] rhs = rule.getRhs();
+		for (int i = rhs.length - 1; i >= 0; i--) {
+			if (rhs[i] instanceof Token) {
+				return getPrecedence((Token) rhs[i]);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Get the associativity of a token.
+	 * 
+	 * @param token
+	 *            Token.
+	 * @return Associativity, null if no precedence has been declared.
+	 */
+	public Associativity getAssociativity(Token token) {
+		return associativity.get(token);
+	}
+
 	/**
 	 * Get start symbol.
 	 * 
@@ -0,0 +1,14 @@
+package parser.grammar;
+
+/**
+ * Associativity of an operator token, used to resolve shift/reduce conflicts
+ * between operators of the same precedence.
+ */
+public enum Associativity {
+	// a op b op c is read as (a op b) op c, i.e. reduce
+	LEFT,
+	// a op b op c is read as a op (b op c), i.e. shift
+	RIGHT,
+	// a op b op c is a syntax error
+	NONASSOC
+}
@@ -0,0 +1,102 @@
+package parser.grammar;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import symbols.Alphabet;
+import symbols.NonTerminals.NonTerminal;
+import symbols.Tokens.Token;
+
+/**
+ * Represents the language of GrammarSLR1 as grammar in LL(1), i.e. without
+ * left recursion:
+ * START -> S
+ * S -> A C
+ * C -> +A C | eps
+ * A -> B D
+ * D -> *B D | eps
+ * B -> (S) | num
+ */
+public class GrammarLL1 extends AbstractGrammar {
+
+	// Single instance created upon class loading.
+	private static final AbstractGrammar INSTANCE = new GrammarLL1();
+
+	/**
+	 * Return singleton instance.
+	 * 
+	 * @return Singleton instance.
+	 */
+	public static AbstractGrammar getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Constructor.
+	 */
+	private GrammarLL1() {
+		start = NonTerminal.START;
+		rules = new HashMap<NonTerminal, List<List<Alphabet>>>();
+		List<Alphabet> rhs;
+		List<List<Alphabet>> alternatives;
+
+		// START -> S
+		rhs = new ArrayList<Alphabet>();
+		alternatives = new ArrayList<List<Alphabet>>();
+		rhs.add(NonTerminal.S);
+		alternatives.add(rhs);
+		rules.put(NonTerminal.START, alternatives);
+
+		// S -> A C
+		rhs = new ArrayList<Alphabet>();
+		alternatives = new ArrayList<List<Alphabet>>();
+		rhs.add(NonTerminal.A);
+		rhs.add(NonTerminal.C);
+		alternatives.add(rhs);
+		rules.put(NonTerminal.S, alternatives);
+
+		// C -> +A C | eps
+		rhs = new ArrayList<Alphabet>();
+		alternatives = new ArrayList<List<Alphabet>>();
+		rhs.add(Token.PLUS);
+		rhs.add(NonTerminal.A);
+		rhs.add(NonTerminal.C);
+		alternatives.add(rhs);
+		rhs = new ArrayList<Alphabet>();
+		alternatives.add(rhs);
+		rules.put(NonTerminal.C, alternatives);
+
+		// A -> B D
+		rhs = new ArrayList<Alphabet>();
+		alternatives = new ArrayList<List<Alphabet>>();
+		rhs.add(NonTerminal.B);
+		rhs.add(NonTerminal.D);
+		alternatives.add(rhs);
+		rules.put(NonTerminal.A, alternatives);
+
+		// D -> *B D | eps
+		rhs = new ArrayList<Alphabet>();
+		alternatives = new ArrayList<List<Alphabet>>();
+		rhs.add(Token.TIMES);
+		rhs.add(NonTerminal.B);
+		rhs.add(NonTerminal.D);
+		alternatives.add(rhs);
+		rhs = new ArrayList<Alphabet>();
+		alternatives.add(rhs);
+		rules.put(NonTerminal.D, alternatives);
+
+		// B -> (S) | num
+		rhs = new ArrayList<Alphabet>();
+		alternatives = new ArrayList<List<Alphabet>>();
+		rhs.add(Token.LPAR);
+		rhs.add(NonTerminal.S);
+		rhs.add(Token.RPAR);
+		alternatives.add(rhs);
+		rhs = new ArrayList<Alphabet>();
+		rhs.add(Token.NUMBER);
+		alternatives.add(rhs);
+		rules.put(NonTerminal.B, alternatives);
+	}
+
+}
@@ -0,0 +1,67 @@
+package parser.grammar;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import symbols.Alphabet;
+import symbols.NonTerminals.NonTerminal;
+import symbols.Tokens.Token;
+
+/**
+ * Grammar whose non-nullable non-terminal A starts with a nullable one, such
+ * that first(A) must not contain epsilon although first(B) does:
+ * START -> A EOF
+ * A -> B +
+ * B -> eps | num
+ */
+public class GrammarNullablePrefix extends AbstractGrammar {
+
+	// Single instance created upon class loading.
+	private static final AbstractGrammar INSTANCE = new GrammarNullablePrefix();
+
+	/**
+	 * Return singleton instance.
+	 * 
+	 * @return Singleton instance.
+	 */
+	public static AbstractGrammar getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Constructor.
+	 */
+	private GrammarNullablePrefix() {
+		start = NonTerminal.START;
+		rules = new HashMap<NonTerminal, List<List<Alphabet>>>();
+		List<Alphabet> rhs;
+		List<List<Alphabet>> alternatives;
+
+		// START -> A EOF
+		rhs = new ArrayList<Alphabet>();
+		alternatives = new ArrayList<List<Alphabet>>();
+		rhs.add(NonTerminal.A);
+		rhs.add(Token.EOF);
+		alternatives.add(rhs);
+		rules.put(NonTerminal.START, alternatives);
+
+		// A -> B +
+		rhs = new ArrayList<Alphabet>();
+		alternatives = new ArrayList<List<Alphabet>>();
+		rhs.add(NonTerminal.B);
+		rhs.add(Token.PLUS);
+		alternatives.add(rhs);
+		rules.put(NonTerminal.A, alternatives);
+
+		// B -> eps | num
+		rhs = new ArrayList<Alphabet>();
+		alternatives = new ArrayList<List<Alphabet>>();
+		alternatives.add(rhs);
+		rhs = new ArrayList<Alphabet>();
+		rhs.add(Token.NUMBER);
+		alternatives.add(rhs);
+		rules.put(NonTerminal.B, alternatives);
+	}
+
+}
@@ -12,7 +12,7 @@ import symbols.Tokens.Token;
  * Represents the grammar of the WHILE language.
  * 
  * start       -> program EOF
- * program     -> statement program | statement
+ * program     -> program statement | statement
  * statement   -> declaration SEM | assignment SEM | branch | loop | out SEM
  * declaration -> INT ID
  * assignment  -> ID ASSIGN expr | ID ASSIGN READ LBRAC RBRAC
@@ -20,11 +20,19 @@ import symbols.Tokens.Token;
  * branch      -> IF LBRAC guard RBRAC LCBRAC program RCBRAC |
  *                IF LBRAC guard RBRAC LCBRAC program RCBRAC ELSE LCBRAC program RCBRAC
  * loop        -> WHILE LBRAC guard RBRAC LCBRAC program RCBRAC
- * expr        -> NUM | ID | subexpr | LBRAC subexpr RBRAC
- * subexpr     -> expr PLUS expr | expr MINUS expr | expr TIMES expr | expr DIV expr
- * guard       -> relation | subguard | LBRAC subguard RBRAC | NOT LBRAC guard RBRAC
- * subguard    -> guard AND guard | guard OR guard
- * relation    -> expr LT expr | expr LEQ expr | expr EQ expr | expr NEQ expr | expr GEQ expr | expr GT expr
+ * expr        -> expr PLUS expr | expr MINUS expr | expr TIMES expr | expr DIV expr |
+ *                LBRAC expr RBRAC | NUM | ID
+ * guard       -> guard AND guard | guard OR guard | LBRAC guard RBRAC | NOT LBRAC guard RBRAC |
+ *                expr LT expr | expr LEQ expr | expr EQ expr | expr NEQ expr | expr GEQ expr | expr GT expr
+ * 
+ * The statement list is left-recursive, such that the parser reduces every
+ * statement right after reading it and its stack does not grow with the length
+ * of the program.
+ * 
+ * The binary operators are ambiguous on purpose, the parser resolves them by
+ * the declared precedences: OR < AND < relations < PLUS, MINUS < TIMES, DIV.
+ * All of them are left-associative except the relations, which cannot be
+ * chained.
  */
 public class WhileGrammar extends AbstractGrammar {
 
@@ -54,11 +62,11 @@ public class WhileGrammar extends AbstractGrammar {
 		alternatives.add(rhs);
 		rules.put(NonTerminal.START, alternatives);
 
-		// program -> statement program | statement
+		// program -> program statement | statement
 		rhs = new ArrayList<Alphabet>();
 		alternatives = new ArrayList<List<Alphabet>>();
-		rhs.add(NonTerminal.STATEMENT);
 		rhs.add(NonTerminal.PROGRAM);
+		rhs.add(NonTerminal.STATEMENT);
 		alternatives.add(rhs);
 		rhs = new ArrayList<Alphabet>();
 		rhs.add(NonTerminal.STATEMENT);
@@ -168,28 +176,10 @@ public class WhileGrammar extends AbstractGrammar {
 		alternatives.add(rhs);
 		rules.put(NonTerminal.LOOP, alternatives);
 
-		// expr -> NUM | ID | subexpr | LBRAC subexpr RBRAC
-		rhs = new ArrayList<Alphabet>();
+		// expr -> expr PLUS expr | expr MINUS expr | expr TIMES expr | expr DIV
+		// expr | LBRAC expr RBRAC | NUM | ID
 		alternatives = new ArrayList<List<Alphabet>>();
-		rhs.add(Token.NUMBER);
-		alternatives.add(rhs);
 		rhs = new ArrayList<Alphabet>();
-		rhs.add(Token.ID);
-		alternatives.add(rhs);
-		rhs = new ArrayList<Alphabet>();
-		rhs.add(NonTerminal.SUBEXPR);
-		alternatives.add(rhs);
-		rhs = new ArrayList<Alphabet>();
-		rhs.add(Token.LPAR);
-		rhs.add(NonTerminal.SUBEXPR);
-		rhs.add(Token.RPAR);
-		alternatives.add(rhs);
-		rules.put(NonTerminal.EXPR, alternatives);
-
-		// subexpr -> expr PLUS expr | expr MINUS expr | expr TIMES expr | expr
-		// DIV expr
-		rhs = new ArrayList<Alphabet>();
-		alternatives = new ArrayList<List<Alphabet>>();
 		rhs.add(NonTerminal.EXPR);
 		rhs.add(Token.PLUS);
 		rhs.add(NonTerminal.EXPR);
@@ -209,33 +199,24 @@ public class WhileGrammar extends AbstractGrammar {
 		rhs.add(Token.DIV);
 		rhs.add(NonTerminal.EXPR);
 		alternatives.add(rhs);
-		rules.put(NonTerminal.SUBEXPR, alternatives);
-
-		// guard -> relation | subguard | LBRAC subguard RBRAC | NOT LBRAC guard
-		// RBRAC
-		rhs = new ArrayList<Alphabet>();
-		alternatives = new ArrayList<List<Alphabet>>();
-		rhs.add(NonTerminal.RELATION);
-		alternatives.add(rhs);
-		rhs = new ArrayList<Alphabet>();
-		rhs.add(NonTerminal.SUBGUARD);
-		alternatives.add(rhs);
 		rhs = new ArrayList<Alphabet>();
 		rhs.add(Token.LPAR);
-		rhs.add(NonTerminal.SUBGUARD);
+		rhs.add(NonTerminal.EXPR);
 		rhs.add(Token.RPAR);
 		alternatives.add(rhs);
 		rhs = new ArrayList<Alphabet>();
-		rhs.add(Token.NOT);
-		rhs.add(Token.LPAR);
-		rhs.add(NonTerminal.GUARD);
-		rhs.add(Token.RPAR);
+		rhs.add(Token.NUMBER);
 		alternatives.add(rhs);
-		rules.put(NonTerminal.GUARD, alternatives);
-
-		// subguard -> guard AND guard | guard OR guard
 		rhs = new ArrayList<Alphabet>();
+		rhs.add(Token.ID);
+		alternatives.add(rhs);
+		rules.put(NonTerminal.EXPR, alternatives);
+
+		// guard -> guard AND guard | guard OR guard | LBRAC guard RBRAC | NOT
+		// LBRAC guard RBRAC | expr LT expr | expr LEQ expr | expr EQ expr |
+		// expr NEQ expr | expr GEQ expr | expr GT expr
 		alternatives = new ArrayList<List<Alphabet>>();
+		rhs = new ArrayList<Alphabet>();
 		rhs.add(NonTerminal.GUARD);
 		rhs.add(Token.AND);
 		rhs.add(NonTerminal.GUARD);
@@ -245,12 +226,18 @@ public class WhileGrammar extends AbstractGrammar {
 		rhs.add(Token.OR);
 		rhs.add(NonTerminal.GUARD);
 		alternatives.add(rhs);
-		rules.put(NonTerminal.SUBGUARD, alternatives);
-
-		// relation -> expr LT expr | expr LEQ expr | expr EQ expr | expr NEQ
-		// expr | expr GEQ expr | expr GT expr
 		rhs = new ArrayList<Alphabet>();
-		alternatives = new ArrayList<List<Alphabet>>();
+		rhs.add(Token.LPAR);
+		rhs.add(NonTerminal.GUARD);
+		rhs.add(Token.RPAR);
+		alternatives.add(rhs);
+		rhs = new ArrayList<Alphabet>();
+		rhs.add(Token.NOT);
+		rhs.add(Token.LPAR);
+		rhs.add(NonTerminal.GUARD);
+		rhs.add(Token.RPAR);
+		alternatives.add(rhs);
+		rhs = new ArrayList<Alphabet>();
 		rhs.add(NonTerminal.EXPR);
 		rhs.add(Token.LT);
 		rhs.add(NonTerminal.EXPR);
@@ -280,7 +267,14 @@ public class WhileGrammar extends AbstractGrammar {
 		rhs.add(Token.GT);
 		rhs.add(NonTerminal.EXPR);
 		alternatives.add(rhs);
-		rules.put(NonTerminal.RELATION, alternatives);
+		rules.put(NonTerminal.GUARD, alternatives);
+
+		// Operator precedences from the weakest to the strongest
+		declarePrecedence(Associativity.LEFT, Token.OR);
+		declarePrecedence(Associativity.LEFT, Token.AND);
+		declarePrecedence(Associativity.NONASSOC, Token.LT, Token.LEQ, Token.EQ, Token.NEQ, Token.GEQ, Token.GT);
+		declarePrecedence(Associativity.LEFT, Token.PLUS, Token.MINUS);
+		declarePrecedence(Associativity.LEFT, Token.TIMES, Token.DIV);
 	}
 
 }
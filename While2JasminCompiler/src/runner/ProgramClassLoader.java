@@ -0,0 +1,37 @@
+package runner;
+
+/**
+ * Class loader for a single compiled program. Every program gets its own
+ * loader, so that its class can be unloaded as soon as the loader is no
+ * longer referenced, and programs with the same class name can be run one
+ * after another.
+ */
+public class ProgramClassLoader extends ClassLoader {
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param parent
+	 *            Loader of the classes used by the program, i.e. the classes
+	 *            of the Java runtime.
+	 */
+	public ProgramClassLoader(ClassLoader parent) {
+		super(parent);
+	}
+
+	/**
+	 * Define the class of a program.
+	 * 
+	 * @param name
+	 *            Binary name of the class.
+	 * @param classFile
+	 *            Content of the class file.
+	 * @return Defined class.
+	 * @throws ClassFormatError
+	 *             Error if the class file is not valid.
+	 */
+	public Class<?> define(String name, byte[] classFile) {
+		return defineClass(name, classFile, 0, classFile.length);
+	}
+
+}
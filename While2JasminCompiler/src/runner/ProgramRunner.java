@@ -0,0 +1,228 @@
+package runner;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+import ast.FlatTreeBuilder;
+import checker.DeclarationChecker;
+import checker.SemanticException;
+import generator.ClassFileWriter;
+import generator.GeneratorException;
+import generator.JasminGenerator;
+import ir.CodeGenerator;
+import ir.ControlFlowGraph;
+import ir.PassManager;
+import ir.SsaBuilder;
+import lexer.BacktrackingDFA;
+import lexer.LexerException;
+import lexer.LexerGenerator;
+import lexer.Symbol;
+import optimizer.ConstantFolder;
+import optimizer.DeadCodeEliminator;
+import optimizer.LoopInvariantHoister;
+import optimizer.RegisterAllocator;
+import optimizer.peephole.PeepholeOptimizer;
+import parser.ParserException;
+import parser.SLR1Parser;
+import parser.grammar.WhileGrammar;
+
+/**
+ * Compiles programs into class files in memory and runs them in the current
+ * Java virtual machine, without writing files or starting a new process.
+ * 
+ * The lexer and the parse table are built once per runner, so a runner
+ * should be reused for many programs, e.g. by a test suite. Each program is
+ * defined by a fresh {@link ProgramClassLoader} which is discarded after the
+ * run, such that the classes of finished programs can be unloaded.
+ */
+public class ProgramRunner {
+
+	// Lexer for the while language, shared by all compilations
+	private final BacktrackingDFA lexer = new BacktrackingDFA();
+
+	// Parser for the while language, shared by all compilations
+	private final SLR1Parser parser;
+
+	// Evaluate both operands of && and ||, see JasminGenerator
+	private boolean eagerGuards = false;
+
+	// Generate the code from the intermediate representation, see SsaBuilder
+	private boolean ssa = false;
+
+	// Buffer the output of the programs, see JasminGenerator
+	private boolean bufferedOutput = false;
+
+	/**
+	 * Constructor.
+	 */
+	public ProgramRunner() {
+		this(new SLR1Parser(WhileGrammar.getInstance()));
+	}
+
+	/**
+	 * Constructor with a parser which has already been built.
+	 * 
+	 * @param parser
+	 *            Parser for the while language.
+	 */
+	public ProgramRunner(SLR1Parser parser) {
+		this.parser = parser;
+	}
+
+	/**
+	 * Choose the evaluation of conjunctions and disjunctions, see
+	 * {@link JasminGenerator#setEagerGuards(boolean)}.
+	 * 
+	 * @param eager
+	 *            True iff both operands are always evaluated.
+	 */
+	public void setEagerGuards(boolean eager) {
+		this.eagerGuards = eager;
+	}
+
+	/**
+	 * Choose the code generator. The intermediate representation is a
+	 * control flow graph in static single assignment form, which is
+	 * optimized by the passes of a {@link PassManager}.
+	 * 
+	 * @param ssa
+	 *            True iff the code is generated from the intermediate
+	 *            representation rather than the flattened tree.
+	 */
+	public void setSsa(boolean ssa) {
+		this.ssa = ssa;
+	}
+
+	/**
+	 * Choose how the programs write their output, see
+	 * {@link JasminGenerator#setBufferedOutput(boolean)}. The buffer is
+	 * printed by the System.out of the run, so the output can still be
+	 * redirected by System.setOut.
+	 * 
+	 * @param buffered
+	 *            True iff the output is buffered.
+	 */
+	public void setBufferedOutput(boolean buffered) {
+		this.bufferedOutput = buffered;
+	}
+
+	/**
+	 * Compile a program into a class file.
+	 * 
+	 * @param source
+	 *            Program text without the symbol for EOF.
+	 * @param className
+	 *            Name of the class, must be a valid Java identifier.
+	 * @return Content of the class file.
+	 * @throws LexerException
+	 *             Exception from the lexer.
+	 * @throws ParserException
+	 *             Exception from the parser.
+	 * @throws SemanticException
+	 *             Exception if a variable is not declared before use.
+	 * @throws GeneratorException
+	 *             Exception from the generator.
+	 */
+	public byte[] compile(String source, String className)
+			throws LexerException, ParserException, SemanticException, GeneratorException {
+		List<Symbol> symbols = LexerGenerator.analyse(lexer, source + "$", true);
+
+		FlatTreeBuilder treeBuilder = new FlatTreeBuilder();
+		parser.parse(symbols, treeBuilder);
+
+		DeclarationChecker checker = new DeclarationChecker(treeBuilder.getTree());
+		if (!checker.checkDeclaredBeforeUsed()) {
+			throw new SemanticException("Not every variable was declared before use.", checker.getDiagnostics());
+		}
+
+		new ConstantFolder().fold(checker.getTree());
+		new DeadCodeEliminator().eliminate(checker.getTree());
+		new LoopInvariantHoister().hoist(checker.getTree());
+
+		ClassFileWriter classWriter = new ClassFileWriter();
+		if (ssa) {
+			SsaBuilder builder = new SsaBuilder();
+			builder.setEagerGuards(eagerGuards);
+			ControlFlowGraph graph = builder.build(checker.getTree());
+			new PassManager().run(graph);
+			CodeGenerator codeGenerator = new CodeGenerator();
+			codeGenerator.setBufferedOutput(bufferedOutput);
+			codeGenerator.translate(className, graph, new PeepholeOptimizer(classWriter));
+			return classWriter.getBytes();
+		}
+		RegisterAllocator allocator = new RegisterAllocator();
+		allocator.setBufferedOutput(bufferedOutput);
+		allocator.allocate(checker.getTree());
+		JasminGenerator generator = new JasminGenerator();
+		generator.setEagerGuards(eagerGuards);
+		generator.setBufferedOutput(bufferedOutput);
+		generator.translateWHILE(className, checker.getTree(), new PeepholeOptimizer(classWriter));
+		return classWriter.getBytes();
+	}
+
+	/**
+	 * Run a compiled program by invoking its main method with the given
+	 * arguments. The program uses the standard streams of this virtual
+	 * machine. No runner is needed, so a class file from another compiler
+	 * does not pay for the lexer and parser of a runner.
+	 * 
+	 * @param className
+	 *            Name of the class.
+	 * @param classFile
+	 *            Content of the class file, as returned by
+	 *            {@link #compile(String, String)}.
+	 * @param args
+	 *            Arguments passed to the main method.
+	 * @throws GeneratorException
+	 *             Exception if the class has no public static main method.
+	 * @throws InvocationTargetException
+	 *             Exception thrown by the program, e.g. on a division by
+	 *             zero.
+	 */
+	public static void run(String className, byte[] classFile, String[] args)
+			throws GeneratorException, InvocationTargetException {
+		// The loader is only referenced during the run
+		ProgramClassLoader loader = new ProgramClassLoader(ProgramRunner.class.getClassLoader());
+		Class<?> program = loader.define(className, classFile);
+		Method main;
+		try {
+			main = program.getMethod("main", String[].class);
+		} catch (NoSuchMethodException e) {
+			throw new GeneratorException("Class " + className + " has no main method.");
+		}
+		if (!Modifier.isStatic(main.getModifiers())) {
+			throw new GeneratorException("Main method of class " + className + " is not static.");
+		}
+		try {
+			main.invoke(null, (Object) args);
+		} catch (IllegalAccessException e) {
+			throw new GeneratorException("Main method of class " + className + " is not accessible.");
+		}
+	}
+
+	/**
+	 * Compile a program and run it without arguments.
+	 * 
+	 * @param source
+	 *            Program text without the symbol for EOF.
+	 * @param className
+	 *            Name of the class, must be a valid Java identifier.
+	 * @throws LexerException
+	 *             Exception from the lexer.
+	 * @throws ParserException
+	 *             Exception from the parser.
+	 * @throws SemanticException
+	 *             Exception if a variable is not declared before use.
+	 * @throws GeneratorException
+	 *             Exception from the generator.
+	 * @throws InvocationTargetException
+	 *             Exception thrown by the program.
+	 */
+	public void run(String source, String className) throws LexerException, ParserException, SemanticException,
+			GeneratorException, InvocationTargetException {
+		run(className, compile(source, className), new String[0]);
+	}
+
+}
@@ -9,7 +9,7 @@ public class NonTerminals {
 	 * All known non-terminals.
 	 */
 	public static enum NonTerminal implements Alphabet {
-		START, PROGRAM, STATEMENT, DECLARATION, ASSIGNMENT, OUT, BRANCH, LOOP, EXPR, SUBEXPR, GUARD, SUBGUARD, RELATION,
+		START, PROGRAM, STATEMENT, DECLARATION, ASSIGNMENT, OUT, BRANCH, LOOP, EXPR, GUARD,
 		S, A, B, C, D
 	}
 }
@@ -0,0 +1,129 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Symbol table for nested scopes. Every name maps to a stack of its visible
+ * declarations, innermost on top. The declarations are also logged in their
+ * order, such that leaving a scope only pops the declarations of that scope
+ * and costs O(declarations in the scope) instead of a copy of all visible
+ * names.
+ * 
+ * @param <V>
+ *            Type of the value bound to a declaration.
+ */
+public class ScopedSymbolTable<V> {
+
+	/**
+	 * Declaration of a name, linked to the declaration it shadows.
+	 */
+	private static class Entry<V> {
+		private V value;
+		private int scope;
+		private Entry<V> shadowed;
+
+		private Entry(V value, int scope, Entry<V> shadowed) {
+			this.value = value;
+			this.scope = scope;
+			this.shadowed = shadowed;
+		}
+	}
+
+	// Innermost declaration per name
+	private HashMap<String, Entry<V>> declarations = new HashMap<String, Entry<V>>();
+
+	// Declared names in the order of their declarations
+	private List<String> log = new ArrayList<String>();
+
+	// Size of the log upon entering each open scope
+	private int[] marks = new int[16];
+
+	// Number of scopes around the outermost one
+	private int depth = 0;
+
+	/**
+	 * Open a nested scope.
+	 */
+	public void enterScope() {
+		if (depth == marks.length) {
+			marks = Arrays.copyOf(marks, 2 * depth);
+		}
+		marks[depth++] = log.size();
+	}
+
+	/**
+	 * Close the innermost scope, its declarations are no longer visible.
+	 * 
+	 * @return Number of declarations removed.
+	 */
+	public int exitScope() {
+		int mark = marks[--depth];
+		int removed = log.size() - mark;
+		while (log.size() > mark) {
+			String name = log.remove(log.size() - 1);
+			Entry<V> shadowed = declarations.get(name).shadowed;
+			if (shadowed != null) {
+				declarations.put(name, shadowed);
+			} else {
+				declarations.remove(name);
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Get the nesting depth of the innermost scope.
+	 * 
+	 * @return 0 for the outermost scope.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Declare a name in the innermost scope. A declaration in an outer scope
+	 * is shadowed until the scope is left, a declaration in the same scope is
+	 * rebound.
+	 * 
+	 * @param name
+	 *            Name.
+	 * @param value
+	 *            Value bound to the declaration.
+	 */
+	public void declare(String name, V value) {
+		Entry<V> entry = declarations.get(name);
+		if (entry != null && entry.scope == depth) {
+			entry.value = value;
+		} else {
+			declarations.put(name, new Entry<V>(value, depth, entry));
+			log.add(name);
+		}
+	}
+
+	/**
+	 * Check if a name is declared in the innermost scope.
+	 * 
+	 * @param name
+	 *            Name.
+	 * @return True iff the name is declared in the innermost scope.
+	 */
+	public boolean isDeclaredInScope(String name) {
+		Entry<V> entry = declarations.get(name);
+		return entry != null && entry.scope == depth;
+	}
+
+	/**
+	 * Look up the innermost visible declaration of a name.
+	 * 
+	 * @param name
+	 *            Name.
+	 * @return Value of the declaration, null if the name is not declared.
+	 */
+	public V lookup(String name) {
+		Entry<V> entry = declarations.get(name);
+		return entry != null ? entry.value : null;
+	}
+}
@@ -0,0 +1,60 @@
+package util;
+
+import java.io.IOException;
+
+/**
+ * Appendable which forwards everything to two appendables, e.g. to a file and
+ * to the console.
+ */
+public class TeeAppendable implements Appendable {
+
+	// Destinations
+	private final Appendable first;
+	private final Appendable second;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param first
+	 *            First destination.
+	 * @param second
+	 *            Second destination.
+	 */
+	public TeeAppendable(Appendable first, Appendable second) {
+		this.first = first;
+		this.second = second;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Appendable#append(java.lang.CharSequence)
+	 */
+	public Appendable append(CharSequence csq) throws IOException {
+		first.append(csq);
+		second.append(csq);
+		return this;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Appendable#append(java.lang.CharSequence, int, int)
+	 */
+	public Appendable append(CharSequence csq, int start, int end) throws IOException {
+		first.append(csq, start, end);
+		second.append(csq, start, end);
+		return this;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Appendable#append(char)
+	 */
+	public Appendable append(char c) throws IOException {
+		first.append(c);
+		second.append(c);
+		return this;
+	}
+}